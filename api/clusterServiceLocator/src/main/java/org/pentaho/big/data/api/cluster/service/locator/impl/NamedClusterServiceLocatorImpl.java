@@ -32,12 +32,16 @@ import org.pentaho.big.data.api.cluster.service.locator.NamedClusterServiceLocat
 import org.pentaho.big.data.api.initializer.ClusterInitializationException;
 import org.pentaho.big.data.api.initializer.ClusterInitializer;
 
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.Comparator;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.Objects;
 import java.util.SortedSet;
 import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.locks.Lock;
 import java.util.concurrent.locks.ReadWriteLock;
 import java.util.concurrent.locks.ReentrantReadWriteLock;
@@ -50,9 +54,21 @@ public class NamedClusterServiceLocatorImpl implements NamedClusterServiceLocato
   private final Multimap<Class<?>, ServiceFactoryAndRanking<?>> serviceFactoryMap;
   private final ReadWriteLock readWriteLock;
   private final ClusterInitializer clusterInitializer;
+  /**
+   * Services already created, keyed by service class and cluster name.  Each entry remembers the cluster configuration
+   * it was created from, with variables resolved against the cluster's variable space, so that a changed cluster
+   * definition or a different resolution of its variables gets a fresh service.
+   */
+  private final Map<ServiceKey, CachedService> serviceCache;
+  /**
+   * Configuration of each cluster (by name) that has been successfully initialized.
+   */
+  private final Map<String, List<Object>> initializedClusters;
 
   public NamedClusterServiceLocatorImpl( ClusterInitializer clusterInitializer ) {
     this.clusterInitializer = clusterInitializer;
+    serviceCache = new ConcurrentHashMap<>();
+    initializedClusters = new ConcurrentHashMap<>();
     readWriteLock = new ReentrantReadWriteLock();
     serviceFactoryMap =
       Multimaps.newSortedSetMultimap( new HashMap<Class<?>, Collection<ServiceFactoryAndRanking<?>>>(),
@@ -75,6 +91,10 @@ public class NamedClusterServiceLocatorImpl implements NamedClusterServiceLocato
     return serviceFactoryMap;
   }
 
+  @VisibleForTesting int getCachedServiceCount() {
+    return serviceCache.size();
+  }
+
   public void factoryAdded( NamedClusterServiceFactory<?> namedClusterServiceFactory, Map properties ) {
     if ( namedClusterServiceFactory == null ) {
       return;
@@ -85,6 +105,7 @@ public class NamedClusterServiceLocatorImpl implements NamedClusterServiceLocato
       writeLock.lock();
       serviceFactoryMap.get( serviceClass )
         .add( new ServiceFactoryAndRanking( (Integer) properties.get( SERVICE_RANKING ), namedClusterServiceFactory ) );
+      serviceCache.clear();
     } finally {
       writeLock.unlock();
     }
@@ -100,6 +121,7 @@ public class NamedClusterServiceLocatorImpl implements NamedClusterServiceLocato
       writeLock.lock();
       serviceFactoryMap.remove( serviceClass,
         new ServiceFactoryAndRanking( (Integer) properties.get( SERVICE_RANKING ), namedClusterServiceFactory ) );
+      serviceCache.clear();
     } finally {
       writeLock.unlock();
     }
@@ -107,24 +129,109 @@ public class NamedClusterServiceLocatorImpl implements NamedClusterServiceLocato
 
   @Override public <T> T getService( NamedCluster namedCluster, Class<T> serviceClass )
     throws ClusterInitializationException {
-    clusterInitializer.initialize( namedCluster );
+    String clusterName = namedCluster == null ? null : namedCluster.getName();
+    List<Object> clusterConfig = clusterName == null ? null : getClusterConfig( namedCluster );
+    if ( clusterConfig == null || !clusterConfig.equals( initializedClusters.get( clusterName ) ) ) {
+      clusterInitializer.initialize( namedCluster );
+      if ( clusterConfig != null ) {
+        initializedClusters.put( clusterName, clusterConfig );
+      }
+    }
     Lock readLock = readWriteLock.readLock();
     try {
       readLock.lock();
-      Collection<ServiceFactoryAndRanking<?>> serviceFactoryAndRankings = serviceFactoryMap.get( serviceClass );
-      if ( serviceFactoryAndRankings != null ) {
-        for ( ServiceFactoryAndRanking<?> serviceFactoryAndRanking : serviceFactoryAndRankings ) {
-          if ( serviceFactoryAndRanking.namedClusterServiceFactory.canHandle( namedCluster ) ) {
-            return serviceClass.cast( serviceFactoryAndRanking.namedClusterServiceFactory.create( namedCluster ) );
-          }
-        }
+      if ( clusterConfig == null ) {
+        // Without a name there is nothing stable to key on
+        return createService( namedCluster, serviceClass );
+      }
+      ServiceKey serviceKey = new ServiceKey( serviceClass, clusterName );
+      CachedService cachedService = serviceCache.get( serviceKey );
+      if ( cachedService != null && cachedService.clusterConfig.equals( clusterConfig ) ) {
+        return serviceClass.cast( cachedService.service );
+      }
+      T service = createService( namedCluster, serviceClass );
+      if ( service != null ) {
+        // Added under the read lock so factory changes (write lock) can't be missed by a concurrent creation
+        serviceCache.put( serviceKey, new CachedService( clusterConfig, service ) );
       }
+      return service;
     } finally {
       readLock.unlock();
     }
+  }
+
+  /**
+   * Must be called with the read lock held
+   */
+  private <T> T createService( NamedCluster namedCluster, Class<T> serviceClass ) {
+    Collection<ServiceFactoryAndRanking<?>> serviceFactoryAndRankings = serviceFactoryMap.get( serviceClass );
+    if ( serviceFactoryAndRankings != null ) {
+      for ( ServiceFactoryAndRanking<?> serviceFactoryAndRanking : serviceFactoryAndRankings ) {
+        if ( serviceFactoryAndRanking.namedClusterServiceFactory.canHandle( namedCluster ) ) {
+          return serviceClass.cast( serviceFactoryAndRanking.namedClusterServiceFactory.create( namedCluster ) );
+        }
+      }
+    }
     return null;
   }
 
+  /**
+   * The resolved values services are built from.  The last modified date is deliberately left out as clone() resets it
+   * and callers routinely clone the cluster before asking for a service.
+   */
+  private static List<Object> getClusterConfig( NamedCluster namedCluster ) {
+    return Arrays.<Object>asList(
+      resolve( namedCluster, namedCluster.getHdfsHost() ),
+      resolve( namedCluster, namedCluster.getHdfsPort() ),
+      resolve( namedCluster, namedCluster.getHdfsUsername() ),
+      resolve( namedCluster, namedCluster.getHdfsPassword() ),
+      resolve( namedCluster, namedCluster.getJobTrackerHost() ),
+      resolve( namedCluster, namedCluster.getJobTrackerPort() ),
+      resolve( namedCluster, namedCluster.getZooKeeperHost() ),
+      resolve( namedCluster, namedCluster.getZooKeeperPort() ),
+      resolve( namedCluster, namedCluster.getOozieUrl() ),
+      namedCluster.isMapr() );
+  }
+
+  private static String resolve( NamedCluster namedCluster, String value ) {
+    return value == null ? null : namedCluster.environmentSubstitute( value );
+  }
+
+  private static final class ServiceKey {
+    private final Class<?> serviceClass;
+    private final String clusterName;
+
+    private ServiceKey( Class<?> serviceClass, String clusterName ) {
+      this.serviceClass = serviceClass;
+      this.clusterName = clusterName;
+    }
+
+    @Override public boolean equals( Object o ) {
+      if ( this == o ) {
+        return true;
+      }
+      if ( o == null || getClass() != o.getClass() ) {
+        return false;
+      }
+      ServiceKey that = (ServiceKey) o;
+      return serviceClass.equals( that.serviceClass ) && clusterName.equals( that.clusterName );
+    }
+
+    @Override public int hashCode() {
+      return Objects.hash( serviceClass, clusterName );
+    }
+  }
+
+  private static final class CachedService {
+    private final List<Object> clusterConfig;
+    private final Object service;
+
+    private CachedService( List<Object> clusterConfig, Object service ) {
+      this.clusterConfig = clusterConfig;
+      this.service = service;
+    }
+  }
+
   static class ServiceFactoryAndRanking<T> {
     final int ranking;
     final NamedClusterServiceFactory<T> namedClusterServiceFactory;
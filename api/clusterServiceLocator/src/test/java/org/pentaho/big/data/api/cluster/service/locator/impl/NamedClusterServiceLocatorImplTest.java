@@ -38,9 +38,14 @@ import java.util.List;
 
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotSame;
 import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.mockito.AdditionalAnswers.returnsFirstArg;
+import static org.mockito.Matchers.anyString;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 import static org.pentaho.big.data.api.cluster.service.locator.impl.NamedClusterServiceLocatorImpl.SERVICE_RANKING;
@@ -65,6 +70,7 @@ public class NamedClusterServiceLocatorImplTest {
     serviceLocator = new NamedClusterServiceLocatorImpl( clusterInitializer );
     serviceFactoryMap = serviceLocator.getServiceFactoryMap();
     namedCluster = mock( NamedCluster.class );
+    when( namedCluster.environmentSubstitute( anyString() ) ).thenAnswer( returnsFirstArg() );
     namedClusterServiceFactory = mock( NamedClusterServiceFactory.class );
     namedClusterServiceFactory2 = mock( NamedClusterServiceFactory.class );
     namedClusterServiceFactory3 = mock( NamedClusterServiceFactory.class );
@@ -150,6 +156,85 @@ public class NamedClusterServiceLocatorImplTest {
     verify( clusterInitializer ).initialize( namedCluster );
   }
 
+  @Test
+  public void testGetServiceCached() throws ClusterInitializationException {
+    when( namedCluster.getName() ).thenReturn( "cluster" );
+    when( namedCluster.getHdfsHost() ).thenReturn( "host" );
+    when( namedClusterServiceFactory.canHandle( namedCluster ) ).thenReturn( true );
+    when( namedClusterServiceFactory.create( namedCluster ) ).thenReturn( value, new Object() );
+    assertSame( value, serviceLocator.getService( namedCluster, Object.class ) );
+    assertSame( value, serviceLocator.getService( namedCluster, Object.class ) );
+    verify( namedClusterServiceFactory, times( 1 ) ).create( namedCluster );
+    verify( clusterInitializer, times( 1 ) ).initialize( namedCluster );
+    assertEquals( 1, serviceLocator.getCachedServiceCount() );
+  }
+
+  @Test
+  public void testGetServiceClusterChanged() throws ClusterInitializationException {
+    when( namedCluster.getName() ).thenReturn( "cluster" );
+    when( namedCluster.getHdfsHost() ).thenReturn( "host" );
+    when( namedClusterServiceFactory.canHandle( namedCluster ) ).thenReturn( true );
+    when( namedClusterServiceFactory.create( namedCluster ) ).thenReturn( value, new Object() );
+    assertSame( value, serviceLocator.getService( namedCluster, Object.class ) );
+    when( namedCluster.getHdfsHost() ).thenReturn( "otherHost" );
+    assertNotSame( value, serviceLocator.getService( namedCluster, Object.class ) );
+    verify( namedClusterServiceFactory, times( 2 ) ).create( namedCluster );
+    verify( clusterInitializer, times( 2 ) ).initialize( namedCluster );
+    assertEquals( 1, serviceLocator.getCachedServiceCount() );
+  }
+
+  @Test
+  public void testGetServiceCachedForClone() throws ClusterInitializationException {
+    when( namedCluster.getName() ).thenReturn( "cluster" );
+    when( namedCluster.getHdfsHost() ).thenReturn( "host" );
+    when( namedCluster.getLastModifiedDate() ).thenReturn( 1L );
+    when( namedClusterServiceFactory.canHandle( namedCluster ) ).thenReturn( true );
+    when( namedClusterServiceFactory.create( namedCluster ) ).thenReturn( value, new Object() );
+    assertSame( value, serviceLocator.getService( namedCluster, Object.class ) );
+    // A clone only differs in its last modified date
+    when( namedCluster.getLastModifiedDate() ).thenReturn( 2L );
+    assertSame( value, serviceLocator.getService( namedCluster, Object.class ) );
+    verify( namedClusterServiceFactory, times( 1 ) ).create( namedCluster );
+  }
+
+  @Test
+  public void testGetServiceVariablesResolvedDifferently() throws ClusterInitializationException {
+    when( namedCluster.getName() ).thenReturn( "cluster" );
+    when( namedCluster.getHdfsHost() ).thenReturn( "${host}" );
+    when( namedCluster.environmentSubstitute( "${host}" ) ).thenReturn( "host" );
+    when( namedClusterServiceFactory.canHandle( namedCluster ) ).thenReturn( true );
+    when( namedClusterServiceFactory.create( namedCluster ) ).thenReturn( value, new Object() );
+    assertSame( value, serviceLocator.getService( namedCluster, Object.class ) );
+    assertSame( value, serviceLocator.getService( namedCluster, Object.class ) );
+    when( namedCluster.environmentSubstitute( "${host}" ) ).thenReturn( "otherHost" );
+    assertNotSame( value, serviceLocator.getService( namedCluster, Object.class ) );
+    verify( namedClusterServiceFactory, times( 2 ) ).create( namedCluster );
+  }
+
+  @Test
+  public void testGetServiceCacheClearedOnFactoryChange() throws ClusterInitializationException {
+    when( namedCluster.getName() ).thenReturn( "cluster" );
+    when( namedClusterServiceFactory.canHandle( namedCluster ) ).thenReturn( true );
+    when( namedClusterServiceFactory.create( namedCluster ) ).thenReturn( value );
+    when( namedClusterServiceFactory2.canHandle( namedCluster ) ).thenReturn( true );
+    Object value2 = new Object();
+    when( namedClusterServiceFactory2.create( namedCluster ) ).thenReturn( value2 );
+    assertSame( value, serviceLocator.getService( namedCluster, Object.class ) );
+    serviceLocator.factoryRemoved( namedClusterServiceFactory, Collections.singletonMap( SERVICE_RANKING, 2 ) );
+    assertEquals( 0, serviceLocator.getCachedServiceCount() );
+    assertSame( value2, serviceLocator.getService( namedCluster, Object.class ) );
+    serviceLocator.factoryAdded( namedClusterServiceFactory, Collections.singletonMap( SERVICE_RANKING, 2 ) );
+    assertSame( value, serviceLocator.getService( namedCluster, Object.class ) );
+    verify( clusterInitializer, times( 1 ) ).initialize( namedCluster );
+  }
+
+  @Test
+  public void testGetServiceNullNotCached() throws ClusterInitializationException {
+    when( namedCluster.getName() ).thenReturn( "cluster" );
+    assertNull( serviceLocator.getService( namedCluster, Object.class ) );
+    assertEquals( 0, serviceLocator.getCachedServiceCount() );
+  }
+
   @Test
   public void testNullAdded() {
     serviceFactoryMap.clear();
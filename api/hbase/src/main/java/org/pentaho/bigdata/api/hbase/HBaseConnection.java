@@ -27,6 +27,7 @@ import org.pentaho.bigdata.api.hbase.table.HBaseTable;
 import java.io.Closeable;
 import java.io.IOException;
 import java.util.List;
+import java.util.Properties;
 
 /**
  * Created by bryan on 1/19/16.
@@ -48,4 +49,10 @@ public interface HBaseConnection extends Closeable {
   void checkHBaseAvailable() throws IOException;
 
   List<String> listTableNames() throws IOException;
+
+  /**
+   * @return the resolved properties the connection was configured with (ZooKeeper quorum and port, site and default
+   * configuration), identifying the cluster it talks to
+   */
+  Properties getConnectionProperties();
 }
@@ -22,6 +22,8 @@
 
 package org.pentaho.bigdata.api.hbase;
 
+import org.pentaho.di.core.exception.KettleException;
+
 import java.util.NavigableMap;
 
 /**
@@ -36,5 +38,37 @@ public interface Result {
 
   byte[] getValue( String colFamilyName, String colName, boolean colNameIsBinary );
 
+  /**
+   * Gets a column value using an already encoded family and qualifier, avoiding any per call string conversion
+   *
+   * @param colFamily the encoded column family
+   * @param colName   the encoded column qualifier
+   * @return the value or null if the column isn't present
+   */
+  byte[] getValue( byte[] colFamily, byte[] colName );
+
   boolean isEmpty();
+
+  /**
+   * Visits the most recent version of each cell in the row, in family then qualifier order, without building the
+   * nested map view returned by {@link #getMap()}
+   *
+   * @param family  only visit cells in this (encoded) family, null for all families
+   * @param visitor the visitor
+   * @throws KettleException if the visitor throws
+   */
+  void visitLatestCells( byte[] family, CellVisitor visitor ) throws KettleException;
+
+  interface CellVisitor {
+    /**
+     * Visits a cell. Consecutive cells of the same family are passed the same family array instance.
+     *
+     * @param family    the column family
+     * @param qualifier the column qualifier
+     * @param timestamp the cell timestamp
+     * @param value     the cell value
+     * @throws KettleException if a problem occurs
+     */
+    void visit( byte[] family, byte[] qualifier, long timestamp, byte[] value ) throws KettleException;
+  }
 }
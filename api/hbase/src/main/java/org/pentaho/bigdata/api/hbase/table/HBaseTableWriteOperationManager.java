@@ -24,6 +24,7 @@ package org.pentaho.bigdata.api.hbase.table;
 
 import java.io.Closeable;
 import java.io.IOException;
+import java.util.List;
 
 /**
  * Created by bryan on 1/26/16.
@@ -36,4 +37,12 @@ public interface HBaseTableWriteOperationManager extends Closeable {
   HBaseDelete createDelete( byte[] key );
 
   void flushCommits() throws IOException;
+
+  /**
+   * Writes the puts as a single mutation list and flushes them, so a batch costs one round trip instead of one per put
+   *
+   * @param puts the puts to write, all created by this manager
+   * @throws IOException if the batch could not be written, some of the puts may have been applied
+   */
+  void executeBatch( List<HBasePut> puts ) throws IOException;
 }
@@ -40,5 +40,14 @@ public interface ResultScannerBuilder {
 
   void setCaching( int cacheSize );
 
+  /**
+   * Restricts the scan to one of splitCount disjoint sub-ranges of its key range, found by dividing the key space
+   * uniformly. The splits only depend on the key range, so together the splits cover the whole range exactly once.
+   *
+   * @param splitNumber the sub-range to scan, 0 based
+   * @param splitCount  the number of sub-ranges
+   */
+  void setKeyRangeSplit( int splitNumber, int splitCount );
+
   ResultScanner build() throws IOException;
 }
@@ -29,5 +29,13 @@ import org.pentaho.big.data.api.initializer.ClusterInitializationException;
  * Created by bryan on 5/22/15.
  */
 public interface HadoopFileSystemLocator {
+  /**
+   * Returns a HadoopFileSystem for the cluster, instances are shared between clusters that resolve to the same
+   * connection information
+   *
+   * @param namedCluster the cluster
+   * @return the filesystem or null if no factory could create one
+   * @throws ClusterInitializationException
+   */
   HadoopFileSystem getHadoopFilesystem( NamedCluster namedCluster ) throws ClusterInitializationException;
 }
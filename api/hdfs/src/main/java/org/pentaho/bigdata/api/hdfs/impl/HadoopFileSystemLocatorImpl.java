@@ -28,19 +28,28 @@ import org.pentaho.big.data.api.initializer.ClusterInitializer;
 import org.pentaho.bigdata.api.hdfs.HadoopFileSystem;
 import org.pentaho.bigdata.api.hdfs.HadoopFileSystemFactory;
 import org.pentaho.bigdata.api.hdfs.HadoopFileSystemLocator;
+import org.pentaho.di.core.variables.Variables;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.io.IOException;
 import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
 /**
  * Created by bryan on 6/4/15.
+ * <p/>
+ * Filesystems are shared between clusters that resolve to the same connection information. The shared instances don't
+ * hold on to a Hadoop FileSystem, they look it up through the shim for each operation, so one that has been closed
+ * (e.g. by FileSystem.closeAll()) is replaced on the next use rather than handed out dead.
  */
 public class HadoopFileSystemLocatorImpl implements HadoopFileSystemLocator {
   private static final Logger LOGGER = LoggerFactory.getLogger( HadoopFileSystemLocatorImpl.class );
   private final List<HadoopFileSystemFactory> hadoopFileSystemFactories;
   private final ClusterInitializer clusterInitializer;
+  private final ConcurrentMap<CacheKey, HadoopFileSystem> cache = new ConcurrentHashMap<>();
 
   public HadoopFileSystemLocatorImpl( List<HadoopFileSystemFactory> hadoopFileSystemFactories,
                                       ClusterInitializer clusterInitializer ) {
@@ -53,8 +62,20 @@ public class HadoopFileSystemLocatorImpl implements HadoopFileSystemLocator {
     clusterInitializer.initialize( namedCluster );
     for ( HadoopFileSystemFactory hadoopFileSystemFactory : hadoopFileSystemFactories ) {
       if ( hadoopFileSystemFactory.canHandle( namedCluster ) ) {
+        CacheKey cacheKey = new CacheKey( hadoopFileSystemFactory, namedCluster );
+        HadoopFileSystem cached = cache.get( cacheKey );
+        if ( cached != null ) {
+          return cached;
+        }
         try {
-          return hadoopFileSystemFactory.create( namedCluster );
+          HadoopFileSystem hadoopFileSystem = hadoopFileSystemFactory.create( namedCluster );
+          if ( hadoopFileSystem != null ) {
+            HadoopFileSystem existing = cache.putIfAbsent( cacheKey, hadoopFileSystem );
+            if ( existing != null ) {
+              return existing;
+            }
+          }
+          return hadoopFileSystem;
         } catch ( IOException e ) {
           LOGGER.warn( "Unable to create hdfs service with " + hadoopFileSystemFactory + " for " + namedCluster, e );
         }
@@ -62,4 +83,54 @@ public class HadoopFileSystemLocatorImpl implements HadoopFileSystemLocator {
     }
     return null;
   }
+
+  int size() {
+    return cache.size();
+  }
+
+  /**
+   * Identifies a filesystem by the factory (shim) that creates it and the resolved connection information of the
+   * cluster, so differently named clusters pointing at the same namenode share an instance
+   */
+  private static final class CacheKey {
+    private final HadoopFileSystemFactory hadoopFileSystemFactory;
+    private final boolean mapr;
+    private final String host;
+    private final String port;
+    private final String username;
+
+    private CacheKey( HadoopFileSystemFactory hadoopFileSystemFactory, NamedCluster namedCluster ) {
+      this.hadoopFileSystemFactory = hadoopFileSystemFactory;
+      this.mapr = namedCluster.isMapr();
+      if ( mapr ) {
+        host = null;
+        port = null;
+      } else {
+        Variables variables = new Variables();
+        variables.initializeVariablesFrom( null );
+        host = variables.environmentSubstitute( namedCluster.getHdfsHost() );
+        port = variables.environmentSubstitute( namedCluster.getHdfsPort() );
+      }
+      this.username = namedCluster.getHdfsUsername();
+    }
+
+    @Override public boolean equals( Object o ) {
+      if ( this == o ) {
+        return true;
+      }
+      if ( o == null || getClass() != o.getClass() ) {
+        return false;
+      }
+      CacheKey cacheKey = (CacheKey) o;
+      return mapr == cacheKey.mapr
+        && hadoopFileSystemFactory == cacheKey.hadoopFileSystemFactory
+        && Objects.equals( host, cacheKey.host )
+        && Objects.equals( port, cacheKey.port )
+        && Objects.equals( username, cacheKey.username );
+    }
+
+    @Override public int hashCode() {
+      return Objects.hash( System.identityHashCode( hadoopFileSystemFactory ), mapr, host, port, username );
+    }
+  }
 }
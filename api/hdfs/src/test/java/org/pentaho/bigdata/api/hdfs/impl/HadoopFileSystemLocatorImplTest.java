@@ -36,7 +36,9 @@ import java.util.List;
 
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.verifyNoMoreInteractions;
 import static org.mockito.Mockito.when;
@@ -84,4 +86,36 @@ public class HadoopFileSystemLocatorImplTest {
     verify( hadoopFileSystemFactory ).canHandle( namedCluster );
     verifyNoMoreInteractions( hadoopFileSystemFactory );
   }
+
+  @Test
+  public void testCachedForSameConnectionInfo() throws IOException, ClusterInitializationException {
+    NamedCluster otherCluster = mock( NamedCluster.class );
+    when( namedCluster.getHdfsHost() ).thenReturn( "host" );
+    when( namedCluster.getHdfsPort() ).thenReturn( "8020" );
+    when( otherCluster.getHdfsHost() ).thenReturn( "host" );
+    when( otherCluster.getHdfsPort() ).thenReturn( "8020" );
+    when( hadoopFileSystemFactory.canHandle( namedCluster ) ).thenReturn( true );
+    when( hadoopFileSystemFactory.canHandle( otherCluster ) ).thenReturn( true );
+    when( hadoopFileSystemFactory.create( namedCluster ) ).thenReturn( hadoopFileSystem );
+    assertSame( hadoopFileSystem, hadoopFileSystemLocator.getHadoopFilesystem( namedCluster ) );
+    assertSame( hadoopFileSystem, hadoopFileSystemLocator.getHadoopFilesystem( otherCluster ) );
+    verify( hadoopFileSystemFactory, times( 1 ) ).create( namedCluster );
+    verify( hadoopFileSystemFactory, times( 0 ) ).create( otherCluster );
+    assertEquals( 1, hadoopFileSystemLocator.size() );
+  }
+
+  @Test
+  public void testNotSharedForDifferentHost() throws IOException, ClusterInitializationException {
+    NamedCluster otherCluster = mock( NamedCluster.class );
+    HadoopFileSystem otherFileSystem = mock( HadoopFileSystem.class );
+    when( namedCluster.getHdfsHost() ).thenReturn( "host" );
+    when( otherCluster.getHdfsHost() ).thenReturn( "otherHost" );
+    when( hadoopFileSystemFactory.canHandle( namedCluster ) ).thenReturn( true );
+    when( hadoopFileSystemFactory.canHandle( otherCluster ) ).thenReturn( true );
+    when( hadoopFileSystemFactory.create( namedCluster ) ).thenReturn( hadoopFileSystem );
+    when( hadoopFileSystemFactory.create( otherCluster ) ).thenReturn( otherFileSystem );
+    assertSame( hadoopFileSystem, hadoopFileSystemLocator.getHadoopFilesystem( namedCluster ) );
+    assertSame( otherFileSystem, hadoopFileSystemLocator.getHadoopFilesystem( otherCluster ) );
+    assertEquals( 2, hadoopFileSystemLocator.size() );
+  }
 }
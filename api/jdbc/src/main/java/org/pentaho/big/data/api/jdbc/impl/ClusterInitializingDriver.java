@@ -34,31 +34,28 @@ import java.sql.DriverManager;
 import java.sql.DriverPropertyInfo;
 import java.sql.SQLException;
 import java.sql.SQLFeatureNotSupportedException;
-import java.util.ArrayList;
-import java.util.List;
 import java.util.Optional;
 import java.util.Properties;
 import java.util.logging.Logger;
+import java.util.regex.Pattern;
 
 /**
  * Created by bryan on 4/27/16.
  */
 public class ClusterInitializingDriver implements Driver {
 
-  private static final List<String> BIG_DATA_DRIVER_URL_PATTERNS = new ArrayList<>();
+  /**
+   * Matches hive, hive2, impala and spark urls.  Compiled once since this driver sees every url handed to
+   * DriverManager.
+   */
+  private static final Pattern BIG_DATA_DRIVER_URL_PATTERN = Pattern.compile( ".+:(?:hive|hive2|impala|spark):.*" );
 
   @VisibleForTesting
   protected static org.slf4j.Logger logger = LoggerFactory.getLogger( ClusterInitializingDriver.class );
 
   private final ClusterInitializer clusterInitializer;
   private final JdbcUrlParser jdbcUrlParser;
-
-  static {
-    BIG_DATA_DRIVER_URL_PATTERNS.add( ".+:hive:.*" );
-    BIG_DATA_DRIVER_URL_PATTERNS.add( ".+:hive2:.*" );
-    BIG_DATA_DRIVER_URL_PATTERNS.add( ".+:impala:.*" );
-    BIG_DATA_DRIVER_URL_PATTERNS.add( ".+:spark:.*" );
-  }
+  private volatile boolean clusterInitialized = false;
 
   public ClusterInitializingDriver( ClusterInitializer clusterInitializer, JdbcUrlParser jdbcUrlParser,
       DriverLocatorImpl driverRegistry ) {
@@ -106,20 +103,14 @@ public class ClusterInitializingDriver implements Driver {
   }
 
   boolean checkIfUsesBigDataDriver( String url ) {
-    List<String> urlPatterns = getUrlPatternsForBigDataDrivers();
-    for ( String pattern : urlPatterns ) {
-      if ( url.matches( pattern ) ) {
-        return true;
-      }
-    }
-    return false;
-  }
-
-  List<String> getUrlPatternsForBigDataDrivers() {
-    return BIG_DATA_DRIVER_URL_PATTERNS;
+    return url != null && BIG_DATA_DRIVER_URL_PATTERN.matcher( url ).matches();
   }
 
   private void initializeCluster( String url ) {
+    if ( clusterInitialized ) {
+      // Always initialized with a null namedCluster so once it has succeeded there is nothing left to do
+      return;
+    }
     try {
       // Initialize with a null namedCluster, since jdbc connections are not
       // associated with namedClusters.
@@ -127,6 +118,7 @@ public class ClusterInitializingDriver implements Driver {
       // jdbcUrlParser.parse( url ).getNamedCluster() );
       // But this had the potential to create a block. BACKLOG-10983
       clusterInitializer.initialize( null );
+      clusterInitialized = true;
     } catch ( Exception e ) {
       // Don't want to depend on legacy, so can't directly
       // check for NoShimSpecifiedException
@@ -23,6 +23,7 @@
 package org.pentaho.big.data.api.jdbc.impl;
 
 import org.osgi.framework.BundleContext;
+import org.osgi.framework.Constants;
 import org.osgi.framework.InvalidSyntaxException;
 import org.osgi.framework.ServiceReference;
 import org.pentaho.big.data.api.jdbc.DriverLocator;
@@ -33,11 +34,13 @@ import java.sql.Driver;
 import java.sql.DriverManager;
 import java.sql.SQLException;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * Created by bryan on 4/18/16.
@@ -48,6 +51,11 @@ public class DriverLocatorImpl implements DriverLocator {
   private final BundleContext bundleContext;
   private final HasRegisterDriver hasRegisterDriver;
   private final Map<ServiceReference<Driver>, List<Driver>> registeredDrivers;
+  /**
+   * Last driver that accepted a url, keyed by url prefix (e.g. jdbc:hive2:).  Cleared whenever a driver service
+   * changes.
+   */
+  private final Map<String, Driver> driversByUrlPrefix;
 
   public DriverLocatorImpl( BundleContext bundleContext ) {
     this( bundleContext, DriverManager::registerDriver, DriverManager::deregisterDriver, new HashMap<>() );
@@ -59,9 +67,13 @@ public class DriverLocatorImpl implements DriverLocator {
     this.bundleContext = bundleContext;
     this.hasRegisterDriver = hasRegisterDriver;
     this.registeredDrivers = registeredDrivers;
+    this.driversByUrlPrefix = new ConcurrentHashMap<>();
     this.bundleContext.addServiceListener( event -> {
       ServiceReference<?> serviceReference = event.getServiceReference();
       if ( serviceReference != null ) {
+        if ( isDriverReference( serviceReference ) ) {
+          driversByUrlPrefix.clear();
+        }
         List<Driver> drivers = registeredDrivers.remove( serviceReference );
         if ( drivers != null ) {
           for ( Driver driver : drivers ) {
@@ -101,20 +113,50 @@ public class DriverLocatorImpl implements DriverLocator {
   }
 
   @Override public Driver getDriver( String url ) {
+    String urlPrefix = getUrlPrefix( url );
+    Driver cachedDriver = driversByUrlPrefix.get( urlPrefix );
+    if ( cachedDriver != null && acceptsURL( cachedDriver, url ) ) {
+      return cachedDriver;
+    }
     Iterator<Map.Entry<ServiceReference<Driver>, Driver>> drivers = getDrivers();
     while ( drivers.hasNext() ) {
       Driver driver = drivers.next().getValue();
-      try {
-        if ( driver.acceptsURL( url ) ) {
-          return driver;
-        }
-      } catch ( SQLException e ) {
-        logger.error( "Unable to see if driver " + driver + " acceptsURL " + url );
+      if ( driver != cachedDriver && acceptsURL( driver, url ) ) {
+        driversByUrlPrefix.put( urlPrefix, driver );
+        return driver;
       }
     }
     return null;
   }
 
+  private boolean acceptsURL( Driver driver, String url ) {
+    try {
+      return driver.acceptsURL( url );
+    } catch ( SQLException e ) {
+      logger.error( "Unable to see if driver " + driver + " acceptsURL " + url );
+      return false;
+    }
+  }
+
+  /**
+   * Returns the url up to and including the subprotocol (jdbc:hive2://host:10000/default -> jdbc:hive2:)
+   */
+  static String getUrlPrefix( String url ) {
+    if ( url == null ) {
+      return "";
+    }
+    int firstColon = url.indexOf( ':' );
+    int secondColon = firstColon < 0 ? -1 : url.indexOf( ':', firstColon + 1 );
+    return secondColon < 0 ? url : url.substring( 0, secondColon + 1 );
+  }
+
+  private static boolean isDriverReference( ServiceReference<?> serviceReference ) {
+    Object objectClass = serviceReference.getProperty( Constants.OBJECTCLASS );
+    // Be conservative if the registration doesn't tell us what it is
+    return !( objectClass instanceof String[] ) || Arrays.asList( (String[]) objectClass )
+      .contains( Driver.class.getName() );
+  }
+
   public synchronized void registerDriverServiceReferencePair( ServiceReference<Driver> serviceReference, Driver driver,
                                                                boolean shouldRegisterExternally ) {
     try {
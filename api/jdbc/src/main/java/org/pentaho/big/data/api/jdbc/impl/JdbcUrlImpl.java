@@ -37,6 +37,7 @@ import java.util.Arrays;
 import java.util.HashMap;
 import java.util.Map;
 import java.util.Objects;
+import java.util.concurrent.TimeUnit;
 import java.util.stream.Collectors;
 
 /**
@@ -44,16 +45,25 @@ import java.util.stream.Collectors;
  */
 public class JdbcUrlImpl implements JdbcUrl {
   public static final String PENTAHO_NAMED_CLUSTER = "pentahoNamedCluster";
+  /**
+   * How long a named cluster read for a url is reused, the same setting the named cluster service caches by
+   */
+  public static final String NAMED_CLUSTER_CACHE_TTL_MILLIS_KEY = "pentaho.namedcluster.cache.ttl.millis";
+  public static final long DEFAULT_NAMED_CLUSTER_CACHE_TTL_MILLIS = TimeUnit.SECONDS.toMillis( 10 );
   private static final Logger logger = LoggerFactory.getLogger( JdbcUrlImpl.class );
   private final URI uri;
   private final Map<String, String> queryParams;
   private final NamedClusterService namedClusterService;
   private final MetastoreLocator metastoreLocator;
+  // Shared with the copies of this url
+  private final NamedClusterCache namedClusterCache;
 
   public JdbcUrlImpl( String url, NamedClusterService namedClusterService, MetastoreLocator metastoreLocator )
     throws URISyntaxException {
     this.namedClusterService = namedClusterService;
     this.metastoreLocator = metastoreLocator;
+    this.namedClusterCache = new NamedClusterCache(
+      Long.getLong( NAMED_CLUSTER_CACHE_TTL_MILLIS_KEY, DEFAULT_NAMED_CLUSTER_CACHE_TTL_MILLIS ) );
     if ( !url.startsWith( "jdbc:" ) ) {
       throw new URISyntaxException( url, "Should start with \"jdbc:\"" );
     }
@@ -82,6 +92,17 @@ public class JdbcUrlImpl implements JdbcUrl {
     }
   }
 
+  /**
+   * Copy constructor, the copy gets its own query parameters and shares the named cluster read for the original
+   */
+  JdbcUrlImpl( JdbcUrlImpl jdbcUrl ) {
+    this.namedClusterService = jdbcUrl.namedClusterService;
+    this.metastoreLocator = jdbcUrl.metastoreLocator;
+    this.namedClusterCache = jdbcUrl.namedClusterCache;
+    this.uri = jdbcUrl.uri;
+    this.queryParams = new HashMap<>( jdbcUrl.queryParams );
+  }
+
   @Override public String toString() {
     String queryParameters = queryParams.entrySet().stream()
       .map( entry -> entry.getKey() + "=" + entry.getValue() )
@@ -105,6 +126,10 @@ public class JdbcUrlImpl implements JdbcUrl {
     return queryParams.get( key );
   }
 
+  /**
+   * The named cluster is read once per metastore and name and reused by this url and its copies for
+   * {@link #NAMED_CLUSTER_CACHE_TTL_MILLIS_KEY}, callers must not modify it
+   */
   @Override public NamedCluster getNamedCluster()
     throws MetaStoreException {
     IMetaStore metaStore = metastoreLocator.getMetastore();
@@ -115,11 +140,46 @@ public class JdbcUrlImpl implements JdbcUrl {
     if ( queryParam == null ) {
       return null;
     }
-    return namedClusterService.read( queryParam, metaStore );
+    return namedClusterCache.get( queryParam, metaStore, namedClusterService );
   }
 
   @Override
   public String getHost() {
     return uri.getHost();
   }
+
+  static final class NamedClusterCache {
+    private final long ttlNanos;
+    private volatile CachedNamedCluster cached;
+
+    NamedClusterCache( long ttlMillis ) {
+      this.ttlNanos = TimeUnit.MILLISECONDS.toNanos( ttlMillis );
+    }
+
+    NamedCluster get( String name, IMetaStore metaStore, NamedClusterService namedClusterService )
+      throws MetaStoreException {
+      CachedNamedCluster current = cached;
+      long now = System.nanoTime();
+      if ( current == null || current.metaStore != metaStore || !current.name.equals( name )
+        || now - current.readNanos > ttlNanos ) {
+        current = new CachedNamedCluster( name, metaStore, namedClusterService.read( name, metaStore ), now );
+        cached = current;
+      }
+      return current.namedCluster;
+    }
+  }
+
+  private static final class CachedNamedCluster {
+    private final String name;
+    private final IMetaStore metaStore;
+    private final NamedCluster namedCluster;
+    private final long readNanos;
+
+    private CachedNamedCluster( String name, IMetaStore metaStore, NamedCluster namedCluster, long readNanos ) {
+      this.name = name;
+      this.metaStore = metaStore;
+      this.namedCluster = namedCluster;
+      this.readNanos = readNanos;
+    }
+  }
 }
@@ -28,20 +28,44 @@ import org.pentaho.big.data.api.jdbc.JdbcUrlParser;
 import org.pentaho.osgi.metastore.locator.api.MetastoreLocator;
 
 import java.net.URISyntaxException;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * Created by bryan on 4/4/16.
  */
 public class JdbcUrlParserImpl implements JdbcUrlParser {
+  /**
+   * Upper bound on the number of distinct urls remembered, the cache is simply dropped when it is reached
+   */
+  static final int MAX_CACHED_URLS = 1000;
   private final NamedClusterService namedClusterService;
   private final MetastoreLocator metastoreLocator;
+  private final Map<String, JdbcUrlImpl> parsedUrls;
 
   public JdbcUrlParserImpl( NamedClusterService namedClusterService, MetastoreLocator metastoreLocator ) {
     this.namedClusterService = namedClusterService;
     this.metastoreLocator = metastoreLocator;
+    this.parsedUrls = new ConcurrentHashMap<>();
   }
 
   @Override public JdbcUrl parse( String url ) throws URISyntaxException {
-    return new JdbcUrlImpl( url, namedClusterService, metastoreLocator );
+    if ( url == null ) {
+      return new JdbcUrlImpl( url, namedClusterService, metastoreLocator );
+    }
+    JdbcUrlImpl jdbcUrl = parsedUrls.get( url );
+    if ( jdbcUrl == null ) {
+      jdbcUrl = new JdbcUrlImpl( url, namedClusterService, metastoreLocator );
+      if ( parsedUrls.size() >= MAX_CACHED_URLS ) {
+        parsedUrls.clear();
+      }
+      parsedUrls.put( url, jdbcUrl );
+    }
+    // Callers are allowed to set query parameters so they each get their own copy
+    return new JdbcUrlImpl( jdbcUrl );
+  }
+
+  int getCachedUrlCount() {
+    return parsedUrls.size();
   }
 }
@@ -35,18 +35,22 @@ import java.util.Iterator;
 import java.util.Map;
 import java.util.Objects;
 import java.util.Properties;
+import java.util.concurrent.atomic.AtomicReference;
 import java.util.function.Function;
 import java.util.function.Predicate;
 import java.util.logging.Logger;
 
 /**
  * Created by bryan on 4/27/16.
+ * <p>
+ * Binds to the first big data driver that handles a url.  Once bound, calls go straight to the delegate without any
+ * locking so concurrent connections aren't serialized.
  */
 public class LazyDelegatingDriver implements Driver {
   private final DriverLocatorImpl driverLocator;
   private final HasRegisterDriver hasRegisterDriver;
-  private Driver delegate;
-  private DelegatingDriver delegatingDriver;
+  private final AtomicReference<Driver> delegate;
+  private final DelegatingDriver delegatingDriver;
 
   public LazyDelegatingDriver( DriverLocatorImpl driverLocator ) throws SQLException {
     this( driverLocator, DriverManager::registerDriver );
@@ -56,14 +60,15 @@ public class LazyDelegatingDriver implements Driver {
     throws SQLException {
     this.driverLocator = driverLocator;
     this.hasRegisterDriver = hasRegisterDriver;
+    this.delegate = new AtomicReference<>();
     this.delegatingDriver = new DelegatingDriver( this );
     hasRegisterDriver.registerDriver( delegatingDriver );
   }
 
-  private synchronized <T> T findAndProcess( FunctionWithSQLException<Driver, T> attempt, Predicate<T> success,
-                                             T defaultVal )
+  private <T> T findAndProcess( FunctionWithSQLException<Driver, T> attempt, Predicate<T> success, T defaultVal )
     throws SQLException {
-    if ( delegate == null ) {
+    Driver boundDriver = delegate.get();
+    if ( boundDriver == null ) {
       Iterator<Map.Entry<ServiceReference<Driver>, Driver>> drivers = driverLocator.getDrivers();
       while ( drivers.hasNext() ) {
         Map.Entry<ServiceReference<Driver>, Driver> driverEntry = drivers.next();
@@ -71,14 +76,16 @@ public class LazyDelegatingDriver implements Driver {
         Driver driver = driverEntry.getValue();
         T result = attempt.apply( driver );
         if ( success.test( result ) ) {
-          delegate = driver;
-          new LazyDelegatingDriver( driverLocator, hasRegisterDriver );
-          driverLocator.registerDriverServiceReferencePair( serviceReference, delegatingDriver, false );
+          // Only the thread that wins the binding registers the next lazy proxy
+          if ( delegate.compareAndSet( null, driver ) ) {
+            new LazyDelegatingDriver( driverLocator, hasRegisterDriver );
+            driverLocator.registerDriverServiceReferencePair( serviceReference, delegatingDriver, false );
+          }
           return result;
         }
       }
     } else {
-      T result = attempt.apply( delegate );
+      T result = attempt.apply( boundDriver );
       if ( success.test( result ) ) {
         return result;
       }
@@ -86,28 +93,31 @@ public class LazyDelegatingDriver implements Driver {
     return defaultVal;
   }
 
-  private synchronized <T> T process( Function<Driver, T> function, T defaultVal ) {
-    if ( delegate == null ) {
+  private <T> T process( Function<Driver, T> function, T defaultVal ) {
+    Driver boundDriver = delegate.get();
+    if ( boundDriver == null ) {
       return defaultVal;
     }
-    return function.apply( delegate );
+    return function.apply( boundDriver );
   }
 
-  private synchronized <T> T processSQLException( FunctionWithSQLException<Driver, T> function, T defaultVal )
+  private <T> T processSQLException( FunctionWithSQLException<Driver, T> function, T defaultVal )
     throws SQLException {
-    if ( delegate == null ) {
+    Driver boundDriver = delegate.get();
+    if ( boundDriver == null ) {
       return defaultVal;
     }
-    return function.apply( delegate );
+    return function.apply( boundDriver );
   }
 
-  private synchronized <T> T processSQLFeatureNotSupportedException(
+  private <T> T processSQLFeatureNotSupportedException(
     FunctionWithSQLFeatureNotSupportedException<Driver, T> function, T defaultVal )
     throws SQLFeatureNotSupportedException {
-    if ( delegate == null ) {
+    Driver boundDriver = delegate.get();
+    if ( boundDriver == null ) {
       return defaultVal;
     }
-    return function.apply( delegate );
+    return function.apply( boundDriver );
   }
 
   @Override public Connection connect( String url, Properties info ) throws SQLException {
@@ -111,6 +111,24 @@ public class ClusterInitializingDriverTest {
     verify( clusterInitializer ).initialize( null );
   }
 
+  @Test
+  public void testInitializedOnce() throws SQLException, ClusterInitializationException {
+    doReturn( true ).when( clusterInitializingDriver ).checkIfUsesBigDataDriver( any() );
+    assertFalse( clusterInitializingDriver.acceptsURL( testUrl ) );
+    assertNull( clusterInitializingDriver.connect( testUrl, null ) );
+    verify( clusterInitializer, times( 1 ) ).initialize( null );
+  }
+
+  @Test
+  public void testInitializeRetriedAfterFailure() throws SQLException, ClusterInitializationException {
+    doReturn( true ).when( clusterInitializingDriver ).checkIfUsesBigDataDriver( any() );
+    doThrow( new RuntimeException( "badness" ) ).doNothing().when( clusterInitializer ).initialize( null );
+    assertFalse( clusterInitializingDriver.acceptsURL( testUrl ) );
+    assertFalse( clusterInitializingDriver.acceptsURL( testUrl ) );
+    assertFalse( clusterInitializingDriver.acceptsURL( testUrl ) );
+    verify( clusterInitializer, times( 2 ) ).initialize( null );
+  }
+
   @Test
   public void testConfigFailureLoggedAsError() throws SQLException, ClusterInitializationException {
     doReturn( true ).when( clusterInitializingDriver ).checkIfUsesBigDataDriver( any() );
@@ -171,6 +189,16 @@ public class ClusterInitializingDriverTest {
     assertFalse( clusterInitializingDriver.checkIfUsesBigDataDriver( "jdbc:postgresql://localhost/test" ) );
   }
 
+  @Test
+  public void testCheckIfUsesBigDataDriverAllTypes() {
+    assertTrue( clusterInitializingDriver.checkIfUsesBigDataDriver( "jdbc:hive://localhost:10000" ) );
+    assertTrue( clusterInitializingDriver.checkIfUsesBigDataDriver( "jdbc:impala://localhost:21050" ) );
+    assertTrue( clusterInitializingDriver.checkIfUsesBigDataDriver( "jdbc:spark://localhost:10000" ) );
+    assertFalse( clusterInitializingDriver.checkIfUsesBigDataDriver( "hive2://localhost:10000" ) );
+    assertFalse( clusterInitializingDriver.checkIfUsesBigDataDriver( "jdbc:hive3://localhost:10000" ) );
+    assertFalse( clusterInitializingDriver.checkIfUsesBigDataDriver( null ) );
+  }
+
   class NoShimSpecifiedException extends RuntimeException {
     public NoShimSpecifiedException( String message ) {
       super( message );
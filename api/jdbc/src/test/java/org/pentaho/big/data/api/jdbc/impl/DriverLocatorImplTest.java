@@ -47,6 +47,7 @@ import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNull;
 import static org.mockito.Mockito.doThrow;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
@@ -157,4 +158,51 @@ public class DriverLocatorImplTest {
     when( driver.acceptsURL( testURL ) ).thenThrow( new SQLException() );
     assertNull( driverRegistry.getDriver( testURL ) );
   }
+
+  @Test
+  public void testGetDriverCached() throws SQLException, InvalidSyntaxException {
+    when( driver.acceptsURL( testURL ) ).thenReturn( true );
+    assertEquals( driver, driverRegistry.getDriver( testURL ) );
+    assertEquals( driver, driverRegistry.getDriver( testURL ) );
+    verify( bundleContext, times( 1 ) )
+      .getServiceReferences( Driver.class, DriverLocatorImpl.DATA_SOURCE_TYPE_BIGDATA );
+  }
+
+  @Test
+  public void testGetDriverCacheRechecksUrl() throws SQLException, InvalidSyntaxException {
+    String url = "jdbc:hive2://host:10000/default";
+    String otherUrl = "jdbc:hive2://otherHost:10000/default";
+    Driver driver2 = mock( Driver.class );
+    ServiceReference<Driver> serviceReference2 = mock( ServiceReference.class );
+    when( bundleContext.getServiceReferences( Driver.class, DriverLocatorImpl.DATA_SOURCE_TYPE_BIGDATA ) )
+      .thenReturn( Arrays.asList( serviceReference, serviceReference2 ) );
+    when( bundleContext.getService( serviceReference2 ) ).thenReturn( driver2 );
+    when( driver.acceptsURL( url ) ).thenReturn( true );
+    when( driver2.acceptsURL( otherUrl ) ).thenReturn( true );
+    assertEquals( driver, driverRegistry.getDriver( url ) );
+    assertEquals( driver2, driverRegistry.getDriver( otherUrl ) );
+    assertEquals( driver2, driverRegistry.getDriver( otherUrl ) );
+    verify( bundleContext, times( 2 ) )
+      .getServiceReferences( Driver.class, DriverLocatorImpl.DATA_SOURCE_TYPE_BIGDATA );
+  }
+
+  @Test
+  public void testGetDriverCacheClearedOnServiceEvent() throws SQLException, InvalidSyntaxException {
+    ServiceEvent serviceEvent = mock( ServiceEvent.class );
+    when( serviceEvent.getServiceReference() ).thenReturn( (ServiceReference) serviceReference );
+    when( driver.acceptsURL( testURL ) ).thenReturn( true );
+    assertEquals( driver, driverRegistry.getDriver( testURL ) );
+    serviceListener.serviceChanged( serviceEvent );
+    assertEquals( driver, driverRegistry.getDriver( testURL ) );
+    verify( bundleContext, times( 2 ) )
+      .getServiceReferences( Driver.class, DriverLocatorImpl.DATA_SOURCE_TYPE_BIGDATA );
+  }
+
+  @Test
+  public void testGetUrlPrefix() {
+    assertEquals( "jdbc:hive2:", DriverLocatorImpl.getUrlPrefix( "jdbc:hive2://host:10000/default" ) );
+    assertEquals( "jdbc:", DriverLocatorImpl.getUrlPrefix( "jdbc:" ) );
+    assertEquals( "testURL", DriverLocatorImpl.getUrlPrefix( "testURL" ) );
+    assertEquals( "", DriverLocatorImpl.getUrlPrefix( null ) );
+  }
 }
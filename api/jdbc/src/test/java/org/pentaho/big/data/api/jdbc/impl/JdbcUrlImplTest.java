@@ -37,6 +37,8 @@ import java.net.URISyntaxException;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertNull;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 /**
@@ -114,4 +116,38 @@ public class JdbcUrlImplTest {
     assertEquals( myCluster, jdbcUrl.getQueryParam( JdbcUrlImpl.PENTAHO_NAMED_CLUSTER ) );
     assertEquals( namedCluster, jdbcUrl.getNamedCluster() );
   }
+
+  @Test
+  public void testGetNamedClusterReadOnceForCopies() throws MetaStoreException, URISyntaxException {
+    String url = "jdbc:hive2://my.hadoop.cluster:999/default;" + JdbcUrlImpl.PENTAHO_NAMED_CLUSTER + "=myCluster";
+    IMetaStore iMetaStore = mock( IMetaStore.class );
+    NamedCluster namedCluster = mock( NamedCluster.class );
+    NamedCluster otherCluster = mock( NamedCluster.class );
+    when( namedClusterService.read( "myCluster", iMetaStore ) ).thenReturn( namedCluster );
+    when( namedClusterService.read( "otherCluster", iMetaStore ) ).thenReturn( otherCluster );
+    when( metastoreLocator.getMetastore() ).thenReturn( iMetaStore );
+    JdbcUrlImpl jdbcUrl = new JdbcUrlImpl( url, namedClusterService, metastoreLocator );
+    assertEquals( namedCluster, jdbcUrl.getNamedCluster() );
+    assertEquals( namedCluster, new JdbcUrlImpl( jdbcUrl ).getNamedCluster() );
+    verify( namedClusterService, times( 1 ) ).read( "myCluster", iMetaStore );
+
+    JdbcUrlImpl copy = new JdbcUrlImpl( jdbcUrl );
+    copy.setQueryParam( JdbcUrlImpl.PENTAHO_NAMED_CLUSTER, "otherCluster" );
+    assertEquals( otherCluster, copy.getNamedCluster() );
+  }
+
+  @Test
+  public void testNamedClusterCacheExpires() throws MetaStoreException {
+    IMetaStore iMetaStore = mock( IMetaStore.class );
+    IMetaStore otherMetaStore = mock( IMetaStore.class );
+    JdbcUrlImpl.NamedClusterCache namedClusterCache = new JdbcUrlImpl.NamedClusterCache( -1 );
+    namedClusterCache.get( "myCluster", iMetaStore, namedClusterService );
+    namedClusterCache.get( "myCluster", iMetaStore, namedClusterService );
+    verify( namedClusterService, times( 2 ) ).read( "myCluster", iMetaStore );
+
+    namedClusterCache = new JdbcUrlImpl.NamedClusterCache( 60000 );
+    namedClusterCache.get( "myCluster", iMetaStore, namedClusterService );
+    namedClusterCache.get( "myCluster", otherMetaStore, namedClusterService );
+    verify( namedClusterService ).read( "myCluster", otherMetaStore );
+  }
 }
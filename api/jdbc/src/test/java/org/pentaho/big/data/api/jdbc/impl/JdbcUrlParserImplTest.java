@@ -28,10 +28,14 @@ import org.junit.runner.RunWith;
 import org.mockito.Mock;
 import org.mockito.runners.MockitoJUnitRunner;
 import org.pentaho.big.data.api.cluster.NamedClusterService;
+import org.pentaho.big.data.api.jdbc.JdbcUrl;
 import org.pentaho.osgi.metastore.locator.api.MetastoreLocator;
 
 import java.net.URISyntaxException;
 
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
 import static org.junit.Assert.assertTrue;
 
 /**
@@ -52,4 +56,34 @@ public class JdbcUrlParserImplTest {
   public void testParse() throws URISyntaxException {
     assertTrue( jdbcUrlParser.parse( "jdbc:hive2://host:80/default" ) instanceof JdbcUrlImpl );
   }
+
+  @Test
+  public void testParseCached() throws URISyntaxException {
+    String url = "jdbc:hive2://host:80/default;a=b";
+    JdbcUrl first = jdbcUrlParser.parse( url );
+    JdbcUrl second = jdbcUrlParser.parse( url );
+    assertNotSame( first, second );
+    assertEquals( first.toString(), second.toString() );
+    assertEquals( 1, jdbcUrlParser.getCachedUrlCount() );
+    first.setQueryParam( "c", "d" );
+    assertNull( second.getQueryParam( "c" ) );
+    assertNull( jdbcUrlParser.parse( url ).getQueryParam( "c" ) );
+  }
+
+  @Test
+  public void testParseCacheBounded() throws URISyntaxException {
+    for ( int i = 0; i <= JdbcUrlParserImpl.MAX_CACHED_URLS; i++ ) {
+      jdbcUrlParser.parse( "jdbc:hive2://host" + i + ":80/default" );
+    }
+    assertTrue( jdbcUrlParser.getCachedUrlCount() <= JdbcUrlParserImpl.MAX_CACHED_URLS );
+  }
+
+  @Test( expected = URISyntaxException.class )
+  public void testParseInvalidNotCached() throws URISyntaxException {
+    try {
+      jdbcUrlParser.parse( "hive2://host:80/default" );
+    } finally {
+      assertEquals( 0, jdbcUrlParser.getCachedUrlCount() );
+    }
+  }
 }
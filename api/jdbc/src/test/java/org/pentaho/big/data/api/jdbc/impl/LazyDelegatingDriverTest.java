@@ -44,7 +44,11 @@ import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNotNull;
 import static org.junit.Assert.assertNull;
 import static org.junit.Assert.assertTrue;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.eq;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 /**
@@ -116,6 +120,16 @@ public class LazyDelegatingDriverTest {
     assertTrue( lazyDelegatingDriver.acceptsURL( testUrl ) );
   }
 
+  @Test
+  public void testBindsOnce() throws SQLException {
+    assertTrue( lazyDelegatingDriver.acceptsURL( testUrl ) );
+    assertTrue( lazyDelegatingDriver.acceptsURL( testUrl ) );
+    assertEquals( connection, lazyDelegatingDriver.connect( testUrl, null ) );
+    verify( driverRegistry, times( 1 ) ).getDrivers();
+    verify( driverRegistry, times( 1 ) )
+      .registerDriverServiceReferencePair( eq( goodDriverServiceReference ), any( Driver.class ), eq( false ) );
+  }
+
   @Test
   public void testGetPropertyInfoEmpty() throws SQLException {
     assertEquals( 0, lazyDelegatingDriver.getPropertyInfo( testUrl, null ).length );
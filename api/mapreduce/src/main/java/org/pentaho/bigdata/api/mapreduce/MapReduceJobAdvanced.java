@@ -23,6 +23,7 @@
 package org.pentaho.bigdata.api.mapreduce;
 
 import java.io.IOException;
+import java.util.concurrent.CompletableFuture;
 
 /**
  * MapReduce job interface that supports progress monitoring, completion events, and task diagnostics
@@ -69,4 +70,26 @@ public interface MapReduceJobAdvanced extends MapReduceJob {
    * @throws IOException
    */
   String[] getTaskDiagnostics( Object taskAttemptId ) throws IOException;
+
+  /**
+   * Returns a future that completes with the value of {@link #isSuccessful()} once the job is complete.  Jobs are
+   * watched by a shared monitor so waiting on the future doesn't poll the cluster from the calling thread.
+   *
+   * @return the completion future
+   */
+  CompletableFuture<Boolean> getCompletionFuture();
+
+  /**
+   * Registers a listener for progress and task completion events
+   *
+   * @param listener the listener
+   */
+  void addListener( MapReduceJobListener listener );
+
+  /**
+   * Removes a listener
+   *
+   * @param listener the listener
+   */
+  void removeListener( MapReduceJobListener listener );
 }
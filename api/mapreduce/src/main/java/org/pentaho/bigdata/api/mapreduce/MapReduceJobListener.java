@@ -0,0 +1,53 @@
+/*******************************************************************************
+ *
+ * Pentaho Big Data
+ *
+ * Copyright (C) 2002-2016 by Pentaho : http://www.pentaho.com
+ *
+ *******************************************************************************
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ ******************************************************************************/
+
+package org.pentaho.bigdata.api.mapreduce;
+
+import java.io.IOException;
+
+/**
+ * Receives progress updates for a running MapReduce job.  Listeners are called from a shared monitor thread so they
+ * should return quickly.
+ */
+public interface MapReduceJobListener {
+  /**
+   * Called each time the job is polled
+   *
+   * @param job            the job
+   * @param setupProgress  the setup progress
+   * @param mapProgress    the map progress
+   * @param reduceProgress the reduce progress
+   * @throws IOException
+   */
+  void onProgress( MapReduceJobAdvanced job, double setupProgress, double mapProgress, double reduceProgress )
+    throws IOException;
+
+  /**
+   * Called with the task completion events that arrived since the last poll, all events are delivered before the
+   * job's completion future completes
+   *
+   * @param job    the job
+   * @param events the new events
+   * @throws IOException
+   */
+  void onTaskCompletionEvents( MapReduceJobAdvanced job, TaskCompletionEvent[] events ) throws IOException;
+}
@@ -31,13 +31,32 @@ import org.pentaho.metastore.persist.MetaStoreFactory;
 import org.pentaho.metastore.util.PentahoDefaults;
 
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
 
 public class NamedClusterManager implements NamedClusterService {
+  public static final String CACHE_TTL_MILLIS_KEY = "pentaho.namedcluster.cache.ttl.millis";
+  public static final long DEFAULT_CACHE_TTL_MILLIS = TimeUnit.SECONDS.toMillis( 10 );
+
   private Map<IMetaStore, MetaStoreFactory<NamedClusterImpl>> factoryMap = new HashMap<>();
 
+  /**
+   * Named clusters by name for each metastore, dropped when this manager changes the metastore and reloaded after the
+   * ttl to pick up changes made elsewhere
+   */
+  private final Map<IMetaStore, CachedClusters> clusterCache = new ConcurrentHashMap<>();
+
+  private final AtomicLong cacheVersion = new AtomicLong();
+
+  private long cacheTtlNanos =
+    TimeUnit.MILLISECONDS.toNanos( Long.getLong( CACHE_TTL_MILLIS_KEY, DEFAULT_CACHE_TTL_MILLIS ) );
+
   private NamedCluster clusterTemplate;
 
   private MetaStoreFactory<NamedClusterImpl> getMetaStoreFactory( IMetaStore metastore ) {
@@ -53,6 +72,35 @@ public class NamedClusterManager implements NamedClusterService {
   @VisibleForTesting void putMetaStoreFactory( IMetaStore metastore,
                                                MetaStoreFactory<NamedClusterImpl> metaStoreFactory ) {
     factoryMap.put( metastore, metaStoreFactory );
+    invalidate( metastore );
+  }
+
+  @VisibleForTesting void setCacheTtlMillis( long cacheTtlMillis ) {
+    cacheTtlNanos = TimeUnit.MILLISECONDS.toNanos( cacheTtlMillis );
+  }
+
+  private void invalidate( IMetaStore metastore ) {
+    cacheVersion.incrementAndGet();
+    clusterCache.remove( metastore );
+  }
+
+  private Map<String, NamedClusterImpl> getCachedClusters( IMetaStore metastore ) throws MetaStoreException {
+    CachedClusters cachedClusters = clusterCache.get( metastore );
+    long now = System.nanoTime();
+    if ( cachedClusters != null && now - cachedClusters.loaded < cacheTtlNanos ) {
+      return cachedClusters.byName;
+    }
+    long version = cacheVersion.get();
+    Map<String, NamedClusterImpl> byName = new LinkedHashMap<>();
+    for ( NamedClusterImpl namedCluster : getMetaStoreFactory( metastore ).getElements() ) {
+      byName.put( namedCluster.getName(), namedCluster );
+    }
+    byName = Collections.unmodifiableMap( byName );
+    // Don't cache what we read if the metastore was changed through this manager while we were reading it
+    if ( cacheVersion.get() == version ) {
+      clusterCache.put( metastore, new CachedClusters( byName, now ) );
+    }
+    return byName;
   }
 
   @Override public NamedCluster getClusterTemplate() {
@@ -77,7 +125,11 @@ public class NamedClusterManager implements NamedClusterService {
   }
 
   @Override public void create( NamedCluster namedCluster, IMetaStore metastore ) throws MetaStoreException {
-    getMetaStoreFactory( metastore ).saveElement( new NamedClusterImpl( namedCluster ) );
+    try {
+      getMetaStoreFactory( metastore ).saveElement( new NamedClusterImpl( namedCluster ) );
+    } finally {
+      invalidate( metastore );
+    }
   }
 
   @Override public NamedCluster read( String clusterName, IMetaStore metastore ) throws MetaStoreException {
@@ -87,12 +139,20 @@ public class NamedClusterManager implements NamedClusterService {
 
   @Override public void update( NamedCluster namedCluster, IMetaStore metastore ) throws MetaStoreException {
     MetaStoreFactory<NamedClusterImpl> factory = getMetaStoreFactory( metastore );
-    factory.deleteElement( namedCluster.getName() );
-    factory.saveElement( new NamedClusterImpl( namedCluster ) );
+    try {
+      factory.deleteElement( namedCluster.getName() );
+      factory.saveElement( new NamedClusterImpl( namedCluster ) );
+    } finally {
+      invalidate( metastore );
+    }
   }
 
   @Override public void delete( String clusterName, IMetaStore metastore ) throws MetaStoreException {
-    getMetaStoreFactory( metastore ).deleteElement( clusterName );
+    try {
+      getMetaStoreFactory( metastore ).deleteElement( clusterName );
+    } finally {
+      invalidate( metastore );
+    }
   }
 
   @Override public List<NamedCluster> list( IMetaStore metastore ) throws MetaStoreException {
@@ -107,7 +167,7 @@ public class NamedClusterManager implements NamedClusterService {
     if ( metastore == null ) {
       return false;
     }
-    return listNames( metastore ).contains( clusterName );
+    return getCachedClusters( metastore ).containsKey( clusterName );
   }
 
   @Override public NamedCluster getNamedClusterByName( String namedCluster, IMetaStore metastore ) {
@@ -115,15 +175,26 @@ public class NamedClusterManager implements NamedClusterService {
       return null;
     }
     try {
-      List<NamedCluster> namedClusters = list( metastore );
-      for ( NamedCluster nc : namedClusters ) {
-        if ( nc.getName().equals( namedCluster ) ) {
-          return nc;
-        }
+      NamedClusterImpl namedClusterImpl = getCachedClusters( metastore ).get( namedCluster );
+      if ( namedClusterImpl == null ) {
+        return null;
       }
+      // Callers are free to modify what they get back, keep the cached instance pristine
+      NamedClusterImpl result = namedClusterImpl.clone();
+      result.setLastModifiedDate( namedClusterImpl.getLastModifiedDate() );
+      return result;
     } catch ( MetaStoreException e ) {
       return null;
     }
-    return null;
+  }
+
+  private static final class CachedClusters {
+    private final Map<String, NamedClusterImpl> byName;
+    private final long loaded;
+
+    private CachedClusters( Map<String, NamedClusterImpl> byName, long loaded ) {
+      this.byName = byName;
+      this.loaded = loaded;
+    }
   }
 }
@@ -39,6 +39,7 @@ import static org.junit.Assert.assertNull;
 import static org.junit.Assert.assertTrue;
 import static org.mockito.Matchers.eq;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
@@ -123,10 +124,12 @@ public class NamedClusterManagerTest {
   }
 
   @Test
+  @SuppressWarnings( "unchecked" )
   public void testContains() throws MetaStoreException {
     String testName = "testName";
-    List<String> names = new ArrayList<>( Arrays.asList( testName ) );
-    when( metaStoreFactory.getElementNames() ).thenReturn( names );
+    NamedClusterImpl namedCluster = new NamedClusterImpl();
+    namedCluster.setName( testName );
+    when( metaStoreFactory.getElements() ).thenReturn( new ArrayList<>( Arrays.asList( namedCluster ) ) );
     assertFalse( namedClusterManager.contains( testName, null ) );
     assertTrue( namedClusterManager.contains( testName, metaStore ) );
     assertFalse( namedClusterManager.contains( "testName2", metaStore ) );
@@ -136,14 +139,46 @@ public class NamedClusterManagerTest {
   @SuppressWarnings( "unchecked" )
   public void testGetNamedClusterByName() throws MetaStoreException {
     String testName = "testName";
-    NamedCluster namedCluster = mock( NamedCluster.class );
-    when( namedCluster.getName() ).thenReturn( testName );
+    NamedClusterImpl namedCluster = new NamedClusterImpl();
+    namedCluster.setName( testName );
+    namedCluster.setHdfsHost( "testHost" );
     List namedClusters = new ArrayList<>( Arrays.asList( namedCluster ) );
-    when( metaStoreFactory.getElements() ).thenReturn( namedClusters ).thenReturn( namedClusters ).thenThrow(
-      new MetaStoreException() );
+    when( metaStoreFactory.getElements() ).thenReturn( namedClusters ).thenThrow( new MetaStoreException() );
+    namedClusterManager.setCacheTtlMillis( 0 );
     assertNull( namedClusterManager.getNamedClusterByName( testName, null ) );
+    NamedCluster result = namedClusterManager.getNamedClusterByName( testName, metaStore );
+    assertEquals( namedCluster, result );
+    assertFalse( namedCluster == result );
+    assertNull( namedClusterManager.getNamedClusterByName( testName, metaStore ) );
+  }
+
+  @Test
+  @SuppressWarnings( "unchecked" )
+  public void testGetNamedClusterByNameCached() throws MetaStoreException {
+    String testName = "testName";
+    NamedClusterImpl namedCluster = new NamedClusterImpl();
+    namedCluster.setName( testName );
+    List namedClusters = new ArrayList<>( Arrays.asList( namedCluster ) );
+    when( metaStoreFactory.getElements() ).thenReturn( namedClusters );
     assertEquals( namedCluster, namedClusterManager.getNamedClusterByName( testName, metaStore ) );
     assertNull( namedClusterManager.getNamedClusterByName( "fakeName", metaStore ) );
-    assertNull( namedClusterManager.getNamedClusterByName( testName, metaStore ) );
+    assertTrue( namedClusterManager.contains( testName, metaStore ) );
+    verify( metaStoreFactory, times( 1 ) ).getElements();
+  }
+
+  @Test
+  @SuppressWarnings( "unchecked" )
+  public void testCacheInvalidatedOnChange() throws MetaStoreException {
+    String testName = "testName";
+    NamedClusterImpl namedCluster = new NamedClusterImpl();
+    namedCluster.setName( testName );
+    when( metaStoreFactory.getElements() ).thenReturn( new ArrayList<NamedClusterImpl>() )
+      .thenReturn( new ArrayList<>( Arrays.asList( namedCluster ) ) )
+      .thenReturn( new ArrayList<NamedClusterImpl>() );
+    assertFalse( namedClusterManager.contains( testName, metaStore ) );
+    namedClusterManager.create( namedCluster, metaStore );
+    assertTrue( namedClusterManager.contains( testName, metaStore ) );
+    namedClusterManager.delete( testName, metaStore );
+    assertFalse( namedClusterManager.contains( testName, metaStore ) );
   }
 }
@@ -24,6 +24,7 @@ package com.pentaho.big.data.bundles.impl.shim.hbase;
 
 import com.pentaho.big.data.bundles.impl.shim.hbase.connectionPool.HBaseConnectionHandle;
 import com.pentaho.big.data.bundles.impl.shim.hbase.connectionPool.HBaseConnectionPool;
+import com.pentaho.big.data.bundles.impl.shim.hbase.connectionPool.HBaseConnectionPoolRegistry;
 import com.pentaho.big.data.bundles.impl.shim.hbase.table.HBaseTableImpl;
 import org.pentaho.bigdata.api.hbase.HBaseConnection;
 import org.pentaho.bigdata.api.hbase.HBaseService;
@@ -34,6 +35,7 @@ import org.pentaho.hbase.shim.spi.HBaseShim;
 import java.io.IOException;
 import java.util.List;
 import java.util.Properties;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 /**
  * Created by bryan on 1/21/16.
@@ -42,6 +44,8 @@ public class HBaseConnectionImpl implements HBaseConnection {
   private final HBaseServiceImpl hBaseService;
   private final HBaseConnectionPool hBaseConnectionPool;
   private final HBaseBytesUtilShim hBaseBytesUtilShim;
+  private final HBaseConnectionPoolRegistry hBaseConnectionPoolRegistry;
+  private final AtomicBoolean closed = new AtomicBoolean( false );
 
   public HBaseConnectionImpl( HBaseServiceImpl hBaseService, HBaseShim hBaseShim, HBaseBytesUtilShim hBaseBytesUtilShim,
                               Properties connectionProps, LogChannelInterface logChannelInterface ) throws IOException {
@@ -50,9 +54,20 @@ public class HBaseConnectionImpl implements HBaseConnection {
 
   public HBaseConnectionImpl( HBaseServiceImpl hBaseService, HBaseBytesUtilShim hBaseBytesUtilShim,
                               HBaseConnectionPool hBaseConnectionPool ) {
+    this( hBaseService, hBaseBytesUtilShim, hBaseConnectionPool, null );
+  }
+
+  /**
+   * @param hBaseConnectionPoolRegistry the registry the pool was acquired from, the pool is released to it on close
+   *                                    instead of being closed directly (may be null)
+   */
+  public HBaseConnectionImpl( HBaseServiceImpl hBaseService, HBaseBytesUtilShim hBaseBytesUtilShim,
+                              HBaseConnectionPool hBaseConnectionPool,
+                              HBaseConnectionPoolRegistry hBaseConnectionPoolRegistry ) {
     this.hBaseService = hBaseService;
     this.hBaseBytesUtilShim = hBaseBytesUtilShim;
     this.hBaseConnectionPool = hBaseConnectionPool;
+    this.hBaseConnectionPoolRegistry = hBaseConnectionPoolRegistry;
   }
 
   @Override public HBaseService getService() {
@@ -80,7 +95,19 @@ public class HBaseConnectionImpl implements HBaseConnection {
     }
   }
 
+  @Override public Properties getConnectionProperties() {
+    Properties connectionProperties = new Properties();
+    if ( hBaseConnectionPool.getConnectionProps() != null ) {
+      connectionProperties.putAll( hBaseConnectionPool.getConnectionProps() );
+    }
+    return connectionProperties;
+  }
+
   @Override public void close() throws IOException {
-    hBaseConnectionPool.close();
+    if ( hBaseConnectionPoolRegistry == null ) {
+      hBaseConnectionPool.close();
+    } else if ( closed.compareAndSet( false, true ) ) {
+      hBaseConnectionPoolRegistry.release( hBaseConnectionPool );
+    }
   }
 }
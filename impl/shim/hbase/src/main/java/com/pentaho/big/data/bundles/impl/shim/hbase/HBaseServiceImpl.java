@@ -22,6 +22,8 @@
 
 package com.pentaho.big.data.bundles.impl.shim.hbase;
 
+import com.pentaho.big.data.bundles.impl.shim.hbase.connectionPool.HBaseConnectionPool;
+import com.pentaho.big.data.bundles.impl.shim.hbase.connectionPool.HBaseConnectionPoolRegistry;
 import com.pentaho.big.data.bundles.impl.shim.hbase.mapping.ColumnFilterFactoryImpl;
 import com.pentaho.big.data.bundles.impl.shim.hbase.mapping.MappingFactoryImpl;
 import com.pentaho.big.data.bundles.impl.shim.hbase.meta.HBaseValueMetaInterfaceFactoryImpl;
@@ -47,10 +49,17 @@ public class HBaseServiceImpl implements HBaseService {
   private final NamedCluster namedCluster;
   private final HBaseShim hBaseShim;
   private final HBaseBytesUtilShim bytesUtil;
+  private final HBaseConnectionPoolRegistry hBaseConnectionPoolRegistry;
 
   public HBaseServiceImpl( NamedCluster namedCluster, HadoopConfiguration hadoopConfiguration )
     throws ConfigurationException {
+    this( namedCluster, hadoopConfiguration, HBaseConnectionPoolRegistry.getInstance() );
+  }
+
+  public HBaseServiceImpl( NamedCluster namedCluster, HadoopConfiguration hadoopConfiguration,
+                           HBaseConnectionPoolRegistry hBaseConnectionPoolRegistry ) throws ConfigurationException {
     this.namedCluster = namedCluster;
+    this.hBaseConnectionPoolRegistry = hBaseConnectionPoolRegistry;
     this.hBaseShim = hadoopConfiguration.getHBaseShim();
     try {
       bytesUtil = this.hBaseShim.getHBaseConnection().getBytesUtil();
@@ -81,7 +90,16 @@ public class HBaseServiceImpl implements HBaseService {
     if ( !Const.isEmpty( defaultConfig ) ) {
       connProps.setProperty( org.pentaho.hbase.shim.spi.HBaseConnection.DEFAULTS_KEY, defaultConfig );
     }
-    return new HBaseConnectionImpl( this, hBaseShim, bytesUtil, connProps, logChannelInterface );
+    // Connections resolving to the same cluster and configuration share one pool across all steps in the JVM
+    HBaseConnectionPool hBaseConnectionPool = hBaseConnectionPoolRegistry.acquire( hBaseShim,
+      namedCluster == null ? null : namedCluster.getName(), connProps,
+      Const.toInt( variableSpace.getVariable( HBaseConnectionPool.MAX_SIZE_KEY ),
+        HBaseConnectionPool.DEFAULT_MAX_SIZE ),
+      Const.toLong( variableSpace.getVariable( HBaseConnectionPool.MAX_WAIT_MILLIS_KEY ),
+        HBaseConnectionPool.DEFAULT_MAX_WAIT_MILLIS ),
+      Const.toLong( variableSpace.getVariable( HBaseConnectionPool.IDLE_TIMEOUT_MILLIS_KEY ),
+        HBaseConnectionPool.DEFAULT_IDLE_TIMEOUT_MILLIS ) );
+    return new HBaseConnectionImpl( this, bytesUtil, hBaseConnectionPool, hBaseConnectionPoolRegistry );
   }
 
   @Override public ColumnFilterFactoryImpl getColumnFilterFactory() {
@@ -22,15 +22,20 @@
 
 package com.pentaho.big.data.bundles.impl.shim.hbase;
 
+import org.apache.hadoop.hbase.Cell;
+import org.apache.hadoop.hbase.CellUtil;
 import org.pentaho.bigdata.api.hbase.Result;
+import org.pentaho.di.core.exception.KettleException;
 import org.pentaho.hbase.shim.spi.HBaseBytesUtilShim;
 
+import java.util.Map;
 import java.util.NavigableMap;
 
 /**
  * Created by bryan on 1/22/16.
  */
 public class ResultImpl implements Result {
+  private static volatile boolean cellApiAvailable = true;
   private final org.apache.hadoop.hbase.client.Result result;
   private final HBaseBytesUtilShim hBaseBytesUtilShim;
 
@@ -56,7 +61,77 @@ public class ResultImpl implements Result {
       colNameIsBinary ? hBaseBytesUtilShim.toBytesBinary( colName ) : hBaseBytesUtilShim.toBytes( colName ) );
   }
 
+  @Override public byte[] getValue( byte[] colFamily, byte[] colName ) {
+    return result.getValue( colFamily, colName );
+  }
+
   @Override public boolean isEmpty() {
     return result.isEmpty();
   }
+
+  @Override public void visitLatestCells( byte[] family, CellVisitor visitor ) throws KettleException {
+    if ( cellApiAvailable ) {
+      try {
+        visitLatestRawCells( family, visitor );
+        return;
+      } catch ( NoSuchMethodError | NoClassDefFoundError e ) {
+        // hbase client from before the Cell api, fall back to the map view
+        cellApiAvailable = false;
+      }
+    }
+    visitLatestMapCells( family, visitor );
+  }
+
+  private void visitLatestRawCells( byte[] family, CellVisitor visitor ) throws KettleException {
+    Cell[] cells = result.rawCells();
+    if ( cells == null ) {
+      return;
+    }
+    // cells are sorted by family, qualifier and then newest timestamp first
+    Cell previous = null;
+    byte[] currentFamily = null;
+    for ( Cell cell : cells ) {
+      if ( family != null && !CellUtil.matchingFamily( cell, family ) ) {
+        continue;
+      }
+      boolean sameFamily = previous != null && CellUtil.matchingFamily( previous, cell );
+      if ( sameFamily && CellUtil.matchingQualifier( previous, cell ) ) {
+        // older version of the previous cell
+        continue;
+      }
+      if ( !sameFamily ) {
+        currentFamily = family != null ? family : CellUtil.cloneFamily( cell );
+      }
+      previous = cell;
+      visitor.visit( currentFamily, CellUtil.cloneQualifier( cell ), cell.getTimestamp(), CellUtil.cloneValue( cell ) );
+    }
+  }
+
+  private void visitLatestMapCells( byte[] family, CellVisitor visitor ) throws KettleException {
+    NavigableMap<byte[], NavigableMap<byte[], NavigableMap<Long, byte[]>>> map = result.getMap();
+    if ( map == null ) {
+      return;
+    }
+    if ( family != null ) {
+      visitLatestMapCells( family, map.get( family ), visitor );
+    } else {
+      for ( Map.Entry<byte[], NavigableMap<byte[], NavigableMap<Long, byte[]>>> entry : map.entrySet() ) {
+        visitLatestMapCells( entry.getKey(), entry.getValue(), visitor );
+      }
+    }
+  }
+
+  private void visitLatestMapCells( byte[] family, NavigableMap<byte[], NavigableMap<Long, byte[]>> familyMap,
+                                    CellVisitor visitor ) throws KettleException {
+    if ( familyMap == null ) {
+      return;
+    }
+    for ( Map.Entry<byte[], NavigableMap<Long, byte[]>> entry : familyMap.entrySet() ) {
+      // versions are ordered newest first
+      Map.Entry<Long, byte[]> latest = entry.getValue().firstEntry();
+      if ( latest != null ) {
+        visitor.visit( family, entry.getKey(), latest.getKey(), latest.getValue() );
+      }
+    }
+  }
 }
@@ -29,102 +29,229 @@ import org.pentaho.hbase.shim.spi.HBaseShim;
 import java.io.Closeable;
 import java.io.IOException;
 import java.util.ArrayList;
-import java.util.HashSet;
+import java.util.Deque;
 import java.util.List;
 import java.util.Properties;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
 
 /**
  * Created by bryan on 1/25/16.
+ * <p/>
+ * Available connections are indexed by source table, target table (plus properties) and by whether they have a
+ * source and/or target table at all so that acquisition is a constant number of index lookups. Ownership of a
+ * connection is decided by a compare-and-set on the connection itself so there is no pool-wide monitor.
  */
 public class HBaseConnectionPool implements Closeable {
-  private final Set<HBaseConnectionPoolConnection> availableConnections;
+  public static final String MAX_SIZE_KEY = "pentaho.hbase.connection.pool.max.size";
+  public static final String MAX_WAIT_MILLIS_KEY = "pentaho.hbase.connection.pool.max.wait.millis";
+  public static final String IDLE_TIMEOUT_MILLIS_KEY = "pentaho.hbase.connection.pool.idle.timeout.millis";
+  /**
+   * Non-positive max size means the pool is unbounded
+   */
+  public static final int DEFAULT_MAX_SIZE = 0;
+  /**
+   * Negative max wait means block until a connection is released, zero means fail immediately when exhausted
+   */
+  public static final long DEFAULT_MAX_WAIT_MILLIS = -1;
+  /**
+   * Non-positive idle timeout disables eviction
+   */
+  public static final long DEFAULT_IDLE_TIMEOUT_MILLIS = TimeUnit.MINUTES.toMillis( 5 );
+
+  private static final long MIN_EVICTION_INTERVAL_MILLIS = 1000L;
+
+  private final Deque<HBaseConnectionPoolConnection> availableConnections;
+  private final Deque<HBaseConnectionPoolConnection> availableWithoutTable;
+  private final Deque<HBaseConnectionPoolConnection> availableWithoutSourceTable;
+  private final Deque<HBaseConnectionPoolConnection> availableWithoutTargetTable;
+  private final ConcurrentMap<String, Deque<HBaseConnectionPoolConnection>> availableBySourceTable;
+  private final ConcurrentMap<TargetTableKey, Deque<HBaseConnectionPoolConnection>> availableByTargetTable;
   private final Set<HBaseConnectionPoolConnection> inUseConnections;
   private final HBaseShim hBaseShim;
   private final Properties connectionProps;
   private final LogChannelInterface logChannelInterface;
+  private final int maxSize;
+  private final long maxWaitMillis;
+  private final long idleTimeoutMillis;
+  private final Semaphore permits;
+  private final ScheduledFuture<?> evictionFuture;
+  private volatile boolean closed = false;
+
+  private final AtomicInteger size = new AtomicInteger();
+  private final AtomicInteger availableCount = new AtomicInteger();
+  private final AtomicInteger peakInUseCount = new AtomicInteger();
+  private final LongAdder acquireCount = new LongAdder();
+  private final LongAdder acquireNanos = new LongAdder();
+  private final AtomicLong maxAcquireNanos = new AtomicLong();
+  private final LongAdder createdCount = new LongAdder();
+  private final LongAdder evictedCount = new LongAdder();
+  private final LongAdder waitCount = new LongAdder();
+  private final LongAdder exhaustedCount = new LongAdder();
 
   public HBaseConnectionPool( HBaseShim hBaseShim, Properties connectionProps,
                               LogChannelInterface logChannelInterface ) {
+    this( hBaseShim, connectionProps, logChannelInterface, DEFAULT_MAX_SIZE, DEFAULT_MAX_WAIT_MILLIS,
+      DEFAULT_IDLE_TIMEOUT_MILLIS );
+  }
+
+  public HBaseConnectionPool( HBaseShim hBaseShim, Properties connectionProps, LogChannelInterface logChannelInterface,
+                              int maxSize, long maxWaitMillis, long idleTimeoutMillis ) {
     this.hBaseShim = hBaseShim;
     this.connectionProps = connectionProps;
     this.logChannelInterface = logChannelInterface;
-    availableConnections = new HashSet<>();
-    inUseConnections = new HashSet<>();
+    this.maxSize = maxSize;
+    this.maxWaitMillis = maxWaitMillis;
+    this.idleTimeoutMillis = idleTimeoutMillis;
+    availableConnections = new ConcurrentLinkedDeque<>();
+    availableWithoutTable = new ConcurrentLinkedDeque<>();
+    availableWithoutSourceTable = new ConcurrentLinkedDeque<>();
+    availableWithoutTargetTable = new ConcurrentLinkedDeque<>();
+    availableBySourceTable = new ConcurrentHashMap<>();
+    availableByTargetTable = new ConcurrentHashMap<>();
+    inUseConnections = ConcurrentHashMap.newKeySet();
+    permits = maxSize > 0 ? new Semaphore( maxSize ) : null;
+    if ( idleTimeoutMillis > 0 ) {
+      long interval = Math.max( MIN_EVICTION_INTERVAL_MILLIS, idleTimeoutMillis / 2 );
+      evictionFuture = Evictor.EXECUTOR.scheduleWithFixedDelay( new Runnable() {
+        @Override public void run() {
+          evictIdleConnections();
+        }
+      }, interval, interval, TimeUnit.MILLISECONDS );
+    } else {
+      evictionFuture = null;
+    }
   }
 
-  private HBaseConnectionPoolConnection findBestMatch( String sourceTable ) {
-    HBaseConnectionPoolConnection match = null;
-    for ( HBaseConnectionPoolConnection availableConnection : availableConnections ) {
-      String availableConnectionSourceTable = availableConnection.getSourceTable();
-      if ( sourceTable == null ) {
-        if ( availableConnectionSourceTable == null ) {
-          return availableConnection;
-        }
-      } else {
-        if ( availableConnectionSourceTable == null ) {
-          match = availableConnection;
-        } else if ( sourceTable.equals( availableConnectionSourceTable ) ) {
-          return availableConnection;
-        }
+  private static <K> Deque<HBaseConnectionPoolConnection> getOrCreate(
+    ConcurrentMap<K, Deque<HBaseConnectionPoolConnection>> map, K key ) {
+    Deque<HBaseConnectionPoolConnection> deque = map.get( key );
+    if ( deque == null ) {
+      deque = new ConcurrentLinkedDeque<>();
+      Deque<HBaseConnectionPoolConnection> existing = map.putIfAbsent( key, deque );
+      if ( existing != null ) {
+        deque = existing;
       }
     }
-    if ( match == null && availableConnections.size() > 0 ) {
-      return availableConnections.iterator().next();
+    return deque;
+  }
+
+  /**
+   * Adds the connection to every index matching its current source/target state, most recently released first
+   */
+  private void index( HBaseConnectionPoolConnection connection ) {
+    String sourceTable = connection.getSourceTable();
+    String targetTable = connection.getTargetTable();
+    if ( sourceTable == null ) {
+      availableWithoutSourceTable.addFirst( connection );
+    } else {
+      getOrCreate( availableBySourceTable, sourceTable ).addFirst( connection );
+    }
+    if ( targetTable == null ) {
+      availableWithoutTargetTable.addFirst( connection );
     } else {
-      return match;
+      getOrCreate( availableByTargetTable,
+        new TargetTableKey( targetTable, connection.getTargetTableProperties() ) ).addFirst( connection );
+    }
+    if ( sourceTable == null && targetTable == null ) {
+      availableWithoutTable.addFirst( connection );
     }
+    availableConnections.addFirst( connection );
   }
 
-  private HBaseConnectionPoolConnection findBestMatch( String targetTable, Properties targetTableProps ) {
-    HBaseConnectionPoolConnection match = null;
-    for ( HBaseConnectionPoolConnection availableConnection : availableConnections ) {
-      String availableConnectionTargetTable = availableConnection.getTargetTable();
-      if ( targetTable == null ) {
-        if ( availableConnectionTargetTable == null ) {
-          return availableConnection;
-        }
-      } else {
-        if ( availableConnectionTargetTable == null ) {
-          match = availableConnection;
-        } else if ( targetTable.equals( availableConnectionTargetTable ) ) {
-          Properties availableConnectionTargetTableProperties = availableConnection.getTargetTableProperties();
-          if ( targetTableProps == null ) {
-            if ( availableConnectionTargetTableProperties == null ) {
-              return availableConnection;
-            }
-          } else if ( targetTableProps.equals( availableConnectionTargetTableProperties ) ) {
-            return availableConnection;
-          }
-        }
+  /**
+   * Removes a claimed connection from the indexes, must be called before its source/target state changes
+   */
+  private void unindex( HBaseConnectionPoolConnection connection ) {
+    String sourceTable = connection.getSourceTable();
+    String targetTable = connection.getTargetTable();
+    if ( sourceTable == null ) {
+      availableWithoutSourceTable.removeFirstOccurrence( connection );
+    } else {
+      Deque<HBaseConnectionPoolConnection> deque = availableBySourceTable.get( sourceTable );
+      if ( deque != null ) {
+        deque.removeFirstOccurrence( connection );
       }
     }
-    if ( match == null && availableConnections.size() > 0 ) {
-      return availableConnections.iterator().next();
+    if ( targetTable == null ) {
+      availableWithoutTargetTable.removeFirstOccurrence( connection );
     } else {
-      return match;
+      Deque<HBaseConnectionPoolConnection> deque =
+        availableByTargetTable.get( new TargetTableKey( targetTable, connection.getTargetTableProperties() ) );
+      if ( deque != null ) {
+        deque.removeFirstOccurrence( connection );
+      }
     }
+    if ( sourceTable == null && targetTable == null ) {
+      availableWithoutTable.removeFirstOccurrence( connection );
+    }
+    availableConnections.removeFirstOccurrence( connection );
   }
 
-  private HBaseConnectionPoolConnection findBestMatch() {
-    HBaseConnectionPoolConnection match = null;
-    for ( HBaseConnectionPoolConnection availableConnection : availableConnections ) {
-      String sourceTable = availableConnection.getSourceTable();
-      String targetTable = availableConnection.getTargetTable();
-      if ( targetTable == null ) {
-        if ( sourceTable == null ) {
-          return availableConnection;
-        }
-        match = availableConnection;
-      } else if ( sourceTable == null && match == null ) {
-        match = availableConnection;
+  private HBaseConnectionPoolConnection claimFrom( Deque<HBaseConnectionPoolConnection> deque ) {
+    if ( deque == null ) {
+      return null;
+    }
+    for ( HBaseConnectionPoolConnection connection : deque ) {
+      if ( connection.claim() ) {
+        availableCount.decrementAndGet();
+        unindex( connection );
+        return connection;
       }
     }
-    if ( match == null && availableConnections.size() > 0 ) {
-      return availableConnections.iterator().next();
-    } else {
-      return match;
+    return null;
+  }
+
+  private HBaseConnectionPoolConnection claimForSourceTable( String sourceTable ) {
+    HBaseConnectionPoolConnection result = null;
+    if ( sourceTable != null ) {
+      result = claimFrom( availableBySourceTable.get( sourceTable ) );
     }
+    if ( result == null ) {
+      result = claimFrom( availableWithoutSourceTable );
+    }
+    if ( result == null ) {
+      result = claimFrom( availableConnections );
+    }
+    return result;
+  }
+
+  private HBaseConnectionPoolConnection claimForTargetTable( String targetTable, Properties targetTableProps ) {
+    HBaseConnectionPoolConnection result = null;
+    if ( targetTable != null ) {
+      result = claimFrom( availableByTargetTable.get( new TargetTableKey( targetTable, targetTableProps ) ) );
+    }
+    if ( result == null ) {
+      result = claimFrom( availableWithoutTargetTable );
+    }
+    if ( result == null ) {
+      result = claimFrom( availableConnections );
+    }
+    return result;
+  }
+
+  private HBaseConnectionPoolConnection claimAny() {
+    HBaseConnectionPoolConnection result = claimFrom( availableWithoutTable );
+    if ( result == null ) {
+      result = claimFrom( availableWithoutTargetTable );
+    }
+    if ( result == null ) {
+      result = claimFrom( availableWithoutSourceTable );
+    }
+    if ( result == null ) {
+      result = claimFrom( availableConnections );
+    }
+    return result;
   }
 
   private HBaseConnectionPoolConnection create() throws IOException {
@@ -140,9 +267,71 @@ public class HBaseConnectionPool implements Closeable {
     } catch ( Exception e ) {
       throw new IOException( e );
     }
+    size.incrementAndGet();
+    createdCount.increment();
     return new HBaseConnectionPoolConnection( hBaseConnection );
   }
 
+  private void destroy( HBaseConnectionPoolConnection connection ) {
+    size.decrementAndGet();
+    try {
+      connection.closeInternal();
+    } catch ( Exception e ) {
+      if ( logChannelInterface != null ) {
+        logChannelInterface.logError( e.getMessage(), e );
+      }
+    }
+  }
+
+  private void acquirePermit() throws IOException {
+    if ( closed ) {
+      throw new IOException( "HBase connection pool is closed" );
+    }
+    if ( permits == null || permits.tryAcquire() ) {
+      return;
+    }
+    waitCount.increment();
+    boolean acquired;
+    try {
+      if ( maxWaitMillis < 0 ) {
+        permits.acquire();
+        acquired = true;
+      } else {
+        acquired = maxWaitMillis > 0 && permits.tryAcquire( maxWaitMillis, TimeUnit.MILLISECONDS );
+      }
+    } catch ( InterruptedException e ) {
+      Thread.currentThread().interrupt();
+      throw new IOException( e );
+    }
+    if ( !acquired ) {
+      exhaustedCount.increment();
+      throw new IOException( "HBase connection pool exhausted, all " + maxSize + " connections are in use" );
+    }
+  }
+
+  private void releasePermit() {
+    if ( permits != null ) {
+      permits.release();
+    }
+  }
+
+  private HBaseConnectionHandle checkOut( HBaseConnectionPoolConnection connection, long startNanos ) {
+    inUseConnections.add( connection );
+    int inUse = inUseConnections.size();
+    int peak = peakInUseCount.get();
+    while ( inUse > peak && !peakInUseCount.compareAndSet( peak, inUse ) ) {
+      peak = peakInUseCount.get();
+    }
+    long elapsed = System.nanoTime() - startNanos;
+    acquireCount.increment();
+    acquireNanos.add( elapsed );
+    long max = maxAcquireNanos.get();
+    while ( elapsed > max && !maxAcquireNanos.compareAndSet( max, elapsed ) ) {
+      max = maxAcquireNanos.get();
+    }
+    return new HBaseConnectionHandleImpl( this, connection );
+  }
+
   /**
    * Gets an available connection with the given source table (changing to this source table if necessary)
    * <p/>
@@ -153,22 +342,30 @@ public class HBaseConnectionPool implements Closeable {
    * @return
    * @throws IOException
    */
-  public synchronized HBaseConnectionHandle getConnectionHandle( String sourceTable ) throws IOException {
-    HBaseConnectionPoolConnection result = findBestMatch( sourceTable );
-    if ( result != null ) {
-      availableConnections.remove( result );
-    } else {
-      result = create();
-    }
-    if ( sourceTable != null && !sourceTable.equals( result.getSourceTable() ) ) {
-      try {
-        result.newSourceTableInternal( sourceTable );
-      } catch ( Exception e ) {
-        throw new IOException( e );
+  public HBaseConnectionHandle getConnectionHandle( String sourceTable ) throws IOException {
+    long start = System.nanoTime();
+    acquirePermit();
+    HBaseConnectionPoolConnection result = null;
+    try {
+      result = claimForSourceTable( sourceTable );
+      if ( result == null ) {
+        result = create();
+      }
+      if ( sourceTable != null && !sourceTable.equals( result.getSourceTable() ) ) {
+        try {
+          result.newSourceTableInternal( sourceTable );
+        } catch ( Exception e ) {
+          throw new IOException( e );
+        }
       }
+    } catch ( IOException e ) {
+      if ( result != null ) {
+        destroy( result );
+      }
+      releasePermit();
+      throw e;
     }
-    inUseConnections.add( result );
-    return new HBaseConnectionHandleImpl( this, result );
+    return checkOut( result, start );
   }
 
   /**
@@ -182,31 +379,39 @@ public class HBaseConnectionPool implements Closeable {
    * @return
    * @throws IOException
    */
-  public synchronized HBaseConnectionHandle getConnectionHandle( String targetTable, Properties targetTableProps )
+  public HBaseConnectionHandle getConnectionHandle( String targetTable, Properties targetTableProps )
     throws IOException {
-    HBaseConnectionPoolConnection result = findBestMatch( targetTable, targetTableProps );
-    if ( result != null ) {
-      availableConnections.remove( result );
-    } else {
-      result = create();
-    }
-    boolean targetTableDifferent = targetTable != null && !targetTable.equals( result.getTargetTable() );
-    boolean propsDifferent = false;
-    Properties resultTargetTableProperties = result.getTargetTableProperties();
-    if ( targetTableProps == null ) {
-      propsDifferent = resultTargetTableProperties != null;
-    } else {
-      propsDifferent = targetTableProps.equals( resultTargetTableProperties );
-    }
-    if ( targetTableDifferent || propsDifferent ) {
-      try {
-        result.newTargetTableInternal( targetTable, targetTableProps );
-      } catch ( Exception e ) {
-        throw new IOException( e );
+    long start = System.nanoTime();
+    acquirePermit();
+    HBaseConnectionPoolConnection result = null;
+    try {
+      result = claimForTargetTable( targetTable, targetTableProps );
+      if ( result == null ) {
+        result = create();
+      }
+      boolean targetTableDifferent = targetTable != null && !targetTable.equals( result.getTargetTable() );
+      boolean propsDifferent;
+      Properties resultTargetTableProperties = result.getTargetTableProperties();
+      if ( targetTableProps == null ) {
+        propsDifferent = resultTargetTableProperties != null;
+      } else {
+        propsDifferent = !targetTableProps.equals( resultTargetTableProperties );
+      }
+      if ( targetTableDifferent || propsDifferent ) {
+        try {
+          result.newTargetTableInternal( targetTable, targetTableProps );
+        } catch ( Exception e ) {
+          throw new IOException( e );
+        }
       }
+    } catch ( IOException e ) {
+      if ( result != null ) {
+        destroy( result );
+      }
+      releasePermit();
+      throw e;
     }
-    inUseConnections.add( result );
-    return new HBaseConnectionHandleImpl( this, result );
+    return checkOut( result, start );
   }
 
   /**
@@ -217,38 +422,192 @@ public class HBaseConnectionPool implements Closeable {
    * @return
    * @throws IOException
    */
-  public synchronized HBaseConnectionHandle getConnectionHandle() throws IOException {
-    HBaseConnectionPoolConnection result = findBestMatch();
-    if ( result != null ) {
-      availableConnections.remove( result );
+  public HBaseConnectionHandle getConnectionHandle() throws IOException {
+    long start = System.nanoTime();
+    acquirePermit();
+    HBaseConnectionPoolConnection result;
+    try {
+      result = claimAny();
+      if ( result == null ) {
+        result = create();
+      }
+    } catch ( IOException e ) {
+      releasePermit();
+      throw e;
+    }
+    return checkOut( result, start );
+  }
+
+  protected void releaseConnection( HBaseConnectionPoolConnection hBaseConnection ) {
+    if ( hBaseConnection == null || !inUseConnections.remove( hBaseConnection ) ) {
+      return;
+    }
+    if ( closed ) {
+      destroy( hBaseConnection );
     } else {
-      result = create();
+      index( hBaseConnection );
+      availableCount.incrementAndGet();
+      hBaseConnection.markAvailable( System.currentTimeMillis() );
+      // close() may have drained the indexes between the check above and now
+      if ( closed && hBaseConnection.claim() ) {
+        availableCount.decrementAndGet();
+        unindex( hBaseConnection );
+        destroy( hBaseConnection );
+      }
+    }
+    releasePermit();
+  }
+
+  /**
+   * Closes connections that have been available for longer than the idle timeout
+   */
+  protected void evictIdleConnections() {
+    long cutoff = System.currentTimeMillis() - idleTimeoutMillis;
+    for ( HBaseConnectionPoolConnection connection : availableConnections ) {
+      long releasedAt = connection.getReleasedAtMillis();
+      if ( releasedAt <= cutoff && connection.claim() ) {
+        if ( connection.getReleasedAtMillis() != releasedAt ) {
+          // Reused and released again since we looked at it, still indexed so just hand it back
+          connection.markAvailable( connection.getReleasedAtMillis() );
+          continue;
+        }
+        availableCount.decrementAndGet();
+        unindex( connection );
+        destroy( connection );
+        evictedCount.increment();
+      }
     }
-    inUseConnections.add( result );
-    return new HBaseConnectionHandleImpl( this, result );
   }
 
-  protected synchronized void releaseConnection( HBaseConnectionPoolConnection hBaseConnection ) {
-    inUseConnections.remove( hBaseConnection );
-    availableConnections.add( hBaseConnection );
+  public int getMaxSize() {
+    return maxSize;
+  }
+
+  public Properties getConnectionProps() {
+    return connectionProps;
+  }
+
+  /**
+   * @return the number of open connections, both in use and available
+   */
+  public int getSize() {
+    return size.get();
+  }
+
+  public int getInUseCount() {
+    return inUseConnections.size();
+  }
+
+  public int getAvailableCount() {
+    return availableCount.get();
+  }
+
+  public int getPeakInUseCount() {
+    return peakInUseCount.get();
   }
 
-  @Override public synchronized void close() throws IOException {
+  public long getAcquireCount() {
+    return acquireCount.sum();
+  }
+
+  public long getTotalAcquireNanos() {
+    return acquireNanos.sum();
+  }
+
+  public long getMaxAcquireNanos() {
+    return maxAcquireNanos.get();
+  }
+
+  public long getCreatedCount() {
+    return createdCount.sum();
+  }
+
+  public long getEvictedCount() {
+    return evictedCount.sum();
+  }
+
+  /**
+   * @return the number of acquisitions that had to wait for a connection because the pool was at its max size
+   */
+  public long getWaitCount() {
+    return waitCount.sum();
+  }
+
+  /**
+   * @return the number of acquisitions that failed because the pool was at its max size
+   */
+  public long getExhaustedCount() {
+    return exhaustedCount.sum();
+  }
+
+  @Override public void close() throws IOException {
+    closed = true;
+    if ( evictionFuture != null ) {
+      evictionFuture.cancel( false );
+    }
     for ( HBaseConnectionPoolConnection inUseConnection : inUseConnections ) {
-      try {
-        inUseConnection.closeInternal();
-      } catch ( Exception e ) {
-        logChannelInterface.logError( e.getMessage(), e );
+      if ( inUseConnections.remove( inUseConnection ) ) {
+        destroy( inUseConnection );
       }
     }
     for ( HBaseConnectionPoolConnection availableConnection : availableConnections ) {
-      try {
-        availableConnection.closeInternal();
-      } catch ( Exception e ) {
-        logChannelInterface.logError( e.getMessage(), e );
+      if ( availableConnection.claim() ) {
+        availableCount.decrementAndGet();
+        unindex( availableConnection );
+        destroy( availableConnection );
+      }
+    }
+    if ( logChannelInterface != null && logChannelInterface.isDetailed() ) {
+      long acquires = getAcquireCount();
+      logChannelInterface.logDetailed( "HBase connection pool closed: acquires=" + acquires + ", avgAcquireMicros="
+        + ( acquires == 0 ? 0 : TimeUnit.NANOSECONDS.toMicros( getTotalAcquireNanos() / acquires ) )
+        + ", maxAcquireMicros=" + TimeUnit.NANOSECONDS.toMicros( getMaxAcquireNanos() ) + ", created="
+        + getCreatedCount() + ", evicted=" + getEvictedCount() + ", peakInUse=" + getPeakInUseCount() + ", waits="
+        + getWaitCount() + ", exhausted=" + getExhaustedCount() );
+    }
+  }
+
+  private static final class TargetTableKey {
+    private final String targetTable;
+    private final Properties targetTableProps;
+
+    private TargetTableKey( String targetTable, Properties targetTableProps ) {
+      this.targetTable = targetTable;
+      this.targetTableProps = targetTableProps;
+    }
+
+    @Override public boolean equals( Object o ) {
+      if ( this == o ) {
+        return true;
+      }
+      if ( o == null || getClass() != o.getClass() ) {
+        return false;
       }
+      TargetTableKey that = (TargetTableKey) o;
+      return targetTable.equals( that.targetTable ) && ( targetTableProps == null ? that.targetTableProps == null
+        : targetTableProps.equals( that.targetTableProps ) );
+    }
+
+    @Override public int hashCode() {
+      return 31 * targetTable.hashCode() + ( targetTableProps == null ? 0 : targetTableProps.hashCode() );
+    }
+  }
+
+  /**
+   * Single daemon thread shared by all pools for idle eviction, created on first use
+   */
+  private static final class Evictor {
+    private static final ScheduledThreadPoolExecutor EXECUTOR = new ScheduledThreadPoolExecutor( 1,
+      new ThreadFactory() {
+        @Override public Thread newThread( Runnable r ) {
+          Thread thread = new Thread( r, "HBaseConnectionPool-evictor" );
+          thread.setDaemon( true );
+          return thread;
+        }
+      } );
+
+    static {
+      EXECUTOR.setRemoveOnCancelPolicy( true );
     }
-    inUseConnections.clear();
-    availableConnections.clear();
   }
 }
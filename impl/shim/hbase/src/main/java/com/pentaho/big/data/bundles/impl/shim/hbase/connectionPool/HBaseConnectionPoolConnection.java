@@ -26,6 +26,7 @@ import com.pentaho.big.data.bundles.impl.shim.hbase.HBaseConnectionWrapper;
 import org.pentaho.hbase.shim.spi.HBaseConnection;
 
 import java.util.Properties;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 /**
  * Created by bryan on 1/26/16.
@@ -34,6 +35,8 @@ public class HBaseConnectionPoolConnection extends HBaseConnectionWrapper {
   private String sourceTable;
   private String targetTable;
   private Properties targetTableProperties;
+  private final AtomicBoolean available = new AtomicBoolean( false );
+  private volatile long releasedAtMillis;
 
   public HBaseConnectionPoolConnection( HBaseConnection delegate ) {
     super( delegate );
@@ -71,6 +74,31 @@ public class HBaseConnectionPoolConnection extends HBaseConnectionWrapper {
     return sourceTable;
   }
 
+  /**
+   * Marks the connection as available in the pool, recording the release time for idle eviction
+   */
+  protected void markAvailable( long nowMillis ) {
+    releasedAtMillis = nowMillis;
+    available.set( true );
+  }
+
+  /**
+   * Claims the connection for exclusive use, only one caller can succeed per release
+   *
+   * @return true if the caller now owns the connection
+   */
+  protected boolean claim() {
+    return available.compareAndSet( true, false );
+  }
+
+  protected boolean isAvailable() {
+    return available.get();
+  }
+
+  protected long getReleasedAtMillis() {
+    return releasedAtMillis;
+  }
+
   protected void closeInternal() throws Exception {
     closeSourceTableInternal();
     closeTargetTableInternal();
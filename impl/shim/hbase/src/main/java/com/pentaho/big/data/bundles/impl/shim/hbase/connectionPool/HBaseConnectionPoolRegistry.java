@@ -0,0 +1,161 @@
+/*******************************************************************************
+ *
+ * Pentaho Big Data
+ *
+ * Copyright (C) 2002-2016 by Pentaho : http://www.pentaho.com
+ *
+ *******************************************************************************
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ ******************************************************************************/
+
+package com.pentaho.big.data.bundles.impl.shim.hbase.connectionPool;
+
+import org.pentaho.di.core.logging.LogChannel;
+import org.pentaho.di.core.logging.LogChannelInterface;
+import org.pentaho.hbase.shim.spi.HBaseShim;
+
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Properties;
+
+/**
+ * Shares connection pools between every HBase connection in the JVM that resolves to the same shim, cluster,
+ * connection properties and pool settings, so steps running side by side reuse client connections and ZooKeeper
+ * sessions instead of each opening their own.
+ * <p/>
+ * Pools are reference counted and closed when the last connection using them is closed.  Pools create their
+ * connections lazily so acquiring one is cheap.
+ * <p/>
+ * A shared pool outlives the step that first acquired it, so pools log to the registry's own channel rather than to
+ * any one step's.
+ */
+public class HBaseConnectionPoolRegistry {
+  private static final HBaseConnectionPoolRegistry INSTANCE = new HBaseConnectionPoolRegistry();
+  private final Map<PoolKey, PoolEntry> pools = new HashMap<>();
+  private final LogChannelInterface logChannelInterface;
+
+  public HBaseConnectionPoolRegistry() {
+    this( new LogChannel( HBaseConnectionPoolRegistry.class.getName() ) );
+  }
+
+  HBaseConnectionPoolRegistry( LogChannelInterface logChannelInterface ) {
+    this.logChannelInterface = logChannelInterface;
+  }
+
+  public static HBaseConnectionPoolRegistry getInstance() {
+    return INSTANCE;
+  }
+
+  public HBaseConnectionPool acquire( HBaseShim hBaseShim, String clusterName, Properties connectionProps,
+                                      int maxSize, long maxWaitMillis, long idleTimeoutMillis ) {
+    PoolKey poolKey = new PoolKey( hBaseShim, clusterName, connectionProps, maxSize, maxWaitMillis,
+      idleTimeoutMillis );
+    synchronized ( pools ) {
+      PoolEntry poolEntry = pools.get( poolKey );
+      if ( poolEntry == null ) {
+        poolEntry = new PoolEntry( new HBaseConnectionPool( hBaseShim, poolKey.connectionProps, logChannelInterface,
+          maxSize, maxWaitMillis, idleTimeoutMillis ) );
+        pools.put( poolKey, poolEntry );
+      }
+      poolEntry.refCount++;
+      return poolEntry.hBaseConnectionPool;
+    }
+  }
+
+  /**
+   * Releases a pool obtained from {@link #acquire}, closing it if it was the last reference
+   *
+   * @param hBaseConnectionPool the pool
+   * @throws IOException
+   */
+  public void release( HBaseConnectionPool hBaseConnectionPool ) throws IOException {
+    boolean close = true;
+    synchronized ( pools ) {
+      for ( Iterator<PoolEntry> iterator = pools.values().iterator(); iterator.hasNext(); ) {
+        PoolEntry poolEntry = iterator.next();
+        if ( poolEntry.hBaseConnectionPool == hBaseConnectionPool ) {
+          if ( --poolEntry.refCount > 0 ) {
+            close = false;
+          } else {
+            iterator.remove();
+          }
+          break;
+        }
+      }
+    }
+    if ( close ) {
+      hBaseConnectionPool.close();
+    }
+  }
+
+  int size() {
+    synchronized ( pools ) {
+      return pools.size();
+    }
+  }
+
+  private static final class PoolEntry {
+    private final HBaseConnectionPool hBaseConnectionPool;
+    private int refCount = 0;
+
+    private PoolEntry( HBaseConnectionPool hBaseConnectionPool ) {
+      this.hBaseConnectionPool = hBaseConnectionPool;
+    }
+  }
+
+  private static final class PoolKey {
+    private final HBaseShim hBaseShim;
+    private final String clusterName;
+    private final Properties connectionProps;
+    private final int maxSize;
+    private final long maxWaitMillis;
+    private final long idleTimeoutMillis;
+
+    private PoolKey( HBaseShim hBaseShim, String clusterName, Properties connectionProps, int maxSize,
+                     long maxWaitMillis, long idleTimeoutMillis ) {
+      this.hBaseShim = hBaseShim;
+      this.clusterName = clusterName;
+      this.connectionProps = new Properties();
+      this.connectionProps.putAll( connectionProps );
+      this.maxSize = maxSize;
+      this.maxWaitMillis = maxWaitMillis;
+      this.idleTimeoutMillis = idleTimeoutMillis;
+    }
+
+    @Override public boolean equals( Object o ) {
+      if ( this == o ) {
+        return true;
+      }
+      if ( o == null || getClass() != o.getClass() ) {
+        return false;
+      }
+      PoolKey poolKey = (PoolKey) o;
+      return hBaseShim == poolKey.hBaseShim
+        && maxSize == poolKey.maxSize
+        && maxWaitMillis == poolKey.maxWaitMillis
+        && idleTimeoutMillis == poolKey.idleTimeoutMillis
+        && Objects.equals( clusterName, poolKey.clusterName )
+        && connectionProps.equals( poolKey.connectionProps );
+    }
+
+    @Override public int hashCode() {
+      return Objects.hash( System.identityHashCode( hBaseShim ), clusterName, connectionProps, maxSize, maxWaitMillis,
+        idleTimeoutMillis );
+    }
+  }
+}
@@ -22,52 +22,49 @@
 
 package com.pentaho.big.data.bundles.impl.shim.hbase.table;
 
-import com.pentaho.big.data.bundles.impl.shim.hbase.BatchHBaseConnectionOperation;
-import com.pentaho.big.data.bundles.impl.shim.hbase.HBaseConnectionOperation;
 import com.pentaho.big.data.bundles.impl.shim.hbase.HBaseConnectionWrapper;
 import com.pentaho.big.data.bundles.impl.shim.hbase.connectionPool.HBaseConnectionHandle;
 import org.pentaho.bigdata.api.hbase.table.HBasePut;
 import org.pentaho.hbase.shim.api.HBaseValueMeta;
 
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
 
 /**
  * Created by bryan on 1/26/16.
+ * <p/>
+ * Columns are held in flat lists and replayed onto the connection on execute, this avoids an operation object per
+ * column and lets a put be built on one thread and executed on another
  */
 public class HBasePutImpl implements HBasePut {
   private final HBaseConnectionHandle hBaseConnectionHandle;
-  private final BatchHBaseConnectionOperation batchHBaseConnectionOperation;
+  private final byte[] key;
+  private final List<String> columnFamilies;
+  private final List<String> columnNames;
+  private final List<Boolean> colNamesAreBinary;
+  private final List<byte[]> colValues;
   private boolean writeToWAL;
 
-  public HBasePutImpl( final byte[] key, HBaseConnectionHandle hBaseConnectionHandle ) {
+  public HBasePutImpl( byte[] key, HBaseConnectionHandle hBaseConnectionHandle ) {
     this.hBaseConnectionHandle = hBaseConnectionHandle;
-    batchHBaseConnectionOperation = new BatchHBaseConnectionOperation();
-    batchHBaseConnectionOperation.addOperation( new HBaseConnectionOperation() {
-      @Override public void perform( HBaseConnectionWrapper hBaseConnectionWrapper ) throws IOException {
-        try {
-          hBaseConnectionWrapper.newTargetTablePut( key, writeToWAL );
-        } catch ( Exception e ) {
-          throw new IOException( e );
-        }
-      }
-    } );
+    this.key = key;
+    columnFamilies = new ArrayList<>();
+    columnNames = new ArrayList<>();
+    colNamesAreBinary = new ArrayList<>();
+    colValues = new ArrayList<>();
   }
 
   @Override public void setWriteToWAL( boolean writeToWAL ) {
     this.writeToWAL = writeToWAL;
   }
 
-  @Override public void addColumn( final String columnFamily, final String columnName, final boolean colNameIsBinary, final byte[] colValue )
+  @Override public void addColumn( String columnFamily, String columnName, boolean colNameIsBinary, byte[] colValue )
     throws IOException {
-    batchHBaseConnectionOperation.addOperation( new HBaseConnectionOperation() {
-      @Override public void perform( HBaseConnectionWrapper hBaseConnectionWrapper ) throws IOException {
-        try {
-          hBaseConnectionWrapper.addColumnToTargetPut( columnFamily, columnName, colNameIsBinary, colValue );
-        } catch ( Exception e ) {
-          throw new IOException( e );
-        }
-      }
-    } );
+    columnFamilies.add( columnFamily );
+    columnNames.add( columnName );
+    colNamesAreBinary.add( colNameIsBinary );
+    colValues.add( colValue );
   }
 
   @Override public String createColumnName( String... parts ) {
@@ -83,12 +80,19 @@ public class HBasePutImpl implements HBasePut {
   }
 
   @Override public void execute() throws IOException {
-    HBaseConnectionWrapper connection = hBaseConnectionHandle.getConnection();
-    batchHBaseConnectionOperation.perform( connection );
     try {
-      connection.executeTargetTablePut();
+      execute( hBaseConnectionHandle.getConnection() );
     } catch ( Exception e ) {
       throw new IOException( e );
     }
   }
+
+  void execute( HBaseConnectionWrapper connection ) throws Exception {
+    connection.newTargetTablePut( key, writeToWAL );
+    for ( int i = 0; i < columnFamilies.size(); i++ ) {
+      connection.addColumnToTargetPut( columnFamilies.get( i ), columnNames.get( i ), colNamesAreBinary.get( i ),
+        colValues.get( i ) );
+    }
+    connection.executeTargetTablePut();
+  }
 }
@@ -22,12 +22,14 @@
 
 package com.pentaho.big.data.bundles.impl.shim.hbase.table;
 
+import com.pentaho.big.data.bundles.impl.shim.hbase.HBaseConnectionWrapper;
 import com.pentaho.big.data.bundles.impl.shim.hbase.connectionPool.HBaseConnectionHandle;
 import org.pentaho.bigdata.api.hbase.table.HBaseDelete;
 import org.pentaho.bigdata.api.hbase.table.HBasePut;
 import org.pentaho.bigdata.api.hbase.table.HBaseTableWriteOperationManager;
 
 import java.io.IOException;
+import java.util.List;
 
 /**
  * Created by bryan on 1/26/16.
@@ -61,6 +63,23 @@ public class HBaseTableWriteOperationManagerImpl implements HBaseTableWriteOpera
     }
   }
 
+  @Override public void executeBatch( List<HBasePut> puts ) throws IOException {
+    HBaseConnectionWrapper connection = hBaseConnectionHandle.getConnection();
+    try {
+      // With auto flush off the shim buffers each put client side, the flush then sends them as one mutation list
+      for ( HBasePut put : puts ) {
+        if ( put instanceof HBasePutImpl ) {
+          ( (HBasePutImpl) put ).execute( connection );
+        } else {
+          put.execute();
+        }
+      }
+      connection.flushCommitsTargetTable();
+    } catch ( Exception e ) {
+      throw new IOException( e );
+    }
+  }
+
   @Override public void close() throws IOException {
     hBaseConnectionHandle.close();
   }
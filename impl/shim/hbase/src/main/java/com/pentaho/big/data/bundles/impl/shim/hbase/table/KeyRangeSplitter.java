@@ -0,0 +1,111 @@
+/*******************************************************************************
+ *
+ * Pentaho Big Data
+ *
+ * Copyright (C) 2002-2016 by Pentaho : http://www.pentaho.com
+ *
+ *******************************************************************************
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ ******************************************************************************/
+
+package com.pentaho.big.data.bundles.impl.shim.hbase.table;
+
+import java.math.BigInteger;
+import java.util.Arrays;
+
+/**
+ * Divides a scan key range into disjoint, contiguous sub-ranges so that several scanners can read a table in parallel.
+ * <p/>
+ * The range is divided uniformly by treating the keys as unsigned big-endian numbers. The splits depend on nothing but
+ * the range, so scanners that compute their splits independently never overlap or leave gaps, however the table's
+ * regions change in the meantime. Null bounds mean the range is unbounded on that side, just as for a scan.
+ */
+public class KeyRangeSplitter {
+  /**
+   * Extra bytes of precision used below the longest bound when splitting uniformly
+   */
+  private static final int UNIFORM_SPLIT_EXTRA_BYTES = 4;
+
+  private KeyRangeSplitter() {
+  }
+
+  /**
+   * Gets the sub-range for one split
+   *
+   * @param lowerBound      inclusive lower bound of the full range, null for the start of the table
+   * @param upperBound      exclusive upper bound of the full range, null for the end of the table
+   * @param splitNumber     the split to compute, 0 based
+   * @param splitCount      the total number of splits
+   * @return the lower and upper bound of the split or null if the split is empty
+   */
+  public static byte[][] getSplit( byte[] lowerBound, byte[] upperBound, int splitNumber, int splitCount ) {
+    if ( splitCount <= 1 ) {
+      return new byte[][] { lowerBound, upperBound };
+    }
+    if ( splitNumber < 0 || splitNumber >= splitCount ) {
+      throw new IllegalArgumentException( "Split " + splitNumber + " out of range for " + splitCount + " splits" );
+    }
+    byte[] start =
+      splitNumber == 0 ? lowerBound : getUniformSplitPoint( lowerBound, upperBound, splitNumber, splitCount );
+    byte[] stop = splitNumber == splitCount - 1 ? upperBound
+      : getUniformSplitPoint( lowerBound, upperBound, splitNumber + 1, splitCount );
+    if ( start != null && stop != null && compare( start, stop ) >= 0 ) {
+      return null;
+    }
+    return new byte[][] { start, stop };
+  }
+
+  private static byte[] getUniformSplitPoint( byte[] lowerBound, byte[] upperBound, int splitNumber,
+                                              int splitCount ) {
+    int length = Math.max( lowerBound == null ? 0 : lowerBound.length, upperBound == null ? 0 : upperBound.length )
+      + UNIFORM_SPLIT_EXTRA_BYTES;
+    BigInteger lower = new BigInteger( 1, pad( lowerBound, length, (byte) 0 ) );
+    BigInteger upper = new BigInteger( 1, pad( upperBound, length, (byte) 0xFF ) );
+    BigInteger point = lower.add( upper.subtract( lower ).multiply( BigInteger.valueOf( splitNumber ) )
+      .divide( BigInteger.valueOf( splitCount ) ) );
+    byte[] bytes = point.toByteArray();
+    byte[] result = new byte[ length ];
+    int copy = Math.min( bytes.length, length );
+    System.arraycopy( bytes, bytes.length - copy, result, length - copy, copy );
+    return result;
+  }
+
+  /**
+   * Right pads a bound to the given length, a null bound becomes all fill bytes
+   */
+  private static byte[] pad( byte[] bound, int length, byte nullFill ) {
+    byte[] result = new byte[ length ];
+    if ( bound == null ) {
+      Arrays.fill( result, nullFill );
+    } else {
+      System.arraycopy( bound, 0, result, 0, bound.length );
+    }
+    return result;
+  }
+
+  /**
+   * Lexicographic comparison of unsigned bytes, the order HBase sorts row keys in
+   */
+  public static int compare( byte[] left, byte[] right ) {
+    int length = Math.min( left.length, right.length );
+    for ( int i = 0; i < length; i++ ) {
+      int diff = ( left[ i ] & 0xFF ) - ( right[ i ] & 0xFF );
+      if ( diff != 0 ) {
+        return diff;
+      }
+    }
+    return left.length - right.length;
+  }
+}
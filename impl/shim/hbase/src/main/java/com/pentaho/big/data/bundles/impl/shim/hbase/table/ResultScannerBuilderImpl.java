@@ -30,6 +30,7 @@ import com.pentaho.big.data.bundles.impl.shim.hbase.connectionPool.HBaseConnecti
 import com.pentaho.big.data.bundles.impl.shim.hbase.connectionPool.HBaseConnectionPool;
 import com.pentaho.big.data.bundles.impl.shim.hbase.meta.HBaseValueMetaInterfaceFactoryImpl;
 import com.pentaho.big.data.bundles.impl.shim.hbase.meta.HBaseValueMetaInterfaceImpl;
+import org.pentaho.bigdata.api.hbase.Result;
 import org.pentaho.bigdata.api.hbase.mapping.ColumnFilter;
 import org.pentaho.bigdata.api.hbase.meta.HBaseValueMetaInterface;
 import org.pentaho.bigdata.api.hbase.table.ResultScanner;
@@ -49,6 +50,10 @@ public class ResultScannerBuilderImpl implements ResultScannerBuilder {
   private final BatchHBaseConnectionOperation batchHBaseConnectionOperation;
   private int caching = 0;
   private String tableName;
+  private byte[] keyLowerBound;
+  private byte[] keyUpperBound;
+  private int splitNumber = 0;
+  private int splitCount = 1;
 
   public ResultScannerBuilderImpl( HBaseConnectionPool hBaseConnectionPool,
                                    HBaseValueMetaInterfaceFactoryImpl hBaseValueMetaInterfaceFactory,
@@ -62,11 +67,13 @@ public class ResultScannerBuilderImpl implements ResultScannerBuilder {
     this.batchHBaseConnectionOperation = new BatchHBaseConnectionOperation();
     this.tableName = tableName;
     this.caching = caching;
+    this.keyLowerBound = keyLowerBound;
+    this.keyUpperBound = keyUpperBound;
     batchHBaseConnectionOperation.addOperation( new HBaseConnectionOperation() {
       @Override public void perform( HBaseConnectionWrapper hBaseConnectionWrapper ) throws IOException {
         try {
-          hBaseConnectionWrapper
-            .newSourceTableScan( keyLowerBound, keyUpperBound, ResultScannerBuilderImpl.this.caching );
+          hBaseConnectionWrapper.newSourceTableScan( ResultScannerBuilderImpl.this.keyLowerBound,
+            ResultScannerBuilderImpl.this.keyUpperBound, ResultScannerBuilderImpl.this.caching );
         } catch ( Exception e ) {
           throw new IOException( e );
         }
@@ -116,6 +123,11 @@ public class ResultScannerBuilderImpl implements ResultScannerBuilder {
     this.caching = cacheSize;
   }
 
+  @Override public void setKeyRangeSplit( int splitNumber, int splitCount ) {
+    this.splitNumber = splitNumber;
+    this.splitCount = splitCount;
+  }
+
   @VisibleForTesting
   int getCaching() {
     return caching;
@@ -123,6 +135,22 @@ public class ResultScannerBuilderImpl implements ResultScannerBuilder {
 
   @Override public ResultScanner build() throws IOException {
     HBaseConnectionHandle connectionHandle = hBaseConnectionPool.getConnectionHandle( tableName );
+    if ( splitCount > 1 ) {
+      byte[][] split = KeyRangeSplitter.getSplit( keyLowerBound, keyUpperBound, splitNumber, splitCount );
+      if ( split == null ) {
+        connectionHandle.close();
+        return new ResultScanner() {
+          @Override public Result next() {
+            return null;
+          }
+
+          @Override public void close() {
+          }
+        };
+      }
+      keyLowerBound = split[ 0 ];
+      keyUpperBound = split[ 1 ];
+    }
     batchHBaseConnectionOperation.perform( connectionHandle.getConnection() );
     try {
       connectionHandle.getConnection().executeSourceTableScan();
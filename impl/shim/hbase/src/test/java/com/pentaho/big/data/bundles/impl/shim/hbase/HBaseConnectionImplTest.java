@@ -33,6 +33,7 @@ import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
+import java.util.Properties;
 
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertNotNull;
@@ -71,6 +72,17 @@ public class HBaseConnectionImplTest {
     assertEquals( hBaseService, hBaseConnection.getService() );
   }
 
+  @Test
+  public void testGetConnectionProperties() {
+    Properties connectionProps = new Properties();
+    connectionProps.setProperty( "hbase.zookeeper.quorum", "zk" );
+    when( hBaseConnectionPool.getConnectionProps() ).thenReturn( connectionProps );
+    Properties result = hBaseConnection.getConnectionProperties();
+    assertEquals( connectionProps, result );
+    result.setProperty( "other", "value" );
+    assertEquals( 1, connectionProps.size() );
+  }
+
   @Test
   public void testGetTable() throws IOException {
     assertNotNull( hBaseConnection.getTable( "tableName" ) );
@@ -22,6 +22,7 @@
 
 package com.pentaho.big.data.bundles.impl.shim.hbase;
 
+import com.pentaho.big.data.bundles.impl.shim.hbase.connectionPool.HBaseConnectionPoolRegistry;
 import org.junit.Before;
 import org.junit.Test;
 import org.mockito.ArgumentCaptor;
@@ -155,4 +156,20 @@ public class HBaseServiceImplTest {
       fail( "No NPE is expected but it occurs" );
     }
   }
+
+  @Test
+  public void testGetHBaseConnectionSharesPool() throws Exception {
+    VariableSpace variableSpace = mock( VariableSpace.class );
+    LogChannelInterface logChannelInterface = mock( LogChannelInterface.class );
+    hBaseService = new HBaseServiceImpl( namedCluster, hadoopConfiguration, new HBaseConnectionPoolRegistry() );
+    HBaseConnectionImpl first = hBaseService.getHBaseConnection( variableSpace, "site", null, logChannelInterface );
+    HBaseConnectionImpl second = hBaseService.getHBaseConnection( variableSpace, "site", null, logChannelInterface );
+    first.checkHBaseAvailable();
+    first.close();
+    first.close();
+    second.checkHBaseAvailable();
+    second.close();
+    verify( hBaseConnection, times( 1 ) ).configureConnection( any( Properties.class ), anyListOf( String.class ) );
+    verify( hBaseConnection ).close();
+  }
 }
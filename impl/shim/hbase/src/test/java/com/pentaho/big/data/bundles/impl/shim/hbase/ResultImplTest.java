@@ -22,12 +22,20 @@
 
 package com.pentaho.big.data.bundles.impl.shim.hbase;
 
+import org.apache.hadoop.hbase.Cell;
+import org.apache.hadoop.hbase.KeyValue;
 import org.apache.hadoop.hbase.client.Result;
 import org.junit.Before;
 import org.junit.Test;
+import org.pentaho.bigdata.api.hbase.Result.CellVisitor;
+import org.pentaho.di.core.exception.KettleException;
 import org.pentaho.hbase.shim.spi.HBaseBytesUtilShim;
 
 import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
 import java.util.NavigableMap;
 
 import static org.junit.Assert.*;
@@ -108,6 +116,94 @@ public class ResultImplTest {
     assertArrayEquals( valueBytes, result.getValue( colFamilyName, colName, false ) );
   }
 
+  @Test
+  public void testGetValueEncoded() {
+    byte[] colFamilyNameBytes = "colFamilyName".getBytes( UTF_8 );
+    byte[] colNameBytes = "colName".getBytes( UTF_8 );
+    byte[] valueBytes = "value".getBytes( UTF_8 );
+
+    when( delegate.getValue( colFamilyNameBytes, colNameBytes ) ).thenReturn( valueBytes );
+
+    assertArrayEquals( valueBytes, result.getValue( colFamilyNameBytes, colNameBytes ) );
+  }
+
+  @Test
+  public void testVisitLatestCells() throws KettleException {
+    byte[] row = "row".getBytes( UTF_8 );
+    byte[] family1 = "f1".getBytes( UTF_8 );
+    byte[] family2 = "f2".getBytes( UTF_8 );
+    byte[] colA = "a".getBytes( UTF_8 );
+    byte[] colB = "b".getBytes( UTF_8 );
+    when( delegate.rawCells() ).thenReturn( new Cell[] {
+      new KeyValue( row, family1, colA, 2L, "new".getBytes( UTF_8 ) ),
+      new KeyValue( row, family1, colA, 1L, "old".getBytes( UTF_8 ) ),
+      new KeyValue( row, family1, colB, 1L, "b".getBytes( UTF_8 ) ),
+      new KeyValue( row, family2, colA, 3L, "f2a".getBytes( UTF_8 ) ) } );
+
+    final List<String> visited = new ArrayList<>();
+    CellVisitor visitor = new CellVisitor() {
+      @Override public void visit( byte[] family, byte[] qualifier, long timestamp, byte[] value ) {
+        visited.add( new String( family, UTF_8 ) + ":" + new String( qualifier, UTF_8 ) + ":" + timestamp + ":"
+          + new String( value, UTF_8 ) );
+      }
+    };
+
+    result.visitLatestCells( null, visitor );
+    assertEquals( Arrays.asList( "f1:a:2:new", "f1:b:1:b", "f2:a:3:f2a" ), visited );
+
+    visited.clear();
+    result.visitLatestCells( family2, visitor );
+    assertEquals( Arrays.asList( "f2:a:3:f2a" ), visited );
+  }
+
+  @Test
+  public void testVisitLatestCellsMatchesMapView() throws KettleException {
+    byte[] row = "row".getBytes( UTF_8 );
+    byte[] family1 = "f1".getBytes( UTF_8 );
+    byte[] family2 = "f2".getBytes( UTF_8 );
+    byte[] colA = "a".getBytes( UTF_8 );
+    byte[] colB = "b".getBytes( UTF_8 );
+    Result hbaseResult = Result.create( new Cell[] {
+      new KeyValue( row, family1, colA, 3L, "newest".getBytes( UTF_8 ) ),
+      new KeyValue( row, family1, colA, 2L, "middle".getBytes( UTF_8 ) ),
+      new KeyValue( row, family1, colA, 1L, "oldest".getBytes( UTF_8 ) ),
+      new KeyValue( row, family1, colB, 1L, "b".getBytes( UTF_8 ) ),
+      new KeyValue( row, family2, colA, 4L, "f2a".getBytes( UTF_8 ) ) } );
+    result = new ResultImpl( hbaseResult, hBaseBytesUtilShim );
+
+    // the newest version of every column, as read from the map view
+    List<String> expected = new ArrayList<>();
+    for ( Map.Entry<byte[], NavigableMap<byte[], NavigableMap<Long, byte[]>>> family : hbaseResult.getMap()
+      .entrySet() ) {
+      for ( Map.Entry<byte[], NavigableMap<Long, byte[]>> column : family.getValue().entrySet() ) {
+        Map.Entry<Long, byte[]> newest = column.getValue().firstEntry();
+        expected.add( new String( family.getKey(), UTF_8 ) + ":" + new String( column.getKey(), UTF_8 ) + ":"
+          + newest.getKey() + ":" + new String( newest.getValue(), UTF_8 ) );
+      }
+    }
+    assertEquals( Arrays.asList( "f1:a:3:newest", "f1:b:1:b", "f2:a:4:f2a" ), expected );
+
+    final List<String> visited = new ArrayList<>();
+    CellVisitor visitor = new CellVisitor() {
+      @Override public void visit( byte[] family, byte[] qualifier, long timestamp, byte[] value ) {
+        visited.add( new String( family, UTF_8 ) + ":" + new String( qualifier, UTF_8 ) + ":" + timestamp + ":"
+          + new String( value, UTF_8 ) );
+      }
+    };
+    result.visitLatestCells( null, visitor );
+    assertEquals( expected, visited );
+
+    // a family with no cells in the row visits nothing
+    visited.clear();
+    result.visitLatestCells( "missing".getBytes( UTF_8 ), visitor );
+    assertTrue( visited.isEmpty() );
+
+    // as does a row with only a key
+    result = new ResultImpl( Result.create( new Cell[ 0 ] ), hBaseBytesUtilShim );
+    result.visitLatestCells( null, visitor );
+    assertTrue( visited.isEmpty() );
+  }
+
   @Test
   public void testIsEmpty() {
     when( delegate.isEmpty() ).thenReturn( true ).thenReturn( false );
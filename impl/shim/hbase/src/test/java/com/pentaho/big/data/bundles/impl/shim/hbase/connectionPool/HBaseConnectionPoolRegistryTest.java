@@ -0,0 +1,119 @@
+/*******************************************************************************
+ *
+ * Pentaho Big Data
+ *
+ * Copyright (C) 2002-2016 by Pentaho : http://www.pentaho.com
+ *
+ *******************************************************************************
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ ******************************************************************************/
+
+package com.pentaho.big.data.bundles.impl.shim.hbase.connectionPool;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
+import org.pentaho.di.core.logging.LogChannelInterface;
+import org.pentaho.hbase.shim.spi.HBaseConnection;
+import org.pentaho.hbase.shim.spi.HBaseShim;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.Properties;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.fail;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyListOf;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class HBaseConnectionPoolRegistryTest {
+  private HBaseConnectionPoolRegistry hBaseConnectionPoolRegistry;
+  private HBaseShim hBaseShim;
+  private LogChannelInterface logChannelInterface;
+
+  @Before
+  public void setup() {
+    logChannelInterface = mock( LogChannelInterface.class );
+    hBaseConnectionPoolRegistry = new HBaseConnectionPoolRegistry( logChannelInterface );
+    hBaseShim = mock( HBaseShim.class );
+  }
+
+  private Properties props( String quorum ) {
+    Properties properties = new Properties();
+    properties.setProperty( "quorum", quorum );
+    return properties;
+  }
+
+  private HBaseConnectionPool acquire( String clusterName, Properties properties ) {
+    return hBaseConnectionPoolRegistry.acquire( hBaseShim, clusterName, properties, 0, -1, 0 );
+  }
+
+  @Test
+  public void testSharedForSameKey() {
+    HBaseConnectionPool first = acquire( "cluster", props( "zk" ) );
+    HBaseConnectionPool second = acquire( "cluster", props( "zk" ) );
+    assertSame( first, second );
+    assertEquals( 1, hBaseConnectionPoolRegistry.size() );
+  }
+
+  @Test
+  public void testNotSharedForDifferentKey() {
+    HBaseConnectionPool first = acquire( "cluster", props( "zk" ) );
+    assertNotSame( first, acquire( "cluster", props( "otherZk" ) ) );
+    assertNotSame( first, acquire( "otherCluster", props( "zk" ) ) );
+    assertNotSame( first, hBaseConnectionPoolRegistry
+      .acquire( mock( HBaseShim.class ), "cluster", props( "zk" ), 0, -1, 0 ) );
+    assertEquals( 4, hBaseConnectionPoolRegistry.size() );
+  }
+
+  @Test
+  public void testClosedOnLastRelease() throws IOException {
+    HBaseConnectionPool first = acquire( "cluster", props( "zk" ) );
+    HBaseConnectionPool second = acquire( "cluster", props( "zk" ) );
+    hBaseConnectionPoolRegistry.release( first );
+    assertEquals( 1, hBaseConnectionPoolRegistry.size() );
+    hBaseConnectionPoolRegistry.release( second );
+    assertEquals( 0, hBaseConnectionPoolRegistry.size() );
+    try {
+      second.getConnectionHandle();
+      fail();
+    } catch ( IOException e ) {
+      // Expected, pool is closed
+    }
+    assertNotSame( first, acquire( "cluster", props( "zk" ) ) );
+  }
+
+  @Test
+  public void testSharedPoolLogsToRegistryChannel() throws Exception {
+    HBaseConnection hBaseConnection = mock( HBaseConnection.class );
+    when( hBaseShim.getHBaseConnection() ).thenReturn( hBaseConnection );
+    doAnswer( new Answer<Void>() {
+      @SuppressWarnings( "unchecked" )
+      @Override public Void answer( InvocationOnMock invocation ) throws Throwable {
+        ( (List<String>) invocation.getArguments()[ 1 ] ).add( "configured" );
+        return null;
+      }
+    } ).when( hBaseConnection ).configureConnection( any( Properties.class ), anyListOf( String.class ) );
+    acquire( "cluster", props( "zk" ) ).getConnectionHandle().close();
+    verify( logChannelInterface ).logBasic( "configured" );
+  }
+}
@@ -398,4 +398,93 @@ public class HBaseConnectionPoolTest {
     verify( logChannelInterface ).logError( e1Msg, exception1 );
     verify( logChannelInterface ).logError( e2Msg, exception2 );
   }
+
+  @Test( expected = IOException.class )
+  public void testMaxSizeFailsWhenExhausted() throws IOException {
+    hBaseConnectionPool = new HBaseConnectionPool( hBaseShim, props, logChannelInterface, 2, 0, 0 );
+    hBaseConnectionPool.getConnectionHandle();
+    hBaseConnectionPool.getConnectionHandle( "source" );
+    try {
+      hBaseConnectionPool.getConnectionHandle( "target", null );
+    } catch ( IOException e ) {
+      assertEquals( 1, hBaseConnectionPool.getExhaustedCount() );
+      assertEquals( 2, mockConnections.size() );
+      throw e;
+    }
+  }
+
+  @Test
+  public void testMaxSizeReusesReleasedConnection() throws IOException {
+    hBaseConnectionPool = new HBaseConnectionPool( hBaseShim, props, logChannelInterface, 1, 1000, 0 );
+    HBaseConnectionHandle handle = hBaseConnectionPool.getConnectionHandle( "source" );
+    HBaseConnectionWrapper connection = handle.getConnection();
+    handle.close();
+    assertEquals( connection, hBaseConnectionPool.getConnectionHandle( "target", null ).getConnection() );
+    assertEquals( 1, mockConnections.size() );
+  }
+
+  @Test
+  public void testMaxSizeBlocksUntilRelease() throws Exception {
+    hBaseConnectionPool = new HBaseConnectionPool( hBaseShim, props, logChannelInterface, 1, -1, 0 );
+    final HBaseConnectionHandle handle = hBaseConnectionPool.getConnectionHandle();
+    Thread releaser = new Thread( new Runnable() {
+      @Override public void run() {
+        try {
+          Thread.sleep( 100 );
+          handle.close();
+        } catch ( Exception e ) {
+          // Ignore
+        }
+      }
+    } );
+    releaser.start();
+    assertNotNull( hBaseConnectionPool.getConnectionHandle() );
+    releaser.join();
+    assertEquals( 1, hBaseConnectionPool.getWaitCount() );
+    assertEquals( 1, mockConnections.size() );
+  }
+
+  @Test
+  public void testDoubleCloseOfHandleIgnored() throws IOException {
+    HBaseConnectionHandle handle = hBaseConnectionPool.getConnectionHandle();
+    handle.close();
+    handle.close();
+    assertEquals( 1, hBaseConnectionPool.getAvailableCount() );
+    assertEquals( 0, hBaseConnectionPool.getInUseCount() );
+  }
+
+  @Test
+  public void testEvictIdleConnections() throws Exception {
+    hBaseConnectionPool = new HBaseConnectionPool( hBaseShim, props, logChannelInterface, 0, -1, 1 );
+    hBaseConnectionPool.getConnectionHandle();
+    HBaseConnectionHandle idle = hBaseConnectionPool.getConnectionHandle( "source" );
+    HBaseConnectionWrapper idleConnection = idle.getConnection();
+    idle.close();
+    Thread.sleep( 10 );
+    hBaseConnectionPool.evictIdleConnections();
+    assertEquals( 1, hBaseConnectionPool.getEvictedCount() );
+    assertEquals( 1, hBaseConnectionPool.getSize() );
+    verify( mockConnections.get( 0 ), never() ).close();
+    verify( mockConnections.get( 1 ) ).close();
+    assertNotEquals( idleConnection, hBaseConnectionPool.getConnectionHandle( "source" ).getConnection() );
+    assertEquals( 3, mockConnections.size() );
+  }
+
+  @Test
+  public void testCounters() throws IOException {
+    HBaseConnectionHandle handle = hBaseConnectionPool.getConnectionHandle();
+    HBaseConnectionHandle handle2 = hBaseConnectionPool.getConnectionHandle( "source" );
+    assertEquals( 2, hBaseConnectionPool.getInUseCount() );
+    assertEquals( 0, hBaseConnectionPool.getAvailableCount() );
+    handle.close();
+    handle2.close();
+    hBaseConnectionPool.getConnectionHandle( "source" );
+    assertEquals( 3, hBaseConnectionPool.getAcquireCount() );
+    assertEquals( 2, hBaseConnectionPool.getCreatedCount() );
+    assertEquals( 2, hBaseConnectionPool.getSize() );
+    assertEquals( 2, hBaseConnectionPool.getPeakInUseCount() );
+    assertEquals( 1, hBaseConnectionPool.getInUseCount() );
+    assertEquals( 1, hBaseConnectionPool.getAvailableCount() );
+    assertTrue( hBaseConnectionPool.getMaxAcquireNanos() <= hBaseConnectionPool.getTotalAcquireNanos() );
+  }
 }
@@ -26,9 +26,11 @@ import com.pentaho.big.data.bundles.impl.shim.hbase.HBaseConnectionWrapper;
 import com.pentaho.big.data.bundles.impl.shim.hbase.connectionPool.HBaseConnectionHandle;
 import org.junit.Before;
 import org.junit.Test;
+import org.mockito.InOrder;
 
 import java.io.IOException;
 import java.nio.charset.Charset;
+import java.util.Arrays;
 
 import static org.junit.Assert.*;
 import static org.mockito.Mockito.*;
@@ -73,6 +75,20 @@ public class HBaseTableWriteOperationManagerImplTest {
     verify( hBaseConnectionWrapper ).executeTargetTablePut();
   }
 
+  @Test
+  public void testExecuteBatchFlushesOnce() throws Exception {
+    byte[] first = "first".getBytes( Charset.forName( "UTF-8" ) );
+    byte[] second = "second".getBytes( Charset.forName( "UTF-8" ) );
+    hBaseTableWriteOperationManager.executeBatch( Arrays.asList( hBaseTableWriteOperationManager.createPut( first ),
+      hBaseTableWriteOperationManager.createPut( second ) ) );
+    InOrder inOrder = inOrder( hBaseConnectionWrapper );
+    inOrder.verify( hBaseConnectionWrapper ).newTargetTablePut( first, false );
+    inOrder.verify( hBaseConnectionWrapper ).executeTargetTablePut();
+    inOrder.verify( hBaseConnectionWrapper ).newTargetTablePut( second, false );
+    inOrder.verify( hBaseConnectionWrapper ).executeTargetTablePut();
+    inOrder.verify( hBaseConnectionWrapper ).flushCommitsTargetTable();
+  }
+
   @Test
   public void testDelete() throws Exception {
     byte[] bytes = "deleteKey".getBytes( Charset.forName( "UTF-8" ) );
@@ -0,0 +1,97 @@
+/*******************************************************************************
+ *
+ * Pentaho Big Data
+ *
+ * Copyright (C) 2002-2016 by Pentaho : http://www.pentaho.com
+ *
+ *******************************************************************************
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ ******************************************************************************/
+
+package com.pentaho.big.data.bundles.impl.shim.hbase.table;
+
+import org.junit.Test;
+
+import java.nio.charset.Charset;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class KeyRangeSplitterTest {
+  private static final Charset UTF_8 = Charset.forName( "UTF-8" );
+
+  private static byte[] bytes( String value ) {
+    return value == null ? null : value.getBytes( UTF_8 );
+  }
+
+  @Test
+  public void testSingleSplitReturnsFullRange() {
+    byte[] lower = bytes( "a" );
+    byte[] upper = bytes( "z" );
+    byte[][] split = KeyRangeSplitter.getSplit( lower, upper, 0, 1 );
+    assertArrayEquals( lower, split[ 0 ] );
+    assertArrayEquals( upper, split[ 1 ] );
+  }
+
+  @Test( expected = IllegalArgumentException.class )
+  public void testSplitNumberOutOfRange() {
+    KeyRangeSplitter.getSplit( null, null, 2, 2 );
+  }
+
+  @Test
+  public void testBoundedSplitsAreContiguous() {
+    byte[] lower = bytes( "a" );
+    byte[] upper = bytes( "z" );
+    int splitCount = 4;
+    byte[] previousStop = lower;
+    for ( int i = 0; i < splitCount; i++ ) {
+      byte[][] split = KeyRangeSplitter.getSplit( lower, upper, i, splitCount );
+      assertArrayEquals( previousStop, split[ 0 ] );
+      assertTrue( KeyRangeSplitter.compare( split[ 0 ], split[ 1 ] ) < 0 );
+      previousStop = split[ 1 ];
+    }
+    assertArrayEquals( upper, previousStop );
+  }
+
+  @Test
+  public void testUnboundedUniformSplitsAreContiguous() {
+    byte[][] first = KeyRangeSplitter.getSplit( null, null, 0, 3 );
+    byte[][] second = KeyRangeSplitter.getSplit( null, null, 1, 3 );
+    byte[][] third = KeyRangeSplitter.getSplit( null, null, 2, 3 );
+    assertNull( first[ 0 ] );
+    assertArrayEquals( first[ 1 ], second[ 0 ] );
+    assertArrayEquals( second[ 1 ], third[ 0 ] );
+    assertNull( third[ 1 ] );
+  }
+
+  @Test
+  public void testSplitsAreDeterministic() {
+    for ( int i = 0; i < 3; i++ ) {
+      byte[][] split = KeyRangeSplitter.getSplit( bytes( "c" ), bytes( "w" ), i, 3 );
+      byte[][] again = KeyRangeSplitter.getSplit( bytes( "c" ), bytes( "w" ), i, 3 );
+      assertArrayEquals( split[ 0 ], again[ 0 ] );
+      assertArrayEquals( split[ 1 ], again[ 1 ] );
+    }
+  }
+
+  @Test
+  public void testCompareIsUnsigned() {
+    assertTrue( KeyRangeSplitter.compare( new byte[] { (byte) 0x7F }, new byte[] { (byte) 0x80 } ) < 0 );
+    assertTrue( KeyRangeSplitter.compare( bytes( "ab" ), bytes( "abc" ) ) < 0 );
+    assertEquals( 0, KeyRangeSplitter.compare( bytes( "abc" ), bytes( "abc" ) ) );
+  }
+}
@@ -23,10 +23,12 @@
 package com.pentaho.big.data.bundles.impl.shim.hdfs;
 
 import org.apache.hadoop.fs.LocalFileSystem;
+import org.apache.hadoop.fs.Path;
 import org.junit.Before;
 import org.junit.Test;
 import org.pentaho.big.data.api.cluster.NamedCluster;
 import org.pentaho.bigdata.api.hdfs.HadoopFileSystem;
+import org.pentaho.bigdata.api.hdfs.HadoopFileSystemPath;
 import org.pentaho.hadoop.shim.HadoopConfiguration;
 import org.pentaho.hadoop.shim.api.Configuration;
 import org.pentaho.hadoop.shim.api.fs.FileSystem;
@@ -107,6 +109,20 @@ public class HadoopFileSystemFactoryImplTest {
     assertNotNull( hadoopFileSystem );
   }
 
+  @Test
+  public void testFileSystemResolvedForEachOperation() throws IOException {
+    // a closed hadoop filesystem is dropped from hadoop's cache, the next lookup through the shim gets a new one
+    org.apache.hadoop.fs.FileSystem closed = mock( org.apache.hadoop.fs.FileSystem.class );
+    org.apache.hadoop.fs.FileSystem replacement = mock( org.apache.hadoop.fs.FileSystem.class );
+    when( fileSystem.getDelegate() ).thenReturn( closed, replacement );
+    when( namedCluster.isMapr() ).thenReturn( true );
+    HadoopFileSystem hadoopFileSystem = hadoopFileSystemFactory.create( namedCluster );
+    HadoopFileSystemPath path = mock( HadoopFileSystemPath.class );
+    when( path.getPath() ).thenReturn( "/test" );
+    hadoopFileSystem.mkdirs( path );
+    verify( replacement ).mkdirs( new Path( "/test" ) );
+  }
+
   @Test( expected = IOException.class )
   public void testLocalFileSystem() throws IOException {
     when( namedCluster.isMapr() ).thenReturn( true );
@@ -0,0 +1,527 @@
+/*******************************************************************************
+ *
+ * Pentaho Big Data
+ *
+ * Copyright (C) 2002-2016 by Pentaho : http://www.pentaho.com
+ *
+ *******************************************************************************
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ ******************************************************************************/
+
+package com.pentaho.big.data.bundles.impl.shim.hive;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.CallableStatement;
+import java.sql.Connection;
+import java.sql.DatabaseMetaData;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayDeque;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Properties;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Pattern;
+
+/**
+ * Keeps idle HiveServer2/Impala sessions around so steps and job entries connecting to the same url with the same
+ * properties can reuse them instead of paying for session setup (Kerberos handshakes included) every time.
+ * <p>
+ * Pooling is off unless {@link #MAX_IDLE_KEY} is set to a positive number.
+ * <p>
+ * Closing a pooled connection closes the statements and metadata result sets opened through it and restores the
+ * connection settings (auto commit, catalog, schema, read only, isolation, holdability) changed through it. Sessions
+ * whose state can't be restored are closed instead of being reused: ones a SET, RESET, USE, ADD or CREATE TEMPORARY
+ * statement ran on, ones with other settings changed and ones unwrapped to the driver's connection.
+ * <p>
+ * Statements, prepared statements and database metadata obtained from a pooled connection report the pooled connection
+ * from getConnection(). Query result sets are not wrapped, so ResultSet.getStatement().getConnection() still reaches
+ * the driver's connection and must not be closed by callers.
+ */
+public class HiveConnectionPool {
+  /**
+   * Maximum number of idle connections kept per url and properties, 0 disables pooling
+   */
+  public static final String MAX_IDLE_KEY = "pentaho.hive.connection.pool.max.idle";
+  public static final int DEFAULT_MAX_IDLE = 0;
+  /**
+   * Idle connections older than this are closed instead of being reused
+   */
+  public static final String IDLE_TIMEOUT_MILLIS_KEY = "pentaho.hive.connection.pool.idle.timeout.millis";
+  public static final long DEFAULT_IDLE_TIMEOUT_MILLIS = TimeUnit.MINUTES.toMillis( 5 );
+  /**
+   * Connections idle for longer than this are checked with the validation query before being handed out
+   */
+  public static final String VALIDATION_INTERVAL_MILLIS_KEY = "pentaho.hive.connection.pool.validation.interval.millis";
+  public static final long DEFAULT_VALIDATION_INTERVAL_MILLIS = TimeUnit.SECONDS.toMillis( 30 );
+  public static final String VALIDATION_QUERY_KEY = "pentaho.hive.connection.pool.validation.query";
+  public static final String DEFAULT_VALIDATION_QUERY = "SELECT 1";
+  /**
+   * Lower bound on how often idle connections are reaped in the background
+   */
+  static final long MIN_EVICTION_INTERVAL_MILLIS = TimeUnit.SECONDS.toMillis( 1 );
+  /**
+   * Statements that change session state the pool can't restore
+   */
+  private static final Pattern SESSION_STATEMENT =
+    Pattern.compile( "^\\s*(set|reset|use|add|create\\s+temporary)\\b.*", Pattern.CASE_INSENSITIVE | Pattern.DOTALL );
+  /**
+   * Connection setters that are undone before a connection is reused, with the getters for their original values
+   */
+  private static final Map<String, String> RESETTABLE_SETTERS = new HashMap<>();
+
+  static {
+    RESETTABLE_SETTERS.put( "setAutoCommit", "getAutoCommit" );
+    RESETTABLE_SETTERS.put( "setCatalog", "getCatalog" );
+    RESETTABLE_SETTERS.put( "setSchema", "getSchema" );
+    RESETTABLE_SETTERS.put( "setReadOnly", "isReadOnly" );
+    RESETTABLE_SETTERS.put( "setTransactionIsolation", "getTransactionIsolation" );
+    RESETTABLE_SETTERS.put( "setHoldability", "getHoldability" );
+  }
+
+  private static final ScheduledExecutorService EVICTOR = Executors.newSingleThreadScheduledExecutor( runnable -> {
+    Thread thread = new Thread( runnable, "Hive connection pool evictor" );
+    thread.setDaemon( true );
+    return thread;
+  } );
+
+  private final int maxIdle;
+  private final long idleTimeoutMillis;
+  private final long validationIntervalMillis;
+  private final String validationQuery;
+  private final Map<PoolKey, Deque<IdleConnection>> idleConnections;
+  private final ScheduledFuture<?> evictionFuture;
+  private volatile boolean closed = false;
+
+  public HiveConnectionPool() {
+    this( Integer.getInteger( MAX_IDLE_KEY, DEFAULT_MAX_IDLE ),
+      Long.getLong( IDLE_TIMEOUT_MILLIS_KEY, DEFAULT_IDLE_TIMEOUT_MILLIS ),
+      Long.getLong( VALIDATION_INTERVAL_MILLIS_KEY, DEFAULT_VALIDATION_INTERVAL_MILLIS ),
+      System.getProperty( VALIDATION_QUERY_KEY, DEFAULT_VALIDATION_QUERY ) );
+  }
+
+  public HiveConnectionPool( int maxIdle, long idleTimeoutMillis, long validationIntervalMillis,
+                             String validationQuery ) {
+    this.maxIdle = maxIdle;
+    this.idleTimeoutMillis = idleTimeoutMillis;
+    this.validationIntervalMillis = validationIntervalMillis;
+    this.validationQuery = validationQuery;
+    this.idleConnections = new ConcurrentHashMap<>();
+    if ( isEnabled() ) {
+      // Idle sessions hold server resources, so they are reaped even when nobody asks the pool for a connection
+      long evictionIntervalMillis = Math.max( idleTimeoutMillis / 2, MIN_EVICTION_INTERVAL_MILLIS );
+      evictionFuture = EVICTOR.scheduleWithFixedDelay( this::evictIdle, evictionIntervalMillis,
+        evictionIntervalMillis, TimeUnit.MILLISECONDS );
+    } else {
+      evictionFuture = null;
+    }
+  }
+
+  public boolean isEnabled() {
+    return maxIdle > 0;
+  }
+
+  /**
+   * Returns an idle connection for the url and properties if a valid one is available, otherwise opens a new one.
+   * Closing the returned connection hands it back to the pool.
+   *
+   * @param url        the (normalized) jdbc url
+   * @param info       the connection properties
+   * @param connector  opens a new connection when nothing can be reused
+   * @return a pooled connection or null if the connector returned null
+   * @throws SQLException if a new connection couldn't be opened
+   */
+  public Connection getConnection( String url, Properties info, Connector connector ) throws SQLException {
+    PoolKey poolKey = new PoolKey( url, info );
+    Connection connection = borrow( poolKey );
+    if ( connection == null ) {
+      connection = connector.connect();
+      if ( connection == null ) {
+        return null;
+      }
+    }
+    return wrap( poolKey, connection );
+  }
+
+  private Connection borrow( PoolKey poolKey ) {
+    Deque<IdleConnection> deque = idleConnections.get( poolKey );
+    if ( deque == null ) {
+      return null;
+    }
+    long now = System.currentTimeMillis();
+    while ( true ) {
+      IdleConnection idleConnection;
+      synchronized ( deque ) {
+        idleConnection = deque.pollFirst();
+      }
+      if ( idleConnection == null ) {
+        return null;
+      }
+      long idleMillis = now - idleConnection.idleSince;
+      if ( idleMillis > idleTimeoutMillis ) {
+        closeQuietly( idleConnection.connection );
+      } else if ( idleMillis <= validationIntervalMillis || isValid( idleConnection.connection ) ) {
+        return idleConnection.connection;
+      } else {
+        closeQuietly( idleConnection.connection );
+      }
+    }
+  }
+
+  private void release( PoolKey poolKey, Connection connection ) {
+    if ( closed ) {
+      closeQuietly( connection );
+      return;
+    }
+    try {
+      if ( connection.isClosed() ) {
+        return;
+      }
+    } catch ( SQLException e ) {
+      closeQuietly( connection );
+      return;
+    }
+    Deque<IdleConnection> deque = idleConnections.computeIfAbsent( poolKey, key -> new ArrayDeque<>() );
+    long now = System.currentTimeMillis();
+    Connection toClose = connection;
+    synchronized ( deque ) {
+      evictExpired( deque, now );
+      if ( !closed && deque.size() < maxIdle ) {
+        // Most recently used first so the rest can time out when load drops
+        deque.addFirst( new IdleConnection( connection, now ) );
+        toClose = null;
+      }
+    }
+    if ( toClose != null ) {
+      closeQuietly( toClose );
+    }
+  }
+
+  /**
+   * Closes idle connections that have outlived the idle timeout
+   */
+  void evictIdle() {
+    long now = System.currentTimeMillis();
+    for ( Deque<IdleConnection> deque : idleConnections.values() ) {
+      synchronized ( deque ) {
+        evictExpired( deque, now );
+      }
+    }
+  }
+
+  private void evictExpired( Deque<IdleConnection> deque, long now ) {
+    Iterator<IdleConnection> iterator = deque.descendingIterator();
+    while ( iterator.hasNext() ) {
+      IdleConnection idleConnection = iterator.next();
+      if ( now - idleConnection.idleSince <= idleTimeoutMillis ) {
+        return;
+      }
+      iterator.remove();
+      closeQuietly( idleConnection.connection );
+    }
+  }
+
+  private boolean isValid( Connection connection ) {
+    try ( Statement statement = connection.createStatement() ) {
+      statement.execute( validationQuery );
+      return true;
+    } catch ( Exception e ) {
+      return false;
+    }
+  }
+
+  /**
+   * Closes all idle connections
+   */
+  public void clear() {
+    for ( Deque<IdleConnection> deque : idleConnections.values() ) {
+      synchronized ( deque ) {
+        for ( IdleConnection idleConnection : deque ) {
+          closeQuietly( idleConnection.connection );
+        }
+        deque.clear();
+      }
+    }
+  }
+
+  /**
+   * Stops background eviction and closes all idle connections.  Connections handed out before are closed when their
+   * users close them instead of being returned to the pool.
+   */
+  public void close() {
+    closed = true;
+    if ( evictionFuture != null ) {
+      evictionFuture.cancel( false );
+    }
+    clear();
+  }
+
+  int getIdleCount() {
+    int count = 0;
+    for ( Deque<IdleConnection> deque : idleConnections.values() ) {
+      synchronized ( deque ) {
+        count += deque.size();
+      }
+    }
+    return count;
+  }
+
+  private Connection wrap( PoolKey poolKey, Connection connection ) {
+    return (Connection) Proxy.newProxyInstance( HiveConnectionPool.class.getClassLoader(),
+      new Class<?>[] { Connection.class }, new PooledConnectionHandler( poolKey, connection ) );
+  }
+
+  static boolean changesSession( String sql ) {
+    return sql != null && SESSION_STATEMENT.matcher( sql ).matches();
+  }
+
+  private static void closeQuietly( Connection connection ) {
+    try {
+      connection.close();
+    } catch ( Exception e ) {
+      // Ignore, the connection is being discarded
+    }
+  }
+
+  public interface Connector {
+    Connection connect() throws SQLException;
+  }
+
+  private class PooledConnectionHandler implements InvocationHandler {
+    private final PoolKey poolKey;
+    private final Connection connection;
+    private final Set<AutoCloseable> openChildren = Collections.newSetFromMap( new ConcurrentHashMap<>() );
+    // Original values of the settings changed through this handler, by setter
+    private final Map<Method, Object> changedSettings = Collections.synchronizedMap( new LinkedHashMap<>() );
+    private volatile boolean reusable = true;
+    private boolean closed = false;
+
+    private PooledConnectionHandler( PoolKey poolKey, Connection connection ) {
+      this.poolKey = poolKey;
+      this.connection = connection;
+    }
+
+    @Override public Object invoke( Object proxy, Method method, Object[] args ) throws Throwable {
+      String methodName = method.getName();
+      switch ( methodName ) {
+        case "close":
+          synchronized ( this ) {
+            if ( closed ) {
+              return null;
+            }
+            closed = true;
+          }
+          boolean closedChildren = closeChildren();
+          if ( closedChildren && reusable && resetSettings() ) {
+            release( poolKey, connection );
+          } else {
+            closeQuietly( connection );
+          }
+          return null;
+        case "isClosed":
+          synchronized ( this ) {
+            if ( closed ) {
+              return true;
+            }
+          }
+          break;
+        case "equals":
+          return proxy == args[ 0 ];
+        case "hashCode":
+          return System.identityHashCode( proxy );
+        case "toString":
+          return "Pooled " + connection;
+        case "unwrap":
+          checkOpen();
+          if ( ( (Class<?>) args[ 0 ] ).isInstance( proxy ) ) {
+            return proxy;
+          }
+          // The caller gets hold of the driver's connection and may close it or change it behind the pool's back
+          reusable = false;
+          break;
+        default:
+          checkOpen();
+          if ( RESETTABLE_SETTERS.containsKey( methodName ) ) {
+            rememberSetting( method );
+          } else if ( methodName.startsWith( "set" ) || "abort".equals( methodName ) ) {
+            reusable = false;
+          } else if ( ( "prepareStatement".equals( methodName ) || "prepareCall".equals( methodName ) )
+            && args[ 0 ] instanceof String && changesSession( (String) args[ 0 ] ) ) {
+            reusable = false;
+          }
+      }
+      Object result;
+      try {
+        result = method.invoke( connection, args );
+      } catch ( InvocationTargetException e ) {
+        throw e.getCause();
+      }
+      Class<?> returnType = method.getReturnType();
+      if ( returnType == Statement.class || returnType == PreparedStatement.class
+        || returnType == CallableStatement.class || returnType == DatabaseMetaData.class ) {
+        return wrapChild( returnType, result, (Connection) proxy );
+      }
+      return result;
+    }
+
+    private synchronized void checkOpen() throws SQLException {
+      if ( closed ) {
+        throw new SQLException( "Connection is closed" );
+      }
+    }
+
+    private void rememberSetting( Method setter ) {
+      if ( changedSettings.containsKey( setter ) ) {
+        return;
+      }
+      try {
+        Method getter = Connection.class.getMethod( RESETTABLE_SETTERS.get( setter.getName() ) );
+        changedSettings.put( setter, getter.invoke( connection ) );
+      } catch ( Exception e ) {
+        // Nothing to restore it to
+        reusable = false;
+      }
+    }
+
+    private boolean resetSettings() {
+      synchronized ( changedSettings ) {
+        for ( Map.Entry<Method, Object> setting : changedSettings.entrySet() ) {
+          try {
+            setting.getKey().invoke( connection, setting.getValue() );
+          } catch ( Exception e ) {
+            return false;
+          }
+        }
+      }
+      return true;
+    }
+
+    /**
+     * Closes the statements and result sets the user left open, they would otherwise keep working against a session
+     * the next user owns
+     */
+    private boolean closeChildren() {
+      boolean closedAll = true;
+      for ( AutoCloseable child : openChildren ) {
+        try {
+          child.close();
+        } catch ( Exception e ) {
+          closedAll = false;
+        }
+      }
+      openChildren.clear();
+      return closedAll;
+    }
+
+    /**
+     * Wraps a statement, metadata object or metadata result set so it is closed with the pooled connection and its
+     * getConnection() returns the pooled connection rather than the driver's
+     */
+    private Object wrapChild( Class<?> type, Object child, Connection pooledConnection ) {
+      if ( child == null ) {
+        return null;
+      }
+      if ( child instanceof AutoCloseable ) {
+        openChildren.add( (AutoCloseable) child );
+      }
+      return Proxy.newProxyInstance( HiveConnectionPool.class.getClassLoader(), new Class<?>[] { type },
+        ( childProxy, method, args ) -> {
+          String methodName = method.getName();
+          switch ( methodName ) {
+            case "getConnection":
+              return pooledConnection;
+            case "equals":
+              return childProxy == args[ 0 ];
+            case "hashCode":
+              return System.identityHashCode( childProxy );
+            case "close":
+              openChildren.remove( child );
+              break;
+            default:
+              if ( ( methodName.startsWith( "execute" ) || "addBatch".equals( methodName ) ) && args != null
+                && args.length > 0 && args[ 0 ] instanceof String && changesSession( (String) args[ 0 ] ) ) {
+                reusable = false;
+              }
+          }
+          Object result;
+          try {
+            result = method.invoke( child, args );
+          } catch ( InvocationTargetException e ) {
+            throw e.getCause();
+          }
+          if ( child instanceof DatabaseMetaData && result instanceof ResultSet ) {
+            return wrapChild( ResultSet.class, result, pooledConnection );
+          }
+          return result;
+        } );
+    }
+  }
+
+  private static final class IdleConnection {
+    private final Connection connection;
+    private final long idleSince;
+
+    private IdleConnection( Connection connection, long idleSince ) {
+      this.connection = connection;
+      this.idleSince = idleSince;
+    }
+  }
+
+  private static final class PoolKey {
+    private final String url;
+    private final Map<String, String> properties;
+
+    private PoolKey( String url, Properties info ) {
+      this.url = url;
+      this.properties = new TreeMap<>();
+      if ( info != null ) {
+        for ( String name : info.stringPropertyNames() ) {
+          properties.put( name, info.getProperty( name ) );
+        }
+      }
+    }
+
+    @Override public boolean equals( Object o ) {
+      if ( this == o ) {
+        return true;
+      }
+      if ( o == null || getClass() != o.getClass() ) {
+        return false;
+      }
+      PoolKey poolKey = (PoolKey) o;
+      return Objects.equals( url, poolKey.url ) && properties.equals( poolKey.properties );
+    }
+
+    @Override public int hashCode() {
+      return Objects.hash( url, properties );
+    }
+  }
+}
@@ -48,13 +48,20 @@ public class HiveDriver implements Driver {
   private final boolean defaultConfiguration;
   private final JdbcUrlParser jdbcUrlParser;
   private final String hadoopConfigurationId;
+  private final HiveConnectionPool connectionPool;
 
   public HiveDriver( Driver delegate, String hadoopConfigurationId, boolean defaultConfiguration,
                      JdbcUrlParser jdbcUrlParser ) {
+    this( delegate, hadoopConfigurationId, defaultConfiguration, jdbcUrlParser, new HiveConnectionPool() );
+  }
+
+  public HiveDriver( Driver delegate, String hadoopConfigurationId, boolean defaultConfiguration,
+                     JdbcUrlParser jdbcUrlParser, HiveConnectionPool connectionPool ) {
     this.delegate = delegate;
     this.hadoopConfigurationId = hadoopConfigurationId;
     this.defaultConfiguration = defaultConfiguration;
     this.jdbcUrlParser = jdbcUrlParser;
+    this.connectionPool = connectionPool;
   }
 
   @Override public Connection connect( String url, Properties info ) throws SQLException {
@@ -94,7 +101,20 @@ public class HiveDriver implements Driver {
   }
 
   public Connection doConnect( Driver driver, JdbcUrl url, Properties info ) throws SQLException {
-    return driver.connect( url.toString(), info );
+    String urlString = url.toString();
+    if ( connectionPool != null && connectionPool.isEnabled() ) {
+      return connectionPool.getConnection( urlString, info, () -> driver.connect( urlString, info ) );
+    }
+    return driver.connect( urlString, info );
+  }
+
+  /**
+   * Closes the pooled connections this driver holds on to, called once the driver is unregistered
+   */
+  public void close() {
+    if ( connectionPool != null ) {
+      connectionPool.close();
+    }
   }
 
   @Override public final boolean acceptsURL( String url ) throws SQLException {
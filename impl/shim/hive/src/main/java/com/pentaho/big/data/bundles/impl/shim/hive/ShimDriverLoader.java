@@ -33,9 +33,11 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.sql.Driver;
+import java.util.ArrayList;
 import java.util.Dictionary;
 import java.util.HashMap;
 import java.util.Hashtable;
+import java.util.List;
 import java.util.Map;
 import java.util.Objects;
 import java.util.concurrent.ConcurrentHashMap;
@@ -57,6 +59,7 @@ public class ShimDriverLoader implements HadoopConfigurationListener {
 
   private final JdbcUrlParser jdbcUrlParser;
   private final ConcurrentMap<HadoopConfiguration, ConcurrentMap<String, ServiceRegistration>> configMap;
+  private final ConcurrentMap<HadoopConfiguration, List<Driver>> driverMap;
   private final Map<String, DriverFactory> hiveDriverFactoryMap;
   private final BundleContext bundleContext;
 
@@ -75,6 +78,7 @@ public class ShimDriverLoader implements HadoopConfigurationListener {
     this.jdbcUrlParser = jdbcUrlParser;
     this.bundleContext = bundleContext;
     this.configMap = new ConcurrentHashMap<>();
+    this.driverMap = new ConcurrentHashMap<>();
     this.hiveDriverFactoryMap = new ConcurrentHashMap<>( hiveDriverFactoryMap );
     try {
       hadoopConfigurationBootstrap.registerHadoopConfigurationListener( this );
@@ -102,6 +106,8 @@ public class ShimDriverLoader implements HadoopConfigurationListener {
     if ( hadoopConfiguration == null ) {
       return;
     }
+    List<Driver> hiveDrivers = new ArrayList<>();
+    driverMap.put( hadoopConfiguration, hiveDrivers );
     configMap.put( hadoopConfiguration, hiveDriverFactoryMap.entrySet().stream()
       .map( pair -> {
         Driver jdbcDriver;
@@ -118,6 +124,7 @@ public class ShimDriverLoader implements HadoopConfigurationListener {
         if ( hiveDriver == null ) {
           return null;
         }
+        hiveDrivers.add( hiveDriver );
         Dictionary<String, String> dictionary = new Hashtable<>();
         dictionary.put( "dataSourceType", "bigdata" );
         ServiceRegistration<?> serviceRegistration =
@@ -157,6 +164,12 @@ public class ShimDriverLoader implements HadoopConfigurationListener {
     hiveDrivers.values().forEach( hiveDriver -> {
       hiveDriver.unregister();
     } );
+    List<Driver> drivers = driverMap.remove( hadoopConfiguration );
+    if ( drivers != null ) {
+      // Pooled sessions would otherwise stay open against a configuration that is gone
+      drivers.stream().filter( driver -> driver instanceof HiveDriver )
+        .forEach( driver -> ( (HiveDriver) driver ).close() );
+    }
   }
 
   protected interface DriverFactory {
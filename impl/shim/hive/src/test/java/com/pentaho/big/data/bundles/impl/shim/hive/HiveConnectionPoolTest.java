@@ -0,0 +1,355 @@
+/*******************************************************************************
+ *
+ * Pentaho Big Data
+ *
+ * Copyright (C) 2002-2016 by Pentaho : http://www.pentaho.com
+ *
+ *******************************************************************************
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ ******************************************************************************/
+
+package com.pentaho.big.data.bundles.impl.shim.hive;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.sql.Connection;
+import java.sql.DatabaseMetaData;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Properties;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Matchers.anyString;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class HiveConnectionPoolTest {
+  private static final String URL = "jdbc:hive2://host:10000/default";
+  private HiveConnectionPool connectionPool;
+  private Connection connection;
+  private HiveConnectionPool.Connector connector;
+  private Properties properties;
+
+  @Before
+  public void setup() throws SQLException {
+    connectionPool = new HiveConnectionPool( 2, 60000, 60000, "SELECT 1" );
+    connection = mock( Connection.class );
+    connector = mock( HiveConnectionPool.Connector.class );
+    when( connector.connect() ).thenReturn( connection );
+    properties = new Properties();
+    properties.setProperty( "user", "testUser" );
+  }
+
+  @After
+  public void tearDown() {
+    connectionPool.close();
+  }
+
+  @Test
+  public void testEnabled() {
+    assertTrue( connectionPool.isEnabled() );
+    assertFalse( new HiveConnectionPool( 0, 60000, 60000, "SELECT 1" ).isEnabled() );
+  }
+
+  @Test
+  public void testReuse() throws SQLException {
+    Connection pooled = connectionPool.getConnection( URL, properties, connector );
+    pooled.close();
+    assertTrue( pooled.isClosed() );
+    verify( connection, never() ).close();
+    assertEquals( 1, connectionPool.getIdleCount() );
+
+    Connection reused = connectionPool.getConnection( URL, properties, connector );
+    assertFalse( reused.isClosed() );
+    assertEquals( 0, connectionPool.getIdleCount() );
+    verify( connector, times( 1 ) ).connect();
+  }
+
+  @Test
+  public void testDifferentPropertiesNotShared() throws SQLException {
+    connectionPool.getConnection( URL, properties, connector ).close();
+    Properties otherProperties = new Properties();
+    otherProperties.setProperty( "user", "otherUser" );
+    connectionPool.getConnection( URL, otherProperties, connector );
+    connectionPool.getConnection( URL + ";a=b", properties, connector );
+    verify( connector, times( 3 ) ).connect();
+  }
+
+  @Test
+  public void testMaxIdle() throws SQLException {
+    Connection connection2 = mock( Connection.class );
+    Connection connection3 = mock( Connection.class );
+    when( connector.connect() ).thenReturn( connection, connection2, connection3 );
+    Connection pooled = connectionPool.getConnection( URL, properties, connector );
+    Connection pooled2 = connectionPool.getConnection( URL, properties, connector );
+    Connection pooled3 = connectionPool.getConnection( URL, properties, connector );
+    pooled.close();
+    pooled2.close();
+    pooled3.close();
+    assertEquals( 2, connectionPool.getIdleCount() );
+    verify( connection3 ).close();
+  }
+
+  @Test
+  public void testCloseTwice() throws SQLException {
+    Connection pooled = connectionPool.getConnection( URL, properties, connector );
+    pooled.close();
+    pooled.close();
+    assertEquals( 1, connectionPool.getIdleCount() );
+  }
+
+  @Test( expected = SQLException.class )
+  public void testUseAfterClose() throws SQLException {
+    Connection pooled = connectionPool.getConnection( URL, properties, connector );
+    pooled.close();
+    pooled.createStatement();
+  }
+
+  @Test
+  public void testIdleTimeout() throws SQLException, InterruptedException {
+    connectionPool = new HiveConnectionPool( 2, 0, 0, "SELECT 1" );
+    connectionPool.getConnection( URL, properties, connector ).close();
+    Thread.sleep( 5 );
+    connectionPool.getConnection( URL, properties, connector );
+    verify( connection ).close();
+    verify( connector, times( 2 ) ).connect();
+  }
+
+  @Test
+  public void testValidation() throws SQLException, InterruptedException {
+    Statement statement = mock( Statement.class );
+    when( connection.createStatement() ).thenReturn( statement );
+    when( statement.execute( anyString() ) ).thenReturn( true ).thenThrow( new SQLException() );
+    connectionPool = new HiveConnectionPool( 2, 60000, 0, "SELECT 1" );
+
+    connectionPool.getConnection( URL, properties, connector ).close();
+    Thread.sleep( 5 );
+    connectionPool.getConnection( URL, properties, connector ).close();
+    verify( connector, times( 1 ) ).connect();
+
+    Thread.sleep( 5 );
+    connectionPool.getConnection( URL, properties, connector );
+    verify( connection ).close();
+    verify( connector, times( 2 ) ).connect();
+  }
+
+  @Test
+  public void testClosedConnectionNotReturned() throws SQLException {
+    Connection pooled = connectionPool.getConnection( URL, properties, connector );
+    when( connection.isClosed() ).thenReturn( true );
+    pooled.close();
+    assertEquals( 0, connectionPool.getIdleCount() );
+  }
+
+  @Test
+  public void testConnectorReturnsNull() throws SQLException {
+    when( connector.connect() ).thenReturn( null );
+    assertNull( connectionPool.getConnection( URL, properties, connector ) );
+  }
+
+  @Test
+  public void testClear() throws SQLException {
+    connectionPool.getConnection( URL, properties, connector ).close();
+    connectionPool.clear();
+    assertEquals( 0, connectionPool.getIdleCount() );
+    verify( connection ).close();
+  }
+
+  @Test
+  public void testIdleConnectionsEvictedInBackground() throws SQLException {
+    connectionPool.close();
+    connectionPool = new HiveConnectionPool( 2, 10, 60000, "SELECT 1" );
+    connectionPool.getConnection( URL, properties, connector ).close();
+    verify( connection, timeout( 5 * HiveConnectionPool.MIN_EVICTION_INTERVAL_MILLIS ) ).close();
+    assertEquals( 0, connectionPool.getIdleCount() );
+  }
+
+  @Test
+  public void testCloseStopsPooling() throws SQLException {
+    Connection pooled = connectionPool.getConnection( URL, properties, connector );
+    connectionPool.close();
+    pooled.close();
+    assertEquals( 0, connectionPool.getIdleCount() );
+    verify( connection ).close();
+  }
+
+  @Test
+  public void testStatementReturnsPooledConnection() throws SQLException {
+    Statement statement = mock( Statement.class );
+    ResultSet resultSet = mock( ResultSet.class );
+    when( connection.createStatement() ).thenReturn( statement );
+    when( statement.getConnection() ).thenReturn( connection );
+    when( statement.executeQuery( "SELECT 1" ) ).thenReturn( resultSet );
+    Connection pooled = connectionPool.getConnection( URL, properties, connector );
+    Statement pooledStatement = pooled.createStatement();
+    assertSame( pooled, pooledStatement.getConnection() );
+    assertSame( resultSet, pooledStatement.executeQuery( "SELECT 1" ) );
+    pooledStatement.getConnection().close();
+    verify( connection, never() ).close();
+  }
+
+  @Test
+  public void testPreparedStatementAndMetaDataReturnPooledConnection() throws SQLException {
+    PreparedStatement preparedStatement = mock( PreparedStatement.class );
+    DatabaseMetaData databaseMetaData = mock( DatabaseMetaData.class );
+    when( connection.prepareStatement( "SELECT 1" ) ).thenReturn( preparedStatement );
+    when( connection.getMetaData() ).thenReturn( databaseMetaData );
+    when( databaseMetaData.getDatabaseProductName() ).thenReturn( "Hive" );
+    Connection pooled = connectionPool.getConnection( URL, properties, connector );
+    assertSame( pooled, pooled.prepareStatement( "SELECT 1" ).getConnection() );
+    assertSame( pooled, pooled.getMetaData().getConnection() );
+    assertEquals( "Hive", pooled.getMetaData().getDatabaseProductName() );
+  }
+
+  @Test
+  public void testCloseClosesOpenStatements() throws SQLException {
+    Statement statement = mock( Statement.class );
+    Statement closedStatement = mock( Statement.class );
+    when( connection.createStatement() ).thenReturn( statement, closedStatement );
+    Connection pooled = connectionPool.getConnection( URL, properties, connector );
+    pooled.createStatement();
+    pooled.createStatement().close();
+    pooled.close();
+    verify( statement ).close();
+    verify( closedStatement, times( 1 ) ).close();
+    assertEquals( 1, connectionPool.getIdleCount() );
+  }
+
+  @Test
+  public void testCloseClosesMetaDataResultSets() throws SQLException {
+    DatabaseMetaData databaseMetaData = mock( DatabaseMetaData.class );
+    ResultSet resultSet = mock( ResultSet.class );
+    when( connection.getMetaData() ).thenReturn( databaseMetaData );
+    when( databaseMetaData.getSchemas() ).thenReturn( resultSet );
+    Connection pooled = connectionPool.getConnection( URL, properties, connector );
+    pooled.getMetaData().getSchemas().next();
+    verify( resultSet ).next();
+    pooled.close();
+    verify( resultSet ).close();
+  }
+
+  @Test
+  public void testStatementCloseFailureDiscardsConnection() throws SQLException {
+    Statement statement = mock( Statement.class );
+    when( connection.createStatement() ).thenReturn( statement );
+    doThrow( new SQLException() ).when( statement ).close();
+    Connection pooled = connectionPool.getConnection( URL, properties, connector );
+    pooled.createStatement();
+    pooled.close();
+    assertEquals( 0, connectionPool.getIdleCount() );
+    verify( connection ).close();
+  }
+
+  @Test
+  public void testSettingsRestoredBeforeReuse() throws SQLException {
+    when( connection.getAutoCommit() ).thenReturn( true );
+    when( connection.getSchema() ).thenReturn( "default" );
+    Connection pooled = connectionPool.getConnection( URL, properties, connector );
+    pooled.setAutoCommit( false );
+    pooled.setSchema( "sales" );
+    pooled.setSchema( "other" );
+    pooled.close();
+    verify( connection ).setAutoCommit( true );
+    verify( connection ).setSchema( "default" );
+    assertEquals( 1, connectionPool.getIdleCount() );
+  }
+
+  @Test
+  public void testFailedRestoreDiscardsConnection() throws SQLException {
+    when( connection.getSchema() ).thenReturn( "default" );
+    doThrow( new SQLException() ).when( connection ).setSchema( "default" );
+    Connection pooled = connectionPool.getConnection( URL, properties, connector );
+    pooled.setSchema( "sales" );
+    pooled.close();
+    assertEquals( 0, connectionPool.getIdleCount() );
+    verify( connection ).close();
+  }
+
+  @Test
+  public void testSessionStatementDiscardsConnection() throws SQLException {
+    Statement statement = mock( Statement.class );
+    when( connection.createStatement() ).thenReturn( statement );
+    Connection pooled = connectionPool.getConnection( URL, properties, connector );
+    pooled.createStatement().execute( "SET hive.exec.parallel=true" );
+    pooled.close();
+    assertEquals( 0, connectionPool.getIdleCount() );
+    verify( connection ).close();
+  }
+
+  @Test
+  public void testPreparedSessionStatementDiscardsConnection() throws SQLException {
+    Connection pooled = connectionPool.getConnection( URL, properties, connector );
+    pooled.prepareStatement( "use sales" );
+    pooled.close();
+    assertEquals( 0, connectionPool.getIdleCount() );
+    verify( connection ).close();
+  }
+
+  @Test
+  public void testOtherSettersDiscardConnection() throws SQLException {
+    Connection pooled = connectionPool.getConnection( URL, properties, connector );
+    pooled.setClientInfo( "ApplicationName", "test" );
+    pooled.close();
+    assertEquals( 0, connectionPool.getIdleCount() );
+  }
+
+  @Test
+  public void testChangesSession() {
+    assertTrue( HiveConnectionPool.changesSession( "SET a=b" ) );
+    assertTrue( HiveConnectionPool.changesSession( "  use\ndb" ) );
+    assertTrue( HiveConnectionPool.changesSession( "reset" ) );
+    assertTrue( HiveConnectionPool.changesSession( "ADD JAR /tmp/udf.jar" ) );
+    assertTrue( HiveConnectionPool.changesSession( "create temporary function f as 'F'" ) );
+    assertFalse( HiveConnectionPool.changesSession( "SELECT * FROM settings" ) );
+    assertFalse( HiveConnectionPool.changesSession( "create table t (a int)" ) );
+    assertFalse( HiveConnectionPool.changesSession( "setting" ) );
+  }
+
+  @Test
+  public void testUnwrapConnectionReturnsPooledConnection() throws SQLException {
+    Connection pooled = connectionPool.getConnection( URL, properties, connector );
+    assertSame( pooled, pooled.unwrap( Connection.class ) );
+    pooled.close();
+    assertEquals( 1, connectionPool.getIdleCount() );
+  }
+
+  @Test
+  public void testUnwrapToDriverConnectionDiscardsConnection() throws SQLException {
+    DriverConnection driverConnection = mock( DriverConnection.class );
+    when( connector.connect() ).thenReturn( driverConnection );
+    when( driverConnection.unwrap( DriverConnection.class ) ).thenReturn( driverConnection );
+    Connection pooled = connectionPool.getConnection( URL, properties, connector );
+    assertSame( driverConnection, pooled.unwrap( DriverConnection.class ) );
+    pooled.close();
+    assertEquals( 0, connectionPool.getIdleCount() );
+    verify( driverConnection ).close();
+  }
+
+  interface DriverConnection extends Connection {
+  }
+}
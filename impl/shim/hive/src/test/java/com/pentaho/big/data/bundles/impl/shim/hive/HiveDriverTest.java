@@ -47,6 +47,8 @@ import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNull;
 import static org.junit.Assert.assertTrue;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
@@ -103,6 +105,19 @@ public class HiveDriverTest {
     assertEquals( connection, hiveDriver.connect( testUrl, properties ) );
   }
 
+  @Test
+  public void testSuccessPooled() throws SQLException {
+    HiveConnectionPool connectionPool = new HiveConnectionPool( 1, 60000, 60000, "SELECT 1" );
+    hiveDriver = new HiveDriver( delegate, null, true, jdbcUrlParser, connectionPool );
+    when( delegate.acceptsURL( testUrl ) ).thenReturn( true );
+    when( delegate.connect( testUrl, properties ) ).thenReturn( connection );
+    hiveDriver.connect( testUrl, properties ).close();
+    hiveDriver.connect( testUrl, properties );
+    verify( delegate, times( 1 ) ).connect( testUrl, properties );
+    verify( connection, never() ).close();
+    hiveDriver.close();
+  }
+
   @Test( expected = RuntimeException.class )
   public void testException() throws SQLException {
     RuntimeException runtimeException = new RuntimeException();
@@ -230,6 +245,13 @@ public class HiveDriverTest {
     assertFalse( hiveDriver.jdbcCompliant() );
   }
 
+  @Test
+  public void testCloseClosesPool() {
+    HiveConnectionPool connectionPool = mock( HiveConnectionPool.class );
+    new HiveDriver( delegate, null, true, jdbcUrlParser, connectionPool ).close();
+    verify( connectionPool ).close();
+  }
+
   @Test
   public void testGetParentLoggerNullDelegate() throws SQLFeatureNotSupportedException {
     assertNull( new HiveDriver( null, null, true, jdbcUrlParser ).getParentLogger() );
@@ -28,6 +28,7 @@ import org.junit.runner.RunWith;
 import org.mockito.Mock;
 import org.mockito.runners.MockitoJUnitRunner;
 import org.osgi.framework.BundleContext;
+import org.osgi.framework.ServiceRegistration;
 import org.pentaho.big.data.api.jdbc.JdbcUrlParser;
 import org.pentaho.di.core.hadoop.HadoopConfigurationBootstrap;
 import org.pentaho.hadoop.shim.ConfigurationException;
@@ -35,7 +36,12 @@ import org.pentaho.hadoop.shim.HadoopConfiguration;
 import org.pentaho.hadoop.shim.spi.HadoopShim;
 
 import java.sql.Driver;
+import java.util.Collections;
+import java.util.Dictionary;
 
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyString;
+import static org.mockito.Mockito.doReturn;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.verifyNoMoreInteractions;
@@ -79,4 +85,20 @@ public class ShimDriverLoaderTest {
   public void testOnConfigurationOpen() {
     when( hadoopShim.getJdbcDriver( ShimDriverLoader.HIVE ) ).thenReturn( driver );
   }
+
+  @Test
+  public void testOnConfigurationCloseClosesDrivers() {
+    HiveDriver hiveDriver = mock( HiveDriver.class );
+    ServiceRegistration serviceRegistration = mock( ServiceRegistration.class );
+    doReturn( serviceRegistration ).when( bundleContext )
+      .registerService( anyString(), any(), any( Dictionary.class ) );
+    when( hadoopShim.getJdbcDriver( ShimDriverLoader.HIVE ) ).thenReturn( driver );
+    shimDriverLoader = new ShimDriverLoader( jdbcUrlParser, bundleContext, hadoopConfigurationBootstrap,
+      Collections.<String, ShimDriverLoader.DriverFactory>singletonMap( ShimDriverLoader.HIVE,
+        ( delegate, hadoopConfigurationId, defaultConfiguration, jdbcUrlParser ) -> hiveDriver ) );
+    shimDriverLoader.onConfigurationOpen( hadoopConfiguration, true );
+    shimDriverLoader.onConfigurationClose( hadoopConfiguration );
+    verify( serviceRegistration ).unregister();
+    verify( hiveDriver ).close();
+  }
 }
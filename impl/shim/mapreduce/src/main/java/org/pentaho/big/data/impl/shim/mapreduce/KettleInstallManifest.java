@@ -0,0 +1,235 @@
+/*******************************************************************************
+ *
+ * Pentaho Big Data
+ *
+ * Copyright (C) 2002-2016 by Pentaho : http://www.pentaho.com
+ *
+ *******************************************************************************
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ ******************************************************************************/
+
+package org.pentaho.big.data.impl.shim.mapreduce;
+
+import org.apache.commons.vfs2.FileContent;
+import org.apache.commons.vfs2.FileObject;
+import org.apache.commons.vfs2.FileType;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipInputStream;
+
+/**
+ * Describes the content of a Kettle environment installed for Pentaho MapReduce. Every file the installation places
+ * under the DFS installation directory is recorded by its relative path and the SHA-1 of its content, together with
+ * the settings that shape the installation as a whole (Hadoop configuration, additional plugins).
+ * <p>
+ * {@link #getVersion()} condenses all of it into a single content hash, so a changed local environment can be
+ * installed into a directory of its own instead of over an installation that running jobs still use.
+ * <p>
+ * The entries mirror the layout produced by {@link org.pentaho.hadoop.shim.api.DistributedCacheUtil}: the Pentaho
+ * MapReduce libraries archive is extracted at the root of the installation and the big data plugin folder (without
+ * its Hadoop configurations and the archive itself) is staged under {@code plugins/}.
+ */
+public class KettleInstallManifest {
+  public static final String PLUGINS = "plugins";
+  public static final String HADOOP_CONFIGURATIONS = "hadoop-configurations";
+  public static final String PROPERTY_HADOOP_CONFIGURATION = "hadoop.configuration";
+  public static final String PROPERTY_ADDITIONAL_PLUGINS = "additional.plugins";
+  private static final String HEADER = "# Pentaho MapReduce Kettle environment manifest";
+  private static final String PROPERTY_PREFIX = "@";
+  private static final String DIGEST_ALGORITHM = "SHA-1";
+  private static final int BUFFER_SIZE = 64 * 1024;
+  private static final int DIGEST_CACHE_SIZE = 1024;
+  private static final char[] HEX = "0123456789abcdef".toCharArray();
+  // Hex digits of the content hash kept in the version, 64 bits is plenty to tell environments apart
+  private static final int VERSION_LENGTH = 16;
+
+  // Digests of local files (and archive listings) keyed by uri, size and modification time
+  private static final Map<String, Object> DIGEST_CACHE =
+    Collections.synchronizedMap( new LinkedHashMap<String, Object>( 16, 0.75f, true ) {
+      @Override protected boolean removeEldestEntry( Map.Entry<String, Object> eldest ) {
+        return size() > DIGEST_CACHE_SIZE;
+      }
+    } );
+
+  private final SortedMap<String, String> properties = new TreeMap<>();
+  private final SortedMap<String, String> files = new TreeMap<>();
+
+  /**
+   * Builds the manifest of the Kettle environment that would be installed from the given local sources.
+   *
+   * @param pmrLibArchive        Pentaho MapReduce libraries archive
+   * @param bigDataPluginFolder  Big data plugin folder
+   * @param hadoopConfiguration  Identifier of the active Hadoop configuration
+   * @param additionalPlugins    Comma-separated list of additional plugins to install
+   * @return Manifest of the local Kettle environment
+   * @throws IOException Error reading the local sources
+   */
+  public static KettleInstallManifest create( FileObject pmrLibArchive, FileObject bigDataPluginFolder,
+                                              String hadoopConfiguration, String additionalPlugins )
+    throws IOException {
+    KettleInstallManifest manifest = new KettleInstallManifest();
+    manifest.properties.put( PROPERTY_HADOOP_CONFIGURATION, nullToEmpty( hadoopConfiguration ) );
+    manifest.properties.put( PROPERTY_ADDITIONAL_PLUGINS, nullToEmpty( additionalPlugins ) );
+    manifest.files.putAll( digestArchive( pmrLibArchive ) );
+    if ( bigDataPluginFolder != null && bigDataPluginFolder.exists() ) {
+      String base = PLUGINS + "/" + bigDataPluginFolder.getName().getBaseName() + "/";
+      for ( FileObject child : bigDataPluginFolder.getChildren() ) {
+        String name = child.getName().getBaseName();
+        if ( !HADOOP_CONFIGURATIONS.equals( name ) && !name.equals( pmrLibArchive.getName().getBaseName() ) ) {
+          manifest.addFiles( base + name, child );
+        }
+      }
+    }
+    return manifest;
+  }
+
+  /**
+   * Writes the manifest as UTF-8 text: one {@code @name=value} line per property followed by one
+   * {@code digest path} line per file.
+   *
+   * @param outputStream Stream to write to, it is flushed but not closed
+   * @throws IOException Error writing the stream
+   */
+  private void write( OutputStream outputStream ) throws IOException {
+    Writer writer = new OutputStreamWriter( outputStream, StandardCharsets.UTF_8 );
+    writer.write( HEADER );
+    writer.write( '\n' );
+    for ( Map.Entry<String, String> property : properties.entrySet() ) {
+      writer.write( PROPERTY_PREFIX + property.getKey() + "=" + property.getValue() + "\n" );
+    }
+    for ( Map.Entry<String, String> file : files.entrySet() ) {
+      writer.write( file.getValue() + " " + file.getKey() + "\n" );
+    }
+    writer.flush();
+  }
+
+  /**
+   * @return Hash of the manifest content, equal for equal local environments and settings
+   * @throws IOException Error hashing the manifest
+   */
+  public String getVersion() throws IOException {
+    ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+    write( outputStream );
+    return digest( new ByteArrayInputStream( outputStream.toByteArray() ) ).substring( 0, VERSION_LENGTH );
+  }
+
+  /**
+   * @param name          Name of an installation directory
+   * @param installId     Installation id the versions were derived from
+   * @return true if {@code name} is {@code installId} suffixed with a version as returned by {@link #getVersion()}
+   */
+  public static boolean isVersionOf( String name, String installId ) {
+    int length = installId.length() + 1 + VERSION_LENGTH;
+    if ( name.length() != length || !name.startsWith( installId + "-" ) ) {
+      return false;
+    }
+    for ( int i = installId.length() + 1; i < length; i++ ) {
+      if ( Character.digit( name.charAt( i ), 16 ) < 0 || Character.isUpperCase( name.charAt( i ) ) ) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  private void addFiles( String path, FileObject file ) throws IOException {
+    if ( file.getType() == FileType.FOLDER ) {
+      for ( FileObject child : file.getChildren() ) {
+        addFiles( path + "/" + child.getName().getBaseName(), child );
+      }
+    } else if ( file.getType() == FileType.FILE ) {
+      files.put( path, digestFile( file ) );
+    }
+  }
+
+  private static String digestFile( FileObject file ) throws IOException {
+    String key = cacheKey( file );
+    Object digest = DIGEST_CACHE.get( key );
+    if ( digest instanceof String ) {
+      return (String) digest;
+    }
+    String result;
+    try ( InputStream inputStream = file.getContent().getInputStream() ) {
+      result = digest( inputStream );
+    }
+    DIGEST_CACHE.put( key, result );
+    return result;
+  }
+
+  @SuppressWarnings( "unchecked" )
+  private static Map<String, String> digestArchive( FileObject archive ) throws IOException {
+    String key = cacheKey( archive );
+    Object digests = DIGEST_CACHE.get( key );
+    if ( digests instanceof Map ) {
+      return (Map<String, String>) digests;
+    }
+    Map<String, String> result = new TreeMap<>();
+    try ( ZipInputStream zipInputStream = new ZipInputStream( archive.getContent().getInputStream() ) ) {
+      ZipEntry entry;
+      while ( ( entry = zipInputStream.getNextEntry() ) != null ) {
+        if ( !entry.isDirectory() ) {
+          result.put( entry.getName(), digest( zipInputStream ) );
+        }
+      }
+    }
+    result = Collections.unmodifiableMap( result );
+    DIGEST_CACHE.put( key, result );
+    return result;
+  }
+
+  private static String cacheKey( FileObject file ) throws IOException {
+    FileContent content = file.getContent();
+    return file.getName().getURI() + "|" + content.getSize() + "|" + content.getLastModifiedTime();
+  }
+
+  private static String digest( InputStream inputStream ) throws IOException {
+    MessageDigest messageDigest;
+    try {
+      messageDigest = MessageDigest.getInstance( DIGEST_ALGORITHM );
+    } catch ( NoSuchAlgorithmException e ) {
+      throw new IOException( e );
+    }
+    byte[] buffer = new byte[ BUFFER_SIZE ];
+    int read;
+    while ( ( read = inputStream.read( buffer ) ) != -1 ) {
+      messageDigest.update( buffer, 0, read );
+    }
+    byte[] bytes = messageDigest.digest();
+    char[] hex = new char[ bytes.length * 2 ];
+    for ( int i = 0; i < bytes.length; i++ ) {
+      hex[ i * 2 ] = HEX[ ( bytes[ i ] >> 4 ) & 0xF ];
+      hex[ i * 2 + 1 ] = HEX[ bytes[ i ] & 0xF ];
+    }
+    return new String( hex );
+  }
+
+  private static String nullToEmpty( String value ) {
+    return value == null ? "" : value;
+  }
+}
@@ -0,0 +1,173 @@
+/*******************************************************************************
+ *
+ * Pentaho Big Data
+ *
+ * Copyright (C) 2002-2016 by Pentaho : http://www.pentaho.com
+ *
+ *******************************************************************************
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ ******************************************************************************/
+
+package org.pentaho.big.data.impl.shim.mapreduce;
+
+import org.pentaho.bigdata.api.mapreduce.MapReduceJobAdvanced;
+import org.pentaho.bigdata.api.mapreduce.MapReduceJobListener;
+import org.pentaho.bigdata.api.mapreduce.TaskCompletionEvent;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BiConsumer;
+
+/**
+ * Polls running MapReduce jobs from a single scheduler thread.  Each job is polled quickly at first and the interval
+ * doubles (up to a maximum) while its progress doesn't change, so short jobs are noticed promptly without long running
+ * ones hammering the cluster.
+ * <p/>
+ * Listeners are called on a separate pool so a slow listener (e.g. one fetching task logs) can't hold up polling of
+ * other jobs. Each job has at most one batch of callbacks in flight, it isn't polled again until they are done, so a
+ * job's listeners see its updates in order. The completion future completes after the last callbacks.
+ */
+public class MapReduceJobMonitor {
+  public static final String MIN_INTERVAL_MILLIS_KEY = "pentaho.mapreduce.monitor.min.interval.millis";
+  public static final String MAX_INTERVAL_MILLIS_KEY = "pentaho.mapreduce.monitor.max.interval.millis";
+  public static final long DEFAULT_MIN_INTERVAL_MILLIS = 100L;
+  public static final long DEFAULT_MAX_INTERVAL_MILLIS = 5000L;
+  private static final Logger LOGGER = LoggerFactory.getLogger( MapReduceJobMonitor.class );
+  private static final MapReduceJobMonitor INSTANCE =
+    new MapReduceJobMonitor( Long.getLong( MIN_INTERVAL_MILLIS_KEY, DEFAULT_MIN_INTERVAL_MILLIS ),
+      Long.getLong( MAX_INTERVAL_MILLIS_KEY, DEFAULT_MAX_INTERVAL_MILLIS ) );
+  private final ScheduledExecutorService scheduledExecutorService;
+  private final ExecutorService listenerExecutorService;
+  private final long minIntervalMillis;
+  private final long maxIntervalMillis;
+
+  MapReduceJobMonitor( long minIntervalMillis, long maxIntervalMillis ) {
+    this.minIntervalMillis = Math.max( 1L, minIntervalMillis );
+    this.maxIntervalMillis = Math.max( this.minIntervalMillis, maxIntervalMillis );
+    scheduledExecutorService =
+      Executors.newSingleThreadScheduledExecutor( daemonThreadFactory( "MapReduceJobMonitor" ) );
+    listenerExecutorService = Executors.newCachedThreadPool( daemonThreadFactory( "MapReduceJobMonitor listener" ) );
+  }
+
+  private static ThreadFactory daemonThreadFactory( final String name ) {
+    return new ThreadFactory() {
+      @Override public Thread newThread( Runnable r ) {
+        Thread thread = new Thread( r, name );
+        thread.setDaemon( true );
+        return thread;
+      }
+    };
+  }
+
+  public static MapReduceJobMonitor getInstance() {
+    return INSTANCE;
+  }
+
+  /**
+   * Starts watching a job
+   *
+   * @param job       the job
+   * @param listeners the listeners to notify, may change while the job is watched
+   * @return a future completed with the job's success once it is complete
+   */
+  public CompletableFuture<Boolean> monitor( MapReduceJobAdvanced job, List<MapReduceJobListener> listeners ) {
+    MonitoredJob monitoredJob = new MonitoredJob( job, listeners );
+    scheduledExecutorService.execute( monitoredJob );
+    return monitoredJob.completion;
+  }
+
+  private class MonitoredJob implements Runnable {
+    private final MapReduceJobAdvanced job;
+    private final List<MapReduceJobListener> listeners;
+    private final CompletableFuture<Boolean> completion = new CompletableFuture<>();
+    private long intervalMillis = minIntervalMillis;
+    private int taskCompletionEventIndex = 0;
+    private double lastProgress = -1;
+    private CompletableFuture<Void> dispatched = CompletableFuture.completedFuture( null );
+
+    private MonitoredJob( MapReduceJobAdvanced job, List<MapReduceJobListener> listeners ) {
+      this.job = job;
+      this.listeners = listeners;
+    }
+
+    @Override public void run() {
+      if ( completion.isDone() ) {
+        return;
+      }
+      try {
+        if ( !dispatched.isDone() ) {
+          // listeners are still handling the last poll, check back later rather than queue more behind them
+          scheduledExecutorService.schedule( this, intervalMillis, TimeUnit.MILLISECONDS );
+          return;
+        }
+        boolean complete = job.isComplete();
+        boolean changed = notifyListeners();
+        if ( complete ) {
+          final boolean successful = job.isSuccessful();
+          dispatched.whenComplete( new BiConsumer<Void, Throwable>() {
+            @Override public void accept( Void result, Throwable throwable ) {
+              completion.complete( successful );
+            }
+          } );
+          return;
+        }
+        intervalMillis = changed ? minIntervalMillis : Math.min( maxIntervalMillis, intervalMillis * 2 );
+        scheduledExecutorService.schedule( this, intervalMillis, TimeUnit.MILLISECONDS );
+      } catch ( Throwable t ) {
+        completion.completeExceptionally( t );
+      }
+    }
+
+    /**
+     * @return true if the job made progress since the last poll
+     */
+    private boolean notifyListeners() throws IOException {
+      if ( listeners.isEmpty() ) {
+        return false;
+      }
+      final double setupProgress = job.getSetupProgress();
+      final double mapProgress = job.getMapProgress();
+      final double reduceProgress = job.getReduceProgress();
+      final TaskCompletionEvent[] events = job.getTaskCompletionEvents( taskCompletionEventIndex );
+      taskCompletionEventIndex += events.length;
+      dispatched = CompletableFuture.runAsync( new Runnable() {
+        @Override public void run() {
+          for ( MapReduceJobListener listener : listeners ) {
+            try {
+              listener.onProgress( job, setupProgress, mapProgress, reduceProgress );
+              if ( events.length > 0 ) {
+                listener.onTaskCompletionEvents( job, events );
+              }
+            } catch ( Exception e ) {
+              LOGGER.warn( "Error notifying " + listener + " of progress for " + job, e );
+            }
+          }
+        }
+      }, listenerExecutorService );
+      double progress = setupProgress + mapProgress + reduceProgress;
+      boolean changed = progress != lastProgress || events.length > 0;
+      lastProgress = progress;
+      return changed;
+    }
+  }
+}
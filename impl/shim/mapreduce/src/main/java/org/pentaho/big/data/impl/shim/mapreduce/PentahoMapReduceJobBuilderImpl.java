@@ -25,6 +25,7 @@ package org.pentaho.big.data.impl.shim.mapreduce;
 import com.google.common.annotations.VisibleForTesting;
 import com.thoughtworks.xstream.XStream;
 import org.apache.commons.vfs2.FileObject;
+import org.apache.hadoop.fs.FileStatus;
 import org.apache.hadoop.mapred.JobConf;
 import org.apache.hadoop.security.UserGroupInformation;
 import org.pentaho.big.data.api.cluster.NamedCluster;
@@ -79,6 +80,10 @@ public class PentahoMapReduceJobBuilderImpl extends MapReduceJobBuilderImpl impl
   public static final String PENTAHO_MAPREDUCE_PROPERTY_KETTLE_HDFS_INSTALL_DIR = "pmr.kettle.dfs.install.dir";
   public static final String PENTAHO_MAPREDUCE_PROPERTY_KETTLE_INSTALLATION_ID = "pmr.kettle.installation.id";
   public static final String PENTAHO_MAPREDUCE_PROPERTY_ADDITIONAL_PLUGINS = "pmr.kettle.additional.plugins";
+  public static final String PENTAHO_MAPREDUCE_PROPERTY_INCREMENTAL_INSTALL = "pmr.kettle.incremental.install";
+  public static final String PENTAHO_MAPREDUCE_PROPERTY_INCREMENTAL_INSTALL_RETENTION_HOURS =
+    "pmr.kettle.incremental.install.retention.hours";
+  public static final long DEFAULT_INCREMENTAL_INSTALL_RETENTION_HOURS = 24;
   public static final String PENTAHO_MAP_REDUCE_JOB_BUILDER_IMPL_INPUT_STEP_NOT_SPECIFIED =
     "PentahoMapReduceJobBuilderImpl.InputStepNotSpecified";
   public static final String PENTAHO_MAP_REDUCE_JOB_BUILDER_IMPL_INPUT_STEP_NOT_FOUND =
@@ -128,6 +133,10 @@ public class PentahoMapReduceJobBuilderImpl extends MapReduceJobBuilderImpl impl
     "JobEntryHadoopTransJobExecutor.UnableToLocateArchive";
   public static final String JOB_ENTRY_HADOOP_TRANS_JOB_EXECUTOR_KETTLE_INSTALLATION_MISSING_FROM =
     "JobEntryHadoopTransJobExecutor.KettleInstallationMissingFrom";
+  public static final String JOB_ENTRY_HADOOP_TRANS_JOB_EXECUTOR_REMOVING_OUTDATED_KETTLE_INSTALLATION =
+    "JobEntryHadoopTransJobExecutor.RemovingOutdatedKettleInstallation";
+  public static final String JOB_ENTRY_HADOOP_TRANS_JOB_EXECUTOR_UNABLE_TO_REMOVE_OUTDATED_KETTLE_INSTALLATIONS =
+    "JobEntryHadoopTransJobExecutor.UnableToRemoveOutdatedKettleInstallations";
   public static final String VARIABLE_SPACE = "variableSpace";
   private final HadoopConfiguration hadoopConfiguration;
   private final HadoopShim hadoopShim;
@@ -434,17 +443,27 @@ public class PentahoMapReduceJobBuilderImpl extends MapReduceJobBuilderImpl impl
           installPath += Const.FILE_SEPARATOR;
         }
 
-        Path kettleEnvInstallDir = fs.asPath( installPath, installId );
         FileObject pmrLibArchive = pmrArchiveGetter.getPmrArchive( conf );
+        // Load additional plugin folders as requested
+        String additionalPluginNames =
+          getProperty( conf, pmrProperties, PENTAHO_MAPREDUCE_PROPERTY_ADDITIONAL_PLUGINS, null );
+        boolean incrementalInstall = Boolean.parseBoolean( getProperty( conf, pmrProperties,
+          PENTAHO_MAPREDUCE_PROPERTY_INCREMENTAL_INSTALL, Boolean.toString( false ) ) )
+          && pmrLibArchive != null && pmrLibArchive.exists();
+        String baseInstallId = installId;
+        if ( incrementalInstall ) {
+          // A changed local environment gets a directory of its own, installations running jobs may be using are
+          // never written to
+          installId = installId + "-" + KettleInstallManifest.create( pmrLibArchive, vfsPluginDirectory,
+            hadoopConfiguration.getIdentifier(), additionalPluginNames ).getVersion();
+        }
+        Path kettleEnvInstallDir = fs.asPath( installPath, installId );
 
         // Make sure the version we're attempting to use is installed
         if ( hadoopShim.getDistributedCacheUtil().isKettleEnvironmentInstalledAt( fs, kettleEnvInstallDir ) ) {
           log.logDetailed( BaseMessages.getString( PKG, "JobEntryHadoopTransJobExecutor.UsingKettleInstallationFrom",
             kettleEnvInstallDir.toUri().getPath() ) );
         } else {
-          // Load additional plugin folders as requested
-          String additionalPluginNames =
-            getProperty( conf, pmrProperties, PENTAHO_MAPREDUCE_PROPERTY_ADDITIONAL_PLUGINS, null );
           if ( pmrLibArchive == null ) {
             throw new KettleException(
               BaseMessages.getString( PKG, JOB_ENTRY_HADOOP_TRANS_JOB_EXECUTOR_UNABLE_TO_LOCATE_ARCHIVE,
@@ -467,6 +486,12 @@ public class PentahoMapReduceJobBuilderImpl extends MapReduceJobBuilderImpl impl
             JOB_ENTRY_HADOOP_TRANS_JOB_EXECUTOR_KETTLE_INSTALLATION_MISSING_FROM,
             kettleEnvInstallDir.toUri().getPath() ) );
         }
+        if ( incrementalInstall ) {
+          long retentionHours = Const.toLong( getProperty( conf, pmrProperties,
+            PENTAHO_MAPREDUCE_PROPERTY_INCREMENTAL_INSTALL_RETENTION_HOURS, null ),
+            DEFAULT_INCREMENTAL_INSTALL_RETENTION_HOURS );
+          removeOutdatedInstallations( fs, kettleEnvInstallDir, baseInstallId, retentionHours * 60 * 60 * 1000 );
+        }
 
         log.logBasic( BaseMessages.getString( PKG, JOB_ENTRY_HADOOP_TRANS_JOB_EXECUTOR_CONFIGURING_JOB_WITH_KETTLE_AT,
           kettleEnvInstallDir.toUri().getPath() ) );
@@ -487,6 +512,45 @@ public class PentahoMapReduceJobBuilderImpl extends MapReduceJobBuilderImpl impl
     return super.submit( conf );
   }
 
+  /**
+   * Marks the installation in use and removes the other versions of the same installation id that have not been used
+   * for longer than the retention period. The modification time of an installation directory records when a job was
+   * last submitted with it.
+   *
+   * @param fs                  File system the installations are on
+   * @param kettleEnvInstallDir Installation used by the job being submitted
+   * @param baseInstallId       Installation id the versions were derived from
+   * @param retentionMillis     Time since an installation was last used after which it is removed
+   */
+  @VisibleForTesting
+  void removeOutdatedInstallations( FileSystem fs, Path kettleEnvInstallDir, String baseInstallId,
+                                    long retentionMillis ) {
+    if ( !( fs.getDelegate() instanceof org.apache.hadoop.fs.FileSystem ) ) {
+      return;
+    }
+    org.apache.hadoop.fs.FileSystem delegate = (org.apache.hadoop.fs.FileSystem) fs.getDelegate();
+    org.apache.hadoop.fs.Path installDir = new org.apache.hadoop.fs.Path( kettleEnvInstallDir.toUri() );
+    try {
+      long now = System.currentTimeMillis();
+      delegate.setTimes( installDir, now, -1 );
+      for ( FileStatus status : delegate.listStatus( installDir.getParent() ) ) {
+        String name = status.getPath().getName();
+        if ( status.isDirectory() && !name.equals( installDir.getName() )
+          && KettleInstallManifest.isVersionOf( name, baseInstallId )
+          && now - status.getModificationTime() > retentionMillis ) {
+          log.logBasic( BaseMessages.getString( PKG,
+            JOB_ENTRY_HADOOP_TRANS_JOB_EXECUTOR_REMOVING_OUTDATED_KETTLE_INSTALLATION, status.getPath() ) );
+          delegate.delete( status.getPath(), true );
+        }
+      }
+    } catch ( IOException e ) {
+      // The job can run regardless, the next submission tries again
+      log.logError( BaseMessages.getString( PKG,
+        JOB_ENTRY_HADOOP_TRANS_JOB_EXECUTOR_UNABLE_TO_REMOVE_OUTDATED_KETTLE_INSTALLATIONS,
+        installDir.getParent() ), e );
+    }
+  }
+
   protected void configureVariableSpace( Configuration conf ) {
     // get a reference to the variable space
     XStream xStream = new XStream();
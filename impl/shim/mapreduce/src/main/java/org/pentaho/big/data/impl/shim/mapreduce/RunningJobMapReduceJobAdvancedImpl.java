@@ -23,21 +23,36 @@
 package org.pentaho.big.data.impl.shim.mapreduce;
 
 import org.pentaho.bigdata.api.mapreduce.MapReduceJobAdvanced;
+import org.pentaho.bigdata.api.mapreduce.MapReduceJobListener;
 import org.pentaho.bigdata.api.mapreduce.MapReduceService;
 import org.pentaho.bigdata.api.mapreduce.TaskCompletionEvent;
 import org.pentaho.hadoop.shim.api.mapred.RunningJob;
 
 import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutionException;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 
 /**
  * Created by bryan on 12/3/15.
  */
 public class RunningJobMapReduceJobAdvancedImpl implements MapReduceJobAdvanced {
+  private static final long STOPPABLE_CHECK_MILLIS = 100L;
   private final RunningJob runningJob;
+  private final MapReduceJobMonitor mapReduceJobMonitor;
+  private final List<MapReduceJobListener> listeners = new CopyOnWriteArrayList<>();
+  private CompletableFuture<Boolean> completionFuture;
 
   public RunningJobMapReduceJobAdvancedImpl( RunningJob runningJob ) {
+    this( runningJob, MapReduceJobMonitor.getInstance() );
+  }
+
+  public RunningJobMapReduceJobAdvancedImpl( RunningJob runningJob, MapReduceJobMonitor mapReduceJobMonitor ) {
     this.runningJob = runningJob;
+    this.mapReduceJobMonitor = mapReduceJobMonitor;
   }
 
   @Override public void killJob() throws IOException {
@@ -46,15 +61,42 @@ public class RunningJobMapReduceJobAdvancedImpl implements MapReduceJobAdvanced
 
   @Override public boolean waitOnCompletion( long timeout, TimeUnit timeUnit, MapReduceService.Stoppable stoppable )
     throws IOException, InterruptedException {
+    CompletableFuture<Boolean> completion = getCompletionFuture();
     long stopTime = System.currentTimeMillis() + timeUnit.toMillis( timeout );
-    long sleepTime;
-    while ( !stoppable.isStopped() && ( sleepTime = Math.min( 50, stopTime - System.currentTimeMillis() ) ) > 0
-      && !runningJob.isComplete() ) {
-      Thread.sleep( Math.max( 0, sleepTime ) );
+    long waitTime;
+    // The monitor does the polling, we only wake up to check whether we've been asked to stop
+    while ( !stoppable.isStopped() && !completion.isDone()
+      && ( waitTime = Math.min( STOPPABLE_CHECK_MILLIS, stopTime - System.currentTimeMillis() ) ) > 0 ) {
+      try {
+        completion.get( waitTime, TimeUnit.MILLISECONDS );
+      } catch ( TimeoutException e ) {
+        // Check stoppable and keep waiting
+      } catch ( ExecutionException e ) {
+        break;
+      }
+    }
+    if ( completion.isDone() && !completion.isCompletedExceptionally() ) {
+      return true;
     }
     return runningJob.isComplete();
   }
 
+  @Override public synchronized CompletableFuture<Boolean> getCompletionFuture() {
+    if ( completionFuture == null || completionFuture.isCompletedExceptionally() ) {
+      completionFuture = mapReduceJobMonitor.monitor( this, listeners );
+    }
+    return completionFuture;
+  }
+
+  @Override public void addListener( MapReduceJobListener listener ) {
+    listeners.add( listener );
+    getCompletionFuture();
+  }
+
+  @Override public void removeListener( MapReduceJobListener listener ) {
+    listeners.remove( listener );
+  }
+
   @Override public double getSetupProgress() throws IOException {
     return runningJob.setupProgress();
   }
@@ -0,0 +1,143 @@
+/*******************************************************************************
+ *
+ * Pentaho Big Data
+ *
+ * Copyright (C) 2002-2016 by Pentaho : http://www.pentaho.com
+ *
+ *******************************************************************************
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ ******************************************************************************/
+
+package org.pentaho.big.data.impl.shim.mapreduce;
+
+import org.apache.commons.vfs2.FileObject;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.pentaho.di.core.exception.KettleFileException;
+import org.pentaho.di.core.vfs.KettleVFS;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertTrue;
+
+public class KettleInstallManifestTest {
+  private static final AtomicLong MODIFICATIONS = new AtomicLong();
+
+  @Rule
+  public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+  private File pluginFolder;
+  private File archive;
+
+  @Before
+  public void setup() throws IOException {
+    pluginFolder = temporaryFolder.newFolder( "pentaho-big-data-plugin" );
+    archive = new File( pluginFolder, "pentaho-mapreduce-libraries.zip" );
+    writeArchive( archive, "lib/kettle-core.jar", "core", "classes/log4j.xml", "log4j" );
+    write( new File( pluginFolder, "pentaho-big-data-plugin.jar" ), "plugin" );
+    write( new File( pluginFolder, "lib/pentaho-hadoop-shims-api.jar" ), "api" );
+    write( new File( pluginFolder, "hadoop-configurations/hdp25/config.properties" ), "config" );
+  }
+
+  @Test
+  public void testVersionIgnoresHadoopConfigurations() throws IOException {
+    String version = create( "hdp25", null ).getVersion();
+    write( new File( pluginFolder, "hadoop-configurations/hdp25/config.properties" ), "config-2" );
+    assertEquals( version, create( "hdp25", null ).getVersion() );
+  }
+
+  @Test
+  public void testIsVersionOf() throws IOException {
+    String version = create( "hdp25", null ).getVersion();
+    assertTrue( KettleInstallManifest.isVersionOf( "7.1-hdp25-" + version, "7.1-hdp25" ) );
+    assertFalse( KettleInstallManifest.isVersionOf( "7.1-hdp25", "7.1-hdp25" ) );
+    assertFalse( KettleInstallManifest.isVersionOf( "7.1-cdh58-" + version, "7.1-hdp25" ) );
+    assertFalse( KettleInstallManifest.isVersionOf( "7.1-hdp25-" + version + "0", "7.1-hdp25" ) );
+    assertFalse( KettleInstallManifest.isVersionOf( "7.1-hdp25-custom-install1", "7.1-hdp25" ) );
+    assertFalse( KettleInstallManifest.isVersionOf( "7.1-hdp25-0123456789ABCDEF", "7.1-hdp25" ) );
+  }
+
+  @Test
+  public void testVersionStableForSameContent() throws IOException {
+    assertEquals( create( "hdp25", null ).getVersion(), create( "hdp25", null ).getVersion() );
+    assertEquals( 16, create( "hdp25", null ).getVersion().length() );
+  }
+
+  @Test
+  public void testVersionChangesWithContent() throws IOException {
+    String version = create( "hdp25", null ).getVersion();
+    write( new File( pluginFolder, "pentaho-big-data-plugin.jar" ), "plugin-2" );
+    assertNotEquals( version, create( "hdp25", null ).getVersion() );
+  }
+
+  @Test
+  public void testVersionChangesWithRemovedFile() throws IOException {
+    String version = create( "hdp25", null ).getVersion();
+    Files.delete( new File( pluginFolder, "lib/pentaho-hadoop-shims-api.jar" ).toPath() );
+    assertNotEquals( version, create( "hdp25", null ).getVersion() );
+  }
+
+  @Test
+  public void testVersionChangesWithSettings() throws IOException {
+    String version = create( "hdp25", null ).getVersion();
+    assertNotEquals( version, create( "cdh58", null ).getVersion() );
+    assertNotEquals( version, create( "hdp25", "my-plugin" ).getVersion() );
+  }
+
+  private KettleInstallManifest create( String hadoopConfiguration, String additionalPlugins ) throws IOException {
+    try {
+      FileObject pluginFolderObject = KettleVFS.getFileObject( pluginFolder.getAbsolutePath() );
+      FileObject archiveObject = KettleVFS.getFileObject( archive.getAbsolutePath() );
+      return KettleInstallManifest.create( archiveObject, pluginFolderObject, hadoopConfiguration,
+        additionalPlugins );
+    } catch ( KettleFileException e ) {
+      throw new IOException( e );
+    }
+  }
+
+  static void write( File file, String content ) throws IOException {
+    file.getParentFile().mkdirs();
+    Files.write( file.toPath(), content.getBytes( StandardCharsets.UTF_8 ) );
+    touch( file );
+  }
+
+  static void writeArchive( File file, String... namesAndContents ) throws IOException {
+    try ( ZipOutputStream zipOutputStream = new ZipOutputStream( new FileOutputStream( file ) ) ) {
+      for ( int i = 0; i < namesAndContents.length; i += 2 ) {
+        zipOutputStream.putNextEntry( new ZipEntry( namesAndContents[ i ] ) );
+        zipOutputStream.write( namesAndContents[ i + 1 ].getBytes( StandardCharsets.UTF_8 ) );
+        zipOutputStream.closeEntry();
+      }
+    }
+    touch( file );
+  }
+
+  // Digests are cached by modification time, make sure a rewrite within the same second is noticed
+  private static void touch( File file ) {
+    file.setLastModified( ( System.currentTimeMillis() / 1000 + MODIFICATIONS.incrementAndGet() ) * 1000 );
+  }
+}
@@ -0,0 +1,139 @@
+/*******************************************************************************
+ *
+ * Pentaho Big Data
+ *
+ * Copyright (C) 2002-2016 by Pentaho : http://www.pentaho.com
+ *
+ *******************************************************************************
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ ******************************************************************************/
+
+package org.pentaho.big.data.impl.shim.mapreduce;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.pentaho.bigdata.api.mapreduce.MapReduceJobAdvanced;
+import org.pentaho.bigdata.api.mapreduce.MapReduceJobListener;
+import org.pentaho.bigdata.api.mapreduce.TaskCompletionEvent;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Matchers.anyInt;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class MapReduceJobMonitorTest {
+  private MapReduceJobMonitor mapReduceJobMonitor;
+  private MapReduceJobAdvanced job;
+
+  @Before
+  public void setup() throws IOException {
+    mapReduceJobMonitor = new MapReduceJobMonitor( 1, 10 );
+    job = mock( MapReduceJobAdvanced.class );
+    when( job.getTaskCompletionEvents( anyInt() ) ).thenReturn( new TaskCompletionEvent[ 0 ] );
+  }
+
+  @Test( timeout = 5000 )
+  public void testCompletesWithSuccess() throws Exception {
+    when( job.isComplete() ).thenReturn( false, false, true );
+    when( job.isSuccessful() ).thenReturn( true );
+    CompletableFuture<Boolean> completion =
+      mapReduceJobMonitor.monitor( job, Collections.<MapReduceJobListener>emptyList() );
+    assertTrue( completion.get() );
+  }
+
+  @Test( timeout = 5000 )
+  public void testListenersNotifiedBeforeCompletion() throws Exception {
+    TaskCompletionEvent first = mock( TaskCompletionEvent.class );
+    TaskCompletionEvent second = mock( TaskCompletionEvent.class );
+    when( job.isComplete() ).thenReturn( false, true );
+    when( job.getMapProgress() ).thenReturn( 0.5, 1.0 );
+    when( job.getTaskCompletionEvents( 0 ) ).thenReturn( new TaskCompletionEvent[] { first } );
+    when( job.getTaskCompletionEvents( 1 ) ).thenReturn( new TaskCompletionEvent[] { second } );
+    final List<TaskCompletionEvent> events = new ArrayList<>();
+    MapReduceJobListener listener = mock( MapReduceJobListener.class );
+    List<MapReduceJobListener> listeners = new ArrayList<>();
+    listeners.add( listener );
+    listeners.add( new MapReduceJobListener() {
+      @Override public void onProgress( MapReduceJobAdvanced job, double setupProgress, double mapProgress,
+                                        double reduceProgress ) {
+      }
+
+      @Override public void onTaskCompletionEvents( MapReduceJobAdvanced job, TaskCompletionEvent[] taskEvents ) {
+        Collections.addAll( events, taskEvents );
+      }
+    } );
+    mapReduceJobMonitor.monitor( job, listeners ).get();
+    assertEquals( 2, events.size() );
+    verify( listener ).onProgress( job, 0.0, 0.5, 0.0 );
+    verify( listener ).onProgress( job, 0.0, 1.0, 0.0 );
+  }
+
+  @Test( timeout = 5000 )
+  public void testSlowListenerDoesNotHoldUpOtherJobs() throws Exception {
+    final CountDownLatch release = new CountDownLatch( 1 );
+    final CountDownLatch called = new CountDownLatch( 1 );
+    MapReduceJobAdvanced slowJob = mock( MapReduceJobAdvanced.class );
+    when( slowJob.getTaskCompletionEvents( anyInt() ) ).thenReturn( new TaskCompletionEvent[ 0 ] );
+    when( slowJob.isComplete() ).thenReturn( true );
+    when( slowJob.isSuccessful() ).thenReturn( true );
+    List<MapReduceJobListener> slowListeners = new ArrayList<>();
+    slowListeners.add( new MapReduceJobListener() {
+      @Override public void onProgress( MapReduceJobAdvanced job, double setupProgress, double mapProgress,
+                                        double reduceProgress ) {
+        called.countDown();
+        try {
+          release.await();
+        } catch ( InterruptedException e ) {
+          Thread.currentThread().interrupt();
+        }
+      }
+
+      @Override public void onTaskCompletionEvents( MapReduceJobAdvanced job, TaskCompletionEvent[] taskEvents ) {
+      }
+    } );
+    CompletableFuture<Boolean> slowCompletion = mapReduceJobMonitor.monitor( slowJob, slowListeners );
+    assertTrue( called.await( 1, TimeUnit.SECONDS ) );
+
+    when( job.isComplete() ).thenReturn( false, true );
+    when( job.isSuccessful() ).thenReturn( true );
+    MapReduceJobListener listener = mock( MapReduceJobListener.class );
+    assertTrue( mapReduceJobMonitor.monitor( job, Collections.singletonList( listener ) ).get() );
+    verify( listener, times( 2 ) ).onProgress( job, 0.0, 0.0, 0.0 );
+
+    // the slow job only completes once its listener has been notified
+    assertFalse( slowCompletion.isDone() );
+    release.countDown();
+    assertTrue( slowCompletion.get() );
+  }
+
+  @Test( timeout = 5000, expected = ExecutionException.class )
+  public void testExceptionalCompletion() throws Exception {
+    when( job.isComplete() ).thenThrow( new IOException() );
+    mapReduceJobMonitor.monitor( job, Collections.<MapReduceJobListener>emptyList() ).get( 1, TimeUnit.SECONDS );
+  }
+}
@@ -23,6 +23,7 @@
 package org.pentaho.big.data.impl.shim.mapreduce;
 
 import org.apache.commons.vfs2.FileObject;
+import org.apache.hadoop.fs.FileStatus;
 import org.apache.hadoop.mapred.JobConf;
 import org.apache.hadoop.security.Credentials;
 import org.junit.Before;
@@ -55,6 +56,7 @@ import org.pentaho.di.core.plugins.PluginRegistry;
 import org.pentaho.di.core.row.RowMetaInterface;
 import org.pentaho.di.core.row.ValueMetaInterface;
 import org.pentaho.di.core.variables.VariableSpace;
+import org.pentaho.di.core.vfs.KettleVFS;
 import org.pentaho.di.i18n.BaseMessages;
 import org.pentaho.di.trans.Trans;
 import org.pentaho.di.trans.TransConfiguration;
@@ -71,6 +73,7 @@ import org.pentaho.hadoop.shim.api.fs.FileSystem;
 import org.pentaho.hadoop.shim.api.fs.Path;
 import org.pentaho.hadoop.shim.spi.HadoopShim;
 
+import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
 import java.net.URI;
@@ -81,6 +84,7 @@ import java.util.Optional;
 import java.util.Properties;
 
 import static org.junit.Assert.*;
+import static org.mockito.AdditionalMatchers.geq;
 import static org.mockito.Matchers.any;
 import static org.mockito.Matchers.anyList;
 import static org.mockito.Matchers.eq;
@@ -883,4 +887,99 @@ public class PentahoMapReduceJobBuilderImplTest {
       PentahoMapReduceJobBuilderImpl.CLASSES + mapreduceClasspath );
     verify( distributedCacheUtil ).configureWithKettleEnvironment( conf, fileSystem, kettleEnvInstallDir );
   }
+
+  @Test
+  public void testSubmitInstallsChangedEnvironmentIntoVersionedDirectory() throws Exception {
+    Configuration conf = mock( Configuration.class );
+    JobConf jobConf = mock( JobConf.class );
+    when( jobConf.getCredentials() ).thenReturn( new Credentials() );
+    when( conf.getAsDelegateConf( any() ) ).thenReturn( jobConf );
+
+    FileSystem fileSystem = mock( FileSystem.class );
+    DistributedCacheUtil distributedCacheUtil = mock( DistributedCacheUtil.class );
+    Path kettleEnvInstallDir = mock( Path.class );
+    URI kettleEnvInstallDirUri = new URI( "http://testUri/path" );
+    when( kettleEnvInstallDir.toUri() ).thenReturn( kettleEnvInstallDirUri );
+
+    when( hadoopShim.getFileSystem( conf ) ).thenReturn( fileSystem );
+    when( hadoopShim.getDistributedCacheUtil() ).thenReturn( distributedCacheUtil );
+    when( conf.get( PentahoMapReduceJobBuilderImpl.PENTAHO_MAPREDUCE_PROPERTY_USE_DISTRIBUTED_CACHE ) )
+      .thenReturn( "true" );
+    when( conf.get( PentahoMapReduceJobBuilderImpl.PENTAHO_MAPREDUCE_PROPERTY_INCREMENTAL_INSTALL ) )
+      .thenReturn( "true" );
+    String installPath = "/path" + Const.FILE_SEPARATOR;
+    when( conf.get( PentahoMapReduceJobBuilderImpl.PENTAHO_MAPREDUCE_PROPERTY_KETTLE_HDFS_INSTALL_DIR ) )
+      .thenReturn( installPath );
+    String installId = "install_id";
+    when( conf.get( PentahoMapReduceJobBuilderImpl.PENTAHO_MAPREDUCE_PROPERTY_KETTLE_INSTALLATION_ID ) )
+      .thenReturn( installId );
+
+    File archive = File.createTempFile( "pentaho-mapreduce-libraries", ".zip" );
+    archive.deleteOnExit();
+    KettleInstallManifestTest.writeArchive( archive, "lib/kettle-core.jar", "core" );
+    FileObject pmrLibArchive = KettleVFS.getFileObject( archive.getAbsolutePath() );
+    when( pmrArchiveGetter.getPmrArchive( conf ) ).thenReturn( pmrLibArchive );
+    String versionedInstallId = installId + "-" + KettleInstallManifest
+      .create( pmrLibArchive, vfsPluginDirectory, hadoopConfiguration.getIdentifier(), null ).getVersion();
+    when( fileSystem.asPath( installPath, versionedInstallId ) ).thenReturn( kettleEnvInstallDir );
+    when( distributedCacheUtil.isKettleEnvironmentInstalledAt( fileSystem, kettleEnvInstallDir ) )
+      .thenReturn( false, true );
+
+    pentahoMapReduceJobBuilder.submit( conf );
+
+    verify( fileSystem, never() ).asPath( installPath, installId );
+    verify( distributedCacheUtil ).installKettleEnvironment( pmrLibArchive, fileSystem, kettleEnvInstallDir,
+      vfsPluginDirectory, null );
+    verify( distributedCacheUtil ).configureWithKettleEnvironment( conf, fileSystem, kettleEnvInstallDir );
+  }
+
+  @Test
+  public void testRemoveOutdatedInstallations() throws Exception {
+    String current = "install_id-0123456789abcdef";
+    String outdated = "install_id-fedcba9876543210";
+    String recent = "install_id-00112233445566ff";
+    String unversioned = "install_id";
+    String other = "other_id-fedcba9876543210";
+    long now = System.currentTimeMillis();
+    long retention = 60 * 60 * 1000;
+
+    org.apache.hadoop.fs.FileSystem delegate = mock( org.apache.hadoop.fs.FileSystem.class );
+    FileSystem fileSystem = mock( FileSystem.class );
+    when( fileSystem.getDelegate() ).thenReturn( delegate );
+    Path kettleEnvInstallDir = mock( Path.class );
+    when( kettleEnvInstallDir.toUri() ).thenReturn( new URI( "hdfs://namenode/opt/pentaho/mapreduce/" + current ) );
+    org.apache.hadoop.fs.Path parent = new org.apache.hadoop.fs.Path( "hdfs://namenode/opt/pentaho/mapreduce" );
+    when( delegate.listStatus( parent ) ).thenReturn( new FileStatus[] {
+      new FileStatus( 0, true, 0, 0, now - 2 * retention, new org.apache.hadoop.fs.Path( parent, current ) ),
+      new FileStatus( 0, true, 0, 0, now - 2 * retention, new org.apache.hadoop.fs.Path( parent, outdated ) ),
+      new FileStatus( 0, true, 0, 0, now, new org.apache.hadoop.fs.Path( parent, recent ) ),
+      new FileStatus( 0, true, 0, 0, now - 2 * retention, new org.apache.hadoop.fs.Path( parent, unversioned ) ),
+      new FileStatus( 0, true, 0, 0, now - 2 * retention, new org.apache.hadoop.fs.Path( parent, other ) ) } );
+
+    pentahoMapReduceJobBuilder.removeOutdatedInstallations( fileSystem, kettleEnvInstallDir, "install_id",
+      retention );
+
+    verify( delegate ).setTimes( eq( new org.apache.hadoop.fs.Path( parent, current ) ), geq( now ), eq( -1L ) );
+    verify( delegate ).delete( new org.apache.hadoop.fs.Path( parent, outdated ), true );
+    verify( delegate, never() ).delete( new org.apache.hadoop.fs.Path( parent, current ), true );
+    verify( delegate, never() ).delete( new org.apache.hadoop.fs.Path( parent, recent ), true );
+    verify( delegate, never() ).delete( new org.apache.hadoop.fs.Path( parent, unversioned ), true );
+    verify( delegate, never() ).delete( new org.apache.hadoop.fs.Path( parent, other ), true );
+  }
+
+  @Test
+  public void testRemoveOutdatedInstallationsFailureDoesNotFailSubmit() throws Exception {
+    org.apache.hadoop.fs.FileSystem delegate = mock( org.apache.hadoop.fs.FileSystem.class );
+    FileSystem fileSystem = mock( FileSystem.class );
+    when( fileSystem.getDelegate() ).thenReturn( delegate );
+    Path kettleEnvInstallDir = mock( Path.class );
+    when( kettleEnvInstallDir.toUri() ).thenReturn( new URI( "hdfs://namenode/opt/install_id-0123456789abcdef" ) );
+    IOException exception = new IOException();
+    when( delegate.listStatus( any( org.apache.hadoop.fs.Path.class ) ) ).thenThrow( exception );
+
+    pentahoMapReduceJobBuilder.removeOutdatedInstallations( fileSystem, kettleEnvInstallDir, "install_id", 0 );
+
+    verify( logChannelInterface ).logError( anyString(), eq( exception ) );
+    verify( delegate, never() ).delete( any( org.apache.hadoop.fs.Path.class ), anyBoolean() );
+  }
 }
@@ -138,4 +138,14 @@ public class RunningJobMapReduceJobAdvancedImplTest {
     when( runningJob.getTaskDiagnostics( o ) ).thenReturn( value );
     assertArrayEquals( value, runningJobMapReduceJobAdvanced.getTaskDiagnostics( o ) );
   }
+
+  @Test( timeout = 5000 )
+  public void testCompletionFuture() throws Exception {
+    when( runningJob.isComplete() ).thenReturn( false, true );
+    when( runningJob.isSuccessful() ).thenReturn( true );
+    runningJobMapReduceJobAdvanced =
+      new RunningJobMapReduceJobAdvancedImpl( runningJob, new MapReduceJobMonitor( 1, 10 ) );
+    assertTrue( runningJobMapReduceJobAdvanced.getCompletionFuture().get() );
+    assertTrue( runningJobMapReduceJobAdvanced.waitOnCompletion( 10, TimeUnit.MINUTES, stoppable ) );
+  }
 }
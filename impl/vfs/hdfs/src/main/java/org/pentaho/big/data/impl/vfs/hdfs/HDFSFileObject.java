@@ -30,32 +30,47 @@ import org.apache.commons.vfs2.provider.AbstractFileObject;
 import org.pentaho.bigdata.api.hdfs.HadoopFileStatus;
 import org.pentaho.bigdata.api.hdfs.HadoopFileSystem;
 
+import java.io.FilterOutputStream;
+import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
 
 public class HDFSFileObject extends AbstractFileObject  {
 
   private HadoopFileSystem hdfs;
+  private final HDFSFileStatusCache fileStatusCache;
 
   protected HDFSFileObject( final AbstractFileName name, final HDFSFileSystem fileSystem ) throws FileSystemException {
     super( name, fileSystem );
     hdfs = fileSystem.getHDFSFileSystem();
+    fileStatusCache = fileSystem.getFileStatusCache();
+  }
+
+  private HadoopFileStatus getFileStatus() throws Exception {
+    String path = getName().getPath();
+    HadoopFileStatus status = fileStatusCache.get( path );
+    if ( status == null ) {
+      status = hdfs.getFileStatus( hdfs.getPath( path ) );
+      fileStatusCache.put( path, status );
+    }
+    return status;
   }
 
   @Override
   protected long doGetContentSize() throws Exception {
-    return hdfs.getFileStatus( hdfs.getPath( getName().getPath() ) ).getLen();
+    return getFileStatus().getLen();
   }
 
   @Override
   protected OutputStream doGetOutputStream( boolean append ) throws Exception {
     OutputStream out;
+    fileStatusCache.invalidate( getName().getPath() );
     if ( append ) {
       out = hdfs.append( hdfs.getPath( getName().getPath() ) );
     } else {
       out = hdfs.create( hdfs.getPath( getName().getPath() ) );
     }
-    return out;
+    return new StatusInvalidatingOutputStream( out );
   }
 
   @Override
@@ -67,7 +82,7 @@ public class HDFSFileObject extends AbstractFileObject  {
   protected FileType doGetType() throws Exception {
     HadoopFileStatus status = null;
     try {
-      status = hdfs.getFileStatus( hdfs.getPath( getName().getPath() ) );
+      status = getFileStatus();
     } catch ( Exception ex ) {
       // Ignore
     }
@@ -83,38 +98,69 @@ public class HDFSFileObject extends AbstractFileObject  {
 
   @Override
   public void doCreateFolder() throws Exception {
+    fileStatusCache.invalidate( getName().getPath() );
     hdfs.mkdirs( hdfs.getPath( getName().getPath() ) );
   }
 
   @Override
   public void doDelete() throws Exception {
+    fileStatusCache.invalidate( getName().getPath() );
     hdfs.delete( hdfs.getPath( getName().getPath() ), true );
   }
 
   @Override
   protected void doRename( FileObject newfile ) throws Exception {
+    fileStatusCache.invalidate( getName().getPath() );
+    fileStatusCache.invalidate( newfile.getName().getPath() );
     hdfs.rename( hdfs.getPath( getName().getPath() ), hdfs.getPath( newfile.getName().getPath() ) );
   }
 
   @Override
   protected long doGetLastModifiedTime() throws Exception {
-    return hdfs.getFileStatus( hdfs.getPath( getName().getPath() ) ).getModificationTime();
+    return getFileStatus().getModificationTime();
   }
 
   @Override
   protected boolean doSetLastModifiedTime( long modtime ) throws Exception {
+    fileStatusCache.invalidate( getName().getPath() );
     hdfs.setTimes( hdfs.getPath( getName().getPath() ), modtime, System.currentTimeMillis() );
     return true;
   }
 
   @Override
   protected String[] doListChildren() throws Exception {
-    HadoopFileStatus[] statusList = hdfs.listStatus( hdfs.getPath( getName().getPath() ) );
+    String path = getName().getPath();
+    HadoopFileStatus[] statusList = hdfs.listStatus( hdfs.getPath( path ) );
+    String parentPrefix = path.endsWith( "/" ) ? path : path + "/";
     String[] children = new String[ statusList.length ];
     for ( int i = 0; i < statusList.length; i++ ) {
       children[ i ] = statusList[ i ].getPath().getName();
+      // The children are about to be resolved and asked for their type, remember what the listing already told us
+      fileStatusCache.put( parentPrefix + children[ i ], statusList[ i ] );
     }
     return children;
   }
 
+  /**
+   * Drops the cached status once the file is written, a status read while the stream was open is out of date by then
+   */
+  private class StatusInvalidatingOutputStream extends FilterOutputStream {
+    StatusInvalidatingOutputStream( OutputStream out ) {
+      super( out );
+    }
+
+    @Override
+    public void write( byte[] b, int off, int len ) throws IOException {
+      out.write( b, off, len );
+    }
+
+    @Override
+    public void close() throws IOException {
+      try {
+        out.close();
+      } finally {
+        fileStatusCache.invalidate( getName().getPath() );
+      }
+    }
+  }
 }
@@ -0,0 +1,141 @@
+/*******************************************************************************
+ *
+ * Pentaho Big Data
+ *
+ * Copyright (C) 2002-2016 by Pentaho : http://www.pentaho.com
+ *
+ *******************************************************************************
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ ******************************************************************************/
+
+package org.pentaho.big.data.impl.vfs.hdfs;
+
+import org.pentaho.bigdata.api.hdfs.HadoopFileStatus;
+import org.pentaho.di.core.Const;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentNavigableMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Short lived cache of file statuses for a single HDFS filesystem, keyed by path.  Statuses returned by directory
+ * listings are added so walking a tree doesn't stat every child again for its type, size and modification time.
+ * <p/>
+ * Paths are kept sorted so invalidating a subtree only touches the entries under it.
+ */
+public class HDFSFileStatusCache {
+  public static final String TTL_MILLIS_KEY = "pentaho.hdfs.filestatus.cache.ttl.millis";
+  public static final long DEFAULT_TTL_MILLIS = 5000L;
+  public static final int MAX_ENTRIES = 10000;
+  private final ConcurrentNavigableMap<String, Entry> entries = new ConcurrentSkipListMap<>();
+  // The skip list's size() walks every entry, so keep a count for the size cap
+  private final AtomicInteger size = new AtomicInteger();
+  private final long ttlNanos;
+
+  public HDFSFileStatusCache() {
+    this( Const.toLong( System.getProperty( TTL_MILLIS_KEY ), DEFAULT_TTL_MILLIS ) );
+  }
+
+  public HDFSFileStatusCache( long ttlMillis ) {
+    this.ttlNanos = TimeUnit.MILLISECONDS.toNanos( ttlMillis );
+  }
+
+  public HadoopFileStatus get( String path ) {
+    Entry entry = entries.get( path );
+    if ( entry == null ) {
+      return null;
+    }
+    if ( entry.isExpired( System.nanoTime() ) ) {
+      if ( entries.remove( path, entry ) ) {
+        size.decrementAndGet();
+      }
+      return null;
+    }
+    return entry.status;
+  }
+
+  public void put( String path, HadoopFileStatus status ) {
+    if ( ttlNanos <= 0 || status == null ) {
+      return;
+    }
+    if ( size.get() >= MAX_ENTRIES ) {
+      purgeExpired();
+      if ( size.get() >= MAX_ENTRIES ) {
+        invalidateAll();
+      }
+    }
+    if ( entries.put( path, new Entry( status, System.nanoTime() + ttlNanos ) ) == null ) {
+      size.incrementAndGet();
+    }
+  }
+
+  /**
+   * Removes the path and everything below it
+   *
+   * @param path the path that changed
+   */
+  public void invalidate( String path ) {
+    String parent = path.endsWith( "/" ) ? path.substring( 0, path.length() - 1 ) : path;
+    remove( path );
+    remove( parent );
+    // Every path below parent sorts between parent + '/' and parent + ('/' + 1)
+    removeAll( entries.subMap( parent + '/', parent + (char) ( '/' + 1 ) ) );
+  }
+
+  public void invalidateAll() {
+    removeAll( entries );
+  }
+
+  public int size() {
+    return size.get();
+  }
+
+  private void purgeExpired() {
+    long now = System.nanoTime();
+    for ( Map.Entry<String, Entry> entry : entries.entrySet() ) {
+      if ( entry.getValue().isExpired( now ) && entries.remove( entry.getKey(), entry.getValue() ) ) {
+        size.decrementAndGet();
+      }
+    }
+  }
+
+  private void remove( String path ) {
+    if ( entries.remove( path ) != null ) {
+      size.decrementAndGet();
+    }
+  }
+
+  private void removeAll( ConcurrentNavigableMap<String, Entry> range ) {
+    for ( String path : range.keySet() ) {
+      remove( path );
+    }
+  }
+
+  private static final class Entry {
+    private final HadoopFileStatus status;
+    private final long expires;
+
+    private Entry( HadoopFileStatus status, long expires ) {
+      this.status = status;
+      this.expires = expires;
+    }
+
+    private boolean isExpired( long now ) {
+      return now - expires >= 0;
+    }
+  }
+}
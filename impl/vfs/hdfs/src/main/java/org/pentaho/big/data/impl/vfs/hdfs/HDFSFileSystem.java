@@ -36,6 +36,7 @@ import java.util.Collection;
 
 public class HDFSFileSystem extends AbstractFileSystem implements FileSystem {
   private final HadoopFileSystem hdfs;
+  private final HDFSFileStatusCache fileStatusCache = new HDFSFileStatusCache();
 
   protected HDFSFileSystem( final FileName rootName, final FileSystemOptions fileSystemOptions,
                             HadoopFileSystem hdfs ) {
@@ -60,4 +61,12 @@ public class HDFSFileSystem extends AbstractFileSystem implements FileSystem {
   public HadoopFileSystem getHDFSFileSystem() throws FileSystemException {
     return hdfs;
   }
+
+  public HDFSFileStatusCache getFileStatusCache() {
+    return fileStatusCache;
+  }
+
+  @Override protected void doCloseCommunicationLink() {
+    fileStatusCache.invalidateAll();
+  }
 }
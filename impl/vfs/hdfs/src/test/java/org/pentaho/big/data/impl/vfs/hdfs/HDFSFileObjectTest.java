@@ -41,6 +41,7 @@ import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertTrue;
 import static org.mockito.Matchers.eq;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
@@ -80,14 +81,25 @@ public class HDFSFileObjectTest {
   public void testDoGetOutputStreamAppend() throws Exception {
     OutputStream outputStream = mock( OutputStream.class );
     when( hadoopFileSystem.append( hadoopFileSystemPath ) ).thenReturn( outputStream );
-    assertEquals( outputStream, hdfsFileObject.doGetOutputStream( true ) );
+    OutputStream result = hdfsFileObject.doGetOutputStream( true );
+    byte[] data = { 1, 2, 3 };
+    result.write( data, 0, data.length );
+    result.close();
+    verify( outputStream ).write( data, 0, data.length );
+    verify( outputStream ).close();
   }
 
   @Test
   public void testDoGetOutputStreamCreate() throws Exception {
     OutputStream outputStream = mock( OutputStream.class );
     when( hadoopFileSystem.create( hadoopFileSystemPath ) ).thenReturn( outputStream );
-    assertEquals( outputStream, hdfsFileObject.doGetOutputStream( false ) );
+    OutputStream result = hdfsFileObject.doGetOutputStream( false );
+    result.write( 7 );
+    result.flush();
+    result.close();
+    verify( outputStream ).write( 7 );
+    verify( outputStream ).flush();
+    verify( outputStream ).close();
   }
 
   @Test
@@ -183,4 +195,56 @@ public class HDFSFileObjectTest {
     assertEquals( 1, children.length );
     assertEquals( childPathName, children[0] );
   }
+
+  @Test
+  public void testFileStatusCached() throws Exception {
+    HadoopFileStatus hadoopFileStatus = mock( HadoopFileStatus.class );
+    when( hadoopFileSystem.getFileStatus( hadoopFileSystemPath ) ).thenReturn( hadoopFileStatus );
+    when( hadoopFileStatus.getLen() ).thenReturn( 5L );
+    when( hadoopFileStatus.getModificationTime() ).thenReturn( 10L );
+    assertEquals( FileType.FILE, hdfsFileObject.doGetType() );
+    assertEquals( 5L, hdfsFileObject.doGetContentSize() );
+    assertEquals( 10L, hdfsFileObject.doGetLastModifiedTime() );
+    verify( hadoopFileSystem, times( 1 ) ).getFileStatus( hadoopFileSystemPath );
+  }
+
+  @Test
+  public void testFileStatusInvalidatedOnDelete() throws Exception {
+    HadoopFileStatus hadoopFileStatus = mock( HadoopFileStatus.class );
+    when( hadoopFileSystem.getFileStatus( hadoopFileSystemPath ) ).thenReturn( hadoopFileStatus );
+    assertEquals( FileType.FILE, hdfsFileObject.doGetType() );
+    hdfsFileObject.doDelete();
+    when( hadoopFileSystem.getFileStatus( hadoopFileSystemPath ) ).thenReturn( null );
+    assertEquals( FileType.IMAGINARY, hdfsFileObject.doGetType() );
+  }
+
+  @Test
+  public void testFileStatusInvalidatedWhenOutputStreamCloses() throws Exception {
+    HadoopFileStatus writingStatus = mock( HadoopFileStatus.class );
+    when( writingStatus.getLen() ).thenReturn( 0L );
+    HadoopFileStatus writtenStatus = mock( HadoopFileStatus.class );
+    when( writtenStatus.getLen() ).thenReturn( 3L );
+    when( hadoopFileSystem.create( hadoopFileSystemPath ) ).thenReturn( mock( OutputStream.class ) );
+    when( hadoopFileSystem.getFileStatus( hadoopFileSystemPath ) ).thenReturn( writingStatus, writtenStatus );
+
+    OutputStream outputStream = hdfsFileObject.doGetOutputStream( false );
+    outputStream.write( new byte[] { 1, 2, 3 }, 0, 3 );
+    assertEquals( 0L, hdfsFileObject.doGetContentSize() );
+    assertEquals( 0L, hdfsFileObject.doGetContentSize() );
+    outputStream.close();
+    assertEquals( 3L, hdfsFileObject.doGetContentSize() );
+    verify( hadoopFileSystem, times( 2 ) ).getFileStatus( hadoopFileSystemPath );
+  }
+
+  @Test
+  public void testListChildrenSeedsFileStatus() throws Exception {
+    HadoopFileStatus hadoopFileStatus = mock( HadoopFileStatus.class );
+    HadoopFileSystemPath childPath = mock( HadoopFileSystemPath.class );
+    when( hadoopFileStatus.getPath() ).thenReturn( childPath );
+    when( childPath.getName() ).thenReturn( "child" );
+    when( hadoopFileSystem.listStatus( hadoopFileSystemPath ) )
+      .thenReturn( new HadoopFileStatus[] { hadoopFileStatus } );
+    hdfsFileObject.doListChildren();
+    assertEquals( hadoopFileStatus, hdfsFileSystem.getFileStatusCache().get( "fake-path/child" ) );
+  }
 }
@@ -0,0 +1,83 @@
+/*******************************************************************************
+ *
+ * Pentaho Big Data
+ *
+ * Copyright (C) 2002-2016 by Pentaho : http://www.pentaho.com
+ *
+ *******************************************************************************
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ ******************************************************************************/
+
+package org.pentaho.big.data.impl.vfs.hdfs;
+
+import org.junit.Test;
+import org.pentaho.bigdata.api.hdfs.HadoopFileStatus;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.mockito.Mockito.mock;
+
+public class HDFSFileStatusCacheTest {
+  @Test
+  public void testGetPut() {
+    HDFSFileStatusCache cache = new HDFSFileStatusCache( 60000L );
+    HadoopFileStatus status = mock( HadoopFileStatus.class );
+    assertNull( cache.get( "/a" ) );
+    cache.put( "/a", status );
+    assertEquals( status, cache.get( "/a" ) );
+  }
+
+  @Test
+  public void testExpired() {
+    HDFSFileStatusCache cache = new HDFSFileStatusCache( 0L );
+    cache.put( "/a", mock( HadoopFileStatus.class ) );
+    assertNull( cache.get( "/a" ) );
+    assertEquals( 0, cache.size() );
+  }
+
+  @Test
+  public void testInvalidateSubtree() {
+    HDFSFileStatusCache cache = new HDFSFileStatusCache( 60000L );
+    cache.put( "/a", mock( HadoopFileStatus.class ) );
+    cache.put( "/a/b", mock( HadoopFileStatus.class ) );
+    cache.put( "/ab", mock( HadoopFileStatus.class ) );
+    cache.invalidate( "/a" );
+    assertNull( cache.get( "/a" ) );
+    assertNull( cache.get( "/a/b" ) );
+    assertEquals( 1, cache.size() );
+  }
+
+  @Test
+  public void testInvalidateOnlyTouchesSubtree() {
+    HDFSFileStatusCache cache = new HDFSFileStatusCache( 60000L );
+    HadoopFileStatus status = mock( HadoopFileStatus.class );
+    cache.put( "/a/b", status );
+    cache.put( "/a/b/c/d", status );
+    cache.put( "/a/b-c", status );
+    cache.put( "/a/b0", status );
+    cache.put( "/a/ba", status );
+    cache.put( "/a", status );
+    cache.invalidate( "/a/b/" );
+    assertNull( cache.get( "/a/b" ) );
+    assertNull( cache.get( "/a/b/c/d" ) );
+    assertEquals( status, cache.get( "/a/b-c" ) );
+    assertEquals( status, cache.get( "/a/b0" ) );
+    assertEquals( status, cache.get( "/a/ba" ) );
+    assertEquals( status, cache.get( "/a" ) );
+    assertEquals( 4, cache.size() );
+    cache.invalidateAll();
+    assertEquals( 0, cache.size() );
+  }
+}
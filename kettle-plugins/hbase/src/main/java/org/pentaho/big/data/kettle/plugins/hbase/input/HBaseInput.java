@@ -100,6 +100,13 @@ public class HBaseInput extends BaseStep implements StepInterface {
    */
   protected HBaseRowToKettleTuple m_tupleHandler;
 
+  /** Passes decoded tuples straight on to the next step */
+  protected final HBaseRowToKettleTuple.TupleEmitter m_tupleEmitter = new HBaseRowToKettleTuple.TupleEmitter() {
+    @Override public void emitTuple( Object[] tuple ) throws KettleException {
+      putRow( m_data.getOutputRowMeta(), tuple );
+    }
+  };
+
   @Override
   public boolean processRow( StepMetaInterface smi, StepDataInterface sdi ) throws KettleException {
 
@@ -127,7 +134,7 @@ public class HBaseInput extends BaseStep implements StepInterface {
             "HBaseInput.Error.UnableToObtainConnection" ), ex );
       }
       try {
-        m_mappingAdmin = new MappingAdmin( m_hbAdmin );
+        m_mappingAdmin = new MappingAdmin( m_hbAdmin, m_meta.getNamedCluster() );
       } catch ( Exception ex ) {
         throw new KettleException( BaseMessages.getString( HBaseInputMeta.PKG,
             "HBaseInput.Error.UnableToCreateAMappingAdminConnection" ), ex );
@@ -226,6 +233,14 @@ public class HBaseInput extends BaseStep implements StepInterface {
         .createScannerBuilder( m_tableMapping, dateOrNumberConversionMaskForKey, m_meta.getKeyStartValue(),
           m_meta.getKeyStopValue(), m_meta.getScannerCacheSize(), log, this );
 
+      // each copy reads its own slice of the key range, numbered across slave servers when clustered
+      int copies = getUniqueStepCountAcrossSlaves();
+      if ( m_meta.getSplitScanAcrossCopies() && copies > 1 ) {
+        int copy = getUniqueStepNrAcrossSlaves();
+        logBasic( BaseMessages.getString( HBaseInputMeta.PKG, "HBaseInput.SplitScan", copy + 1, copies ) );
+        scannerBuilder.setKeyRangeSplit( copy, copies );
+      }
+
       // LIMIT THE SCAN TO JUST THE COLUMNS IN THE MAPPING
       // User-selected output columns?
       if ( m_userOutputColumns != null && m_userOutputColumns.size() > 0 && !m_tableMapping.isTupleMapping() ) {
@@ -249,6 +264,11 @@ public class HBaseInput extends BaseStep implements StepInterface {
         // set up the output fields (using the mapping)
         m_data.setOutputRowMeta( new RowMeta() );
         m_meta.getFields( m_data.getOutputRowMeta(), getStepname(), null, null, this, repository, metaStore );
+
+        if ( !m_tableMapping.isTupleMapping() ) {
+          m_data.setDecodePlan( HBaseInputData.createDecodePlan( m_bytesUtil, m_userOutputColumns,
+              m_columnsMappedByAlias, m_tableMapping, m_data.getOutputRowMeta() ) );
+        }
       }
     }
 
@@ -274,18 +294,11 @@ public class HBaseInput extends BaseStep implements StepInterface {
     }
 
     if ( m_tableMapping.isTupleMapping() ) {
-      List<Object[]> tupleRows =
-          HBaseInputData.getTupleOutputRows( hBaseService, next, m_userOutputColumns, m_columnsMappedByAlias, m_tableMapping,
-              m_tupleHandler, m_data.getOutputRowMeta() );
-
-      for ( Object[] tuple : tupleRows ) {
-        putRow( m_data.getOutputRowMeta(), tuple );
-      }
+      HBaseInputData.emitTupleOutputRows( hBaseService, next, m_userOutputColumns, m_columnsMappedByAlias,
+          m_tableMapping, m_tupleHandler, m_data.getOutputRowMeta(), m_tupleEmitter );
       return true;
     } else {
-      Object[] outRowData =
-          HBaseInputData.getOutputRow( next, m_userOutputColumns, m_columnsMappedByAlias, m_tableMapping, m_data
-              .getOutputRowMeta() );
+      Object[] outRowData = m_data.getDecodePlan().decodeRow( next );
       putRow( m_data.getOutputRowMeta(), outRowData );
       return true;
     }
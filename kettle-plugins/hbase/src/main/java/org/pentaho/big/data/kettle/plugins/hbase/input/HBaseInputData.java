@@ -22,7 +22,9 @@
 
 package org.pentaho.big.data.kettle.plugins.hbase.input;
 
+import org.pentaho.big.data.kettle.plugins.hbase.mapping.HBaseRowDecodePlan;
 import org.pentaho.big.data.kettle.plugins.hbase.mapping.HBaseRowToKettleTuple;
+import org.pentaho.bigdata.api.hbase.ByteConversionUtil;
 import org.pentaho.bigdata.api.hbase.HBaseService;
 import org.pentaho.bigdata.api.hbase.mapping.ColumnFilter;
 import org.pentaho.bigdata.api.hbase.mapping.Mapping;
@@ -31,7 +33,6 @@ import org.pentaho.bigdata.api.hbase.Result;
 import org.pentaho.bigdata.api.hbase.table.ResultScannerBuilder;
 import org.pentaho.di.core.Const;
 import org.pentaho.di.core.exception.KettleException;
-import org.pentaho.di.core.row.RowDataUtil;
 import org.pentaho.di.core.row.RowMetaInterface;
 import org.pentaho.di.core.variables.VariableSpace;
 import org.pentaho.di.i18n.BaseMessages;
@@ -43,7 +44,6 @@ import java.net.URL;
 import java.util.Collection;
 import java.util.List;
 import java.util.Map;
-import java.util.Set;
 
 /**
  * Class providing an input step for reading data from an HBase table according to meta data mapping info stored in a
@@ -59,6 +59,9 @@ public class HBaseInputData extends BaseStepData implements StepDataInterface {
   /** The output data format */
   protected RowMetaInterface m_outputRowMeta;
 
+  /** The precompiled plan for decoding hbase rows (non tuple mappings only) */
+  protected HBaseRowDecodePlan m_decodePlan;
+
   /**
    * Get the output row format
    * 
@@ -78,6 +81,25 @@ public class HBaseInputData extends BaseStepData implements StepDataInterface {
     m_outputRowMeta = rmi;
   }
 
+  /**
+   * Get the plan for decoding hbase rows into the output row format
+   * 
+   * @return the decode plan
+   */
+  public HBaseRowDecodePlan getDecodePlan() {
+    return m_decodePlan;
+  }
+
+  /**
+   * Set the plan for decoding hbase rows into the output row format
+   * 
+   * @param decodePlan
+   *          the decode plan
+   */
+  public void setDecodePlan( HBaseRowDecodePlan decodePlan ) {
+    m_decodePlan = decodePlan;
+  }
+
   /**
    * Utility method to covert a string to a URL object.
    * 
@@ -216,6 +238,41 @@ public class HBaseInputData extends BaseStepData implements StepDataInterface {
     }
   }
 
+  /**
+   * Convert/decode the current hbase row into "tuple" kettle rows, handing each one to the supplied emitter
+   * 
+   * @param hBaseService
+   *          the hBaseService
+   * @param result
+   *          the result to use
+   * @param userOutputColumns
+   *          user-specified subset of columns (if any) from the mapping
+   * @param columnsMappedByAlias
+   *          columns in the mapping keyed by alias
+   * @param tableMapping
+   *          the mapping to use
+   * @param tupleHandler
+   *          the HBaseRowToKettleTuple to delegate to
+   * @param outputRowMeta
+   *          the outgoing row meta
+   * @param emitter
+   *          receives the kettle rows
+   * @throws KettleException
+   *           if a problem occurs
+   */
+  public static void emitTupleOutputRows( HBaseService hBaseService, Result result,
+      List<HBaseValueMetaInterface> userOutputColumns, Map<String, HBaseValueMetaInterface> columnsMappedByAlias,
+      Mapping tableMapping, HBaseRowToKettleTuple tupleHandler, RowMetaInterface outputRowMeta,
+      HBaseRowToKettleTuple.TupleEmitter emitter ) throws KettleException {
+
+    if ( userOutputColumns != null && userOutputColumns.size() > 0 ) {
+      tupleHandler.hbaseRowToKettleTupleMode( result, tableMapping, userOutputColumns, outputRowMeta, emitter );
+    } else {
+      tupleHandler.hbaseRowToKettleTupleMode( hBaseService.getHBaseValueMetaInterfaceFactory(), result, tableMapping,
+          columnsMappedByAlias, outputRowMeta, emitter );
+    }
+  }
+
   /**
    * Convert/decode the current hbase row into a kettle row
    * 
@@ -232,108 +289,82 @@ public class HBaseInputData extends BaseStepData implements StepDataInterface {
    * @return a kettle row
    * @throws KettleException
    *           if a problem occurs
+   * @deprecated builds a new plan for every row, use {@link #createDecodePlan} once and
+   *             {@link HBaseRowDecodePlan#decodeRow(Result)} for each row instead
    */
+  @Deprecated
   public static Object[] getOutputRow( Result result, List<HBaseValueMetaInterface> userOutputColumns,
-      Map<String, HBaseValueMetaInterface> columnsMappedByAlias, Mapping tableMapping, RowMetaInterface outputRowMeta ) throws KettleException {
+      Map<String, HBaseValueMetaInterface> columnsMappedByAlias, Mapping tableMapping, RowMetaInterface outputRowMeta )
+    throws KettleException {
+    return createDecodePlan( null, userOutputColumns, columnsMappedByAlias, tableMapping, outputRowMeta )
+        .decodeRow( result );
+  }
 
-    int size = ( userOutputColumns != null && userOutputColumns.size() > 0 ) ? userOutputColumns.size()
-      : tableMapping.numMappedColumns() + 1; // + 1 for the key
+  /**
+   * Build the plan used to convert/decode hbase rows into kettle rows. Output indexes are resolved and column
+   * names encoded once here rather than for every row.
+   * 
+   * @param bytesUtil
+   *          the byte conversion utility used to encode column families and qualifiers, null to look them up by
+   *          name for every row
+   * @param userOutputColumns
+   *          user-specified subset of columns (if any) from the mapping
+   * @param columnsMappedByAlias
+   *          columns in the mapping keyed by alias
+   * @param tableMapping
+   *          the mapping to use
+   * @param outputRowMeta
+   *          the outgoing row meta
+   * @return the decode plan
+   * @throws KettleException
+   *           if a column is not defined in the outgoing row meta
+   */
+  public static HBaseRowDecodePlan createDecodePlan( ByteConversionUtil bytesUtil,
+      List<HBaseValueMetaInterface> userOutputColumns, Map<String, HBaseValueMetaInterface> columnsMappedByAlias,
+      Mapping tableMapping, RowMetaInterface outputRowMeta ) throws KettleException {
 
-    Object[] outputRowData = RowDataUtil.allocateRowData( size );
+    HBaseRowDecodePlan decodePlan;
 
     // User-selected output columns?
     if ( userOutputColumns != null && userOutputColumns.size() > 0 ) {
+      int keyIndex = -1;
       for ( HBaseValueMetaInterface currentCol : userOutputColumns ) {
         if ( currentCol.isKey() ) {
-          byte[] rawKey = null;
-          try {
-            rawKey = result.getRow();
-          } catch ( Exception e ) {
-            throw new KettleException( e );
-          }
-          Object decodedKey = tableMapping.decodeKeyValue( rawKey );
-          int keyIndex = outputRowMeta.indexOfValue( currentCol.getAlias() );
-          outputRowData[keyIndex] = decodedKey;
-        } else {
-          String colFamilyName = currentCol.getColumnFamily();
-          String qualifier = currentCol.getColumnName();
-
-          boolean binaryColName = false;
-          if ( qualifier.startsWith( "@@@binary@@@" ) ) {
-            qualifier = qualifier.replace( "@@@binary@@@", "" );
-            // assume hex encoded
-            binaryColName = true;
-          }
-
-          byte[] kv = null;
-          try {
-            kv = result.getValue( colFamilyName, qualifier, binaryColName );
-          } catch ( Exception e ) {
-            throw new KettleException( e );
-          }
-
-          int outputIndex = outputRowMeta.indexOfValue( currentCol.getAlias() );
-          if ( outputIndex < 0 ) {
-            throw new KettleException( BaseMessages.getString( HBaseInputMeta.PKG,
-                "HBaseInput.Error.ColumnNotDefinedInOutput", currentCol.getAlias() ) );
-          }
-
-          Object decodedVal = currentCol.decodeColumnValue( ( kv == null ) ? null : kv );
-
-          outputRowData[outputIndex] = decodedVal;
+          keyIndex = getOutputIndex( outputRowMeta, currentCol.getAlias() );
         }
       }
-    } else {
-      // do the key first
-      byte[] rawKey = null;
-      try {
-        rawKey = result.getRow();
-      } catch ( Exception e ) {
-        throw new KettleException( e );
-      }
-
-      Object decodedKey = tableMapping.decodeKeyValue( rawKey );
-      int keyIndex = outputRowMeta.indexOfValue( tableMapping.getKeyName() );
-      outputRowData[keyIndex] = decodedKey;
+      decodePlan = new HBaseRowDecodePlan( tableMapping, userOutputColumns.size(), keyIndex );
 
-      Set<String> aliasSet = columnsMappedByAlias.keySet();
+      for ( HBaseValueMetaInterface currentCol : userOutputColumns ) {
+        if ( !currentCol.isKey() ) {
+          decodePlan.addColumn( currentCol, getOutputIndex( outputRowMeta, currentCol.getAlias() ), bytesUtil );
+        }
+      }
+    } else {
+      // + 1 for the key
+      decodePlan = new HBaseRowDecodePlan( tableMapping, tableMapping.numMappedColumns() + 1,
+          outputRowMeta.indexOfValue( tableMapping.getKeyName() ) );
 
-      for ( String name : aliasSet ) {
-        HBaseValueMetaInterface currentCol = columnsMappedByAlias.get( name );
-        String colFamilyName = currentCol.getColumnFamily();
-        String qualifier = currentCol.getColumnName();
+      for ( Map.Entry<String, HBaseValueMetaInterface> entry : columnsMappedByAlias.entrySet() ) {
+        HBaseValueMetaInterface currentCol = entry.getValue();
         if ( currentCol.isKey() ) {
-          // skip key as it has already been processed 
-          // and is not in the scan's columns 
+          // skip key as it has already been processed
+          // and is not in the scan's columns
           continue;
         }
-
-        boolean binaryColName = false;
-        if ( qualifier.startsWith( "@@@binary@@@" ) ) {
-          qualifier = qualifier.replace( "@@@binary@@@", "" );
-          // assume hex encoded
-          binaryColName = true;
-        }
-
-        byte[] kv = null;
-        try {
-          kv = result.getValue( colFamilyName, qualifier, binaryColName );
-        } catch ( Exception e ) {
-          throw new KettleException( e );
-        }
-
-        int outputIndex = outputRowMeta.indexOfValue( name );
-        if ( outputIndex < 0 ) {
-          throw new KettleException( BaseMessages.getString( HBaseInputMeta.PKG,
-              "HBaseInput.Error.ColumnNotDefinedInOutput", name ) );
-        }
-
-        Object decodedVal = currentCol.decodeColumnValue( ( kv == null ) ? null : kv );
-
-        outputRowData[outputIndex] = decodedVal;
+        decodePlan.addColumn( currentCol, getOutputIndex( outputRowMeta, entry.getKey() ), bytesUtil );
       }
     }
 
-    return outputRowData;
+    return decodePlan;
+  }
+
+  private static int getOutputIndex( RowMetaInterface outputRowMeta, String alias ) throws KettleException {
+    int outputIndex = outputRowMeta.indexOfValue( alias );
+    if ( outputIndex < 0 ) {
+      throw new KettleException( BaseMessages.getString( HBaseInputMeta.PKG,
+          "HBaseInput.Error.ColumnNotDefinedInOutput", alias ) );
+    }
+    return outputIndex;
   }
 }
@@ -143,6 +143,7 @@ public class HBaseInputDialog extends BaseStepDialog implements StepDialogInterf
 
   // Rows to be cached by Scanner
   private TextVar m_scanCacheText;
+  private Button m_splitScanBut;
 
   // Key as a column
   // private Button m_includeKey;
@@ -560,6 +561,31 @@ public class HBaseInputDialog extends BaseStepDialog implements StepDialogInterf
     fd.top = new FormAttachment( m_keyStopText, margin );
     m_scanCacheText.setLayoutData( fd );
 
+    // split the scan across step copies
+    Label splitScanLab = new Label( wConfigComp, SWT.RIGHT );
+    splitScanLab.setText( Messages.getString( "HBaseInputDialog.SplitScan.Label" ) );
+    splitScanLab.setToolTipText( Messages.getString( "HBaseInputDialog.SplitScan.TipText" ) );
+    props.setLook( splitScanLab );
+    fd = new FormData();
+    fd.left = new FormAttachment( 0, 0 );
+    fd.top = new FormAttachment( m_scanCacheText, margin );
+    fd.right = new FormAttachment( middle, -margin );
+    splitScanLab.setLayoutData( fd );
+
+    m_splitScanBut = new Button( wConfigComp, SWT.CHECK );
+    m_splitScanBut.setToolTipText( Messages.getString( "HBaseInputDialog.SplitScan.TipText" ) );
+    props.setLook( m_splitScanBut );
+    fd = new FormData();
+    fd.left = new FormAttachment( middle, 0 );
+    fd.top = new FormAttachment( m_scanCacheText, margin );
+    m_splitScanBut.setLayoutData( fd );
+    m_splitScanBut.addSelectionListener( new SelectionAdapter() {
+      @Override
+      public void widgetSelected( SelectionEvent e ) {
+        m_currentMeta.setChanged();
+      }
+    } );
+
     m_getKeyInfoBut = new Button( wConfigComp, SWT.PUSH );
     m_getKeyInfoBut.setText( "Get Key/Fields Info" );
     props.setLook( m_getKeyInfoBut );
@@ -643,7 +669,7 @@ public class HBaseInputDialog extends BaseStepDialog implements StepDialogInterf
     m_fieldsView = new TableView( transMeta, wConfigComp, SWT.FULL_SELECTION | SWT.MULTI, colinf, 1, lsMod, props );
 
     fd = new FormData();
-    fd.top = new FormAttachment( m_scanCacheText, margin * 2 );
+    fd.top = new FormAttachment( m_splitScanBut, margin * 2 );
     fd.bottom = new FormAttachment( m_getKeyInfoBut, -margin * 2 );
     fd.left = new FormAttachment( 0, 0 );
     fd.right = new FormAttachment( 100, 0 );
@@ -1003,6 +1029,7 @@ public class HBaseInputDialog extends BaseStepDialog implements StepDialogInterf
     m_currentMeta.setKeyStopValue( m_keyStopText.getText() );
     m_currentMeta.setScannerCacheSize( m_scanCacheText.getText() );
     m_currentMeta.setMatchAnyFilter( m_matchAnyBut.getSelection() );
+    m_currentMeta.setSplitScanAcrossCopies( m_splitScanBut.getSelection() );
 
     int numNonEmpty = m_fieldsView.nrNonEmpty();
     if ( numNonEmpty > 0 ) {
@@ -1177,6 +1204,7 @@ public class HBaseInputDialog extends BaseStepDialog implements StepDialogInterf
 
     m_matchAnyBut.setSelection( m_currentMeta.getMatchAnyFilter() );
     m_matchAllBut.setSelection( !m_currentMeta.getMatchAnyFilter() );
+    m_splitScanBut.setSelection( m_currentMeta.getSplitScanAcrossCopies() );
 
     // filters
     if ( m_currentMeta.getColumnFilters() != null && m_currentMeta.getColumnFilters().size() > 0 ) {
@@ -155,6 +155,13 @@ public class HBaseInputMeta extends BaseStepMeta implements StepMetaInterface {
   @Injection( name = "MATCH_ANY_FILTER" )
   protected boolean m_matchAnyFilter;
 
+  /**
+   * If true, and the step is run with multiple copies, then each copy scans its own share of the key range rather
+   * than every copy scanning the whole range
+   */
+  @Injection( name = "SPLIT_SCAN_ACROSS_COPIES" )
+  protected boolean m_splitScanAcrossCopies;
+
   /**
    * The mapping to use if we are not loading one dynamically at runtime from HBase itself
    */
@@ -287,6 +294,25 @@ public class HBaseInputMeta extends BaseStepMeta implements StepMetaInterface {
     return m_matchAnyFilter;
   }
 
+  /**
+   * Set whether the scan should be split across the copies of this step.
+   * 
+   * @param split
+   *          true if each step copy should scan only its own share of the key range
+   */
+  public void setSplitScanAcrossCopies( boolean split ) {
+    m_splitScanAcrossCopies = split;
+  }
+
+  /**
+   * Get whether the scan should be split across the copies of this step.
+   * 
+   * @return true if each step copy scans only its own share of the key range
+   */
+  public boolean getSplitScanAcrossCopies() {
+    return m_splitScanAcrossCopies;
+  }
+
   /**
    * Set the starting value (inclusive) of the key for range scans
    * 
@@ -394,6 +420,7 @@ public class HBaseInputMeta extends BaseStepMeta implements StepMetaInterface {
     m_sourceMappingName = null;
     m_keyStart = null;
     m_keyStop = null;
+    m_splitScanAcrossCopies = false;
     namedCluster = namedClusterService.getClusterTemplate();
   }
 
@@ -575,6 +602,7 @@ public class HBaseInputMeta extends BaseStepMeta implements StepMetaInterface {
     }
 
     retval.append( "\n    " ).append( XMLHandler.addTagValue( "match_any_filter", m_matchAnyFilter ) );
+    retval.append( "\n    " ).append( XMLHandler.addTagValue( "split_scan_across_copies", m_splitScanAcrossCopies ) );
 
     if ( m_mapping != null ) {
       retval.append( m_mapping.getXML() );
@@ -610,6 +638,7 @@ public class HBaseInputMeta extends BaseStepMeta implements StepMetaInterface {
     if ( !Const.isEmpty( m ) ) {
       m_matchAnyFilter = m.equalsIgnoreCase( "Y" );
     }
+    m_splitScanAcrossCopies = "Y".equalsIgnoreCase( XMLHandler.getTagValue( stepnode, "split_scan_across_copies" ) );
 
     m_outputFields = valueMetaInterfaceFactory.createListFromNode( stepnode );
 
@@ -672,6 +701,7 @@ public class HBaseInputMeta extends BaseStepMeta implements StepMetaInterface {
     }
 
     rep.saveStepAttribute( id_transformation, id_step, 0, "match_any_filter", m_matchAnyFilter );
+    rep.saveStepAttribute( id_transformation, id_step, 0, "split_scan_across_copies", m_splitScanAcrossCopies );
 
     if ( m_mapping != null ) {
       m_mapping.saveRep( rep, id_transformation, id_step );
@@ -700,6 +730,7 @@ public class HBaseInputMeta extends BaseStepMeta implements StepMetaInterface {
     m_keyStart = rep.getStepAttributeString( id_step, 0, "key_start" );
     m_keyStop = rep.getStepAttributeString( id_step, 0, "key_stop" );
     m_matchAnyFilter = rep.getStepAttributeBoolean( id_step, 0, "match_any_filter" );
+    m_splitScanAcrossCopies = rep.getStepAttributeBoolean( id_step, 0, "split_scan_across_copies" );
     m_scannerCacheSize = rep.getStepAttributeString( id_step, 0, "scanner_cache_size" );
 
     m_outputFields = valueMetaInterfaceFactory.createListFromRepository( rep, id_step );
@@ -792,7 +823,7 @@ public class HBaseInputMeta extends BaseStepMeta implements StepMetaInterface {
             logBasic( m );
           }
 
-          mappingAdmin = new MappingAdmin( conf );
+          mappingAdmin = new MappingAdmin( conf, namedCluster );
 
           m_cachedMapping = mappingAdmin.getMapping( m_sourceTableName, m_sourceMappingName );
         } catch ( Exception ex ) {
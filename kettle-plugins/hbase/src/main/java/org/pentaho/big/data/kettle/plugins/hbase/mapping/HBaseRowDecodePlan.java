@@ -0,0 +1,195 @@
+/*******************************************************************************
+ *
+ * Pentaho Big Data
+ *
+ * Copyright (C) 2002-2016 by Pentaho : http://www.pentaho.com
+ *
+ *******************************************************************************
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ ******************************************************************************/
+
+package org.pentaho.big.data.kettle.plugins.hbase.mapping;
+
+import org.pentaho.bigdata.api.hbase.ByteConversionUtil;
+import org.pentaho.bigdata.api.hbase.Result;
+import org.pentaho.bigdata.api.hbase.mapping.Mapping;
+import org.pentaho.bigdata.api.hbase.meta.HBaseValueMetaInterface;
+import org.pentaho.di.core.exception.KettleException;
+import org.pentaho.di.core.row.RowDataUtil;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Precompiled plan for decoding HBase rows into Kettle rows according to a (non tuple) mapping. Output indexes are
+ * resolved and column families/qualifiers are encoded once when the plan is built so that decoding a row only involves
+ * byte lookups and value decoding.
+ */
+public class HBaseRowDecodePlan {
+
+  /** Prefix marking a hex encoded (binary) column name in a mapping */
+  public static final String BINARY_COLUMN_NAME_PREFIX = "@@@binary@@@";
+
+  /** The mapping used to decode the key */
+  protected final Mapping m_tableMapping;
+
+  /** Number of fields in the decoded rows */
+  protected final int m_rowSize;
+
+  /** Index in the output row of the key, -1 if the key is not output */
+  protected final int m_keyIndex;
+
+  /** Decoders for the non-key columns */
+  protected final List<ColumnDecoder> m_columnDecoders = new ArrayList<ColumnDecoder>();
+
+  /** Message for failures reading the row key, null to report the underlying exception only */
+  protected String m_rowKeyErrorMessage;
+
+  /** Message for failures reading a column value, null to report the underlying exception only */
+  protected String m_columnValueErrorMessage;
+
+  /**
+   * Constructor
+   * 
+   * @param tableMapping
+   *          the mapping to use for decoding the key
+   * @param rowSize
+   *          the number of fields to allocate for each decoded row
+   * @param keyIndex
+   *          index of the key in the output row, or -1 if the key is not output
+   */
+  public HBaseRowDecodePlan( Mapping tableMapping, int rowSize, int keyIndex ) {
+    m_tableMapping = tableMapping;
+    m_rowSize = rowSize;
+    m_keyIndex = keyIndex;
+  }
+
+  /**
+   * Set the messages used when the row key or a column value can't be read from a row
+   * 
+   * @param rowKeyErrorMessage
+   *          message for row key failures, null to report the underlying exception only
+   * @param columnValueErrorMessage
+   *          message for column value failures, null to report the underlying exception only
+   */
+  public void setErrorMessages( String rowKeyErrorMessage, String columnValueErrorMessage ) {
+    m_rowKeyErrorMessage = rowKeyErrorMessage;
+    m_columnValueErrorMessage = columnValueErrorMessage;
+  }
+
+  /**
+   * Add a non-key column to the plan
+   * 
+   * @param column
+   *          the column from the mapping
+   * @param outputIndex
+   *          the index of the column's value in the output row
+   * @param bytesUtil
+   *          used to encode the column family and qualifier, if null they are looked up by name for every row
+   */
+  public void addColumn( HBaseValueMetaInterface column, int outputIndex, ByteConversionUtil bytesUtil ) {
+    String qualifier = column.getColumnName();
+    boolean binaryQualifier = qualifier.startsWith( BINARY_COLUMN_NAME_PREFIX );
+    if ( binaryQualifier ) {
+      // assume hex encoded
+      qualifier = qualifier.replace( BINARY_COLUMN_NAME_PREFIX, "" );
+    }
+    if ( bytesUtil == null ) {
+      m_columnDecoders.add( new ColumnDecoder( column, qualifier, binaryQualifier, outputIndex ) );
+    } else {
+      byte[] encodedQualifier = binaryQualifier ? bytesUtil.toBytesBinary( qualifier ) : bytesUtil.toBytes( qualifier );
+      m_columnDecoders.add( new ColumnDecoder( column, bytesUtil.toBytes( column.getColumnFamily() ),
+          encodedQualifier, outputIndex ) );
+    }
+  }
+
+  /**
+   * Decode an HBase row into a newly allocated Kettle row
+   * 
+   * @param result
+   *          the HBase row
+   * @return the Kettle row
+   * @throws KettleException
+   *           if a problem occurs
+   */
+  public Object[] decodeRow( Result result ) throws KettleException {
+    Object[] outputRowData = RowDataUtil.allocateRowData( m_rowSize );
+
+    if ( m_keyIndex >= 0 ) {
+      byte[] rawKey = null;
+      try {
+        rawKey = result.getRow();
+      } catch ( Exception e ) {
+        throw newException( m_rowKeyErrorMessage, e );
+      }
+      outputRowData[m_keyIndex] = m_tableMapping.decodeKeyValue( rawKey );
+    }
+
+    for ( int i = 0; i < m_columnDecoders.size(); i++ ) {
+      ColumnDecoder decoder = m_columnDecoders.get( i );
+      byte[] kv = null;
+      try {
+        kv = decoder.getValue( result );
+      } catch ( Exception e ) {
+        throw newException( m_columnValueErrorMessage, e );
+      }
+      outputRowData[decoder.m_outputIndex] = decoder.m_column.decodeColumnValue( kv );
+    }
+
+    return outputRowData;
+  }
+
+  private static KettleException newException( String message, Exception cause ) {
+    return message == null ? new KettleException( cause ) : new KettleException( message, cause );
+  }
+
+  /**
+   * Decodes a single column from an HBase row
+   */
+  protected static class ColumnDecoder {
+    protected final HBaseValueMetaInterface m_column;
+    protected final byte[] m_family;
+    protected final byte[] m_qualifier;
+    protected final String m_qualifierName;
+    protected final boolean m_binaryQualifier;
+    protected final int m_outputIndex;
+
+    protected ColumnDecoder( HBaseValueMetaInterface column, byte[] family, byte[] qualifier, int outputIndex ) {
+      m_column = column;
+      m_family = family;
+      m_qualifier = qualifier;
+      m_qualifierName = null;
+      m_binaryQualifier = false;
+      m_outputIndex = outputIndex;
+    }
+
+    protected ColumnDecoder( HBaseValueMetaInterface column, String qualifierName, boolean binaryQualifier,
+        int outputIndex ) {
+      m_column = column;
+      m_family = null;
+      m_qualifier = null;
+      m_qualifierName = qualifierName;
+      m_binaryQualifier = binaryQualifier;
+      m_outputIndex = outputIndex;
+    }
+
+    protected byte[] getValue( Result result ) {
+      if ( m_family == null ) {
+        return result.getValue( m_column.getColumnFamily(), m_qualifierName, m_binaryQualifier );
+      }
+      return result.getValue( m_family, m_qualifier );
+    }
+  }
+}
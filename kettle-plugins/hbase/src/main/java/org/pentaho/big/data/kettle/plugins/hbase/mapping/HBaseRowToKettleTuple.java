@@ -36,7 +36,6 @@ import org.pentaho.di.core.row.ValueMetaInterface;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
-import java.util.NavigableMap;
 
 /**
  * Class for decoding HBase rows to a <key, family, column, value, time stamp> Kettle row format.
@@ -102,6 +101,21 @@ public class HBaseRowToKettleTuple {
     m_decodedTuples = null;
   }
 
+  /**
+   * Receives the Kettle rows in tuple format decoded from an HBase row
+   */
+  public interface TupleEmitter {
+    /**
+     * Handle a decoded tuple. The tuple is newly allocated and may be passed on (e.g. to putRow) as is.
+     * 
+     * @param tuple
+     *          the Kettle row in tuple format
+     * @throws KettleException
+     *           if a problem occurs
+     */
+    void emitTuple( Object[] tuple ) throws KettleException;
+  }
+
   /**
    * Convert an HBase row to (potentially) multiple Kettle rows in tuple format.
    * 
@@ -119,7 +133,36 @@ public class HBaseRowToKettleTuple {
    */
   public List<Object[]> hbaseRowToKettleTupleMode( HBaseValueMetaInterfaceFactory hBaseValueMetaInterfaceFactory, Result result, Mapping mapping,
                                                    Map<String, HBaseValueMetaInterface> tupleColsMappedByAlias, RowMetaInterface outputRowMeta ) throws KettleException {
+    initTupleColsFromAliasMap( hBaseValueMetaInterfaceFactory, mapping, tupleColsMappedByAlias );
+
+    return hbaseRowToKettleTupleMode( result, mapping, m_tupleColsFromAliasMap, outputRowMeta );
+  }
+
+  /**
+   * Convert an HBase row to (potentially) multiple Kettle rows in tuple format, handing each one to the supplied
+   * emitter as soon as it is decoded.
+   * 
+   * @param mapping
+   *          the mapping information to use (must be a "tuple" mapping)
+   * @param tupleColsMappedByAlias
+   *          the meta data for each of the tuple columns the user has opted to have output
+   * @param outputRowMeta
+   *          the outgoing Kettle row format
+   * @param emitter
+   *          receives the Kettle rows in tuple format
+   * @throws KettleException
+   *           if a problem occurs
+   */
+  public void hbaseRowToKettleTupleMode( HBaseValueMetaInterfaceFactory hBaseValueMetaInterfaceFactory, Result result,
+                                         Mapping mapping, Map<String, HBaseValueMetaInterface> tupleColsMappedByAlias,
+                                         RowMetaInterface outputRowMeta, TupleEmitter emitter ) throws KettleException {
+    initTupleColsFromAliasMap( hBaseValueMetaInterfaceFactory, mapping, tupleColsMappedByAlias );
 
+    hbaseRowToKettleTupleMode( result, mapping, m_tupleColsFromAliasMap, outputRowMeta, emitter );
+  }
+
+  private void initTupleColsFromAliasMap( HBaseValueMetaInterfaceFactory hBaseValueMetaInterfaceFactory,
+                                          Mapping mapping, Map<String, HBaseValueMetaInterface> tupleColsMappedByAlias ) {
     if ( m_decodedTuples == null ) {
       m_tupleColsFromAliasMap = new ArrayList<>();
       // add the key first - type (or name for that matter)
@@ -135,8 +178,6 @@ public class HBaseRowToKettleTuple {
         m_tupleColsFromAliasMap.add( tupleColsMappedByAlias.get( alias ) );
       }
     }
-
-    return hbaseRowToKettleTupleMode( result, mapping, m_tupleColsFromAliasMap, outputRowMeta );
   }
 
   /**
@@ -156,7 +197,84 @@ public class HBaseRowToKettleTuple {
    */
   public List<Object[]> hbaseRowToKettleTupleMode( Result result, Mapping mapping,
                                                    List<HBaseValueMetaInterface> tupleCols, RowMetaInterface outputRowMeta ) throws KettleException {
+    init( mapping, outputRowMeta );
+    m_decodedTuples.clear();
+
+    hbaseRowToKettleTupleMode( result, mapping, tupleCols, outputRowMeta, new TupleEmitter() {
+      @Override public void emitTuple( Object[] tuple ) {
+        m_decodedTuples.add( tuple );
+      }
+    } );
+
+    return m_decodedTuples;
+  }
+
+  /**
+   * Convert an HBase row to (potentially) multiple Kettle rows in tuple format, handing each one to the supplied
+   * emitter as soon as it is decoded. The cells of the row are visited directly rather than through the row's nested
+   * map view.
+   * 
+   * @param mapping
+   *          the mapping information to use (must be a "tuple" mapping)
+   * @param tupleCols
+   *          the meta data for each of the tuple columns the user has opted to have output
+   * @param outputRowMeta
+   *          the outgoing Kettle row format
+   * @param emitter
+   *          receives the Kettle rows in tuple format
+   * @throws KettleException
+   *           if a problem occurs
+   */
+  public void hbaseRowToKettleTupleMode( Result result, Mapping mapping, final List<HBaseValueMetaInterface> tupleCols,
+                                         RowMetaInterface outputRowMeta, final TupleEmitter emitter )
+    throws KettleException {
+    init( mapping, outputRowMeta );
+
+    byte[] rawKey = null;
+    try {
+      rawKey = result.getRow();
+    } catch ( Exception ex ) {
+      throw new KettleException( ex );
+    }
+    final Object decodedKey = mapping.decodeKeyValue( rawKey );
+    final int rowSize = outputRowMeta.size();
+
+    final HBaseValueMetaInterface colFamMeta = m_familyIndex != -1 ? tupleCols.get( m_familyIndex ) : null;
+    final HBaseValueMetaInterface colNameMeta = m_colNameIndex != -1 ? tupleCols.get( m_colNameIndex ) : null;
+    final HBaseValueMetaInterface colValueMeta = m_valueIndex != -1 ? tupleCols.get( m_valueIndex ) : null;
+
+    if ( m_userSpecifiedFamilies != null ) {
+      for ( int i = 0; i < m_userSpecifiedFamilies.size(); i++ ) {
+        final String familyHumanReadable = m_userSpecifiedFamiliesHumanReadable.get( i );
+        result.visitLatestCells( m_userSpecifiedFamilies.get( i ), new Result.CellVisitor() {
+          @Override public void visit( byte[] family, byte[] qualifier, long timestamp, byte[] value )
+            throws KettleException {
+            emitter.emitTuple( createTuple( rowSize, decodedKey, familyHumanReadable, qualifier, timestamp, value,
+              colNameMeta, colValueMeta ) );
+          }
+        } );
+      }
+    } else {
+      // process all column families
+      result.visitLatestCells( null, new Result.CellVisitor() {
+        private byte[] currentFamily;
+        private Object decodedFamily;
+
+        @Override public void visit( byte[] family, byte[] qualifier, long timestamp, byte[] value )
+          throws KettleException {
+          // column family, decoded once per family
+          if ( family != currentFamily ) {
+            currentFamily = family;
+            decodedFamily = colFamMeta != null ? colFamMeta.decodeColumnValue( family ) : null;
+          }
+          emitter.emitTuple( createTuple( rowSize, decodedKey, decodedFamily, qualifier, timestamp, value,
+            colNameMeta, colValueMeta ) );
+        }
+      } );
+    }
+  }
 
+  private void init( Mapping mapping, RowMetaInterface outputRowMeta ) {
     if ( m_decodedTuples == null ) {
       m_decodedTuples = new ArrayList<>();
       m_keyIndex = outputRowMeta.indexOfValue( mapping.getKeyName() );
@@ -175,125 +293,39 @@ public class HBaseRowToKettleTuple {
           m_userSpecifiedFamilies.add( m_bytesUtil.toBytes( family.trim() ) );
         }
       }
-    } else {
-      m_decodedTuples.clear();
     }
+  }
 
-    byte[] rawKey = null;
-    try {
-      rawKey = result.getRow();
-    } catch ( Exception ex ) {
-      throw new KettleException( ex );
-    }
-    Object decodedKey = mapping.decodeKeyValue( rawKey );
+  private Object[] createTuple( int rowSize, Object decodedKey, Object family, byte[] colName, long timestamp,
+                                byte[] value, HBaseValueMetaInterface colNameMeta,
+                                HBaseValueMetaInterface colValueMeta ) throws KettleException {
+    Object[] newTuple = RowDataUtil.allocateRowData( rowSize );
 
-    NavigableMap<byte[], NavigableMap<byte[], NavigableMap<Long, byte[]>>> rowData = null;
-    try {
-      rowData = result.getMap();
-    } catch ( Exception ex ) {
-      throw new KettleException( ex );
+    // row key
+    if ( m_keyIndex != -1 ) {
+      newTuple[m_keyIndex] = decodedKey;
     }
 
-    if ( !Const.isEmpty( mapping.getTupleFamilies() ) ) {
-      int i = 0;
-      for ( byte[] family : m_userSpecifiedFamilies ) {
-        NavigableMap<byte[], NavigableMap<Long, byte[]>> colMap = rowData.get( family );
-        for ( byte[] colName : colMap.keySet() ) {
-          NavigableMap<Long, byte[]> valuesByTimestamp = colMap.get( colName );
-
-          Object[] newTuple = RowDataUtil.allocateRowData( outputRowMeta.size() );
-
-          // row key
-          if ( m_keyIndex != -1 ) {
-            newTuple[m_keyIndex] = decodedKey;
-          }
-
-          // get value of most recent column value
-          Map.Entry<Long, byte[]> mostRecentColVal = valuesByTimestamp.lastEntry();
-
-          // store the timestamp
-          if ( m_timestampIndex != -1 ) {
-            newTuple[m_timestampIndex] = mostRecentColVal.getKey();
-          }
-
-          // column name
-          if ( m_colNameIndex != -1 ) {
-            HBaseValueMetaInterface colNameMeta = tupleCols.get( m_colNameIndex );
-            Object decodedColName = colNameMeta.decodeColumnValue( colName );
-            newTuple[m_colNameIndex] = decodedColName;
-          }
-
-          // column value
-          if ( m_valueIndex != -1 ) {
-            HBaseValueMetaInterface colValueMeta = tupleCols.get( m_valueIndex );
-            Object decodedValue =
-              colValueMeta.decodeColumnValue( mostRecentColVal.getValue() );
-            newTuple[m_valueIndex] = decodedValue;
-          }
-
-          // column family
-          if ( m_familyIndex != -1 ) {
-            newTuple[m_familyIndex] = m_userSpecifiedFamiliesHumanReadable.get( i );
-          }
-
-          m_decodedTuples.add( newTuple );
-        }
-        i++;
-      }
-    } else {
-      // process all column families
-      for ( byte[] family : rowData.keySet() ) {
-
-        // column family
-        Object decodedFamily = null;
-        if ( m_familyIndex != -1 ) {
-          HBaseValueMetaInterface colFamMeta = tupleCols.get( m_familyIndex );
-          decodedFamily = colFamMeta.decodeColumnValue( family );
-        }
-
-        NavigableMap<byte[], NavigableMap<Long, byte[]>> colMap = rowData.get( family );
-        for ( byte[] colName : colMap.keySet() ) {
-          NavigableMap<Long, byte[]> valuesByTimestamp = colMap.get( colName );
-
-          Object[] newTuple = RowDataUtil.allocateRowData( outputRowMeta.size() );
-
-          // row key
-          if ( m_keyIndex != -1 ) {
-            newTuple[m_keyIndex] = decodedKey;
-          }
-
-          // get value of most recent column value
-          Map.Entry<Long, byte[]> mostRecentColVal = valuesByTimestamp.lastEntry();
-
-          // store the timestamp
-          if ( m_timestampIndex != -1 ) {
-            newTuple[m_timestampIndex] = mostRecentColVal.getKey();
-          }
-
-          // column name
-          if ( m_colNameIndex != -1 ) {
-            HBaseValueMetaInterface colNameMeta = tupleCols.get( m_colNameIndex );
-            Object decodedColName = colNameMeta.decodeColumnValue( colName );
-            newTuple[m_colNameIndex] = decodedColName;
-          }
+    // store the timestamp
+    if ( m_timestampIndex != -1 ) {
+      newTuple[m_timestampIndex] = timestamp;
+    }
 
-          // column value
-          if ( m_valueIndex != -1 ) {
-            HBaseValueMetaInterface colValueMeta = tupleCols.get( m_valueIndex );
-            Object decodedValue = colValueMeta.decodeColumnValue( mostRecentColVal.getValue() );
-            newTuple[m_valueIndex] = decodedValue;
-          }
+    // column name
+    if ( colNameMeta != null ) {
+      newTuple[m_colNameIndex] = colNameMeta.decodeColumnValue( colName );
+    }
 
-          // column family
-          if ( m_familyIndex != -1 ) {
-            newTuple[m_familyIndex] = decodedFamily;
-          }
+    // column value
+    if ( colValueMeta != null ) {
+      newTuple[m_valueIndex] = colValueMeta.decodeColumnValue( value );
+    }
 
-          m_decodedTuples.add( newTuple );
-        }
-      }
+    // column family
+    if ( m_familyIndex != -1 ) {
+      newTuple[m_familyIndex] = family;
     }
 
-    return m_decodedTuples;
+    return newTuple;
   }
 }
@@ -22,6 +22,8 @@
 
 package org.pentaho.big.data.kettle.plugins.hbase.mapping;
 
+import com.google.common.annotations.VisibleForTesting;
+import org.pentaho.big.data.api.cluster.NamedCluster;
 import org.pentaho.bigdata.api.hbase.ByteConversionUtil;
 import org.pentaho.bigdata.api.hbase.HBaseConnection;
 import org.pentaho.bigdata.api.hbase.HBaseService;
@@ -49,9 +51,11 @@ import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.NavigableMap;
+import java.util.Properties;
 import java.util.Random;
 import java.util.Set;
 import java.util.TreeMap;
+import java.util.concurrent.Callable;
 
 /**
  * Class for managing a mapping table in HBase. Has routines for creating the mapping table, writing and reading
@@ -69,6 +73,12 @@ public class MappingAdmin implements Closeable {
   private final HBaseConnection hBaseConnection;
   private final HBaseService hBaseService;
 
+  /** Name of the named cluster the connection is for, null if mappings read shouldn't be cached */
+  private final String clusterName;
+  /** Resolved connection properties, cached mappings are only shared by connections with the same ones */
+  private final Properties connectionProperties;
+  private final MappingCache mappingCache;
+
   /** Name of the mapping table (might make this configurable at some stage) */
   protected String m_mappingTableName = "pentaho_mappings";
 
@@ -105,8 +115,29 @@ public class MappingAdmin implements Closeable {
    *           if a problem occurs
    */
   public MappingAdmin( HBaseConnection hBaseConnection ) {
+    this( hBaseConnection, null, MappingCache.getInstance() );
+  }
+
+  /**
+   * Constructor
+   *
+   * @param hBaseConnection
+   *          the connection to use
+   * @param namedCluster
+   *          the named cluster the connection is for. Mappings read are shared through the process wide mapping cache
+   *          with other admins for the same cluster, null disables this
+   */
+  public MappingAdmin( HBaseConnection hBaseConnection, NamedCluster namedCluster ) {
+    this( hBaseConnection, namedCluster == null ? null : namedCluster.getName(), MappingCache.getInstance() );
+  }
+
+  @VisibleForTesting
+  MappingAdmin( HBaseConnection hBaseConnection, String clusterName, MappingCache mappingCache ) {
     this.hBaseConnection = hBaseConnection;
     this.hBaseService = hBaseConnection.getService();
+    this.clusterName = clusterName;
+    this.connectionProperties = clusterName == null ? null : hBaseConnection.getConnectionProperties();
+    this.mappingCache = mappingCache;
   }
 
   /**
@@ -590,6 +621,7 @@ public class MappingAdmin implements Closeable {
 
         hBaseTableWriteOperationManager.createDelete( byteConversionUtil.compoundKey( tableName, mappingName ) )
           .execute();
+        mappingCache.invalidate( m_mappingTableName, tableName, mappingName );
         return true;
       }
     }
@@ -720,6 +752,8 @@ public class MappingAdmin implements Closeable {
       // add the row
       hBasePut.execute();
       writeOperationManager.flushCommits();
+    } finally {
+      mappingCache.invalidate( m_mappingTableName, tableName, mappingName );
     }
   }
 
@@ -764,10 +798,26 @@ public class MappingAdmin implements Closeable {
    * @throws Exception
    *           if a mapping by the given name does not exist for the given table
    */
-  public Mapping getMapping( String tableName, String mappingName ) throws Exception {
+  public Mapping getMapping( final String tableName, final String mappingName ) throws Exception {
+    MappingCache.MappingRow mappingRow;
+    if ( clusterName == null ) {
+      mappingRow = readMappingRow( tableName, mappingName );
+    } else {
+      mappingRow = mappingCache.get( clusterName, connectionProperties, m_mappingTableName, tableName, mappingName,
+        new Callable<MappingCache.MappingRow>() {
+          @Override public MappingCache.MappingRow call() throws Exception {
+            return readMappingRow( tableName, mappingName );
+          }
+        } );
+    }
+    return createMapping( tableName, mappingName, mappingRow );
+  }
+
+  /**
+   * Reads the row for a mapping from the mapping table
+   */
+  private MappingCache.MappingRow readMappingRow( String tableName, String mappingName ) throws Exception {
     ByteConversionUtil byteConversionUtil = hBaseService.getByteConversionUtil();
-    MappingFactory mappingFactory = hBaseService.getMappingFactory();
-    HBaseValueMetaInterfaceFactory valueMetaInterfaceFactory = hBaseService.getHBaseValueMetaInterfaceFactory();
     try ( HBaseTable hBaseTable = hBaseConnection.getTable( m_mappingTableName ) ) {
       if ( !hBaseTable.exists() ) {
 
@@ -787,137 +837,149 @@ public class MappingAdmin implements Closeable {
         throw new IOException( "Mapping \"" + tableName + "," + mappingName + "\" does not exist!" );
       }
 
-      NavigableMap<byte[], byte[]> colsInKeyFamily = result.getFamilyMap( KEY_FAMILY_NAME );
+      return new MappingCache.MappingRow( result.getFamilyMap( KEY_FAMILY_NAME ),
+        result.getFamilyMap( COLUMNS_FAMILY_NAME ) );
+    }
+  }
 
-      Set<byte[]> keyCols = colsInKeyFamily.keySet();
-      // should only be one key defined!!
-      if ( keyCols.size() != 1 ) {
-        throw new IOException( "Mapping \"" + tableName + "," + mappingName + "\" has more than one key defined!" );
-      }
+  /**
+   * Builds a mapping from its row in the mapping table
+   */
+  private Mapping createMapping( String tableName, String mappingName, MappingCache.MappingRow mappingRow )
+    throws Exception {
+    ByteConversionUtil byteConversionUtil = hBaseService.getByteConversionUtil();
+    MappingFactory mappingFactory = hBaseService.getMappingFactory();
+    HBaseValueMetaInterfaceFactory valueMetaInterfaceFactory = hBaseService.getHBaseValueMetaInterfaceFactory();
+    NavigableMap<byte[], byte[]> colsInKeyFamily = mappingRow.getKeyFamily();
 
-      byte[] keyNameB = keyCols.iterator().next();
-      String decodedKeyName = byteConversionUtil.toString( keyNameB );
-      byte[] keyTypeB = colsInKeyFamily.get( keyNameB );
-      String decodedKeyType = byteConversionUtil.toString( keyTypeB );
-      Mapping.KeyType keyType = null;
+    Set<byte[]> keyCols = colsInKeyFamily.keySet();
+    // should only be one key defined!!
+    if ( keyCols.size() != 1 ) {
+      throw new IOException( "Mapping \"" + tableName + "," + mappingName + "\" has more than one key defined!" );
+    }
 
-      for ( Mapping.KeyType t : Mapping.KeyType.values() ) {
-        if ( decodedKeyType.equalsIgnoreCase( t.toString() ) ) {
-          keyType = t;
-          break;
-        }
-      }
+    byte[] keyNameB = keyCols.iterator().next();
+    String decodedKeyName = byteConversionUtil.toString( keyNameB );
+    byte[] keyTypeB = colsInKeyFamily.get( keyNameB );
+    String decodedKeyType = byteConversionUtil.toString( keyTypeB );
+    Mapping.KeyType keyType = null;
 
-      if ( keyType == null ) {
-        throw new IOException( "Unrecognized type for the key column in \"" + compoundKey + "\"" );
+    for ( Mapping.KeyType t : Mapping.KeyType.values() ) {
+      if ( decodedKeyType.equalsIgnoreCase( t.toString() ) ) {
+        keyType = t;
+        break;
       }
+    }
 
-      String tupleFamilies = "";
-      boolean isTupleMapping = false;
-      if ( decodedKeyName.indexOf( ',' ) > 0 ) {
+    if ( keyType == null ) {
+      throw new IOException( "Unrecognized type for the key column in \"" + tableName + "," + mappingName + "\"" );
+    }
 
-        isTupleMapping = true;
+    String tupleFamilies = "";
+    boolean isTupleMapping = false;
+    if ( decodedKeyName.indexOf( ',' ) > 0 ) {
 
-        if ( decodedKeyName.indexOf( ',' ) != decodedKeyName.length() - 1 ) {
-          tupleFamilies = decodedKeyName.substring( decodedKeyName.indexOf( ',' ) + 1, decodedKeyName.length() );
-        }
-        decodedKeyName = decodedKeyName.substring( 0, decodedKeyName.indexOf( ',' ) );
-      }
+      isTupleMapping = true;
 
-      Mapping resultMapping = mappingFactory.createMapping( tableName, mappingName, decodedKeyName, keyType );
-      resultMapping.setTupleMapping( isTupleMapping );
-      if ( !Const.isEmpty( tupleFamilies ) ) {
-        resultMapping.setTupleFamilies( tupleFamilies );
+      if ( decodedKeyName.indexOf( ',' ) != decodedKeyName.length() - 1 ) {
+        tupleFamilies = decodedKeyName.substring( decodedKeyName.indexOf( ',' ) + 1, decodedKeyName.length() );
       }
+      decodedKeyName = decodedKeyName.substring( 0, decodedKeyName.indexOf( ',' ) );
+    }
 
-      Map<String, HBaseValueMetaInterface> resultCols = new TreeMap<String, HBaseValueMetaInterface>();
+    Mapping resultMapping = mappingFactory.createMapping( tableName, mappingName, decodedKeyName, keyType );
+    resultMapping.setTupleMapping( isTupleMapping );
+    if ( !Const.isEmpty( tupleFamilies ) ) {
+      resultMapping.setTupleFamilies( tupleFamilies );
+    }
 
-      // now process the mapping
-      NavigableMap<byte[], byte[]> colsInMapping = result.getFamilyMap( COLUMNS_FAMILY_NAME );
+    Map<String, HBaseValueMetaInterface> resultCols = new TreeMap<String, HBaseValueMetaInterface>();
 
-      Set<byte[]> colNames = colsInMapping.keySet();
+    // now process the mapping
+    NavigableMap<byte[], byte[]> colsInMapping = mappingRow.getColumnsFamily();
 
-      for ( byte[] b : colNames ) {
-        String decodedName = byteConversionUtil.toString( b );
-        byte[] c = colsInMapping.get( b );
-        if ( c == null ) {
-          throw new IOException( "No type declaration for column \"" + decodedName + "\"" );
-        }
+    Set<byte[]> colNames = colsInMapping.keySet();
 
-        String decodedType = byteConversionUtil.toString( c );
-
-        HBaseValueMetaInterface newMeta = null;
-        if ( decodedType.equalsIgnoreCase( "Float" ) ) {
-          newMeta = valueMetaInterfaceFactory
-            .createHBaseValueMetaInterface( decodedName, ValueMetaInterface.TYPE_NUMBER, -1, -1 );
-
-          // While passing through Kettle this will be represented
-          // as a double
-          newMeta.setIsLongOrDouble( false );
-        } else if ( decodedType.equalsIgnoreCase( "Double" ) ) {
-          newMeta = valueMetaInterfaceFactory
-            .createHBaseValueMetaInterface( decodedName, ValueMetaInterface.TYPE_NUMBER, -1, -1 );
-        } else if ( decodedType.equalsIgnoreCase( "String" ) ) {
-          newMeta = valueMetaInterfaceFactory
-            .createHBaseValueMetaInterface( decodedName, ValueMetaInterface.TYPE_STRING, -1, -1 );
-        } else if ( decodedType.toLowerCase().startsWith( "date" ) ) {
-          newMeta = valueMetaInterfaceFactory
-            .createHBaseValueMetaInterface( decodedName, ValueMetaInterface.TYPE_DATE, -1, -1 );
-        } else if ( decodedType.equalsIgnoreCase( "Boolean" ) ) {
-          newMeta = valueMetaInterfaceFactory
-            .createHBaseValueMetaInterface( decodedName, ValueMetaInterface.TYPE_BOOLEAN, -1, -1 );
-        } else if ( decodedType.equalsIgnoreCase( "Integer" ) ) {
-          newMeta = valueMetaInterfaceFactory
-            .createHBaseValueMetaInterface( decodedName, ValueMetaInterface.TYPE_INTEGER, -1, -1 );
-
-          // Integer in the mapping is really an integer (not a long
-          // as Kettle uses internally)
-          newMeta.setIsLongOrDouble( false );
-        } else if ( decodedType.equalsIgnoreCase( "Long" ) ) {
-          newMeta = valueMetaInterfaceFactory
-            .createHBaseValueMetaInterface( decodedName, ValueMetaInterface.TYPE_INTEGER, -1, -1 );
-        } else if ( decodedType.equalsIgnoreCase( "BigNumber" ) ) {
-          newMeta = valueMetaInterfaceFactory
-            .createHBaseValueMetaInterface( decodedName, ValueMetaInterface.TYPE_BIGNUMBER, -1, -1 );
-        } else if ( decodedType.equalsIgnoreCase( "Serializable" ) ) {
-          newMeta = valueMetaInterfaceFactory
-            .createHBaseValueMetaInterface( decodedName, ValueMetaInterface.TYPE_SERIALIZABLE, -1, -1 );
-        } else if ( decodedType.equalsIgnoreCase( "Binary" ) ) {
-          newMeta = valueMetaInterfaceFactory
-            .createHBaseValueMetaInterface( decodedName, ValueMetaInterface.TYPE_BINARY, -1, -1 );
-        } else if ( decodedType.startsWith( "{" ) && decodedType.endsWith( "}" ) ) {
-          newMeta = valueMetaInterfaceFactory
-            .createHBaseValueMetaInterface( decodedName, ValueMetaInterface.TYPE_STRING, -1, -1 );
-
-          Object[] labels = null;
-          try {
-            labels = byteConversionUtil.stringIndexListToObjects( decodedType );
-          } catch ( IllegalArgumentException ex ) {
-            throw new IOException( "Indexed/nominal type must have at least one " + "label declared" );
-          }
-          newMeta.setIndex( labels );
-          newMeta.setStorageType( ValueMetaInterface.STORAGE_TYPE_INDEXED );
-        } else {
-          throw new IOException( "Unknown column type : \"" + decodedType + "\"" );
-        }
+    for ( byte[] b : colNames ) {
+      String decodedName = byteConversionUtil.toString( b );
+      byte[] c = colsInMapping.get( b );
+      if ( c == null ) {
+        throw new IOException( "No type declaration for column \"" + decodedName + "\"" );
+      }
 
-        newMeta.setTableName( tableName );
-        newMeta.setMappingName( mappingName );
-        // check that this one doesn't have the same name as the key!
-        String alias = newMeta.getAlias();
-        if ( !Mapping.TupleMapping.KEY.toString().equalsIgnoreCase( alias ) ) {
-          if ( resultMapping.getKeyName().equals( alias ) ) {
-            throw new IOException( "Error in mapping. Column \"" + newMeta.getAlias()
-              + "\" has the same name as the table key (" + resultMapping.getKeyName() + ")" );
-          } else {
-            resultCols.put( newMeta.getAlias(), newMeta );
-          }
+      String decodedType = byteConversionUtil.toString( c );
+
+      HBaseValueMetaInterface newMeta = null;
+      if ( decodedType.equalsIgnoreCase( "Float" ) ) {
+        newMeta = valueMetaInterfaceFactory
+          .createHBaseValueMetaInterface( decodedName, ValueMetaInterface.TYPE_NUMBER, -1, -1 );
+
+        // While passing through Kettle this will be represented
+        // as a double
+        newMeta.setIsLongOrDouble( false );
+      } else if ( decodedType.equalsIgnoreCase( "Double" ) ) {
+        newMeta = valueMetaInterfaceFactory
+          .createHBaseValueMetaInterface( decodedName, ValueMetaInterface.TYPE_NUMBER, -1, -1 );
+      } else if ( decodedType.equalsIgnoreCase( "String" ) ) {
+        newMeta = valueMetaInterfaceFactory
+          .createHBaseValueMetaInterface( decodedName, ValueMetaInterface.TYPE_STRING, -1, -1 );
+      } else if ( decodedType.toLowerCase().startsWith( "date" ) ) {
+        newMeta = valueMetaInterfaceFactory
+          .createHBaseValueMetaInterface( decodedName, ValueMetaInterface.TYPE_DATE, -1, -1 );
+      } else if ( decodedType.equalsIgnoreCase( "Boolean" ) ) {
+        newMeta = valueMetaInterfaceFactory
+          .createHBaseValueMetaInterface( decodedName, ValueMetaInterface.TYPE_BOOLEAN, -1, -1 );
+      } else if ( decodedType.equalsIgnoreCase( "Integer" ) ) {
+        newMeta = valueMetaInterfaceFactory
+          .createHBaseValueMetaInterface( decodedName, ValueMetaInterface.TYPE_INTEGER, -1, -1 );
+
+        // Integer in the mapping is really an integer (not a long
+        // as Kettle uses internally)
+        newMeta.setIsLongOrDouble( false );
+      } else if ( decodedType.equalsIgnoreCase( "Long" ) ) {
+        newMeta = valueMetaInterfaceFactory
+          .createHBaseValueMetaInterface( decodedName, ValueMetaInterface.TYPE_INTEGER, -1, -1 );
+      } else if ( decodedType.equalsIgnoreCase( "BigNumber" ) ) {
+        newMeta = valueMetaInterfaceFactory
+          .createHBaseValueMetaInterface( decodedName, ValueMetaInterface.TYPE_BIGNUMBER, -1, -1 );
+      } else if ( decodedType.equalsIgnoreCase( "Serializable" ) ) {
+        newMeta = valueMetaInterfaceFactory
+          .createHBaseValueMetaInterface( decodedName, ValueMetaInterface.TYPE_SERIALIZABLE, -1, -1 );
+      } else if ( decodedType.equalsIgnoreCase( "Binary" ) ) {
+        newMeta = valueMetaInterfaceFactory
+          .createHBaseValueMetaInterface( decodedName, ValueMetaInterface.TYPE_BINARY, -1, -1 );
+      } else if ( decodedType.startsWith( "{" ) && decodedType.endsWith( "}" ) ) {
+        newMeta = valueMetaInterfaceFactory
+          .createHBaseValueMetaInterface( decodedName, ValueMetaInterface.TYPE_STRING, -1, -1 );
+
+        Object[] labels = null;
+        try {
+          labels = byteConversionUtil.stringIndexListToObjects( decodedType );
+        } catch ( IllegalArgumentException ex ) {
+          throw new IOException( "Indexed/nominal type must have at least one " + "label declared" );
         }
+        newMeta.setIndex( labels );
+        newMeta.setStorageType( ValueMetaInterface.STORAGE_TYPE_INDEXED );
+      } else {
+        throw new IOException( "Unknown column type : \"" + decodedType + "\"" );
       }
 
-      resultMapping.setMappedColumns( resultCols );
-      return resultMapping;
+      newMeta.setTableName( tableName );
+      newMeta.setMappingName( mappingName );
+      // check that this one doesn't have the same name as the key!
+      String alias = newMeta.getAlias();
+      if ( !Mapping.TupleMapping.KEY.toString().equalsIgnoreCase( alias ) ) {
+        if ( resultMapping.getKeyName().equals( alias ) ) {
+          throw new IOException( "Error in mapping. Column \"" + newMeta.getAlias()
+            + "\" has the same name as the table key (" + resultMapping.getKeyName() + ")" );
+        } else {
+          resultCols.put( newMeta.getAlias(), newMeta );
+        }
+      }
     }
+
+    resultMapping.setMappedColumns( resultCols );
+    return resultMapping;
   }
 
   @Override public void close() throws IOException {
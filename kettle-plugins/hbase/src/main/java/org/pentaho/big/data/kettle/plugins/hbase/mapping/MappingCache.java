@@ -0,0 +1,222 @@
+/*******************************************************************************
+ *
+ * Pentaho Big Data
+ *
+ * Copyright (C) 2002-2016 by Pentaho : http://www.pentaho.com
+ *
+ *******************************************************************************
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ ******************************************************************************/
+
+package org.pentaho.big.data.kettle.plugins.hbase.mapping;
+
+import org.pentaho.di.core.Const;
+
+import java.util.Iterator;
+import java.util.NavigableMap;
+import java.util.Properties;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Process wide cache of the rows read from the mapping table, keyed by named cluster, the resolved connection
+ * properties (ZooKeeper settings and site/default configuration overrides), mapping table, table and mapping name, so
+ * steps that point the same named cluster at different HBase instances don't share mappings. Entries expire after a
+ * TTL and are invalidated whenever a mapping is written or deleted through a MappingAdmin. Concurrent loads of the same
+ * mapping are collapsed into a single read from HBase.
+ * <p/>
+ * The raw rows are cached rather than Mapping objects, callers always get a freshly built (and so freely modifiable)
+ * Mapping.
+ */
+public class MappingCache {
+  /**
+   * Property for the time in milliseconds a mapping is cached for, 0 or less disables caching
+   */
+  public static final String TTL_MILLIS_KEY = "pentaho.hbase.mapping.cache.ttl.millis";
+  public static final long DEFAULT_TTL_MILLIS = TimeUnit.MINUTES.toMillis( 5 );
+
+  private static final MappingCache INSTANCE =
+    new MappingCache( Const.toLong( System.getProperty( TTL_MILLIS_KEY ), DEFAULT_TTL_MILLIS ) );
+
+  private final ConcurrentMap<Key, Entry> entries = new ConcurrentHashMap<Key, Entry>();
+  private final long ttlNanos;
+
+  public MappingCache( long ttlMillis ) {
+    this.ttlNanos = TimeUnit.MILLISECONDS.toNanos( ttlMillis );
+  }
+
+  public static MappingCache getInstance() {
+    return INSTANCE;
+  }
+
+  /**
+   * Gets a mapping row, loading it if it isn't cached or has expired
+   *
+   * @param clusterName      the named cluster the mapping table is on
+   * @param connectionProps  the resolved properties of the connection the mapping is read through
+   * @param mappingTableName the name of the mapping table
+   * @param tableName        the table the mapping is for
+   * @param mappingName      the name of the mapping
+   * @param loader           reads the mapping row from HBase
+   * @return the mapping row
+   * @throws Exception if the load fails, failures are not cached
+   */
+  public MappingRow get( String clusterName, Properties connectionProps, String mappingTableName, String tableName,
+                         String mappingName, Callable<MappingRow> loader ) throws Exception {
+    if ( ttlNanos <= 0 ) {
+      return loader.call();
+    }
+    Key key = new Key( clusterName, connectionProps, mappingTableName, tableName, mappingName );
+    while ( true ) {
+      Entry existing = entries.get( key );
+      if ( existing != null && !existing.isExpired( System.nanoTime(), ttlNanos ) ) {
+        return existing.get( key );
+      }
+      Entry created = new Entry( loader );
+      boolean installed =
+        existing == null ? entries.putIfAbsent( key, created ) == null : entries.replace( key, existing, created );
+      if ( installed ) {
+        created.task.run();
+        return created.get( key );
+      }
+    }
+  }
+
+  /**
+   * Invalidates a mapping on every cluster, used when it has been written or deleted
+   *
+   * @param mappingTableName the name of the mapping table
+   * @param tableName        the table the mapping is for
+   * @param mappingName      the name of the mapping
+   */
+  public void invalidate( String mappingTableName, String tableName, String mappingName ) {
+    for ( Iterator<Key> iterator = entries.keySet().iterator(); iterator.hasNext(); ) {
+      Key key = iterator.next();
+      if ( key.matches( mappingTableName, tableName, mappingName ) ) {
+        iterator.remove();
+      }
+    }
+  }
+
+  public void invalidateAll() {
+    entries.clear();
+  }
+
+  int size() {
+    return entries.size();
+  }
+
+  /**
+   * The key and column families of a mapping's row in the mapping table
+   */
+  public static class MappingRow {
+    private final NavigableMap<byte[], byte[]> keyFamily;
+    private final NavigableMap<byte[], byte[]> columnsFamily;
+
+    public MappingRow( NavigableMap<byte[], byte[]> keyFamily, NavigableMap<byte[], byte[]> columnsFamily ) {
+      this.keyFamily = keyFamily;
+      this.columnsFamily = columnsFamily;
+    }
+
+    public NavigableMap<byte[], byte[]> getKeyFamily() {
+      return keyFamily;
+    }
+
+    public NavigableMap<byte[], byte[]> getColumnsFamily() {
+      return columnsFamily;
+    }
+  }
+
+  private class Entry {
+    private final long created = System.nanoTime();
+    private final FutureTask<MappingRow> task;
+
+    private Entry( Callable<MappingRow> loader ) {
+      this.task = new FutureTask<MappingRow>( loader );
+    }
+
+    private boolean isExpired( long now, long ttl ) {
+      return now - created > ttl;
+    }
+
+    private MappingRow get( Key key ) throws Exception {
+      try {
+        return task.get();
+      } catch ( ExecutionException e ) {
+        // don't cache failures, the next caller tries again
+        entries.remove( key, this );
+        Throwable cause = e.getCause();
+        if ( cause instanceof Exception ) {
+          throw (Exception) cause;
+        }
+        throw e;
+      }
+    }
+  }
+
+  private static class Key {
+    private final String clusterName;
+    private final Properties connectionProps;
+    private final String mappingTableName;
+    private final String tableName;
+    private final String mappingName;
+
+    private Key( String clusterName, Properties connectionProps, String mappingTableName, String tableName,
+                 String mappingName ) {
+      this.clusterName = clusterName;
+      this.connectionProps = new Properties();
+      if ( connectionProps != null ) {
+        this.connectionProps.putAll( connectionProps );
+      }
+      this.mappingTableName = mappingTableName;
+      this.tableName = tableName;
+      this.mappingName = mappingName;
+    }
+
+    private boolean matches( String mappingTableName, String tableName, String mappingName ) {
+      return eq( this.mappingTableName, mappingTableName ) && eq( this.tableName, tableName ) && eq( this.mappingName,
+        mappingName );
+    }
+
+    private static boolean eq( String left, String right ) {
+      return left == null ? right == null : left.equals( right );
+    }
+
+    @Override public boolean equals( Object o ) {
+      if ( this == o ) {
+        return true;
+      }
+      if ( o == null || getClass() != o.getClass() ) {
+        return false;
+      }
+      Key key = (Key) o;
+      return eq( clusterName, key.clusterName ) && connectionProps.equals( key.connectionProps )
+        && matches( key.mappingTableName, key.tableName, key.mappingName );
+    }
+
+    @Override public int hashCode() {
+      int result = clusterName != null ? clusterName.hashCode() : 0;
+      result = 31 * result + connectionProps.hashCode();
+      result = 31 * result + ( mappingTableName != null ? mappingTableName.hashCode() : 0 );
+      result = 31 * result + ( tableName != null ? tableName.hashCode() : 0 );
+      result = 31 * result + ( mappingName != null ? mappingName.hashCode() : 0 );
+      return result;
+    }
+  }
+}
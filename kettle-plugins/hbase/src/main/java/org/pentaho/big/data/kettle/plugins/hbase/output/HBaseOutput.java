@@ -59,11 +59,18 @@ import org.pentaho.di.trans.step.StepMetaInterface;
  */
 public class HBaseOutput extends BaseStep implements StepInterface {
 
+  /**
+   * Client side write buffer used by the async writer when none is configured, large enough that a batch is sent in
+   * one go when the writer flushes it
+   */
+  static final long ASYNC_WRITE_BUFFER_SIZE = 64L * 1024L * 1024L;
+
   protected HBaseOutputMeta m_meta;
   protected HBaseOutputData m_data;
   private final NamedClusterServiceLocator namedClusterServiceLocator;
   private HBaseService hBaseService;
   private HBaseTableWriteOperationManager targetTableWriteOperationManager;
+  private HBaseOutputAsyncWriter asyncWriter;
 
   public HBaseOutput( StepMeta stepMeta, StepDataInterface stepDataInterface, int copyNr, TransMeta transMeta,
                       Trans trans, NamedClusterServiceLocator namedClusterServiceLocator ) {
@@ -104,37 +111,20 @@ public class HBaseOutput extends BaseStep implements StepInterface {
       // clean up/close connections etc.
       // target table will be null if we haven't seen any input
       if ( targetTable != null ) {
-        if ( targetTableWriteOperationManager != null ) {
-          try {
-            if ( !targetTableWriteOperationManager.isAutoFlush() ) {
-              logBasic( BaseMessages.getString( HBaseOutputMeta.PKG, "HBaseOutput.FlushingWriteBuffer" ) );
-              targetTableWriteOperationManager.flushCommits();
-            }
-          } catch ( Exception ex ) {
-            throw new KettleException( BaseMessages.getString( HBaseOutputMeta.PKG,
-              "HBaseOutput.Error.ProblemFlushingBufferedData", ex.getMessage() ), ex );
-          } finally {
-            try {
-              targetTableWriteOperationManager.close();
-            } catch ( IOException e ) {
-              // Ignore
+        boolean finished = false;
+        try {
+          finishWrites();
+          finished = true;
+        } finally {
+          // m_hbAdmin holds on to a shared connection pool, it is released even if the writes failed
+          KettleException closeException = closeTargetTable();
+          if ( closeException != null ) {
+            if ( finished ) {
+              throw closeException;
             }
+            logError( closeException.getMessage(), closeException );
           }
         }
-        try {
-          targetTable.close();
-        } catch ( IOException e ) {
-          //Ignore
-        }
-
-        try {
-          logBasic( BaseMessages.getString( HBaseOutputMeta.PKG, "HBaseOutput.ClosingConnectionToTable" ) );
-          targetTable = null;
-          m_hbAdmin.close();
-        } catch ( Exception ex ) {
-          throw new KettleException( BaseMessages.getString( HBaseOutputMeta.PKG,
-              "HBaseOutput.Error.ProblemWhenClosingConnection", ex.getMessage() ), ex );
-        }
       }
 
       setOutputDone();
@@ -166,7 +156,7 @@ public class HBaseOutput extends BaseStep implements StepInterface {
             "HBaseOutput.Error.UnableToObtainConnection", ex.getMessage() ), ex );
       }
       try {
-        m_mappingAdmin = new MappingAdmin( m_hbAdmin );
+        m_mappingAdmin = new MappingAdmin( m_hbAdmin, m_meta.getNamedCluster() );
       } catch ( Exception ex ) {
         throw new KettleException( BaseMessages.getString( HBaseOutputMeta.PKG,
             "HBaseOutput.Error.UnableToObtainConnection", ex.getMessage() ), ex );
@@ -261,8 +251,25 @@ public class HBaseOutput extends BaseStep implements StepInterface {
           if ( m_meta.getDisableWriteToWAL() ) {
             logBasic( BaseMessages.getString( HBaseOutputMeta.PKG, "HBaseOutput.DisablingWriteToWAL" ) );
           }
+        } else if ( m_meta.getAsyncWrite() ) {
+          // Batches are only sent as one mutation list when auto flush is off
+          writeBufferSize = ASYNC_WRITE_BUFFER_SIZE;
         }
         targetTableWriteOperationManager = targetTable.createWriteOperationManager( writeBufferSize );
+
+        if ( m_meta.getAsyncWrite() ) {
+          int batchSize = Const.toInt( environmentSubstitute( m_meta.getAsyncBatchSize() ),
+            Integer.parseInt( HBaseOutputMeta.DEFAULT_ASYNC_BATCH_SIZE ) );
+          long flushInterval = Const.toLong( environmentSubstitute( m_meta.getAsyncFlushInterval() ),
+            Long.parseLong( HBaseOutputMeta.DEFAULT_ASYNC_FLUSH_INTERVAL ) );
+          int maxInFlightBatches = Const.toInt( environmentSubstitute( m_meta.getAsyncMaxInFlightBatches() ),
+            Integer.parseInt( HBaseOutputMeta.DEFAULT_ASYNC_MAX_IN_FLIGHT_BATCHES ) );
+          logBasic( BaseMessages.getString( HBaseOutputMeta.PKG, "HBaseOutput.UsingAsyncWriter", batchSize,
+            flushInterval, maxInFlightBatches ) );
+          asyncWriter =
+            new HBaseOutputAsyncWriter( getStepname() + "." + getCopy(), targetTableWriteOperationManager, batchSize,
+              flushInterval, maxInFlightBatches );
+        }
       } catch ( Exception e ) {
         throw new KettleException( BaseMessages.getString( HBaseOutputMeta.PKG,
             "HBaseOutput.Error.ProblemConnectingToTargetTable", e.getMessage() ), e );
@@ -300,17 +307,15 @@ public class HBaseOutput extends BaseStep implements StepInterface {
     HBaseOutputData.addColumnsToPut( getInputRowMeta(), r, m_incomingKeyIndex, m_columnsMappedByAlias, hBasePut,
         m_bytesUtil );
 
-    try {
-      hBasePut.execute();
-    } catch ( Exception e ) {
-      String errorDescriptions =
-          BaseMessages
-              .getString( HBaseOutputMeta.PKG, "HBaseOutput.Error.ProblemInsertingRowIntoHBase", e.getMessage() );
-      if ( getStepMeta().isDoingErrorHandling() ) {
-        String errorFields = "Unknown";
-        putError( getInputRowMeta(), r, 1, errorDescriptions, errorFields, "HBaseOutput002" );
-      } else {
-        throw new KettleException( errorDescriptions, e );
+    if ( asyncWriter != null ) {
+      // downstream steps may append to the row in place, keep our own copy in case the put fails
+      asyncWriter.add( hBasePut, getStepMeta().isDoingErrorHandling() ? r.clone() : r );
+      handleAsyncFailures( asyncWriter );
+    } else {
+      try {
+        hBasePut.execute();
+      } catch ( Exception e ) {
+        handlePutFailure( r, e );
       }
     }
 
@@ -328,6 +333,84 @@ public class HBaseOutput extends BaseStep implements StepInterface {
     return true;
   }
 
+  /**
+   * Writes whatever the async writer and the write buffer still hold
+   */
+  private void finishWrites() throws KettleException {
+    if ( asyncWriter != null ) {
+      HBaseOutputAsyncWriter writer = asyncWriter;
+      asyncWriter = null;
+      try {
+        writer.close();
+      } catch ( KettleException e ) {
+        // Make sure the flusher is done with the connection before it is closed
+        writer.stop();
+        throw e;
+      }
+      handleAsyncFailures( writer );
+    }
+    if ( targetTableWriteOperationManager != null ) {
+      try {
+        if ( !targetTableWriteOperationManager.isAutoFlush() ) {
+          logBasic( BaseMessages.getString( HBaseOutputMeta.PKG, "HBaseOutput.FlushingWriteBuffer" ) );
+          targetTableWriteOperationManager.flushCommits();
+        }
+      } catch ( Exception ex ) {
+        throw new KettleException( BaseMessages.getString( HBaseOutputMeta.PKG,
+          "HBaseOutput.Error.ProblemFlushingBufferedData", ex.getMessage() ), ex );
+      }
+    }
+  }
+
+  /**
+   * Closes the write operation manager, the target table and the connection
+   *
+   * @return the problem closing the connection or null if it closed
+   */
+  private KettleException closeTargetTable() {
+    if ( targetTableWriteOperationManager != null ) {
+      try {
+        targetTableWriteOperationManager.close();
+      } catch ( IOException e ) {
+        // Ignore
+      }
+    }
+    try {
+      targetTable.close();
+    } catch ( IOException e ) {
+      //Ignore
+    }
+
+    try {
+      logBasic( BaseMessages.getString( HBaseOutputMeta.PKG, "HBaseOutput.ClosingConnectionToTable" ) );
+      targetTable = null;
+      m_hbAdmin.close();
+    } catch ( Exception ex ) {
+      return new KettleException( BaseMessages.getString( HBaseOutputMeta.PKG,
+          "HBaseOutput.Error.ProblemWhenClosingConnection", ex.getMessage() ), ex );
+    }
+    return null;
+  }
+
+  private void handleAsyncFailures( HBaseOutputAsyncWriter writer ) throws KettleException {
+    HBaseOutputAsyncWriter.Failure failure;
+    while ( ( failure = writer.pollFailure() ) != null ) {
+      handlePutFailure( failure.getRow(), failure.getException() );
+    }
+  }
+
+  private void handlePutFailure( Object[] r, Exception e ) throws KettleException {
+    String errorDescriptions =
+        BaseMessages
+            .getString( HBaseOutputMeta.PKG, "HBaseOutput.Error.ProblemInsertingRowIntoHBase", e.getMessage() );
+    if ( getStepMeta().isDoingErrorHandling() ) {
+      String errorFields = "Unknown";
+      putError( getInputRowMeta(), r, 1, errorDescriptions, errorFields, "HBaseOutput002" );
+    } else {
+      throw new KettleException( errorDescriptions, e );
+    }
+  }
+
   @Override
   public boolean init( StepMetaInterface smi, StepDataInterface sdi ) {
     if ( super.init( smi, sdi ) ) {
@@ -350,6 +433,9 @@ public class HBaseOutput extends BaseStep implements StepInterface {
     super.setStopped( stopped );
 
     if ( stopped ) {
+      if ( asyncWriter != null ) {
+        asyncWriter.stop();
+      }
       if ( targetTable != null ) {
         try {
           if ( !targetTableWriteOperationManager.isAutoFlush() ) {
@@ -0,0 +1,316 @@
+/*******************************************************************************
+ *
+ * Pentaho Big Data
+ *
+ * Copyright (C) 2002-2016 by Pentaho : http://www.pentaho.com
+ *
+ *******************************************************************************
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ ******************************************************************************/
+
+package org.pentaho.big.data.kettle.plugins.hbase.output;
+
+import org.pentaho.bigdata.api.hbase.table.HBasePut;
+import org.pentaho.bigdata.api.hbase.table.HBaseTableWriteOperationManager;
+import org.pentaho.di.core.exception.KettleException;
+import org.pentaho.di.i18n.BaseMessages;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Hands puts built on the step thread to a background flusher thread in batches. A batch is handed off when it reaches
+ * the batch size, and the flusher takes it over itself once it has been open for longer than the flush interval so a
+ * partial batch is written even while input is idle. At most maxInFlightBatches batches are queued or being written
+ * at any time, so the step thread blocks instead of buffering without bound.
+ * <p/>
+ * Each batch is written as one mutation list. The write operation manager's connection is only touched by the flusher
+ * thread until {@link #close()} or {@link #stop()} returns. Puts that fail are reported back with the row that produced
+ * them through {@link #pollFailure()}.
+ */
+public class HBaseOutputAsyncWriter {
+  private static final long POLL_MILLIS = 100L;
+
+  private final HBaseTableWriteOperationManager writeOperationManager;
+  private final int batchSize;
+  private final long flushIntervalMillis;
+  private final BlockingQueue<Batch> inFlightBatches;
+  private final BlockingQueue<Batch> freeBatches;
+  private final Queue<Failure> failures;
+  private final Batch endOfData;
+  private final Thread flusher;
+  // Guards currentBatch, the flusher only ever tries for it so it can't block behind a step thread waiting on it
+  private final ReentrantLock currentBatchLock;
+  private Batch currentBatch;
+  private volatile boolean stopped;
+
+  public HBaseOutputAsyncWriter( String name, HBaseTableWriteOperationManager writeOperationManager, int batchSize,
+                                 long flushIntervalMillis, int maxInFlightBatches ) {
+    this.writeOperationManager = writeOperationManager;
+    this.batchSize = Math.max( 1, batchSize );
+    this.flushIntervalMillis = flushIntervalMillis;
+    int maxInFlight = Math.max( 1, maxInFlightBatches );
+    inFlightBatches = new ArrayBlockingQueue<>( maxInFlight + 1 );
+    // One batch is always being filled, the rest are queued for or being written by the flusher
+    freeBatches = new ArrayBlockingQueue<>( maxInFlight );
+    for ( int i = 0; i < maxInFlight; i++ ) {
+      freeBatches.add( new Batch( this.batchSize ) );
+    }
+    failures = new ConcurrentLinkedQueue<>();
+    endOfData = new Batch( 0 );
+    currentBatchLock = new ReentrantLock();
+    currentBatch = new Batch( this.batchSize );
+    flusher = new Thread( new Runnable() {
+      @Override public void run() {
+        flush();
+      }
+    }, name + " - HBase flusher" );
+    flusher.setDaemon( true );
+    flusher.start();
+  }
+
+  /**
+   * Adds a put to the current batch, handing the batch off to the flusher if it is full or old enough. Batches left
+   * partially filled are picked up by the flusher once the flush interval passes.
+   *
+   * @param hBasePut the put, fully built
+   * @param row      the row that produced the put, reported back with any failure
+   * @throws KettleException if the flusher is no longer running
+   */
+  public void add( HBasePut hBasePut, Object[] row ) throws KettleException {
+    currentBatchLock.lock();
+    try {
+      if ( currentBatch.size() == 0 ) {
+        currentBatch.openedAt = System.currentTimeMillis();
+      }
+      currentBatch.add( hBasePut, row );
+      if ( currentBatch.size() >= batchSize || isExpired( currentBatch ) ) {
+        handOff();
+      }
+    } finally {
+      currentBatchLock.unlock();
+    }
+  }
+
+  /**
+   * @return the next failed put or null if there are none waiting, safe to call while the flusher runs
+   */
+  public Failure pollFailure() {
+    return failures.poll();
+  }
+
+  /**
+   * Writes any remaining puts and waits for the flusher to finish
+   *
+   * @throws KettleException if interrupted or the flusher is no longer running
+   */
+  public void close() throws KettleException {
+    currentBatchLock.lock();
+    try {
+      if ( currentBatch.size() > 0 ) {
+        handOff();
+      }
+    } finally {
+      currentBatchLock.unlock();
+    }
+    enqueue( endOfData );
+    try {
+      flusher.join();
+    } catch ( InterruptedException e ) {
+      Thread.currentThread().interrupt();
+      throw new KettleException( e );
+    }
+  }
+
+  /**
+   * Stops the flusher without writing queued batches. Returns only once the flusher has exited, letting a write already
+   * sent to HBase finish first, so the caller can use the connection afterwards.
+   */
+  public void stop() {
+    stopped = true;
+    flusher.interrupt();
+    boolean interrupted = false;
+    while ( flusher.isAlive() ) {
+      try {
+        flusher.join();
+      } catch ( InterruptedException e ) {
+        interrupted = true;
+      }
+    }
+    if ( interrupted ) {
+      Thread.currentThread().interrupt();
+    }
+  }
+
+  private boolean isExpired( Batch batch ) {
+    return System.currentTimeMillis() - batch.openedAt >= flushIntervalMillis;
+  }
+
+  private void handOff() throws KettleException {
+    enqueue( currentBatch );
+    Batch next = null;
+    try {
+      while ( next == null ) {
+        next = freeBatches.poll( POLL_MILLIS, TimeUnit.MILLISECONDS );
+        if ( next == null && !flusher.isAlive() ) {
+          throw new KettleException(
+            BaseMessages.getString( HBaseOutputMeta.PKG, "HBaseOutput.Error.AsyncWriterStopped" ) );
+        }
+      }
+    } catch ( InterruptedException e ) {
+      Thread.currentThread().interrupt();
+      throw new KettleException( e );
+    }
+    currentBatch = next;
+  }
+
+  private void enqueue( Batch batch ) throws KettleException {
+    try {
+      while ( !inFlightBatches.offer( batch, POLL_MILLIS, TimeUnit.MILLISECONDS ) ) {
+        if ( !flusher.isAlive() ) {
+          throw new KettleException(
+            BaseMessages.getString( HBaseOutputMeta.PKG, "HBaseOutput.Error.AsyncWriterStopped" ) );
+        }
+      }
+    } catch ( InterruptedException e ) {
+      Thread.currentThread().interrupt();
+      throw new KettleException( e );
+    }
+  }
+
+  private void flush() {
+    try {
+      while ( !stopped ) {
+        Batch batch = inFlightBatches.poll( Math.min( POLL_MILLIS, Math.max( 1L, flushIntervalMillis ) ),
+          TimeUnit.MILLISECONDS );
+        if ( batch == null ) {
+          batch = takeExpiredBatch();
+          if ( batch == null ) {
+            continue;
+          }
+        } else if ( batch == endOfData ) {
+          return;
+        }
+        write( batch );
+        batch.clear();
+        freeBatches.add( batch );
+      }
+    } catch ( InterruptedException e ) {
+      // Stopped
+    }
+  }
+
+  /**
+   * Swaps out the current batch if it has been open past the flush interval and the step thread isn't using it
+   */
+  private Batch takeExpiredBatch() {
+    if ( !currentBatchLock.tryLock() ) {
+      return null;
+    }
+    try {
+      if ( currentBatch.size() == 0 || !isExpired( currentBatch ) ) {
+        return null;
+      }
+      Batch next = freeBatches.poll();
+      if ( next == null ) {
+        return null;
+      }
+      Batch expired = currentBatch;
+      currentBatch = next;
+      return expired;
+    } finally {
+      currentBatchLock.unlock();
+    }
+  }
+
+  private void write( Batch batch ) {
+    if ( stopped ) {
+      return;
+    }
+    try {
+      writeOperationManager.executeBatch( batch.puts );
+    } catch ( Exception batchException ) {
+      // With auto flush off a failed flush can leave puts in the client write buffer, where every following write
+      // would send them again and fail with them. Flush what is left first so the retries below only carry their own
+      // put. If the buffer still can't be flushed the retries fail too and each row is reported.
+      try {
+        writeOperationManager.flushCommits();
+      } catch ( Exception flushException ) {
+        // Reported through the retries
+      }
+      // Puts overwrite, so retry one at a time to report each failure with the row that produced it
+      for ( int i = 0; i < batch.size() && !stopped; i++ ) {
+        try {
+          writeOperationManager.executeBatch( Collections.singletonList( batch.puts.get( i ) ) );
+        } catch ( Exception e ) {
+          failures.add( new Failure( batch.rows.get( i ), e ) );
+        }
+      }
+    }
+  }
+
+  /**
+   * A put that could not be written along with the row that produced it
+   */
+  public static class Failure {
+    private final Object[] row;
+    private final Exception exception;
+
+    public Failure( Object[] row, Exception exception ) {
+      this.row = row;
+      this.exception = exception;
+    }
+
+    public Object[] getRow() {
+      return row;
+    }
+
+    public Exception getException() {
+      return exception;
+    }
+  }
+
+  private static class Batch {
+    private final List<HBasePut> puts;
+    private final List<Object[]> rows;
+    private long openedAt;
+
+    private Batch( int capacity ) {
+      puts = new ArrayList<>( capacity );
+      rows = new ArrayList<>( capacity );
+    }
+
+    private void add( HBasePut hBasePut, Object[] row ) {
+      puts.add( hBasePut );
+      rows.add( row );
+    }
+
+    private int size() {
+      return puts.size();
+    }
+
+    private void clear() {
+      puts.clear();
+      rows.clear();
+    }
+  }
+}
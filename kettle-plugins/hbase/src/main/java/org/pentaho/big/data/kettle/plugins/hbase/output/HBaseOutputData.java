@@ -92,8 +92,7 @@ public class HBaseOutputData extends BaseStepData implements StepDataInterface {
 
     byte[] encodedKey = bu.encodeKeyValue( kettleRow[keyIndex], keyvm, tableMapping.getKeyType() );
 
-    HBasePut hBaseTablePut = hBaseTableWriteOperationManager
-      .createPut( bu.encodeKeyValue( kettleRow[ keyIndex ], keyvm, tableMapping.getKeyType() ) );
+    HBasePut hBaseTablePut = hBaseTableWriteOperationManager.createPut( encodedKey );
     hBaseTablePut.setWriteToWAL( writeToWAL );
     return hBaseTablePut;
   }
@@ -129,6 +129,11 @@ public class HBaseOutputDialog extends BaseStepDialog implements StepDialogInter
   // Write buffer size line
   private TextVar m_writeBufferSizeText;
 
+  private Button m_asyncWriteBut;
+  private TextVar m_asyncBatchSizeText;
+  private TextVar m_asyncFlushIntervalText;
+  private TextVar m_asyncMaxInFlightBatchesText;
+
   // mapping editor composite
   private MappingEditor m_mappingEditor;
   private NamedClusterService namedClusterService;
@@ -510,6 +515,102 @@ public class HBaseOutputDialog extends BaseStepDialog implements StepDialogInter
     fd.right = new FormAttachment( 100, 0 );
     m_writeBufferSizeText.setLayoutData( fd );
 
+    // write in background batches
+    Label asyncWriteLab = new Label( wConfigComp, SWT.RIGHT );
+    asyncWriteLab.setText( BaseMessages.getString( HBaseOutputMeta.PKG, "HBaseOutputDialog.AsyncWrite.Label" ) );
+    asyncWriteLab
+        .setToolTipText( BaseMessages.getString( HBaseOutputMeta.PKG, "HBaseOutputDialog.AsyncWrite.TipText" ) );
+    props.setLook( asyncWriteLab );
+    fd = new FormData();
+    fd.left = new FormAttachment( 0, 0 );
+    fd.top = new FormAttachment( m_writeBufferSizeText, margin );
+    fd.right = new FormAttachment( middle, -margin );
+    asyncWriteLab.setLayoutData( fd );
+
+    m_asyncWriteBut = new Button( wConfigComp, SWT.CHECK | SWT.CENTER );
+    m_asyncWriteBut.setToolTipText( BaseMessages.getString( HBaseOutputMeta.PKG,
+        "HBaseOutputDialog.AsyncWrite.TipText" ) );
+    props.setLook( m_asyncWriteBut );
+    fd = new FormData();
+    fd.left = new FormAttachment( middle, 0 );
+    fd.top = new FormAttachment( m_writeBufferSizeText, margin );
+    m_asyncWriteBut.setLayoutData( fd );
+    m_asyncWriteBut.addSelectionListener( new SelectionAdapter() {
+      @Override
+      public void widgetSelected( SelectionEvent e ) {
+        setAsyncWriteEnabled();
+      }
+    } );
+
+    Label asyncBatchSizeLab = new Label( wConfigComp, SWT.RIGHT );
+    asyncBatchSizeLab.setText( BaseMessages.getString( HBaseOutputMeta.PKG, "HBaseOutputDialog.AsyncBatchSize.Label" ) );
+    asyncBatchSizeLab.setToolTipText( BaseMessages.getString( HBaseOutputMeta.PKG, "HBaseOutputDialog.AsyncBatchSize.TipText" ) );
+    props.setLook( asyncBatchSizeLab );
+    fd = new FormData();
+    fd.left = new FormAttachment( 0, 0 );
+    fd.top = new FormAttachment( m_asyncWriteBut, margin );
+    fd.right = new FormAttachment( middle, -margin );
+    asyncBatchSizeLab.setLayoutData( fd );
+
+    m_asyncBatchSizeText = new TextVar( transMeta, wConfigComp, SWT.SINGLE | SWT.LEFT | SWT.BORDER );
+    props.setLook( m_asyncBatchSizeText );
+    m_asyncBatchSizeText.addModifyListener( new ModifyListener() {
+      public void modifyText( ModifyEvent e ) {
+        m_asyncBatchSizeText.setToolTipText( transMeta.environmentSubstitute( m_asyncBatchSizeText.getText() ) );
+      }
+    } );
+    fd = new FormData();
+    fd.left = new FormAttachment( middle, 0 );
+    fd.top = new FormAttachment( m_asyncWriteBut, margin );
+    fd.right = new FormAttachment( 100, 0 );
+    m_asyncBatchSizeText.setLayoutData( fd );
+
+    Label asyncFlushIntervalLab = new Label( wConfigComp, SWT.RIGHT );
+    asyncFlushIntervalLab.setText( BaseMessages.getString( HBaseOutputMeta.PKG, "HBaseOutputDialog.AsyncFlushInterval.Label" ) );
+    asyncFlushIntervalLab.setToolTipText( BaseMessages.getString( HBaseOutputMeta.PKG, "HBaseOutputDialog.AsyncFlushInterval.TipText" ) );
+    props.setLook( asyncFlushIntervalLab );
+    fd = new FormData();
+    fd.left = new FormAttachment( 0, 0 );
+    fd.top = new FormAttachment( m_asyncBatchSizeText, margin );
+    fd.right = new FormAttachment( middle, -margin );
+    asyncFlushIntervalLab.setLayoutData( fd );
+
+    m_asyncFlushIntervalText = new TextVar( transMeta, wConfigComp, SWT.SINGLE | SWT.LEFT | SWT.BORDER );
+    props.setLook( m_asyncFlushIntervalText );
+    m_asyncFlushIntervalText.addModifyListener( new ModifyListener() {
+      public void modifyText( ModifyEvent e ) {
+        m_asyncFlushIntervalText.setToolTipText( transMeta.environmentSubstitute( m_asyncFlushIntervalText.getText() ) );
+      }
+    } );
+    fd = new FormData();
+    fd.left = new FormAttachment( middle, 0 );
+    fd.top = new FormAttachment( m_asyncBatchSizeText, margin );
+    fd.right = new FormAttachment( 100, 0 );
+    m_asyncFlushIntervalText.setLayoutData( fd );
+
+    Label asyncMaxInFlightBatchesLab = new Label( wConfigComp, SWT.RIGHT );
+    asyncMaxInFlightBatchesLab.setText( BaseMessages.getString( HBaseOutputMeta.PKG, "HBaseOutputDialog.AsyncMaxInFlightBatches.Label" ) );
+    asyncMaxInFlightBatchesLab.setToolTipText( BaseMessages.getString( HBaseOutputMeta.PKG, "HBaseOutputDialog.AsyncMaxInFlightBatches.TipText" ) );
+    props.setLook( asyncMaxInFlightBatchesLab );
+    fd = new FormData();
+    fd.left = new FormAttachment( 0, 0 );
+    fd.top = new FormAttachment( m_asyncFlushIntervalText, margin );
+    fd.right = new FormAttachment( middle, -margin );
+    asyncMaxInFlightBatchesLab.setLayoutData( fd );
+
+    m_asyncMaxInFlightBatchesText = new TextVar( transMeta, wConfigComp, SWT.SINGLE | SWT.LEFT | SWT.BORDER );
+    props.setLook( m_asyncMaxInFlightBatchesText );
+    m_asyncMaxInFlightBatchesText.addModifyListener( new ModifyListener() {
+      public void modifyText( ModifyEvent e ) {
+        m_asyncMaxInFlightBatchesText.setToolTipText( transMeta.environmentSubstitute( m_asyncMaxInFlightBatchesText.getText() ) );
+      }
+    } );
+    fd = new FormData();
+    fd.left = new FormAttachment( middle, 0 );
+    fd.top = new FormAttachment( m_asyncFlushIntervalText, margin );
+    fd.right = new FormAttachment( 100, 0 );
+    m_asyncMaxInFlightBatchesText.setLayoutData( fd );
+
     fd = new FormData();
     fd.left = new FormAttachment( 0, 0 );
     fd.top = new FormAttachment( 0, 0 );
@@ -739,6 +840,10 @@ public class HBaseOutputDialog extends BaseStepDialog implements StepDialogInter
 
     meta.setDisableWriteToWAL( m_disableWriteToWALBut.getSelection() );
     meta.setWriteBufferSize( m_writeBufferSizeText.getText() );
+    meta.setAsyncWrite( m_asyncWriteBut.getSelection() );
+    meta.setAsyncBatchSize( m_asyncBatchSizeText.getText() );
+    meta.setAsyncFlushInterval( m_asyncFlushIntervalText.getText() );
+    meta.setAsyncMaxInFlightBatches( m_asyncMaxInFlightBatchesText.getText() );
 
   }
 
@@ -768,12 +873,25 @@ public class HBaseOutputDialog extends BaseStepDialog implements StepDialogInter
       m_writeBufferSizeText.setText( m_currentMeta.getWriteBufferSize() );
     }
 
+    m_asyncWriteBut.setSelection( m_currentMeta.getAsyncWrite() );
+    m_asyncBatchSizeText.setText( Const.NVL( m_currentMeta.getAsyncBatchSize(), "" ) );
+    m_asyncFlushIntervalText.setText( Const.NVL( m_currentMeta.getAsyncFlushInterval(), "" ) );
+    m_asyncMaxInFlightBatchesText.setText( Const.NVL( m_currentMeta.getAsyncMaxInFlightBatches(), "" ) );
+    setAsyncWriteEnabled();
+
     if ( Const.isEmpty( m_currentMeta.getTargetMappingName() ) && m_currentMeta.getMapping() != null ) {
       m_mappingEditor.setMapping( m_currentMeta.getMapping() );
       m_storeMappingInStepMetaData.setSelection( true );
     }
   }
 
+  private void setAsyncWriteEnabled() {
+    boolean asyncWrite = m_asyncWriteBut.getSelection();
+    m_asyncBatchSizeText.setEnabled( asyncWrite );
+    m_asyncFlushIntervalText.setEnabled( asyncWrite );
+    m_asyncMaxInFlightBatchesText.setEnabled( asyncWrite );
+  }
+
   @Override public HBaseService getHBaseService() throws ClusterInitializationException {
     NamedCluster nc = namedClusterWidget.getSelectedNamedCluster();
     return namedClusterServiceLocator.getService( nc, HBaseService.class );
@@ -79,6 +79,10 @@ public class HBaseOutputMeta extends BaseStepMeta implements StepMetaInterface {
 
   protected static Class<?> PKG = HBaseOutputMeta.class;
 
+  public static final String DEFAULT_ASYNC_BATCH_SIZE = "1000";
+  public static final String DEFAULT_ASYNC_FLUSH_INTERVAL = "1000";
+  public static final String DEFAULT_ASYNC_MAX_IN_FLIGHT_BATCHES = "2";
+
   /** path/url to hbase-site.xml */
   @Injection( name = "HBASE_SITE_XML_URL" )
   protected String m_coreConfigURL;
@@ -105,6 +109,22 @@ public class HBaseOutputMeta extends BaseStepMeta implements StepMetaInterface {
   @Injection( name = "WRITE_BUFFER_SIZE" )
   protected String m_writeBufferSize;
 
+  /** if true puts are handed to a background thread in batches rather than executed on the step thread */
+  @Injection( name = "ASYNC_WRITE" )
+  protected boolean m_asyncWrite;
+
+  /** the number of puts in a batch before it is handed to the background thread */
+  @Injection( name = "ASYNC_BATCH_SIZE" )
+  protected String m_asyncBatchSize = DEFAULT_ASYNC_BATCH_SIZE;
+
+  /** the maximum time in milliseconds a batch stays open before it is handed to the background thread */
+  @Injection( name = "ASYNC_FLUSH_INTERVAL" )
+  protected String m_asyncFlushInterval = DEFAULT_ASYNC_FLUSH_INTERVAL;
+
+  /** the maximum number of batches queued for or being written by the background thread */
+  @Injection( name = "ASYNC_MAX_IN_FLIGHT_BATCHES" )
+  protected String m_asyncMaxInFlightBatches = DEFAULT_ASYNC_MAX_IN_FLIGHT_BATCHES;
+
   /**
    * The mapping to use if we are not loading one dynamically at runtime from HBase itself
    */
@@ -225,6 +245,38 @@ public class HBaseOutputMeta extends BaseStepMeta implements StepMetaInterface {
     return m_writeBufferSize;
   }
 
+  public void setAsyncWrite( boolean asyncWrite ) {
+    m_asyncWrite = asyncWrite;
+  }
+
+  public boolean getAsyncWrite() {
+    return m_asyncWrite;
+  }
+
+  public void setAsyncBatchSize( String batchSize ) {
+    m_asyncBatchSize = batchSize;
+  }
+
+  public String getAsyncBatchSize() {
+    return m_asyncBatchSize;
+  }
+
+  public void setAsyncFlushInterval( String flushInterval ) {
+    m_asyncFlushInterval = flushInterval;
+  }
+
+  public String getAsyncFlushInterval() {
+    return m_asyncFlushInterval;
+  }
+
+  public void setAsyncMaxInFlightBatches( String maxInFlightBatches ) {
+    m_asyncMaxInFlightBatches = maxInFlightBatches;
+  }
+
+  public String getAsyncMaxInFlightBatches() {
+    return m_asyncMaxInFlightBatches;
+  }
+
   void applyInjection( VariableSpace space ) throws KettleException {
     if ( namedCluster == null ) {
       throw new KettleException( "Named cluster was not initialized!" );
@@ -300,6 +352,11 @@ public class HBaseOutputMeta extends BaseStepMeta implements StepMetaInterface {
       retval.append( "\n    " ).append( XMLHandler.addTagValue( "write_buffer_size", m_writeBufferSize ) );
     }
     retval.append( "\n    " ).append( XMLHandler.addTagValue( "disable_wal", m_disableWriteToWAL ) );
+    retval.append( "\n    " ).append( XMLHandler.addTagValue( "async_write", m_asyncWrite ) );
+    retval.append( "\n    " ).append( XMLHandler.addTagValue( "async_batch_size", m_asyncBatchSize ) );
+    retval.append( "\n    " ).append( XMLHandler.addTagValue( "async_flush_interval", m_asyncFlushInterval ) );
+    retval.append( "\n    " )
+      .append( XMLHandler.addTagValue( "async_max_in_flight_batches", m_asyncMaxInFlightBatches ) );
 
     if ( m_mapping != null ) {
       retval.append( m_mapping.getXML() );
@@ -330,6 +387,13 @@ public class HBaseOutputMeta extends BaseStepMeta implements StepMetaInterface {
     m_writeBufferSize = XMLHandler.getTagValue( stepnode, "write_buffer_size" );
     String disableWAL = XMLHandler.getTagValue( stepnode, "disable_wal" );
     m_disableWriteToWAL = disableWAL.equalsIgnoreCase( "Y" );
+    m_asyncWrite = "Y".equalsIgnoreCase( XMLHandler.getTagValue( stepnode, "async_write" ) );
+    m_asyncBatchSize =
+      Const.NVL( XMLHandler.getTagValue( stepnode, "async_batch_size" ), DEFAULT_ASYNC_BATCH_SIZE );
+    m_asyncFlushInterval =
+      Const.NVL( XMLHandler.getTagValue( stepnode, "async_flush_interval" ), DEFAULT_ASYNC_FLUSH_INTERVAL );
+    m_asyncMaxInFlightBatches = Const.NVL( XMLHandler.getTagValue( stepnode, "async_max_in_flight_batches" ),
+      DEFAULT_ASYNC_MAX_IN_FLIGHT_BATCHES );
 
     Mapping tempMapping;
     try {
@@ -356,6 +420,13 @@ public class HBaseOutputMeta extends BaseStepMeta implements StepMetaInterface {
     m_targetMappingName = rep.getStepAttributeString( id_step, 0, "target_mapping_name" );
     m_writeBufferSize = rep.getStepAttributeString( id_step, 0, "write_buffer_size" );
     m_disableWriteToWAL = rep.getStepAttributeBoolean( id_step, 0, "disable_wal" );
+    m_asyncWrite = rep.getStepAttributeBoolean( id_step, 0, "async_write" );
+    m_asyncBatchSize =
+      Const.NVL( rep.getStepAttributeString( id_step, 0, "async_batch_size" ), DEFAULT_ASYNC_BATCH_SIZE );
+    m_asyncFlushInterval =
+      Const.NVL( rep.getStepAttributeString( id_step, 0, "async_flush_interval" ), DEFAULT_ASYNC_FLUSH_INTERVAL );
+    m_asyncMaxInFlightBatches = Const.NVL( rep.getStepAttributeString( id_step, 0, "async_max_in_flight_batches" ),
+      DEFAULT_ASYNC_MAX_IN_FLIGHT_BATCHES );
 
     Mapping tempMapping;
     try {
@@ -390,6 +461,10 @@ public class HBaseOutputMeta extends BaseStepMeta implements StepMetaInterface {
       rep.saveStepAttribute( id_transformation, id_step, 0, "write_buffer_size", m_writeBufferSize );
     }
     rep.saveStepAttribute( id_transformation, id_step, 0, "disable_wal", m_disableWriteToWAL );
+    rep.saveStepAttribute( id_transformation, id_step, 0, "async_write", m_asyncWrite );
+    rep.saveStepAttribute( id_transformation, id_step, 0, "async_batch_size", m_asyncBatchSize );
+    rep.saveStepAttribute( id_transformation, id_step, 0, "async_flush_interval", m_asyncFlushInterval );
+    rep.saveStepAttribute( id_transformation, id_step, 0, "async_max_in_flight_batches", m_asyncMaxInFlightBatches );
 
     if ( m_mapping != null ) {
       m_mapping.saveRep( rep, id_transformation, id_step );
@@ -403,6 +478,10 @@ public class HBaseOutputMeta extends BaseStepMeta implements StepMetaInterface {
     m_targetMappingName = null;
     m_disableWriteToWAL = false;
     m_writeBufferSize = null;
+    m_asyncWrite = false;
+    m_asyncBatchSize = DEFAULT_ASYNC_BATCH_SIZE;
+    m_asyncFlushInterval = DEFAULT_ASYNC_FLUSH_INTERVAL;
+    m_asyncMaxInFlightBatches = DEFAULT_ASYNC_MAX_IN_FLIGHT_BATCHES;
     namedCluster = namedClusterService.getClusterTemplate();
   }
 
@@ -22,9 +22,8 @@
 
 package org.pentaho.big.data.kettle.plugins.hbase.rowdecoder;
 
-import java.util.List;
-
 import org.pentaho.big.data.api.cluster.service.locator.NamedClusterServiceLocator;
+import org.pentaho.big.data.kettle.plugins.hbase.mapping.HBaseRowDecodePlan;
 import org.pentaho.big.data.kettle.plugins.hbase.mapping.HBaseRowToKettleTuple;
 import org.pentaho.bigdata.api.hbase.ByteConversionUtil;
 import org.pentaho.bigdata.api.hbase.HBaseService;
@@ -35,7 +34,6 @@ import org.pentaho.bigdata.api.hbase.mapping.Mapping;
 import org.pentaho.bigdata.api.hbase.meta.HBaseValueMetaInterface;
 import org.pentaho.di.core.Const;
 import org.pentaho.di.core.exception.KettleException;
-import org.pentaho.di.core.row.RowDataUtil;
 import org.pentaho.di.core.row.RowMetaInterface;
 import org.pentaho.di.i18n.BaseMessages;
 import org.pentaho.di.trans.Trans;
@@ -75,6 +73,9 @@ public class HBaseRowDecoder extends BaseStep implements StepInterface {
   /** Information from the mapping */
   protected HBaseValueMetaInterface[] m_outputColumns;
 
+  /** Precompiled plan for decoding the incoming HBase rows */
+  protected HBaseRowDecodePlan m_decodePlan;
+
   /** Index of incoming key value */
   protected int m_keyInIndex = -1;
 
@@ -86,6 +87,13 @@ public class HBaseRowDecoder extends BaseStep implements StepInterface {
    */
   protected HBaseRowToKettleTuple m_tupleHandler;
 
+  /** Passes decoded tuples straight on to the next step */
+  protected final HBaseRowToKettleTuple.TupleEmitter m_tupleEmitter = new HBaseRowToKettleTuple.TupleEmitter() {
+    @Override public void emitTuple( Object[] tuple ) throws KettleException {
+      putRow( m_data.getOutputRowMeta(), tuple );
+    }
+  };
+
   /** Bytes util */
   protected ByteConversionUtil m_bytesUtil;
 
@@ -133,6 +141,16 @@ public class HBaseRowDecoder extends BaseStep implements StepInterface {
         m_outputColumns[k++] = m_tableMapping.getMappedColumns().get( alias );
       }
 
+      if ( !m_tableMapping.isTupleMapping() ) {
+        // key first, then the mapped columns in order
+        m_decodePlan = new HBaseRowDecodePlan( m_tableMapping, m_outputColumns.length + 1, 0 );
+        m_decodePlan.setErrorMessages( BaseMessages.getString( PKG, "HBaseRowDecoder.Error.UnableToGetRowKey" ),
+            BaseMessages.getString( PKG, "HBaseRowDecoder.Error.UnableToGetColumnValue" ) );
+        for ( int i = 0; i < m_outputColumns.length; i++ ) {
+          m_decodePlan.addColumn( m_outputColumns[i], i + 1, m_bytesUtil );
+        }
+      }
+
       m_data.setOutputRowMeta( getInputRowMeta().clone() );
       m_meta.getFields( m_data.getOutputRowMeta(), getStepname(), null, null, this );
 
@@ -170,42 +188,10 @@ public class HBaseRowDecoder extends BaseStep implements StepInterface {
     }
     if ( inputRow[m_keyInIndex] != null && hRow != null ) {
       if ( m_tableMapping.isTupleMapping() ) {
-        List<Object[]> hrowToKettleRow =
-            m_tupleHandler.hbaseRowToKettleTupleMode( hBaseService.getHBaseValueMetaInterfaceFactory(), hRow, m_tableMapping, m_tableMapping
-                .getMappedColumns(), m_data.getOutputRowMeta() );
-
-        for ( Object[] tuple : hrowToKettleRow ) {
-          putRow( m_data.getOutputRowMeta(), tuple );
-        }
+        m_tupleHandler.hbaseRowToKettleTupleMode( hBaseService.getHBaseValueMetaInterfaceFactory(), hRow,
+            m_tableMapping, m_tableMapping.getMappedColumns(), m_data.getOutputRowMeta(), m_tupleEmitter );
       } else {
-        Object[] outputRowData = RowDataUtil.allocateRowData( m_outputColumns.length + 1 ); // + 1 for key
-
-        byte[] rowKey = null;
-        try {
-          rowKey = hRow.getRow();
-        } catch ( Exception ex ) {
-          throw new KettleException( BaseMessages.getString( PKG, "HBaseRowDecoder.Error.UnableToGetRowKey" ), ex );
-        }
-        Object decodedKey = m_tableMapping.decodeKeyValue( rowKey );
-        outputRowData[0] = decodedKey;
-
-        for ( int i = 0; i < m_outputColumns.length; i++ ) {
-          HBaseValueMetaInterface current = m_outputColumns[i];
-
-          String colFamilyName = current.getColumnFamily();
-          String qualifier = current.getColumnName();
-
-          byte[] kv = null;
-          try {
-            kv = hRow.getValue( colFamilyName, qualifier, false );
-          } catch ( Exception ex ) {
-            throw new KettleException( BaseMessages.getString( PKG, "HBaseRowDecoder.Error.UnableToGetColumnValue" ),
-                ex );
-          }
-
-          Object decodedVal = current.decodeColumnValue( ( kv == null ) ? null : kv );
-          outputRowData[i + 1] = decodedVal;
-        }
+        Object[] outputRowData = m_decodePlan.decodeRow( hRow );
 
         // output the row
         putRow( m_data.getOutputRowMeta(), outputRowData );
@@ -85,6 +85,11 @@ public class HBaseInputMetaInjectionTest extends BaseMetadataInjectionTest<HBase
         return meta.getMatchAnyFilter();
       }
     } );
+    check( "SPLIT_SCAN_ACROSS_COPIES", new BooleanGetter() {
+      public boolean get() {
+        return meta.getSplitScanAcrossCopies();
+      }
+    } );
 
     check( "OUTPUT_FIELD_KEY", new BooleanGetter() {
       public boolean get() {
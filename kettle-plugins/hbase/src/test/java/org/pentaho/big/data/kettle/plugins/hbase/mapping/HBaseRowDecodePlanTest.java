@@ -0,0 +1,151 @@
+/*! ******************************************************************************
+ *
+ * Pentaho Data Integration
+ *
+ * Copyright (C) 2002-2016 by Pentaho : http://www.pentaho.com
+ *
+ *******************************************************************************
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ ******************************************************************************/
+package org.pentaho.big.data.kettle.plugins.hbase.mapping;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+import static org.mockito.Matchers.anyBoolean;
+import static org.mockito.Matchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.nio.charset.Charset;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.pentaho.bigdata.api.hbase.ByteConversionUtil;
+import org.pentaho.bigdata.api.hbase.Result;
+import org.pentaho.bigdata.api.hbase.mapping.Mapping;
+import org.pentaho.bigdata.api.hbase.meta.HBaseValueMetaInterface;
+import org.pentaho.di.core.exception.KettleException;
+
+public class HBaseRowDecodePlanTest {
+  private static final Charset UTF_8 = Charset.forName( "UTF-8" );
+
+  private ByteConversionUtil bytesUtil;
+  private Mapping mapping;
+  private Result result;
+
+  @Before
+  public void setUp() {
+    bytesUtil = mock( ByteConversionUtil.class );
+    mapping = mock( Mapping.class );
+    result = mock( Result.class );
+  }
+
+  private HBaseValueMetaInterface column( String family, String name, byte[] familyBytes, byte[] nameBytes,
+      byte[] value, Object decoded ) throws Exception {
+    HBaseValueMetaInterface column = mock( HBaseValueMetaInterface.class );
+    when( column.getColumnFamily() ).thenReturn( family );
+    when( column.getColumnName() ).thenReturn( name );
+    when( bytesUtil.toBytes( family ) ).thenReturn( familyBytes );
+    when( result.getValue( familyBytes, nameBytes ) ).thenReturn( value );
+    when( column.decodeColumnValue( value ) ).thenReturn( decoded );
+    return column;
+  }
+
+  @Test
+  public void testDecodeRow() throws Exception {
+    byte[] key = "key".getBytes( UTF_8 );
+    byte[] family = "f".getBytes( UTF_8 );
+    byte[] name = "c".getBytes( UTF_8 );
+    byte[] value = "v".getBytes( UTF_8 );
+    when( bytesUtil.toBytes( "c" ) ).thenReturn( name );
+    HBaseValueMetaInterface col = column( "f", "c", family, name, value, "decoded" );
+    when( result.getRow() ).thenReturn( key );
+    when( mapping.decodeKeyValue( key ) ).thenReturn( "decodedKey" );
+
+    HBaseRowDecodePlan plan = new HBaseRowDecodePlan( mapping, 2, 1 );
+    plan.addColumn( col, 0, bytesUtil );
+    Object[] row = plan.decodeRow( result );
+
+    assertEquals( "decoded", row[0] );
+    assertEquals( "decodedKey", row[1] );
+    verify( result, never() ).getValue( anyString(), anyString(), anyBoolean() );
+  }
+
+  @Test
+  public void testBinaryColumnNameIsHexDecoded() throws Exception {
+    byte[] family = "f".getBytes( UTF_8 );
+    byte[] name = new byte[] { 1, 2 };
+    byte[] value = "v".getBytes( UTF_8 );
+    when( bytesUtil.toBytesBinary( "\\x01\\x02" ) ).thenReturn( name );
+    HBaseValueMetaInterface col =
+        column( "f", HBaseRowDecodePlan.BINARY_COLUMN_NAME_PREFIX + "\\x01\\x02", family, name, value, 42L );
+
+    HBaseRowDecodePlan plan = new HBaseRowDecodePlan( mapping, 1, -1 );
+    plan.addColumn( col, 0, bytesUtil );
+    Object[] row = plan.decodeRow( result );
+
+    assertEquals( 42L, row[0] );
+    verify( result, never() ).getRow();
+  }
+
+  @Test
+  public void testMissingColumnDecodesNull() throws Exception {
+    byte[] family = "f".getBytes( UTF_8 );
+    byte[] name = "c".getBytes( UTF_8 );
+    when( bytesUtil.toBytes( "c" ) ).thenReturn( name );
+    HBaseValueMetaInterface col = column( "f", "c", family, name, null, null );
+
+    HBaseRowDecodePlan plan = new HBaseRowDecodePlan( mapping, 1, -1 );
+    plan.addColumn( col, 0, bytesUtil );
+
+    assertNull( plan.decodeRow( result )[0] );
+  }
+
+  @Test
+  public void testColumnsLookedUpByNameWithoutBytesUtil() throws Exception {
+    byte[] value = "v".getBytes( UTF_8 );
+    HBaseValueMetaInterface col = mock( HBaseValueMetaInterface.class );
+    when( col.getColumnFamily() ).thenReturn( "f" );
+    when( col.getColumnName() ).thenReturn( HBaseRowDecodePlan.BINARY_COLUMN_NAME_PREFIX + "\\x01" );
+    when( result.getValue( "f", "\\x01", true ) ).thenReturn( value );
+    when( col.decodeColumnValue( value ) ).thenReturn( "decoded" );
+
+    HBaseRowDecodePlan plan = new HBaseRowDecodePlan( mapping, 1, -1 );
+    plan.addColumn( col, 0, null );
+
+    assertEquals( "decoded", plan.decodeRow( result )[0] );
+  }
+
+  @Test
+  public void testErrorMessagesReported() throws Exception {
+    RuntimeException cause = new RuntimeException();
+    when( result.getRow() ).thenThrow( cause );
+
+    HBaseRowDecodePlan plan = new HBaseRowDecodePlan( mapping, 1, 0 );
+    plan.setErrorMessages( "no key", "no value" );
+    try {
+      plan.decodeRow( result );
+      fail();
+    } catch ( KettleException e ) {
+      assertTrue( e.getMessage().contains( "no key" ) );
+      assertSame( cause, e.getCause() );
+    }
+  }
+}
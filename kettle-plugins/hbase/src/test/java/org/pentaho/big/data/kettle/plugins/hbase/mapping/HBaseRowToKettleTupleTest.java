@@ -0,0 +1,286 @@
+/*! ******************************************************************************
+ *
+ * Pentaho Data Integration
+ *
+ * Copyright (C) 2002-2016 by Pentaho : http://www.pentaho.com
+ *
+ *******************************************************************************
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ ******************************************************************************/
+
+package org.pentaho.big.data.kettle.plugins.hbase.mapping;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyString;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.TreeMap;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
+import org.pentaho.bigdata.api.hbase.ByteConversionUtil;
+import org.pentaho.bigdata.api.hbase.Result;
+import org.pentaho.bigdata.api.hbase.mapping.Mapping;
+import org.pentaho.bigdata.api.hbase.meta.HBaseValueMetaInterface;
+import org.pentaho.di.core.exception.KettleException;
+import org.pentaho.di.core.row.RowDataUtil;
+import org.pentaho.di.core.row.RowMetaInterface;
+
+/**
+ * Checks the tuples emitted by the cell visiting implementation against those built by walking the nested map view,
+ * which is how tuple mode decoded rows before it streamed them.
+ */
+public class HBaseRowToKettleTupleTest {
+  private static final Charset UTF_8 = Charset.forName( "UTF-8" );
+  private static final String KEY = "key";
+  private static final Comparator<byte[]> BYTES_COMPARATOR = new Comparator<byte[]>() {
+    @Override public int compare( byte[] left, byte[] right ) {
+      for ( int i = 0; i < Math.min( left.length, right.length ); i++ ) {
+        int diff = ( left[i] & 0xff ) - ( right[i] & 0xff );
+        if ( diff != 0 ) {
+          return diff;
+        }
+      }
+      return left.length - right.length;
+    }
+  };
+
+  private ByteConversionUtil bytesUtil;
+  private Mapping mapping;
+  private RowMetaInterface outputRowMeta;
+  private List<HBaseValueMetaInterface> tupleCols;
+  private NavigableMap<byte[], NavigableMap<byte[], NavigableMap<Long, byte[]>>> rowData;
+  private Result result;
+
+  @Before
+  public void setUp() throws Exception {
+    bytesUtil = mock( ByteConversionUtil.class );
+    when( bytesUtil.toBytes( anyString() ) ).thenAnswer( new Answer<byte[]>() {
+      @Override public byte[] answer( InvocationOnMock invocation ) {
+        return bytes( (String) invocation.getArguments()[0] );
+      }
+    } );
+
+    mapping = mock( Mapping.class );
+    when( mapping.getKeyName() ).thenReturn( KEY );
+    when( mapping.decodeKeyValue( any( byte[].class ) ) ).thenReturn( "decodedKey" );
+
+    // key, family, column, value, timestamp
+    outputRowMeta = mock( RowMetaInterface.class );
+    when( outputRowMeta.size() ).thenReturn( 5 );
+    when( outputRowMeta.indexOfValue( KEY ) ).thenReturn( 0 );
+    when( outputRowMeta.indexOfValue( Mapping.TupleMapping.FAMILY.toString() ) ).thenReturn( 1 );
+    when( outputRowMeta.indexOfValue( Mapping.TupleMapping.COLUMN.toString() ) ).thenReturn( 2 );
+    when( outputRowMeta.indexOfValue( Mapping.TupleMapping.VALUE.toString() ) ).thenReturn( 3 );
+    when( outputRowMeta.indexOfValue( Mapping.TupleMapping.TIMESTAMP.toString() ) ).thenReturn( 4 );
+
+    tupleCols = new ArrayList<>();
+    for ( int i = 0; i < 5; i++ ) {
+      HBaseValueMetaInterface col = mock( HBaseValueMetaInterface.class );
+      when( col.decodeColumnValue( any( byte[].class ) ) ).thenAnswer( new Answer<Object>() {
+        @Override public Object answer( InvocationOnMock invocation ) {
+          return new String( (byte[]) invocation.getArguments()[0], UTF_8 );
+        }
+      } );
+      tupleCols.add( col );
+    }
+
+    rowData = new TreeMap<>( BYTES_COMPARATOR );
+    result = mock( Result.class );
+    when( result.getRow() ).thenReturn( bytes( "row" ) );
+    when( result.getMap() ).thenReturn( rowData );
+    // visits the latest version of each column, as the shim does
+    doAnswer( new Answer<Void>() {
+      @Override public Void answer( InvocationOnMock invocation ) throws Throwable {
+        byte[] family = (byte[]) invocation.getArguments()[0];
+        Result.CellVisitor visitor = (Result.CellVisitor) invocation.getArguments()[1];
+        for ( Map.Entry<byte[], NavigableMap<byte[], NavigableMap<Long, byte[]>>> familyEntry : rowData.entrySet() ) {
+          if ( family != null && BYTES_COMPARATOR.compare( family, familyEntry.getKey() ) != 0 ) {
+            continue;
+          }
+          for ( Map.Entry<byte[], NavigableMap<Long, byte[]>> column : familyEntry.getValue().entrySet() ) {
+            Map.Entry<Long, byte[]> latest = column.getValue().firstEntry();
+            visitor.visit( familyEntry.getKey(), column.getKey(), latest.getKey(), latest.getValue() );
+          }
+        }
+        return null;
+      }
+    } ).when( result ).visitLatestCells( any( byte[].class ), any( Result.CellVisitor.class ) );
+  }
+
+  private static byte[] bytes( String value ) {
+    return value.getBytes( UTF_8 );
+  }
+
+  private void put( String family, String column, long timestamp, String value ) {
+    NavigableMap<byte[], NavigableMap<Long, byte[]>> columns = rowData.get( bytes( family ) );
+    if ( columns == null ) {
+      columns = new TreeMap<>( BYTES_COMPARATOR );
+      rowData.put( bytes( family ), columns );
+    }
+    NavigableMap<Long, byte[]> versions = columns.get( bytes( column ) );
+    if ( versions == null ) {
+      // hbase orders versions newest first
+      versions = new TreeMap<>( Collections.<Long>reverseOrder() );
+      columns.put( bytes( column ), versions );
+    }
+    versions.put( timestamp, bytes( value ) );
+  }
+
+  private void tupleFamilies( String families ) {
+    when( mapping.getTupleFamilies() ).thenReturn( families );
+    when( mapping.getTupleFamiliesSplit() ).thenReturn( families.split( "," ) );
+  }
+
+  private List<Object[]> decode() throws KettleException {
+    return new HBaseRowToKettleTuple( bytesUtil ).hbaseRowToKettleTupleMode( result, mapping, tupleCols,
+      outputRowMeta );
+  }
+
+  private List<Object[]> stream() throws KettleException {
+    final List<Object[]> tuples = new ArrayList<>();
+    new HBaseRowToKettleTuple( bytesUtil ).hbaseRowToKettleTupleMode( result, mapping, tupleCols, outputRowMeta,
+      new HBaseRowToKettleTuple.TupleEmitter() {
+        @Override public void emitTuple( Object[] tuple ) {
+          tuples.add( tuple );
+        }
+      } );
+    return tuples;
+  }
+
+  /**
+   * The map walk tuple mode used before streaming, except that it takes the newest version of each column, the old
+   * code took lastEntry() of the newest first version map and so the oldest version.
+   */
+  private List<Object[]> mapWalk( String[] families ) throws KettleException {
+    List<Object[]> tuples = new ArrayList<>();
+    Object decodedKey = mapping.decodeKeyValue( result.getRow() );
+    List<byte[]> familyBytes = new ArrayList<>();
+    if ( families == null ) {
+      familyBytes.addAll( rowData.keySet() );
+    } else {
+      for ( String family : families ) {
+        familyBytes.add( bytes( family.trim() ) );
+      }
+    }
+    for ( int i = 0; i < familyBytes.size(); i++ ) {
+      NavigableMap<byte[], NavigableMap<Long, byte[]>> colMap = rowData.get( familyBytes.get( i ) );
+      for ( byte[] colName : colMap.keySet() ) {
+        Map.Entry<Long, byte[]> mostRecentColVal = colMap.get( colName ).firstEntry();
+        Object[] tuple = RowDataUtil.allocateRowData( outputRowMeta.size() );
+        tuple[0] = decodedKey;
+        tuple[1] = families == null ? tupleCols.get( 1 ).decodeColumnValue( familyBytes.get( i ) ) : families[i];
+        tuple[2] = tupleCols.get( 2 ).decodeColumnValue( colName );
+        tuple[3] = tupleCols.get( 3 ).decodeColumnValue( mostRecentColVal.getValue() );
+        tuple[4] = mostRecentColVal.getKey();
+        tuples.add( tuple );
+      }
+    }
+    return tuples;
+  }
+
+  private static void assertTuplesEqual( List<Object[]> expected, List<Object[]> actual ) {
+    assertEquals( expected.size(), actual.size() );
+    for ( int i = 0; i < expected.size(); i++ ) {
+      assertArrayEquals( expected.get( i ), actual.get( i ) );
+    }
+  }
+
+  @Test
+  public void testAllFamiliesMatchMapWalk() throws Exception {
+    put( "f1", "a", 1L, "f1a" );
+    put( "f1", "b", 2L, "f1b" );
+    put( "f2", "a", 3L, "f2a" );
+
+    List<Object[]> expected = mapWalk( null );
+    assertEquals( 3, expected.size() );
+    assertTuplesEqual( expected, decode() );
+    assertTuplesEqual( expected, stream() );
+    assertArrayEquals( new Object[] { "decodedKey", "f1", "b", "f1b", 2L },
+      Arrays.copyOf( decode().get( 1 ), 5 ) );
+  }
+
+  @Test
+  public void testUserSpecifiedFamiliesMatchMapWalk() throws Exception {
+    put( "f1", "a", 1L, "f1a" );
+    put( "f2", "a", 2L, "f2a" );
+    put( "f3", "a", 3L, "f3a" );
+    tupleFamilies( "f3,f1" );
+
+    List<Object[]> expected = mapWalk( new String[] { "f3", "f1" } );
+    assertEquals( 2, expected.size() );
+    assertTuplesEqual( expected, decode() );
+    assertTuplesEqual( expected, stream() );
+  }
+
+  @Test
+  public void testMultipleVersionsEmitNewestOnly() throws Exception {
+    put( "f1", "a", 1L, "old" );
+    put( "f1", "a", 5L, "new" );
+    put( "f1", "a", 3L, "middle" );
+    put( "f1", "b", 2L, "b" );
+
+    List<Object[]> tuples = decode();
+    assertTuplesEqual( mapWalk( null ), tuples );
+    assertTuplesEqual( tuples, stream() );
+    assertEquals( 2, tuples.size() );
+    assertEquals( "new", tuples.get( 0 )[3] );
+    assertEquals( 5L, tuples.get( 0 )[4] );
+  }
+
+  @Test
+  public void testMissingColumnsAreSkipped() throws Exception {
+    put( "f1", "a", 1L, "f1a" );
+    tupleFamilies( "f1,missing" );
+
+    try {
+      // the map walk failed on a requested family with no cells in the row
+      mapWalk( new String[] { "f1", "missing" } );
+      fail();
+    } catch ( NullPointerException e ) {
+      // expected
+    }
+    List<Object[]> tuples = decode();
+    assertTuplesEqual( mapWalk( new String[] { "f1" } ), tuples );
+    assertTuplesEqual( tuples, stream() );
+  }
+
+  @Test
+  public void testKeyOnlyRowEmitsNothing() throws Exception {
+    assertTrue( mapWalk( null ).isEmpty() );
+    assertTrue( decode().isEmpty() );
+    assertTrue( stream().isEmpty() );
+
+    tupleFamilies( "f1" );
+    assertTrue( decode().isEmpty() );
+    assertTrue( stream().isEmpty() );
+  }
+}
@@ -0,0 +1,170 @@
+/*! ******************************************************************************
+ *
+ * Pentaho Data Integration
+ *
+ * Copyright (C) 2002-2016 by Pentaho : http://www.pentaho.com
+ *
+ *******************************************************************************
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ ******************************************************************************/
+package org.pentaho.big.data.kettle.plugins.hbase.mapping;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.fail;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Properties;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Before;
+import org.junit.Test;
+
+public class MappingCacheTest {
+  private MappingCache mappingCache;
+  private AtomicInteger loads;
+  private Properties props;
+
+  @Before
+  public void setUp() {
+    mappingCache = new MappingCache( TimeUnit.MINUTES.toMillis( 5 ) );
+    loads = new AtomicInteger();
+    props = new Properties();
+    props.setProperty( "hbase.zookeeper.quorum", "zk1" );
+  }
+
+  private Callable<MappingCache.MappingRow> loader() {
+    return new Callable<MappingCache.MappingRow>() {
+      @Override public MappingCache.MappingRow call() throws Exception {
+        loads.incrementAndGet();
+        return new MappingCache.MappingRow( null, null );
+      }
+    };
+  }
+
+  @Test
+  public void testCachedPerCluster() throws Exception {
+    MappingCache.MappingRow row =
+      mappingCache.get( "cluster", props, "pentaho_mappings", "table", "mapping", loader() );
+    assertSame( row, mappingCache.get( "cluster", props, "pentaho_mappings", "table", "mapping", loader() ) );
+    assertNotSame( row, mappingCache.get( "other", props, "pentaho_mappings", "table", "mapping", loader() ) );
+    assertEquals( 2, loads.get() );
+  }
+
+  @Test
+  public void testCachedPerConnectionProperties() throws Exception {
+    Properties otherProps = new Properties();
+    otherProps.putAll( props );
+    otherProps.setProperty( "hbase.zookeeper.quorum", "zk2" );
+    MappingCache.MappingRow row =
+      mappingCache.get( "cluster", props, "pentaho_mappings", "table", "mapping", loader() );
+    assertNotSame( row, mappingCache.get( "cluster", otherProps, "pentaho_mappings", "table", "mapping", loader() ) );
+    otherProps.setProperty( "hbase.zookeeper.quorum", "zk1" );
+    assertSame( row, mappingCache.get( "cluster", otherProps, "pentaho_mappings", "table", "mapping", loader() ) );
+    assertEquals( 2, loads.get() );
+  }
+
+  @Test
+  public void testInvalidateAllClusters() throws Exception {
+    mappingCache.get( "cluster", props, "pentaho_mappings", "table", "mapping", loader() );
+    mappingCache.get( "other", props, "pentaho_mappings", "table", "mapping", loader() );
+    mappingCache.get( "cluster", props, "pentaho_mappings", "table", "mapping2", loader() );
+    mappingCache.invalidate( "pentaho_mappings", "table", "mapping" );
+    assertEquals( 1, mappingCache.size() );
+    mappingCache.get( "cluster", props, "pentaho_mappings", "table", "mapping", loader() );
+    assertEquals( 4, loads.get() );
+  }
+
+  @Test
+  public void testExpired() throws Exception {
+    mappingCache = new MappingCache( 1 );
+    mappingCache.get( "cluster", props, "pentaho_mappings", "table", "mapping", loader() );
+    Thread.sleep( 5 );
+    mappingCache.get( "cluster", props, "pentaho_mappings", "table", "mapping", loader() );
+    assertEquals( 2, loads.get() );
+  }
+
+  @Test
+  public void testDisabled() throws Exception {
+    mappingCache = new MappingCache( 0 );
+    mappingCache.get( "cluster", props, "pentaho_mappings", "table", "mapping", loader() );
+    mappingCache.get( "cluster", props, "pentaho_mappings", "table", "mapping", loader() );
+    assertEquals( 2, loads.get() );
+    assertEquals( 0, mappingCache.size() );
+  }
+
+  @Test
+  public void testFailureNotCached() throws Exception {
+    final IOException ioException = new IOException( "missing" );
+    try {
+      mappingCache.get( "cluster", props, "pentaho_mappings", "table", "mapping",
+        new Callable<MappingCache.MappingRow>() {
+          @Override public MappingCache.MappingRow call() throws Exception {
+            throw ioException;
+          }
+        } );
+      fail();
+    } catch ( IOException e ) {
+      assertSame( ioException, e );
+    }
+    assertEquals( 0, mappingCache.size() );
+    mappingCache.get( "cluster", props, "pentaho_mappings", "table", "mapping", loader() );
+    assertEquals( 1, loads.get() );
+  }
+
+  @Test
+  public void testConcurrentLoadsCollapsed() throws Exception {
+    final CountDownLatch loading = new CountDownLatch( 1 );
+    final CountDownLatch release = new CountDownLatch( 1 );
+    final Callable<MappingCache.MappingRow> slowLoader = new Callable<MappingCache.MappingRow>() {
+      @Override public MappingCache.MappingRow call() throws Exception {
+        loads.incrementAndGet();
+        loading.countDown();
+        release.await();
+        return new MappingCache.MappingRow( null, null );
+      }
+    };
+    ExecutorService executorService = Executors.newFixedThreadPool( 4 );
+    try {
+      List<Future<MappingCache.MappingRow>> futures = new ArrayList<>();
+      for ( int i = 0; i < 4; i++ ) {
+        futures.add( executorService.submit( new Callable<MappingCache.MappingRow>() {
+          @Override public MappingCache.MappingRow call() throws Exception {
+            return mappingCache.get( "cluster", props, "pentaho_mappings", "table", "mapping", slowLoader );
+          }
+        } ) );
+      }
+      loading.await( 5, TimeUnit.SECONDS );
+      Thread.sleep( 50 );
+      release.countDown();
+      MappingCache.MappingRow row = futures.get( 0 ).get( 5, TimeUnit.SECONDS );
+      for ( Future<MappingCache.MappingRow> future : futures ) {
+        assertSame( row, future.get( 5, TimeUnit.SECONDS ) );
+      }
+      assertEquals( 1, loads.get() );
+    } finally {
+      executorService.shutdownNow();
+    }
+  }
+}
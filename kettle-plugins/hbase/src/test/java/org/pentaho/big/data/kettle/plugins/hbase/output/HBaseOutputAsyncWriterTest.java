@@ -0,0 +1,179 @@
+/*******************************************************************************
+ *
+ * Pentaho Big Data
+ *
+ * Copyright (C) 2002-2016 by Pentaho : http://www.pentaho.com
+ *
+ *******************************************************************************
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ ******************************************************************************/
+package org.pentaho.big.data.kettle.plugins.hbase.output;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
+import org.pentaho.bigdata.api.hbase.table.HBasePut;
+import org.pentaho.bigdata.api.hbase.table.HBaseTableWriteOperationManager;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Matchers.anyListOf;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.verify;
+
+public class HBaseOutputAsyncWriterTest {
+  private HBaseTableWriteOperationManager writeOperationManager;
+  private List<List<HBasePut>> batches;
+
+  @Before
+  public void setup() throws IOException {
+    writeOperationManager = mock( HBaseTableWriteOperationManager.class );
+    batches = new CopyOnWriteArrayList<>();
+    doAnswer( new Answer<Void>() {
+      @SuppressWarnings( "unchecked" )
+      @Override public Void answer( InvocationOnMock invocation ) throws Throwable {
+        batches.add( new ArrayList<>( (List<HBasePut>) invocation.getArguments()[ 0 ] ) );
+        return null;
+      }
+    } ).when( writeOperationManager ).executeBatch( anyListOf( HBasePut.class ) );
+  }
+
+  @Test
+  public void testAllPutsWrittenInBatchesOnClose() throws Exception {
+    HBaseOutputAsyncWriter writer = new HBaseOutputAsyncWriter( "test", writeOperationManager, 3, 60000, 1 );
+    HBasePut[] puts = new HBasePut[ 10 ];
+    for ( int i = 0; i < puts.length; i++ ) {
+      puts[ i ] = mock( HBasePut.class );
+      writer.add( puts[ i ], new Object[] { i } );
+    }
+    writer.close();
+    assertEquals( 4, batches.size() );
+    assertEquals( Arrays.asList( puts[ 0 ], puts[ 1 ], puts[ 2 ] ), batches.get( 0 ) );
+    assertEquals( Arrays.asList( puts[ 9 ] ), batches.get( 3 ) );
+    assertNull( writer.pollFailure() );
+  }
+
+  @Test
+  public void testFailureReportedWithRow() throws Exception {
+    HBaseOutputAsyncWriter writer = new HBaseOutputAsyncWriter( "test", writeOperationManager, 2, 60000, 2 );
+    HBasePut good = mock( HBasePut.class );
+    final HBasePut bad = mock( HBasePut.class );
+    final IOException exception = new IOException( "bad" );
+    doAnswer( new Answer<Void>() {
+      @Override public Void answer( InvocationOnMock invocation ) throws Throwable {
+        if ( ( (List<?>) invocation.getArguments()[ 0 ] ).contains( bad ) ) {
+          throw exception;
+        }
+        return null;
+      }
+    } ).when( writeOperationManager ).executeBatch( anyListOf( HBasePut.class ) );
+    Object[] badRow = new Object[] { "bad" };
+    writer.add( good, new Object[] { "good" } );
+    writer.add( bad, badRow );
+    writer.add( good, new Object[] { "good" } );
+    writer.close();
+    HBaseOutputAsyncWriter.Failure failure = writer.pollFailure();
+    assertSame( badRow, failure.getRow() );
+    assertSame( exception, failure.getException() );
+    assertNull( writer.pollFailure() );
+  }
+
+  @Test
+  public void testWriteBufferFlushedBeforeRetry() throws Exception {
+    final List<String> calls = new CopyOnWriteArrayList<>();
+    final HBasePut bad = mock( HBasePut.class );
+    doAnswer( new Answer<Void>() {
+      @Override public Void answer( InvocationOnMock invocation ) throws Throwable {
+        List<?> puts = (List<?>) invocation.getArguments()[ 0 ];
+        calls.add( "batch" + puts.size() );
+        if ( puts.contains( bad ) ) {
+          throw new IOException( "bad" );
+        }
+        return null;
+      }
+    } ).when( writeOperationManager ).executeBatch( anyListOf( HBasePut.class ) );
+    doAnswer( new Answer<Void>() {
+      @Override public Void answer( InvocationOnMock invocation ) throws Throwable {
+        calls.add( "flush" );
+        return null;
+      }
+    } ).when( writeOperationManager ).flushCommits();
+    HBaseOutputAsyncWriter writer = new HBaseOutputAsyncWriter( "test", writeOperationManager, 2, 60000, 1 );
+    writer.add( mock( HBasePut.class ), new Object[ 0 ] );
+    writer.add( bad, new Object[ 0 ] );
+    writer.close();
+    assertEquals( Arrays.asList( "batch2", "flush", "batch1", "batch1" ), calls );
+  }
+
+  @Test
+  public void testFlushIntervalHandsOffPartialBatch() throws Exception {
+    HBaseOutputAsyncWriter writer = new HBaseOutputAsyncWriter( "test", writeOperationManager, 1000, 0, 1 );
+    HBasePut put = mock( HBasePut.class );
+    writer.add( put, new Object[ 0 ] );
+    writer.add( put, new Object[ 0 ] );
+    writer.close();
+    assertEquals( 2, batches.size() );
+    assertNull( writer.pollFailure() );
+  }
+
+  @Test
+  public void testFlusherWritesIdlePartialBatch() throws Exception {
+    HBaseOutputAsyncWriter writer = new HBaseOutputAsyncWriter( "test", writeOperationManager, 1000, 50, 1 );
+    HBasePut put = mock( HBasePut.class );
+    writer.add( put, new Object[ 0 ] );
+    // The batch is neither full nor closed, only the flusher's timer can write it
+    verify( writeOperationManager, timeout( 5000 ) ).executeBatch( anyListOf( HBasePut.class ) );
+    assertEquals( Arrays.asList( put ), batches.get( 0 ) );
+    writer.close();
+    assertEquals( 1, batches.size() );
+  }
+
+  @Test
+  public void testStopWaitsForWriteInProgress() throws Exception {
+    final CountDownLatch writing = new CountDownLatch( 1 );
+    final AtomicBoolean written = new AtomicBoolean( false );
+    doAnswer( new Answer<Void>() {
+      @Override public Void answer( InvocationOnMock invocation ) throws Throwable {
+        writing.countDown();
+        // Ignore interrupts like a write already sent to HBase would
+        long end = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos( 200 );
+        while ( System.nanoTime() < end ) {
+          Thread.yield();
+        }
+        written.set( true );
+        return null;
+      }
+    } ).when( writeOperationManager ).executeBatch( anyListOf( HBasePut.class ) );
+    HBaseOutputAsyncWriter writer = new HBaseOutputAsyncWriter( "test", writeOperationManager, 1, 60000, 1 );
+    writer.add( mock( HBasePut.class ), new Object[ 0 ] );
+    assertTrue( writing.await( 5, TimeUnit.SECONDS ) );
+    writer.stop();
+    assertTrue( written.get() );
+  }
+}
@@ -75,6 +75,26 @@ public class HBaseOutputMetaInjectionTest extends BaseMetadataInjectionTest<HBas
         return meta.getWriteBufferSize();
       }
     } );
+    check( "ASYNC_WRITE", new BooleanGetter() {
+      public boolean get() {
+        return meta.getAsyncWrite();
+      }
+    } );
+    check( "ASYNC_BATCH_SIZE", new StringGetter() {
+      public String get() {
+        return meta.getAsyncBatchSize();
+      }
+    } );
+    check( "ASYNC_FLUSH_INTERVAL", new StringGetter() {
+      public String get() {
+        return meta.getAsyncFlushInterval();
+      }
+    } );
+    check( "ASYNC_MAX_IN_FLIGHT_BATCHES", new StringGetter() {
+      public String get() {
+        return meta.getAsyncMaxInFlightBatches();
+      }
+    } );
 
     check( "TABLE_NAME", new StringGetter() {
       public String get() {
@@ -25,14 +25,27 @@ package org.pentaho.big.data.kettle.plugins.hdfs.job;
 import com.google.common.annotations.VisibleForTesting;
 import org.pentaho.big.data.api.cluster.NamedCluster;
 import org.pentaho.big.data.api.cluster.NamedClusterService;
+import org.pentaho.di.cluster.SlaveServer;
 import org.pentaho.di.core.Const;
+import org.pentaho.di.core.Result;
+import org.pentaho.di.core.RowMetaAndData;
 import org.pentaho.di.core.annotations.JobEntry;
+import org.pentaho.di.core.database.DatabaseMeta;
+import org.pentaho.di.core.exception.KettleException;
+import org.pentaho.di.core.exception.KettleValueException;
+import org.pentaho.di.core.exception.KettleXMLException;
 import org.pentaho.di.core.variables.VariableSpace;
+import org.pentaho.di.core.xml.XMLHandler;
+import org.pentaho.di.i18n.BaseMessages;
 import org.pentaho.di.job.entries.copyfiles.JobEntryCopyFiles;
+import org.pentaho.di.repository.ObjectId;
+import org.pentaho.di.repository.Repository;
 import org.pentaho.metastore.api.IMetaStore;
 import org.pentaho.runtime.test.RuntimeTester;
 import org.pentaho.runtime.test.action.RuntimeTestActionService;
+import org.w3c.dom.Node;
 
+import java.util.List;
 import java.util.Map;
 
 @JobEntry( id = "HadoopCopyFilesPlugin", image = "HDM.svg", name = "HadoopCopyFilesPlugin.Name",
@@ -44,9 +57,12 @@ public class JobEntryHadoopCopyFiles extends JobEntryCopyFiles {
 
   public static final String S3_SOURCE_FILE = "S3-SOURCE-FILE-";
   public static final String S3_DEST_FILE = "S3-DEST-FILE-";
+  public static final String PARALLEL_COPY_THREADS = "parallel_copy_threads";
+  private static final Class<?> PKG = JobEntryHadoopCopyFiles.class;
   private final NamedClusterService namedClusterService;
   private final RuntimeTestActionService runtimeTestActionService;
   private final RuntimeTester runtimeTester;
+  private String parallelCopyThreads = "1";
 
   public JobEntryHadoopCopyFiles( NamedClusterService namedClusterService,
                                   RuntimeTestActionService runtimeTestActionService, RuntimeTester runtimeTester ) {
@@ -82,4 +98,95 @@ public class JobEntryHadoopCopyFiles extends JobEntryCopyFiles {
   public RuntimeTester getRuntimeTester() {
     return runtimeTester;
   }
+
+  /**
+   * @return the number of files copied at the same time, may contain variables. One keeps the sequential copy.
+   */
+  public String getParallelCopyThreads() {
+    return parallelCopyThreads;
+  }
+
+  public void setParallelCopyThreads( String parallelCopyThreads ) {
+    this.parallelCopyThreads = parallelCopyThreads;
+  }
+
+  @Override public String getXML() {
+    return super.getXML() + "      " + XMLHandler.addTagValue( PARALLEL_COPY_THREADS, parallelCopyThreads );
+  }
+
+  @Override public void loadXML( Node entrynode, List<DatabaseMeta> databases, List<SlaveServer> slaveServers,
+                                 Repository rep, IMetaStore metaStore ) throws KettleXMLException {
+    super.loadXML( entrynode, databases, slaveServers, rep, metaStore );
+    String threads = XMLHandler.getTagValue( entrynode, PARALLEL_COPY_THREADS );
+    parallelCopyThreads = Const.isEmpty( threads ) ? "1" : threads;
+  }
+
+  @Override public void loadRep( Repository rep, IMetaStore metaStore, ObjectId id_jobentry,
+                                 List<DatabaseMeta> databases, List<SlaveServer> slaveServers )
+    throws KettleException {
+    super.loadRep( rep, metaStore, id_jobentry, databases, slaveServers );
+    String threads = rep.getJobEntryAttributeString( id_jobentry, PARALLEL_COPY_THREADS );
+    parallelCopyThreads = Const.isEmpty( threads ) ? "1" : threads;
+  }
+
+  @Override public void saveRep( Repository rep, IMetaStore metaStore, ObjectId id_job ) throws KettleException {
+    super.saveRep( rep, metaStore, id_job );
+    rep.saveJobEntryAttribute( id_job, getObjectId(), PARALLEL_COPY_THREADS, parallelCopyThreads );
+  }
+
+  @Override public Result execute( Result previousResult, int nr ) {
+    int threads = Const.toInt( environmentSubstitute( parallelCopyThreads ), 1 );
+    if ( threads <= 1 ) {
+      return super.execute( previousResult, nr );
+    }
+    Result result = previousResult;
+    ParallelFileCopier parallelFileCopier = new ParallelFileCopier( this, log, parentJob, threads );
+    int errors = 0;
+    List<RowMetaAndData> rows = result.getRows();
+    if ( arg_from_previous && rows != null ) {
+      if ( log.isDetailed() ) {
+        logDetailed( BaseMessages.getString( PKG, "JobHadoopCopyFiles.Log.ArgFromPrevious.Found", rows.size() ) );
+      }
+      for ( RowMetaAndData row : rows ) {
+        try {
+          errors += addFileFolder( parallelFileCopier, row.getString( 0, null ), row.getString( 1, null ),
+            row.getString( 2, null ) );
+        } catch ( KettleValueException e ) {
+          logError( e.getMessage(), e );
+          errors++;
+        }
+      }
+    } else if ( source_filefolder != null && destination_filefolder != null ) {
+      for ( int i = 0; i < source_filefolder.length; i++ ) {
+        errors += addFileFolder( parallelFileCopier, source_filefolder[ i ], destination_filefolder[ i ],
+          wildcard == null ? null : wildcard[ i ] );
+      }
+    }
+    logBasic( BaseMessages.getString( PKG, "JobHadoopCopyFiles.Log.ParallelCopy", parallelFileCopier.getTaskCount(),
+      threads ) );
+    try {
+      errors += parallelFileCopier.copy( result );
+    } catch ( InterruptedException e ) {
+      Thread.currentThread().interrupt();
+      errors++;
+    }
+    result.setNrErrors( errors );
+    result.setResult( errors == 0 );
+    return result;
+  }
+
+  private int addFileFolder( ParallelFileCopier parallelFileCopier, String source, String destination,
+                             String wildcardPattern ) {
+    if ( Const.isEmpty( source ) || Const.isEmpty( destination ) || ( parentJob != null && parentJob.isStopped() ) ) {
+      return 0;
+    }
+    String realSource = environmentSubstitute( source );
+    String realDestination = environmentSubstitute( destination );
+    String realWildcard = environmentSubstitute( wildcardPattern );
+    if ( log.isBasic() ) {
+      logBasic( BaseMessages.getString( PKG, "JobHadoopCopyFiles.Log.ProcessingRow", realSource, realDestination,
+        realWildcard ) );
+    }
+    return parallelFileCopier.addFileFolder( realSource, realDestination, realWildcard ) ? 0 : 1;
+  }
 }
@@ -0,0 +1,283 @@
+/*******************************************************************************
+ *
+ * Pentaho Big Data
+ *
+ * Copyright (C) 2002-2016 by Pentaho : http://www.pentaho.com
+ *
+ *******************************************************************************
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ ******************************************************************************/
+
+package org.pentaho.big.data.kettle.plugins.hdfs.job;
+
+import org.apache.commons.vfs2.FileObject;
+import org.apache.commons.vfs2.FileType;
+import org.pentaho.di.core.Const;
+import org.pentaho.di.core.Result;
+import org.pentaho.di.core.ResultFile;
+import org.pentaho.di.core.logging.LogChannelInterface;
+import org.pentaho.di.core.vfs.KettleVFS;
+import org.pentaho.di.i18n.BaseMessages;
+import org.pentaho.di.job.Job;
+import org.pentaho.di.job.entries.copyfiles.JobEntryCopyFiles;
+
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.regex.Pattern;
+
+/**
+ * Copies the files selected by a copy files job entry with a pool of workers.  Sources are resolved and walked up
+ * front on the calling thread (applying the same wildcard, subfolder and destination rules as the sequential copy)
+ * and the individual file transfers are then run in parallel.
+ */
+public class ParallelFileCopier {
+  private static final Class<?> PKG = JobEntryHadoopCopyFiles.class;
+  public static final int BUFFER_SIZE = 1024 * 1024;
+  public static final int PROGRESS_INTERVAL = 1000;
+  private final JobEntryCopyFiles jobEntry;
+  private final LogChannelInterface log;
+  private final Job parentJob;
+  private final int threads;
+  private final List<CopyTask> tasks = new ArrayList<>();
+
+  public ParallelFileCopier( JobEntryCopyFiles jobEntry, LogChannelInterface log, Job parentJob, int threads ) {
+    this.jobEntry = jobEntry;
+    this.log = log;
+    this.parentJob = parentJob;
+    this.threads = Math.max( 1, threads );
+  }
+
+  /**
+   * Resolves a source/destination/wildcard row into individual file copies
+   *
+   * @return false if the row could not be processed
+   */
+  public boolean addFileFolder( String sourceFileFolder, String destinationFileFolder, String wildcard ) {
+    try {
+      FileObject source = KettleVFS.getFileObject( sourceFileFolder, jobEntry );
+      FileObject destination = KettleVFS.getFileObject( destinationFileFolder, jobEntry );
+      if ( !source.exists() ) {
+        log.logError( BaseMessages.getString( PKG, "JobHadoopCopyFiles.Error.SourceFileNotExists",
+          source.getName().getFriendlyURI() ) );
+        return false;
+      }
+      if ( source.getType() == FileType.FILE ) {
+        FileObject target = destination;
+        if ( destination.getType() == FileType.FOLDER ) {
+          target = destination.resolveFile( source.getName().getBaseName() );
+        } else if ( !destination.exists() && !jobEntry.destination_is_a_file ) {
+          if ( !prepareFolder( destination ) ) {
+            return false;
+          }
+          target = destination.resolveFile( source.getName().getBaseName() );
+        } else if ( !destination.exists() && !prepareFolder( destination.getParent() ) ) {
+          return false;
+        }
+        tasks.add( new CopyTask( source, target ) );
+        return true;
+      }
+      if ( destination.getType() == FileType.FILE ) {
+        log.logError( BaseMessages.getString( PKG, "JobHadoopCopyFiles.Log.CanNotCopyFolderToFile",
+          source.getName().getFriendlyURI(), destination.getName().getFriendlyURI() ) );
+        return false;
+      }
+      if ( !prepareFolder( destination ) ) {
+        return false;
+      }
+      Pattern pattern = Const.isEmpty( wildcard ) ? null : Pattern.compile( wildcard );
+      addFolder( source, destination, pattern );
+      return true;
+    } catch ( Exception e ) {
+      log.logError( BaseMessages.getString( PKG, "JobHadoopCopyFiles.Error.Exception.CopyProcess",
+        sourceFileFolder, destinationFileFolder, e.getMessage() ), e );
+      return false;
+    }
+  }
+
+  private boolean prepareFolder( FileObject folder ) throws Exception {
+    if ( folder == null || folder.exists() ) {
+      return true;
+    }
+    if ( jobEntry.create_destination_folder ) {
+      folder.createFolder();
+      return true;
+    }
+    log.logError( BaseMessages.getString( PKG, "JobHadoopCopyFiles.Error.DestinationFolderNotFound" ) );
+    return false;
+  }
+
+  private void addFolder( FileObject sourceFolder, FileObject destinationFolder, Pattern pattern ) throws Exception {
+    if ( log.isDetailed() ) {
+      log.logDetailed( BaseMessages.getString( PKG, "JobHadoopCopyFiles.Log.FetchFolder",
+        sourceFolder.getName().getFriendlyURI() ) );
+    }
+    for ( FileObject child : sourceFolder.getChildren() ) {
+      if ( parentJob != null && parentJob.isStopped() ) {
+        return;
+      }
+      String baseName = child.getName().getBaseName();
+      if ( child.getType() == FileType.FOLDER ) {
+        if ( jobEntry.include_subfolders ) {
+          FileObject destinationChild = destinationFolder.resolveFile( baseName );
+          if ( jobEntry.copy_empty_folders && !destinationChild.exists() ) {
+            destinationChild.createFolder();
+          }
+          addFolder( child, destinationChild, pattern );
+        }
+      } else if ( pattern == null || pattern.matcher( baseName ).matches() ) {
+        tasks.add( new CopyTask( child, destinationFolder.resolveFile( baseName ) ) );
+      }
+    }
+  }
+
+  public int getTaskCount() {
+    return tasks.size();
+  }
+
+  /**
+   * Runs the collected copies
+   *
+   * @param result the result to add copied files to
+   * @return the number of files that failed to copy
+   */
+  public int copy( Result result ) throws InterruptedException {
+    final AtomicInteger completed = new AtomicInteger();
+    final int total = tasks.size();
+    ExecutorService executorService = Executors.newFixedThreadPool( Math.min( threads, Math.max( 1, total ) ),
+      new ThreadFactory() {
+        private final AtomicInteger count = new AtomicInteger();
+
+        @Override public Thread newThread( Runnable r ) {
+          Thread thread = new Thread( r, "HadoopCopyFiles-" + count.incrementAndGet() );
+          thread.setDaemon( true );
+          return thread;
+        }
+      } );
+    int errors = 0;
+    try {
+      List<Future<FileObject>> futures = new ArrayList<>( total );
+      for ( final CopyTask task : tasks ) {
+        futures.add( executorService.submit( new Callable<FileObject>() {
+          @Override public FileObject call() throws Exception {
+            if ( parentJob != null && parentJob.isStopped() ) {
+              return null;
+            }
+            FileObject copied = task.run();
+            int done = completed.incrementAndGet();
+            if ( done % PROGRESS_INTERVAL == 0 || done == total ) {
+              log.logBasic( BaseMessages.getString( PKG, "JobHadoopCopyFiles.Log.Progress", done, total ) );
+            }
+            return copied;
+          }
+        } ) );
+      }
+      for ( int i = 0; i < futures.size(); i++ ) {
+        try {
+          FileObject copied = futures.get( i ).get();
+          if ( copied != null && jobEntry.add_result_filesname ) {
+            ResultFile resultFile = new ResultFile( ResultFile.FILE_TYPE_GENERAL, copied,
+              parentJob == null ? null : parentJob.getJobname(), jobEntry.toString() );
+            synchronized ( result ) {
+              result.getResultFiles().put( resultFile.getFile().toString(), resultFile );
+            }
+            if ( log.isDebug() ) {
+              log.logDebug( BaseMessages.getString( PKG, "JobHadoopCopyFiles.Log.FileAddedToResultFilesName",
+                copied.getName().getFriendlyURI() ) );
+            }
+          }
+        } catch ( ExecutionException e ) {
+          errors++;
+          CopyTask task = tasks.get( i );
+          log.logError( BaseMessages.getString( PKG, "JobHadoopCopyFiles.Error.Exception.CopyProcessError",
+            task.source.getName().getFriendlyURI(), task.target.getName().getFriendlyURI(),
+            e.getCause().getMessage() ), e.getCause() );
+        }
+      }
+    } finally {
+      executorService.shutdownNow();
+    }
+    tasks.clear();
+    return errors;
+  }
+
+  private class CopyTask {
+    private final FileObject source;
+    private final FileObject target;
+
+    private CopyTask( FileObject source, FileObject target ) {
+      this.source = source;
+      this.target = target;
+    }
+
+    /**
+     * @return the copied file or null if it was skipped
+     */
+    private FileObject run() throws Exception {
+      if ( target.exists() ) {
+        if ( !jobEntry.overwrite_files ) {
+          if ( log.isDetailed() ) {
+            log.logDetailed( BaseMessages.getString( PKG, "JobHadoopCopyFiles.Log.FileExistsInfos" ) + " "
+              + target.getName().getFriendlyURI() );
+          }
+          return null;
+        }
+        if ( jobEntry.remove_source_files ) {
+          target.delete();
+        }
+      }
+      if ( jobEntry.remove_source_files && source.canRenameTo( target ) ) {
+        // Same filesystem, let the server move the file instead of streaming it through the client
+        source.moveTo( target );
+      } else {
+        transfer();
+        if ( jobEntry.remove_source_files ) {
+          source.delete();
+          if ( log.isDetailed() ) {
+            log.logDetailed( BaseMessages.getString( PKG, "JobHadoopCopyFiles.Log.FileRemoved",
+              source.getName().getFriendlyURI() ) );
+          }
+        }
+      }
+      if ( log.isDetailed() ) {
+        log.logDetailed( BaseMessages.getString( PKG, "JobHadoopCopyFiles.Log.FileCopied",
+          source.getName().getFriendlyURI(), target.getName().getFriendlyURI() ) );
+      }
+      return target;
+    }
+
+    private void transfer() throws Exception {
+      byte[] buffer = new byte[ BUFFER_SIZE ];
+      try ( InputStream inputStream = source.getContent().getInputStream();
+            OutputStream outputStream = target.getContent().getOutputStream() ) {
+        int read;
+        while ( ( read = inputStream.read( buffer ) ) >= 0 ) {
+          outputStream.write( buffer, 0, read );
+        }
+      } finally {
+        source.close();
+        target.close();
+      }
+    }
+  }
+}
@@ -61,7 +61,7 @@ public class JobEntryHadoopCopyFilesLoadSaveTest {
   public void testLoadSave() throws KettleException {
     List<String> commonAttributes = Arrays.asList( "copy_empty_folders", "arg_from_previous", "overwrite_files",
       "include_subfolders", "remove_source_files", "add_result_filesname", "destination_is_a_file",
-      "create_destination_folder" );
+      "create_destination_folder", "parallel_copy_threads" );
 
     Map<String, String> getterMap = new HashMap<String, String>();
     getterMap.put( "copy_empty_folders", "isCopyEmptyFolders" );
@@ -72,6 +72,7 @@ public class JobEntryHadoopCopyFilesLoadSaveTest {
     getterMap.put( "add_result_filesname", "isAddresultfilesname" );
     getterMap.put( "destination_is_a_file", "isDestinationIsAFile" );
     getterMap.put( "create_destination_folder", "isCreateDestinationFolder" );
+    getterMap.put( "parallel_copy_threads", "getParallelCopyThreads" );
 
     Map<String, String> setterMap = new HashMap<String, String>();
     setterMap.put( "copy_empty_folders", "setCopyEmptyFolders" );
@@ -82,6 +83,7 @@ public class JobEntryHadoopCopyFilesLoadSaveTest {
     setterMap.put( "add_result_filesname", "setAddresultfilesname" );
     setterMap.put( "destination_is_a_file", "setDestinationIsAFile" );
     setterMap.put( "create_destination_folder", "setCreateDestinationFolder" );
+    setterMap.put( "parallel_copy_threads", "setParallelCopyThreads" );
 
     LoadSaveTester<JobEntryHadoopCopyFiles> tester =
       new LoadSaveTester<JobEntryHadoopCopyFiles>( JobEntryHadoopCopyFiles.class, commonAttributes,
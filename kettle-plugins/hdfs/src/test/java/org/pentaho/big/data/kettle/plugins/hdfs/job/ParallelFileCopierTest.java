@@ -0,0 +1,144 @@
+/*******************************************************************************
+ *
+ * Pentaho Big Data
+ *
+ * Copyright (C) 2002-2016 by Pentaho : http://www.pentaho.com
+ *
+ *******************************************************************************
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ ******************************************************************************/
+
+package org.pentaho.big.data.kettle.plugins.hdfs.job;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.pentaho.big.data.api.cluster.NamedClusterService;
+import org.pentaho.di.core.Result;
+import org.pentaho.di.core.logging.LogChannelInterface;
+import org.pentaho.runtime.test.RuntimeTester;
+import org.pentaho.runtime.test.action.RuntimeTestActionService;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.mock;
+
+public class ParallelFileCopierTest {
+  private File sourceDir;
+  private File destinationDir;
+  private JobEntryHadoopCopyFiles jobEntry;
+
+  @Before
+  public void setup() throws IOException {
+    sourceDir = Files.createTempDirectory( "copySource" ).toFile();
+    destinationDir = Files.createTempDirectory( "copyDestination" ).toFile();
+    write( new File( sourceDir, "a.txt" ), "a" );
+    write( new File( sourceDir, "b.csv" ), "b" );
+    write( new File( new File( sourceDir, "sub" ), "c.txt" ), "c" );
+    jobEntry = new JobEntryHadoopCopyFiles( mock( NamedClusterService.class ), mock( RuntimeTestActionService.class ),
+      mock( RuntimeTester.class ) );
+  }
+
+  @After
+  public void tearDown() {
+    delete( sourceDir );
+    delete( destinationDir );
+  }
+
+  @Test
+  public void testCopyFolderWithWildcard() throws Exception {
+    jobEntry.include_subfolders = true;
+    ParallelFileCopier parallelFileCopier =
+      new ParallelFileCopier( jobEntry, mock( LogChannelInterface.class ), null, 4 );
+    assertTrue( parallelFileCopier.addFileFolder( sourceDir.getAbsolutePath(), destinationDir.getAbsolutePath(),
+      ".*\\.txt" ) );
+    assertEquals( 2, parallelFileCopier.getTaskCount() );
+    assertEquals( 0, parallelFileCopier.copy( new Result() ) );
+    assertEquals( "a", read( new File( destinationDir, "a.txt" ) ) );
+    assertEquals( "c", read( new File( new File( destinationDir, "sub" ), "c.txt" ) ) );
+    assertFalse( new File( destinationDir, "b.csv" ).exists() );
+    assertTrue( new File( sourceDir, "a.txt" ).exists() );
+  }
+
+  @Test
+  public void testCopyFolderWithoutSubfolders() throws Exception {
+    ParallelFileCopier parallelFileCopier =
+      new ParallelFileCopier( jobEntry, mock( LogChannelInterface.class ), null, 4 );
+    assertTrue( parallelFileCopier.addFileFolder( sourceDir.getAbsolutePath(), destinationDir.getAbsolutePath(),
+      null ) );
+    assertEquals( 2, parallelFileCopier.getTaskCount() );
+    assertEquals( 0, parallelFileCopier.copy( new Result() ) );
+    assertFalse( new File( destinationDir, "sub" ).exists() );
+  }
+
+  @Test
+  public void testMoveAndAddResultFiles() throws Exception {
+    jobEntry.remove_source_files = true;
+    jobEntry.add_result_filesname = true;
+    Result result = new Result();
+    ParallelFileCopier parallelFileCopier =
+      new ParallelFileCopier( jobEntry, mock( LogChannelInterface.class ), null, 2 );
+    assertTrue( parallelFileCopier.addFileFolder( new File( sourceDir, "a.txt" ).getAbsolutePath(),
+      destinationDir.getAbsolutePath(), null ) );
+    assertEquals( 0, parallelFileCopier.copy( result ) );
+    assertFalse( new File( sourceDir, "a.txt" ).exists() );
+    assertEquals( "a", read( new File( destinationDir, "a.txt" ) ) );
+    assertEquals( 1, result.getResultFiles().size() );
+  }
+
+  @Test
+  public void testExistingNotOverwritten() throws Exception {
+    write( new File( destinationDir, "a.txt" ), "old" );
+    ParallelFileCopier parallelFileCopier =
+      new ParallelFileCopier( jobEntry, mock( LogChannelInterface.class ), null, 2 );
+    assertTrue( parallelFileCopier.addFileFolder( new File( sourceDir, "a.txt" ).getAbsolutePath(),
+      destinationDir.getAbsolutePath(), null ) );
+    assertEquals( 0, parallelFileCopier.copy( new Result() ) );
+    assertEquals( "old", read( new File( destinationDir, "a.txt" ) ) );
+  }
+
+  @Test
+  public void testMissingSource() {
+    ParallelFileCopier parallelFileCopier =
+      new ParallelFileCopier( jobEntry, mock( LogChannelInterface.class ), null, 2 );
+    assertFalse( parallelFileCopier.addFileFolder( new File( sourceDir, "missing" ).getAbsolutePath(),
+      destinationDir.getAbsolutePath(), null ) );
+  }
+
+  private static void delete( File file ) {
+    File[] children = file.listFiles();
+    if ( children != null ) {
+      for ( File child : children ) {
+        delete( child );
+      }
+    }
+    file.delete();
+  }
+
+  private static void write( File file, String content ) throws IOException {
+    file.getParentFile().mkdirs();
+    Files.write( file.toPath(), content.getBytes( StandardCharsets.UTF_8 ) );
+  }
+
+  private static String read( File file ) throws IOException {
+    return new String( Files.readAllBytes( file.toPath() ), StandardCharsets.UTF_8 );
+  }
+}
@@ -31,6 +31,7 @@ import org.pentaho.big.data.kettle.plugins.mapreduce.entry.UserDefinedItem;
 import org.pentaho.big.data.kettle.plugins.mapreduce.step.exit.HadoopExitMeta;
 import org.pentaho.bigdata.api.mapreduce.MapReduceJobAdvanced;
 import org.pentaho.bigdata.api.mapreduce.MapReduceJobBuilder;
+import org.pentaho.bigdata.api.mapreduce.MapReduceJobListener;
 import org.pentaho.bigdata.api.mapreduce.MapReduceService;
 import org.pentaho.bigdata.api.mapreduce.PentahoMapReduceJobBuilder;
 import org.pentaho.bigdata.api.mapreduce.TaskCompletionEvent;
@@ -76,6 +77,7 @@ import java.io.IOException;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.TimeUnit;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
@@ -698,16 +700,18 @@ public class JobEntryHadoopTransJobExecutor extends JobEntryBase implements Clon
       }
 
       if ( blocking ) {
+        // Progress and task events are pushed by the shared job monitor, we only block until the job is complete
+        // or the parent job is stopped
+        MapReduceJobListener jobListener = createJobListener( logIntv );
+        runningJob.addListener( jobListener );
         try {
-          int taskCompletionEventIndex = 0;
-          while ( !parentJob.isStopped() && !runningJob.isComplete() ) {
-            if ( logIntv >= 1 ) {
-              printJobStatus( runningJob );
-              taskCompletionEventIndex += logTaskMessages( runningJob, taskCompletionEventIndex );
-              Thread.sleep( logIntv * 1000 );
-            } else {
-              Thread.sleep( 60000 );
+          MapReduceService.Stoppable stoppable = new MapReduceService.Stoppable() {
+            @Override public boolean isStopped() {
+              return parentJob.isStopped();
             }
+          };
+          while ( !runningJob.waitOnCompletion( 1, TimeUnit.MINUTES, stoppable ) && !parentJob.isStopped() ) {
+            // Keep waiting
           }
 
           if ( parentJob.isStopped() && !runningJob.isComplete() ) {
@@ -718,10 +722,10 @@ public class JobEntryHadoopTransJobExecutor extends JobEntryBase implements Clon
           }
 
           printJobStatus( runningJob );
-          // Log any messages we may have missed while polling
-          logTaskMessages( runningJob, taskCompletionEventIndex );
         } catch ( InterruptedException ie ) {
           logError( ie.getMessage(), ie );
+        } finally {
+          runningJob.removeListener( jobListener );
         }
 
         // Entry is successful if the MR job is successful overall
@@ -752,15 +756,14 @@ public class JobEntryHadoopTransJobExecutor extends JobEntryBase implements Clon
    * Log messages indicating completion (success/failure) of component tasks for the provided running job.
    *
    * @param runningJob
-   *          Running job to poll for completion events
-   * @param startIndex
-   *          Start at this event index to poll from
+   *          Running job the events belong to
+   * @param tcEvents
+   *          Events to log
    * @return Total events consumed
    * @throws IOException
-   *           Error fetching events
+   *           Error fetching task diagnostics
    */
-  private int logTaskMessages( MapReduceJobAdvanced runningJob, int startIndex ) throws IOException {
-    TaskCompletionEvent[] tcEvents = runningJob.getTaskCompletionEvents( startIndex );
+  private int logTaskMessages( MapReduceJobAdvanced runningJob, TaskCompletionEvent[] tcEvents ) throws IOException {
     for ( int i = 0; i < tcEvents.length; i++ ) {
       String[] diags = runningJob.getTaskDiagnostics( tcEvents[ i ].getTaskAttemptId() );
       StringBuilder diagsOutput = new StringBuilder();
@@ -804,6 +807,37 @@ public class JobEntryHadoopTransJobExecutor extends JobEntryBase implements Clon
     return tcEvents.length;
   }
 
+  /**
+   * Creates a listener that logs the job status at most once per logging interval (never if the interval is less than
+   * one second) and logs task completion events as they arrive.
+   *
+   * @param logIntv
+   *          Logging interval in seconds
+   * @return the listener
+   */
+  private MapReduceJobListener createJobListener( final int logIntv ) {
+    return new MapReduceJobListener() {
+      private long nextStatusTime = 0;
+
+      @Override
+      public void onProgress( MapReduceJobAdvanced job, double setupProgress, double mapProgress,
+                              double reduceProgress ) {
+        long now = System.currentTimeMillis();
+        if ( logIntv >= 1 && now >= nextStatusTime && log.isBasic() ) {
+          nextStatusTime = now + logIntv * 1000L;
+          logBasic( BaseMessages.getString( PKG, "JobEntryHadoopTransJobExecutor.RunningPercent", setupProgress * 100f,
+            mapProgress * 100f, reduceProgress * 100f ) ); //$NON-NLS-1$
+        }
+      }
+
+      @Override
+      public void onTaskCompletionEvents( MapReduceJobAdvanced job, TaskCompletionEvent[] events )
+        throws IOException {
+        logTaskMessages( job, events );
+      }
+    };
+  }
+
   /**
    * @return the plugin interface for this job entry.
    */
@@ -23,20 +23,38 @@
 package org.pentaho.big.data.kettle.plugins.mapreduce.step.exit;
 
 import org.pentaho.di.core.exception.KettleException;
+import org.pentaho.di.core.row.RowMetaInterface;
 import org.pentaho.di.i18n.BaseMessages;
 import org.pentaho.di.trans.Trans;
 import org.pentaho.di.trans.TransMeta;
 import org.pentaho.di.trans.step.BaseStep;
+import org.pentaho.di.trans.step.RowListener;
 import org.pentaho.di.trans.step.StepDataInterface;
 import org.pentaho.di.trans.step.StepInterface;
 import org.pentaho.di.trans.step.StepMeta;
 import org.pentaho.di.trans.step.StepMetaInterface;
 
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Set;
+
 public class HadoopExit extends BaseStep implements StepInterface {
   private static final Class<?> PKG = HadoopExit.class;
 
+  /**
+   * Comma-separated class names of row listeners that consume each row before {@code putRow} returns and keep no
+   * reference to it, e.g. the collector passing rows on to Hadoop.
+   */
+  public static final String REUSABLE_ROW_LISTENERS_KEY = "pentaho.hadoopexit.reusable.row.listeners";
+  public static final String DEFAULT_REUSABLE_ROW_LISTENERS = "org.pentaho.hadoop.mapreduce.OutputCollectorRowListener";
+
   private HadoopExitMeta meta;
   private HadoopExitData data;
+  private int inKeyOrdinal;
+  private int inValueOrdinal;
+  private RowMetaInterface outputRowMeta;
+  // Output row handed out for every pair when nothing downstream can hold on to it, null otherwise
+  private Object[] reusableOutputRow;
 
   public HadoopExit( StepMeta stepMeta, StepDataInterface stepDataInterface, int copyNr, TransMeta transMeta,
       Trans trans ) {
@@ -45,6 +63,28 @@ public class HadoopExit extends BaseStep implements StepInterface {
 
   public void runtimeInit() throws KettleException {
     data.init( getInputRowMeta(), meta, this );
+    inKeyOrdinal = data.getInKeyOrdinal();
+    inValueOrdinal = data.getInValueOrdinal();
+    outputRowMeta = data.getOutputRowMeta();
+    reusableOutputRow = canReuseOutputRow() ? new Object[ 2 ] : null;
+  }
+
+  /**
+   * The output row can only be reused when no step reads it from a row set later on and every row listener is known
+   * to be done with the row once {@code putRow} returns.
+   */
+  protected boolean canReuseOutputRow() {
+    if ( !getOutputRowSets().isEmpty() ) {
+      return false;
+    }
+    Set<String> reusableRowListeners = new HashSet<>( Arrays.asList(
+      System.getProperty( REUSABLE_ROW_LISTENERS_KEY, DEFAULT_REUSABLE_ROW_LISTENERS ).split( "\\s*,\\s*" ) ) );
+    for ( RowListener rowListener : getRowListeners() ) {
+      if ( !reusableRowListeners.contains( rowListener.getClass().getName() ) ) {
+        return false;
+      }
+    }
+    return true;
   }
 
   public boolean processRow( StepMetaInterface smi, StepDataInterface sdi ) throws KettleException {
@@ -63,11 +103,11 @@ public class HadoopExit extends BaseStep implements StepInterface {
       first = false;
     }
 
-    Object[] outputRow = new Object[2];
-    outputRow[HadoopExitData.getOutKeyOrdinal()] = r[data.getInKeyOrdinal()];
-    outputRow[HadoopExitData.getOutValueOrdinal()] = r[data.getInValueOrdinal()];
+    Object[] outputRow = reusableOutputRow != null ? reusableOutputRow : new Object[2];
+    outputRow[HadoopExitData.outKeyOrdinal] = r[inKeyOrdinal];
+    outputRow[HadoopExitData.outValueOrdinal] = r[inValueOrdinal];
 
-    putRow( data.getOutputRowMeta(), outputRow );
+    putRow( outputRowMeta, outputRow );
 
     if ( checkFeedback( getLinesRead() ) ) {
       logBasic( BaseMessages.getString( PKG, "HadoopExit.Linenr", getLinesRead() ) );
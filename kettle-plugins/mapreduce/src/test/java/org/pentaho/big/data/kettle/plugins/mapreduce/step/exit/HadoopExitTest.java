@@ -30,9 +30,19 @@ import org.pentaho.di.core.exception.KettleException;
 import org.pentaho.di.core.logging.LogChannelInterface;
 import org.pentaho.di.core.logging.LoggingObjectInterface;
 import org.pentaho.di.core.row.RowMetaInterface;
+import org.pentaho.di.trans.step.RowAdapter;
+import org.pentaho.di.trans.step.RowListener;
 import org.pentaho.di.trans.steps.mock.StepMockHelper;
 
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
 import static org.junit.Assert.assertTrue;
 import static org.mockito.AdditionalMatchers.aryEq;
 import static org.mockito.Matchers.any;
@@ -89,4 +99,51 @@ public class HadoopExitTest {
     verify( outputRowSet ).putRow( eq( rowMetaInterface ), aryEq( row1 ) );
     verify( outputRowSet ).putRow( eq( rowMetaInterface ), aryEq( row2 ) );
   }
+
+  @Test( timeout = 5000 )
+  public void testProcessRowReusesOutputRowForReusableListeners() throws KettleException {
+    RecordingRowListener rowListener = new RecordingRowListener();
+    System.setProperty( HadoopExit.REUSABLE_ROW_LISTENERS_KEY, RecordingRowListener.class.getName() );
+    try {
+      processRows( rowListener );
+    } finally {
+      System.clearProperty( HadoopExit.REUSABLE_ROW_LISTENERS_KEY );
+    }
+
+    assertEquals( Arrays.asList( "a", "1", "b", "2" ), rowListener.values );
+    assertSame( rowListener.rows.get( 0 ), rowListener.rows.get( 1 ) );
+  }
+
+  @Test( timeout = 5000 )
+  public void testProcessRowAllocatesOutputRowForOtherListeners() throws KettleException {
+    RecordingRowListener rowListener = new RecordingRowListener();
+    processRows( rowListener );
+
+    assertEquals( Arrays.asList( "a", "1", "b", "2" ), rowListener.values );
+    assertNotSame( rowListener.rows.get( 0 ), rowListener.rows.get( 1 ) );
+    assertArrayEquals( new Object[] { "a", "1" }, rowListener.rows.get( 0 ) );
+  }
+
+  private void processRows( RowListener rowListener ) throws KettleException {
+    when( stepMockHelper.processRowsStepDataInterface.getInKeyOrdinal() ).thenReturn( 1 );
+    when( stepMockHelper.processRowsStepDataInterface.getInValueOrdinal() ).thenReturn( 0 );
+    when( stepMockHelper.processRowsStepDataInterface.getOutputRowMeta() ).thenReturn( mock( RowMetaInterface.class ) );
+    hadoopExit.getInputRowSets().add( stepMockHelper.getMockInputRowSet( new Object[] { "1", "a" },
+      new Object[] { "2", "b" } ) );
+    hadoopExit.addRowListener( rowListener );
+    while ( hadoopExit
+      .processRow( stepMockHelper.processRowsStepMetaInterface, stepMockHelper.processRowsStepDataInterface ) ) {
+      // process all rows
+    }
+  }
+
+  private static class RecordingRowListener extends RowAdapter {
+    private final List<Object[]> rows = new ArrayList<>();
+    private final List<Object> values = new ArrayList<>();
+
+    @Override public void rowWrittenEvent( RowMetaInterface rowMeta, Object[] row ) {
+      rows.add( row );
+      values.addAll( Arrays.asList( row ) );
+    }
+  }
 }
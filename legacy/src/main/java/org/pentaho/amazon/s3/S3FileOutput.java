@@ -22,11 +22,15 @@
 
 package org.pentaho.amazon.s3;
 
+import com.amazonaws.auth.BasicAWSCredentials;
+import com.amazonaws.services.s3.AmazonS3;
+import com.amazonaws.services.s3.AmazonS3Client;
 import org.apache.commons.vfs2.FileObject;
 import org.apache.commons.vfs2.FileSystemException;
 import org.apache.commons.vfs2.FileSystemOptions;
 import org.apache.commons.vfs2.auth.StaticUserAuthenticator;
 import org.apache.commons.vfs2.impl.DefaultFileSystemConfigBuilder;
+import org.pentaho.di.core.Const;
 import org.pentaho.di.core.encryption.Encr;
 import org.pentaho.di.core.exception.KettleFileException;
 import org.pentaho.di.core.variables.VariableSpace;
@@ -35,14 +39,22 @@ import org.pentaho.di.trans.Trans;
 import org.pentaho.di.trans.TransMeta;
 import org.pentaho.di.trans.step.StepDataInterface;
 import org.pentaho.di.trans.step.StepMeta;
+import org.pentaho.di.trans.step.StepMetaInterface;
 import org.pentaho.di.trans.steps.textfileoutput.TextFileOutput;
 
 import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.List;
 
 public class S3FileOutput extends TextFileOutput {
 
   private FileSystemOptions fsOptions;
 
+  private AmazonS3 s3Client;
+
+  /** multipart uploads opened by this step, aborted if the step fails or is stopped */
+  private final List<S3MultipartOutputStream> multipartStreams = new ArrayList<S3MultipartOutputStream>();
+
   public S3FileOutput( StepMeta stepMeta, StepDataInterface stepDataInterface, int copyNr, TransMeta transMeta,
       Trans trans ) {
     super( stepMeta, stepDataInterface, copyNr, transMeta, trans );
@@ -58,9 +70,66 @@ public class S3FileOutput extends TextFileOutput {
 
   protected OutputStream getOutputStream( String vfsFilename, VariableSpace space, boolean append )
     throws KettleFileException {
+    // new objects are streamed to S3 in parts rather than staged whole by the VFS provider
+    if ( !append && S3MultipartOutputStream.isEnabled() ) {
+      String[] location = getBucketAndKey( vfsFilename );
+      AmazonS3 client = location == null ? null : getS3Client();
+      if ( client != null ) {
+        S3MultipartOutputStream out = new S3MultipartOutputStream( client, location[0], location[1] );
+        multipartStreams.add( out );
+        return out;
+      }
+    }
     return KettleVFS.getOutputStream( vfsFilename, space, getFsOptions(), append );
   }
 
+  /**
+   * Splits a s3://&lt;any_string&gt;/&lt;bucket&gt;/&lt;key&gt; filename into its bucket and key.
+   *
+   * @param vfsFilename
+   *          the filename
+   * @return the bucket and key, or null if the filename does not name an object in a bucket
+   */
+  protected static String[] getBucketAndKey( String vfsFilename ) {
+    String prefix = "s3://";
+    if ( vfsFilename == null || !vfsFilename.toLowerCase().startsWith( prefix ) ) {
+      return null;
+    }
+    String[] parts = vfsFilename.substring( prefix.length() ).split( "/", 3 );
+    if ( parts.length < 3 || parts[1].isEmpty() || parts[2].isEmpty() ) {
+      return null;
+    }
+    return new String[] { parts[1], parts[2] };
+  }
+
+  /**
+   * @return a client for the step's credentials, or null if the step has no credentials of its own
+   */
+  protected AmazonS3 getS3Client() {
+    if ( s3Client == null ) {
+      S3FileOutputMeta s3Meta = (S3FileOutputMeta) meta;
+      String accessKey = Encr.decryptPasswordOptionallyEncrypted( environmentSubstitute( s3Meta.getAccessKey() ) );
+      String secretKey = Encr.decryptPasswordOptionallyEncrypted( environmentSubstitute( s3Meta.getSecretKey() ) );
+      if ( Const.isEmpty( accessKey ) || Const.isEmpty( secretKey ) ) {
+        return null;
+      }
+      s3Client = new AmazonS3Client( new BasicAWSCredentials( accessKey, secretKey ) );
+    }
+    return s3Client;
+  }
+
+  @Override
+  public void dispose( StepMetaInterface smi, StepDataInterface sdi ) {
+    // don't let closing the files below complete uploads of partial output
+    if ( getErrors() > 0 || isStopped() ) {
+      for ( S3MultipartOutputStream out : multipartStreams ) {
+        out.abort();
+      }
+    }
+    multipartStreams.clear();
+    super.dispose( smi, sdi );
+  }
+
   protected FileSystemOptions createFileSystemOptions() throws KettleFileException {
     try {
       FileSystemOptions opts = new FileSystemOptions();
@@ -0,0 +1,337 @@
+/*******************************************************************************
+ *
+ * Pentaho Big Data
+ *
+ * Copyright (C) 2002-2016 by Pentaho : http://www.pentaho.com
+ *
+ *******************************************************************************
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ ******************************************************************************/
+
+package org.pentaho.amazon.s3;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.pentaho.di.i18n.BaseMessages;
+
+import com.amazonaws.AmazonClientException;
+import com.amazonaws.services.s3.AmazonS3;
+import com.amazonaws.services.s3.model.AbortMultipartUploadRequest;
+import com.amazonaws.services.s3.model.CompleteMultipartUploadRequest;
+import com.amazonaws.services.s3.model.InitiateMultipartUploadRequest;
+import com.amazonaws.services.s3.model.ObjectMetadata;
+import com.amazonaws.services.s3.model.PartETag;
+import com.amazonaws.services.s3.model.PutObjectRequest;
+import com.amazonaws.services.s3.model.UploadPartRequest;
+
+/**
+ * Output stream that writes an S3 object with the multipart upload API. Written bytes are collected into fixed size
+ * parts which are uploaded concurrently while the caller keeps writing. At most (concurrency + 1) part buffers exist at
+ * any time: once they are all in use, writing blocks until an upload finishes. Objects smaller than one part are sent
+ * with a single PUT when the stream is closed.
+ */
+public class S3MultipartOutputStream extends OutputStream {
+
+  private static Class<?> PKG = S3MultipartOutputStream.class;
+
+  public static final String ENABLED_KEY = "pentaho.s3.multipart.enabled";
+  public static final String PART_SIZE_KEY = "pentaho.s3.multipart.part.size";
+  public static final String CONCURRENCY_KEY = "pentaho.s3.multipart.concurrency";
+  public static final String MAX_RETRIES_KEY = "pentaho.s3.multipart.max.retries";
+
+  /** S3 rejects parts (other than the last one) smaller than this */
+  public static final int MIN_PART_SIZE = 5 * 1024 * 1024;
+  public static final int DEFAULT_PART_SIZE = 8 * 1024 * 1024;
+  public static final int DEFAULT_CONCURRENCY = 4;
+  public static final int DEFAULT_MAX_RETRIES = 3;
+
+  private static final AtomicInteger THREAD_COUNT = new AtomicInteger();
+
+  private final AmazonS3 client;
+  private final String bucket;
+  private final String key;
+  private final int partSize;
+  private final int maxBuffers;
+  private final int maxRetries;
+
+  private final BlockingQueue<byte[]> freeBuffers;
+  private int allocatedBuffers;
+
+  private ExecutorService executor;
+  private final List<Future<PartETag>> parts = new ArrayList<Future<PartETag>>();
+  private String uploadId;
+
+  private byte[] buffer;
+  private int position;
+  private boolean closed;
+
+  /**
+   * Creates a stream configured from the system properties (see the *_KEY constants).
+   */
+  public S3MultipartOutputStream( AmazonS3 client, String bucket, String key ) {
+    this( client, bucket, key, Math.max( MIN_PART_SIZE, Integer.getInteger( PART_SIZE_KEY, DEFAULT_PART_SIZE ) ),
+      Integer.getInteger( CONCURRENCY_KEY, DEFAULT_CONCURRENCY ),
+      Integer.getInteger( MAX_RETRIES_KEY, DEFAULT_MAX_RETRIES ) );
+  }
+
+  public S3MultipartOutputStream( AmazonS3 client, String bucket, String key, int partSize, int concurrency,
+                                  int maxRetries ) {
+    this.client = client;
+    this.bucket = bucket;
+    this.key = key;
+    this.partSize = partSize;
+    this.maxBuffers = Math.max( 1, concurrency ) + 1;
+    this.maxRetries = Math.max( 0, maxRetries );
+    this.freeBuffers = new ArrayBlockingQueue<byte[]>( maxBuffers );
+  }
+
+  /**
+   * @return true unless multipart uploads have been switched off with the {@link #ENABLED_KEY} system property
+   */
+  public static boolean isEnabled() {
+    return Boolean.parseBoolean( System.getProperty( ENABLED_KEY, "true" ) );
+  }
+
+  @Override
+  public void write( int b ) throws IOException {
+    ensureBuffer();
+    buffer[position++] = (byte) b;
+    if ( position == partSize ) {
+      flushPart();
+    }
+  }
+
+  @Override
+  public void write( byte[] b, int off, int len ) throws IOException {
+    while ( len > 0 ) {
+      ensureBuffer();
+      int n = Math.min( len, partSize - position );
+      System.arraycopy( b, off, buffer, position, n );
+      position += n;
+      off += n;
+      len -= n;
+      if ( position == partSize ) {
+        flushPart();
+      }
+    }
+  }
+
+  /**
+   * Uploads the last part and completes the upload. Any failed part aborts the upload and is reported here.
+   */
+  @Override
+  public void close() throws IOException {
+    if ( closed ) {
+      return;
+    }
+    closed = true;
+    try {
+      if ( uploadId == null ) {
+        // everything fitted in one part - a plain PUT will do
+        putObject();
+      } else {
+        if ( position > 0 ) {
+          submitPart( buffer, position );
+          buffer = null;
+        }
+        List<PartETag> etags = new ArrayList<PartETag>( parts.size() );
+        for ( Future<PartETag> part : parts ) {
+          etags.add( getPart( part ) );
+        }
+        client.completeMultipartUpload( new CompleteMultipartUploadRequest( bucket, key, uploadId, etags ) );
+      }
+    } catch ( IOException e ) {
+      abortUpload();
+      throw e;
+    } catch ( AmazonClientException e ) {
+      abortUpload();
+      throw new IOException( BaseMessages.getString( PKG, "S3MultipartOutputStream.Error.UploadFailed", bucket, key ),
+        e );
+    } finally {
+      shutdown();
+    }
+  }
+
+  /**
+   * Abandons the object: in-flight part uploads are cancelled and the multipart upload is aborted so that S3 discards
+   * the parts already stored. Closing the stream afterwards does nothing.
+   */
+  public void abort() {
+    if ( closed ) {
+      return;
+    }
+    closed = true;
+    for ( Future<PartETag> part : parts ) {
+      part.cancel( true );
+    }
+    abortUpload();
+    shutdown();
+  }
+
+  /**
+   * @return the id of the multipart upload, or null if none has been started yet
+   */
+  String getUploadId() {
+    return uploadId;
+  }
+
+  private void ensureBuffer() throws IOException {
+    if ( closed ) {
+      throw new IOException( BaseMessages.getString( PKG, "S3MultipartOutputStream.Error.Closed", bucket, key ) );
+    }
+    if ( buffer == null ) {
+      buffer = takeBuffer();
+      position = 0;
+    }
+  }
+
+  private byte[] takeBuffer() throws IOException {
+    byte[] free = freeBuffers.poll();
+    if ( free != null ) {
+      return free;
+    }
+    if ( allocatedBuffers < maxBuffers ) {
+      allocatedBuffers++;
+      return new byte[partSize];
+    }
+    try {
+      // all buffers are being uploaded - wait for one to come back
+      return freeBuffers.take();
+    } catch ( InterruptedException e ) {
+      Thread.currentThread().interrupt();
+      throw new IOException( e );
+    }
+  }
+
+  private void flushPart() throws IOException {
+    if ( uploadId == null ) {
+      try {
+        uploadId =
+          client.initiateMultipartUpload( new InitiateMultipartUploadRequest( bucket, key ) ).getUploadId();
+      } catch ( AmazonClientException e ) {
+        throw new IOException(
+          BaseMessages.getString( PKG, "S3MultipartOutputStream.Error.UploadFailed", bucket, key ), e );
+      }
+      executor = Executors.newFixedThreadPool( maxBuffers - 1, new ThreadFactory() {
+        @Override
+        public Thread newThread( Runnable r ) {
+          Thread thread = new Thread( r, "S3 multipart upload " + THREAD_COUNT.incrementAndGet() );
+          thread.setDaemon( true );
+          return thread;
+        }
+      } );
+    }
+    checkFailedParts();
+    submitPart( buffer, position );
+    buffer = null;
+  }
+
+  private void submitPart( final byte[] data, final int length ) {
+    final int partNumber = parts.size() + 1;
+    parts.add( executor.submit( new Callable<PartETag>() {
+      @Override
+      public PartETag call() throws Exception {
+        try {
+          return uploadPart( data, length, partNumber );
+        } finally {
+          freeBuffers.offer( data );
+        }
+      }
+    } ) );
+  }
+
+  private PartETag uploadPart( byte[] data, int length, int partNumber ) throws InterruptedException {
+    for ( int attempt = 0; ; attempt++ ) {
+      try {
+        UploadPartRequest request = new UploadPartRequest()
+          .withBucketName( bucket )
+          .withKey( key )
+          .withUploadId( uploadId )
+          .withPartNumber( partNumber )
+          .withInputStream( new ByteArrayInputStream( data, 0, length ) )
+          .withPartSize( length );
+        return client.uploadPart( request ).getPartETag();
+      } catch ( AmazonClientException e ) {
+        if ( attempt >= maxRetries || Thread.currentThread().isInterrupted() ) {
+          throw e;
+        }
+        // back off a little before trying the part again
+        Thread.sleep( 100L << Math.min( attempt, 6 ) );
+      }
+    }
+  }
+
+  /**
+   * Fails fast (instead of at close) if a part has already been given up on.
+   */
+  private void checkFailedParts() throws IOException {
+    for ( Future<PartETag> part : parts ) {
+      if ( part.isDone() ) {
+        getPart( part );
+      }
+    }
+  }
+
+  private PartETag getPart( Future<PartETag> part ) throws IOException {
+    try {
+      return part.get();
+    } catch ( InterruptedException e ) {
+      Thread.currentThread().interrupt();
+      throw new IOException( e );
+    } catch ( ExecutionException e ) {
+      throw new IOException( BaseMessages.getString( PKG, "S3MultipartOutputStream.Error.PartFailed", bucket, key ),
+        e.getCause() );
+    }
+  }
+
+  private void putObject() {
+    int length = buffer == null ? 0 : position;
+    byte[] data = buffer == null ? new byte[0] : buffer;
+    ObjectMetadata metadata = new ObjectMetadata();
+    metadata.setContentLength( length );
+    client.putObject( new PutObjectRequest( bucket, key, new ByteArrayInputStream( data, 0, length ), metadata ) );
+  }
+
+  private void abortUpload() {
+    if ( uploadId != null ) {
+      try {
+        client.abortMultipartUpload( new AbortMultipartUploadRequest( bucket, key, uploadId ) );
+      } catch ( AmazonClientException e ) {
+        // nothing more we can do - S3 lifecycle rules will eventually clean up the parts
+      }
+    }
+  }
+
+  private void shutdown() {
+    if ( executor != null ) {
+      executor.shutdownNow();
+    }
+    buffer = null;
+    freeBuffers.clear();
+  }
+}
@@ -124,8 +124,14 @@ public class AvroInput extends BaseStep implements StepInterface {
         // initialize for reading from a file
         FileObject fileObject = KettleVFS.getFileObject(
           environmentSubstitute( m_meta.getFilename() ), getTransMeta() );
+        int copy = 0;
+        int copies = 1;
+        if ( m_meta.getReadInParallel() ) {
+          copy = getUniqueStepNrAcrossSlaves();
+          copies = getUniqueStepCountAcrossSlaves();
+        }
         m_data.establishFileType( fileObject, readerSchema, m_meta.getAvroFields(), m_meta.getAvroIsJsonEncoded(),
-            newFieldOffset, m_meta.getDontComplainAboutMissingFields(), log );
+            newFieldOffset, m_meta.getDontComplainAboutMissingFields(), copy, copies, log );
       }
     }
 
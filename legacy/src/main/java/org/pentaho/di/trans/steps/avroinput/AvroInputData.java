@@ -26,18 +26,23 @@ import java.io.IOException;
 import java.io.InputStream;
 import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 
 import org.apache.avro.Schema;
+import org.apache.avro.file.DataFileReader;
 import org.apache.avro.file.DataFileStream;
 import org.apache.avro.generic.GenericContainer;
 import org.apache.avro.generic.GenericData;
 import org.apache.avro.generic.GenericData.Record;
 import org.apache.avro.generic.GenericDatumReader;
+import org.apache.avro.io.BinaryDecoder;
 import org.apache.avro.io.Decoder;
 import org.apache.avro.io.DecoderFactory;
+import org.apache.avro.io.JsonDecoder;
 import org.apache.avro.util.Utf8;
+import org.apache.commons.vfs2.Capability;
 import org.apache.commons.vfs2.FileObject;
 import org.apache.commons.vfs2.FileSystemException;
 import org.pentaho.di.core.Const;
@@ -62,6 +67,10 @@ import org.pentaho.di.trans.step.StepDataInterface;
  */
 public class AvroInputData extends BaseStepData implements StepDataInterface {
 
+  /** System property that bounds the number of schemas (read from incoming fields) held in the schema cache */
+  public static final String SCHEMA_CACHE_SIZE_KEY = "pentaho.avroinput.schema.cache.size";
+  public static final int DEFAULT_SCHEMA_CACHE_SIZE = 100;
+
   /** For logging */
   protected LogChannelInterface m_log;
 
@@ -71,9 +80,24 @@ public class AvroInputData extends BaseStepData implements StepDataInterface {
   /** For reading container files - will be null if file is not a container file */
   protected DataFileStream m_containerReader;
 
+  /**
+   * When a container file is split between step copies, the reader for this copy's share of it (also held in
+   * m_containerReader). Null otherwise
+   */
+  protected DataFileReader m_splitReader;
+
+  /** The end (exclusive) of this copy's share of a split container file; -1 if the file is not split */
+  protected long m_splitEnd = -1;
+
+  /** True if a non-container file can't be split between step copies and another copy is reading all of it */
+  protected boolean m_readByAnotherCopy;
+
   /** For reading from files of just serialized objects */
   protected GenericDatumReader m_datumReader;
   protected Decoder m_decoder;
+
+  /** The schema that m_decoder was created for when it is a json decoder (these are tied to a schema) */
+  protected Schema m_decoderSchema;
   protected InputStream m_inStream;
 
   /**
@@ -96,9 +120,11 @@ public class AvroInputData extends BaseStepData implements StepDataInterface {
 
   /**
    * Schema cache. Map of strings (actual schema or path to schema) to two element array. Element 0 = GenericDatumReader
-   * configured with schema; 2 = top level structure object to use.
+   * configured with schema; 2 = top level structure object to use. Least recently used entries are evicted once the
+   * cache holds more than {@link #SCHEMA_CACHE_SIZE_KEY} schemas.
    */
-  protected Map<String, Object[]> m_schemaCache = new HashMap<String, Object[]>();
+  protected Map<String, Object[]> m_schemaCache =
+      newSchemaCache( Integer.getInteger( SCHEMA_CACHE_SIZE_KEY, DEFAULT_SCHEMA_CACHE_SIZE ) );
 
   /** True if the data to be decoded is json rather than binary */
   protected boolean m_jsonEncoded;
@@ -149,6 +175,25 @@ public class AvroInputData extends BaseStepData implements StepDataInterface {
   /** Factory for obtaining a decoder */
   protected DecoderFactory m_factory;
 
+  /**
+   * Create a schema cache that holds at most the supplied number of entries, evicting the least recently used one when
+   * full.
+   *
+   * @param maxSize
+   *          the maximum number of cached schemas
+   * @return the cache
+   */
+  protected static Map<String, Object[]> newSchemaCache( final int maxSize ) {
+    return new LinkedHashMap<String, Object[]>( 16, 0.75f, true ) {
+      private static final long serialVersionUID = 1L;
+
+      @Override
+      protected boolean removeEldestEntry( Map.Entry<String, Object[]> eldest ) {
+        return size() > maxSize;
+      }
+    };
+  }
+
   /**
    * Cleanses a string path by ensuring that any variables names present in the path do not contain "."s (replaces any
    * dots with underscores).
@@ -209,8 +254,13 @@ public class AvroInputData extends BaseStepData implements StepDataInterface {
      */
     protected List<AvroInputMeta.AvroField> m_subFields;
 
-    private List<String> m_pathParts;
-    private List<String> m_tempParts;
+    private AvroInputMeta.FieldPath m_path;
+
+    /** the compiled expansion path */
+    private AvroInputMeta.PathStep[] m_steps = AvroInputMeta.FieldPath.NO_STEPS;
+
+    /** the next step to be consumed while walking the current avro object */
+    private int m_nextStep;
 
     protected RowMetaInterface m_outputRowMeta;
 
@@ -228,27 +278,13 @@ public class AvroInputData extends BaseStepData implements StepDataInterface {
       if ( Const.isEmpty( m_expansionPath ) ) {
         throw new KettleException( BaseMessages.getString( AvroInputMeta.PKG, "AvroInput.Error.NoPathSet" ) );
       }
-      if ( m_pathParts != null ) {
+      if ( m_path != null ) {
         return;
       }
 
-      String expansionPath = cleansePath( m_expansionPath );
-
-      String[] temp = expansionPath.split( "\\." );
-      m_pathParts = new ArrayList<String>();
-      for ( String part : temp ) {
-        m_pathParts.add( part );
-      }
-
-      if ( m_pathParts.get( 0 ).equals( "$" ) ) {
-        m_pathParts.remove( 0 ); // root record indicator
-      } else if ( m_pathParts.get( 0 ).startsWith( "$[" ) ) {
-
-        // strip leading $ off of array
-        String r = m_pathParts.get( 0 ).substring( 1, m_pathParts.get( 0 ).length() );
-        m_pathParts.set( 0, r );
-      }
-      m_tempParts = new ArrayList<String>();
+      m_path = new AvroInputMeta.FieldPath( m_expansionPath );
+      m_steps = m_path.getSteps();
+      m_nextStep = 0;
 
       // initialize the sub fields
       if ( m_subFields != null ) {
@@ -266,11 +302,8 @@ public class AvroInputData extends BaseStepData implements StepDataInterface {
      *          environment variables (values that environment variables resolve to cannot contain "."s)
      */
     public void reset( VariableSpace space ) {
-      m_tempParts.clear();
-
-      for ( String part : m_pathParts ) {
-        m_tempParts.add( space.environmentSubstitute( part ) );
-      }
+      m_steps = m_path.resolve( space );
+      m_nextStep = 0;
 
       // reset sub fields
       for ( AvroInputMeta.AvroField f : m_subFields ) {
@@ -301,25 +334,17 @@ public class AvroInputData extends BaseStepData implements StepDataInterface {
         return null;
       }
 
-      if ( m_tempParts.size() == 0 ) {
+      if ( m_nextStep >= m_steps.length ) {
         throw new KettleException( BaseMessages.getString( AvroInputMeta.PKG, "AvroInput.Error.MalformedPathMap" ) );
       }
 
-      String part = m_tempParts.remove( 0 );
-      if ( !( part.charAt( 0 ) == '[' ) ) {
+      AvroInputMeta.PathStep step = m_steps[m_nextStep++];
+      if ( !step.m_bracketed || step.m_key == null ) {
         throw new KettleException( BaseMessages
-            .getString( AvroInputMeta.PKG, "AvroInput.Error.MalformedPathMap2", part ) );
-      }
-
-      String key = part.substring( 1, part.indexOf( ']' ) );
-
-      if ( part.indexOf( ']' ) < part.length() - 1 ) {
-        // more dimensions to the array/map
-        part = part.substring( part.indexOf( ']' ) + 1, part.length() );
-        m_tempParts.add( 0, part );
+            .getString( AvroInputMeta.PKG, "AvroInput.Error.MalformedPathMap2", step.m_text ) );
       }
 
-      if ( key.equals( "*" ) ) {
+      if ( step.m_key.equals( "*" ) ) {
         // start the expansion - we delegate conversion to our subfields
         Schema valueType = s.getValueType();
         Object[][] result = new Object[map.keySet().size()][m_outputRowMeta.size() + RowDataUtil.OVER_ALLOCATE_SIZE];
@@ -352,7 +377,7 @@ public class AvroInputData extends BaseStepData implements StepDataInterface {
 
         return result;
       } else {
-        Object value = map.get( new Utf8( key ) );
+        Object value = map.get( step.m_mapKey );
 
         if ( value == null ) {
           // key doesn't exist in map
@@ -447,25 +472,17 @@ public class AvroInputData extends BaseStepData implements StepDataInterface {
         return null;
       }
 
-      if ( m_tempParts.size() == 0 ) {
+      if ( m_nextStep >= m_steps.length ) {
         throw new KettleException( BaseMessages.getString( AvroInputMeta.PKG, "AvroInput.Error.MalformedPathArray" ) );
       }
 
-      String part = m_tempParts.remove( 0 );
-      if ( !( part.charAt( 0 ) == '[' ) ) {
+      AvroInputMeta.PathStep step = m_steps[m_nextStep++];
+      if ( !step.m_bracketed || step.m_key == null ) {
         throw new KettleException( BaseMessages.getString( AvroInputMeta.PKG, "AvroInput.Error.MalformedPathArray2",
-            part ) );
+            step.m_text ) );
       }
 
-      String index = part.substring( 1, part.indexOf( ']' ) );
-
-      if ( part.indexOf( ']' ) < part.length() - 1 ) {
-        // more dimensions to the array
-        part = part.substring( part.indexOf( ']' ) + 1, part.length() );
-        m_tempParts.add( 0, part );
-      }
-
-      if ( index.equals( "*" ) ) {
+      if ( step.m_key.equals( "*" ) ) {
         // start the expansion - we delegate conversion to our subfields
 
         Schema elementType = s.getElementType();
@@ -496,13 +513,11 @@ public class AvroInputData extends BaseStepData implements StepDataInterface {
         }
         return result;
       } else {
-        int arrayI = 0;
-        try {
-          arrayI = Integer.parseInt( index.trim() );
-        } catch ( NumberFormatException e ) {
+        if ( !step.m_validIndex ) {
           throw new KettleException( BaseMessages.getString( AvroInputMeta.PKG,
-              "AvroInput.Error.UnableToParseArrayIndex", index ) );
+              "AvroInput.Error.UnableToParseArrayIndex", step.m_key ) );
         }
+        int arrayI = step.m_index;
 
         if ( arrayI >= array.size() || arrayI < 0 ) {
 
@@ -600,35 +615,27 @@ public class AvroInputData extends BaseStepData implements StepDataInterface {
         return null;
       }
 
-      if ( m_tempParts.size() == 0 ) {
+      if ( m_nextStep >= m_steps.length ) {
         throw new KettleException( BaseMessages.getString( AvroInputMeta.PKG, "AvroInput.Error.MalformedPathRecord" ) );
       }
 
-      String part = m_tempParts.remove( 0 );
-      if ( part.charAt( 0 ) == '[' ) {
+      AvroInputMeta.PathStep step = m_steps[m_nextStep++];
+      if ( step.m_bracketed ) {
         throw new KettleException( BaseMessages.getString( AvroInputMeta.PKG, "AvroInput.Error.InvalidPath" )
-            + m_tempParts );
-      }
-
-      if ( part.indexOf( '[' ) > 0 ) {
-        String arrayPart = part.substring( part.indexOf( '[' ) );
-        part = part.substring( 0, part.indexOf( '[' ) );
-
-        // put the array section back into location zero
-        m_tempParts.add( 0, arrayPart );
+            + AvroInputMeta.FieldPath.text( m_steps, m_nextStep ) );
       }
 
-      // part is a named field of the record
-      Schema.Field fieldS = s.getField( part );
+      // step is a named field of the record
+      Schema.Field fieldS = step.getField( s );
 
       if ( fieldS == null ) {
         if ( !ignoreMissing ) {
           throw new KettleException( BaseMessages.getString( AvroInputMeta.PKG, "AvroInput.Error.NonExistentField",
-              part ) );
+              step.m_text ) );
         }
       }
 
-      Object field = record.get( part );
+      Object field = record.get( step.m_text );
 
       if ( field == null ) {
         // field is null and we haven't hit the expansion yet. There will be
@@ -1145,7 +1152,7 @@ public class AvroInputData extends BaseStepData implements StepDataInterface {
     m_dontComplainAboutMissingFields = ignoreMissing;
 
     for ( AvroInputMeta.AvroField f : fields ) {
-      m_normalFields.add( f );
+      m_normalFields.add( copyField( f ) );
     }
     m_fieldToDecodeIndex = m_outputRowMeta.indexOfValue( fieldNameToDecode );
 
@@ -1216,12 +1223,44 @@ public class AvroInputData extends BaseStepData implements StepDataInterface {
    */
   public void establishFileType( FileObject avroFile, String readerSchemaFile, List<AvroInputMeta.AvroField> fields,
       boolean jsonEncoded, int newFieldOffset, boolean ignoreMissing, LogChannelInterface log ) throws KettleException {
+    establishFileType( avroFile, readerSchemaFile, fields, jsonEncoded, newFieldOffset, ignoreMissing, 0, 1, log );
+  }
+
+  /**
+   * As {@link #establishFileType(FileObject, String, List, boolean, int, boolean, LogChannelInterface)}, but when there
+   * is more than one copy a container file is split between the copies: each one reads only the blocks that start in
+   * its own share of the file's bytes.
+   *
+   * @param avroFile
+   *          the Avro file
+   * @param readerSchemaFile
+   *          the reader schema
+   * @param fields
+   *          the user-supplied paths to extract
+   * @param jsonEncoded
+   *          true if the data is JSON encoded
+   * @param newFieldOffset
+   *          offset in the outgoing row format for extracted fields from any incoming kettle fields
+   * @param ignoreMissing
+   *          if true output null for fields that don't appear in the schema
+   * @param copy
+   *          the (zero-based) number of this copy
+   * @param copies
+   *          the number of copies sharing the file
+   * @param log
+   *          the logger to use
+   * @throws KettleException
+   *           if a problem occurs
+   */
+  public void establishFileType( FileObject avroFile, String readerSchemaFile, List<AvroInputMeta.AvroField> fields,
+      boolean jsonEncoded, int newFieldOffset, boolean ignoreMissing, int copy, int copies, LogChannelInterface log )
+    throws KettleException {
 
     m_log = log;
     m_newFieldOffset = newFieldOffset;
     m_normalFields = new ArrayList<AvroInputMeta.AvroField>();
     for ( AvroInputMeta.AvroField f : fields ) {
-      m_normalFields.add( f );
+      m_normalFields.add( copyField( f ) );
     }
     m_inStream = null;
     m_jsonEncoded = jsonEncoded;
@@ -1278,11 +1317,22 @@ public class AvroInputData extends BaseStepData implements StepDataInterface {
       }
     }
 
+    if ( m_containerReader != null && copies > 1 ) {
+      openSplit( avroFile, copy, copies );
+    }
+
     if ( nonContainer || jsonEncoded ) {
       if ( Const.isEmpty( readerSchemaFile ) ) {
         throw new KettleException( BaseMessages.getString( AvroInputMeta.PKG, "AvroInput.Error.NoSchema" ) );
       }
 
+      // there are no sync markers to split on - the first copy reads the whole file
+      m_readByAnotherCopy = copies > 1 && copy > 0;
+      if ( copies > 1 && m_log.isBasic() ) {
+        m_log.logBasic( BaseMessages.getString( AvroInputMeta.PKG,
+            "AvroInput.Message.UnableToSplitNonContainerFile" ) );
+      }
+
       m_factory = new DecoderFactory();
       if ( jsonEncoded ) {
         try {
@@ -1300,6 +1350,98 @@ public class AvroInputData extends BaseStepData implements StepDataInterface {
     init();
   }
 
+  /**
+   * Copies a user-supplied field so that the state built up when it is initialized for reading belongs to this step
+   * copy alone rather than to the step meta shared by all copies.
+   *
+   * @param field
+   *          the field to copy
+   * @return a new, uninitialized field with the same name, path, type and indexed values
+   */
+  protected static AvroInputMeta.AvroField copyField( AvroInputMeta.AvroField field ) {
+    AvroInputMeta.AvroField copy = new AvroInputMeta.AvroField();
+    copy.m_fieldName = field.m_fieldName;
+    copy.m_fieldPath = field.m_fieldPath;
+    copy.m_kettleType = field.m_kettleType;
+    copy.m_indexedVals = field.m_indexedVals;
+    return copy;
+  }
+
+  /**
+   * Compute where a copy's share of a file starts.
+   *
+   * @param length
+   *          the length of the file
+   * @param copy
+   *          the (zero-based) number of the copy
+   * @param copies
+   *          the number of copies sharing the file
+   * @return the offset of the first byte of the share
+   */
+  protected static long splitStart( long length, int copy, int copies ) {
+    return length * copy / copies;
+  }
+
+  /**
+   * Re-opens the container file so that only the blocks starting in this copy's share of the file are read. The reader
+   * is positioned at the first sync marker at or after the start of the share and stops at the first one past its
+   * end, which is where the next copy starts.
+   *
+   * @param avroFile
+   *          the Avro file
+   * @param copy
+   *          the (zero-based) number of this copy
+   * @param copies
+   *          the number of copies sharing the file
+   * @throws KettleException
+   *           if a problem occurs
+   */
+  protected void openSplit( FileObject avroFile, int copy, int copies ) throws KettleException {
+    try {
+      if ( !avroFile.getFileSystem().hasCapability( Capability.RANDOM_ACCESS_READ ) ) {
+        // no way of seeking to a sync marker - the first copy reads the whole file
+        if ( m_log.isBasic() ) {
+          m_log.logBasic( BaseMessages.getString( AvroInputMeta.PKG, "AvroInput.Message.UnableToSplitFile" ) );
+        }
+        if ( copy > 0 ) {
+          m_splitEnd = 0;
+        }
+        return;
+      }
+
+      m_containerReader.close();
+      m_inStream = null;
+
+      VfsSeekableInput in = new VfsSeekableInput( avroFile );
+      long start = splitStart( in.length(), copy, copies );
+      m_splitEnd = splitStart( in.length(), copy + 1, copies );
+      m_splitReader = new DataFileReader( in, new GenericDatumReader() );
+      if ( start > m_splitReader.previousSync() ) {
+        m_splitReader.sync( start );
+      }
+      m_containerReader = m_splitReader;
+    } catch ( IOException e ) {
+      throw new KettleException( BaseMessages.getString( AvroInputMeta.PKG, "AvroInput.Error.UnableToOpenAvroFile" ),
+          e );
+    }
+  }
+
+  /**
+   * @return true if there is another object to read from the container file (within this copy's share of it if the
+   *         file is split between step copies)
+   * @throws IOException
+   *           if a problem occurs
+   */
+  protected boolean containerHasNext() throws IOException {
+    if ( m_splitEnd < 0 ) {
+      return m_containerReader.hasNext();
+    }
+    if ( m_splitReader == null ) {
+      return false;
+    }
+    return m_containerReader.hasNext() && !m_splitReader.pastSync( m_splitEnd );
+  }
+
   protected void initTopLevelStructure( Schema schema, boolean setDefault ) throws KettleException {
     // what top-level structure are we using?
     if ( schema.getType() == Schema.Type.RECORD ) {
@@ -1656,7 +1798,7 @@ public class AvroInputData extends BaseStepData implements StepDataInterface {
     if ( m_containerReader != null ) {
       // container file
       try {
-        if ( m_containerReader.hasNext() ) {
+        if ( containerHasNext() ) {
           if ( m_topLevelRecord != null ) {
             // special case for top-level record. In case we actually
             // have a top level union, reassign the record so that
@@ -1680,6 +1822,9 @@ public class AvroInputData extends BaseStepData implements StepDataInterface {
       }
     } else {
       // non-container file
+      if ( m_readByAnotherCopy ) {
+        return null;
+      }
       try {
         /*
          * if (m_decoder.isEnd()) { return null; }
@@ -1710,17 +1855,26 @@ public class AvroInputData extends BaseStepData implements StepDataInterface {
             setSchemaToUse( schemaToUse, m_cacheSchemas, space );
           }
 
+          // point the decoder from the previous row at the new value rather
+          // than allocating a new one (and its buffers) for every row
           if ( m_jsonEncoded ) {
             try {
               String fieldValue = fieldMeta.getString( incoming[m_fieldToDecodeIndex] );
-              m_decoder = m_factory.jsonDecoder( m_schemaToUse, fieldValue );
+              if ( m_decoder instanceof JsonDecoder && m_decoderSchema == m_schemaToUse ) {
+                ( (JsonDecoder) m_decoder ).configure( fieldValue );
+              } else {
+                m_decoder = m_factory.jsonDecoder( m_schemaToUse, fieldValue );
+                m_decoderSchema = m_schemaToUse;
+              }
             } catch ( IOException e ) {
               throw new KettleException(
                   BaseMessages.getString( AvroInputMeta.PKG, "AvroInput.Error.JsonDecoderError" ) );
             }
           } else {
             byte[] fieldValue = fieldMeta.getBinary( incoming[m_fieldToDecodeIndex] );
-            m_decoder = m_factory.binaryDecoder( fieldValue, null );
+            m_decoder =
+                m_factory.binaryDecoder( fieldValue, m_decoder instanceof BinaryDecoder ? (BinaryDecoder) m_decoder
+                    : null );
           }
         }
 
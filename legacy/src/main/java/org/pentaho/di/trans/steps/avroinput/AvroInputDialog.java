@@ -122,6 +122,9 @@ public class AvroInputDialog extends BaseStepDialog implements StepDialogInterfa
 
   private Button m_jsonEncodedBut;
 
+  private Label m_readInParallelL;
+  private Button m_readInParallelBut;
+
   private Button m_missingFieldsBut;
   private Button m_getFields;
   private TableView m_fieldsView;
@@ -384,6 +387,31 @@ public class AvroInputDialog extends BaseStepDialog implements StepDialogInterfa
       }
     } );
 
+    // read in parallel check box
+    m_readInParallelL = new Label( wSourceComp, SWT.RIGHT );
+    props.setLook( m_readInParallelL );
+    m_readInParallelL.setText( BaseMessages.getString( PKG, "AvroInputDialog.ReadInParallel.Label" ) );
+    fd = new FormData();
+    fd.left = new FormAttachment( 0, 0 );
+    fd.top = new FormAttachment( m_jsonEncodedBut, margin );
+    fd.right = new FormAttachment( middle, -margin );
+    m_readInParallelL.setLayoutData( fd );
+    m_readInParallelL.setToolTipText( BaseMessages.getString( PKG, "AvroInputDialog.ReadInParallel.TipText" ) );
+
+    m_readInParallelBut = new Button( wSourceComp, SWT.CHECK );
+    props.setLook( m_readInParallelBut );
+    fd = new FormData();
+    fd.right = new FormAttachment( 100, 0 );
+    fd.left = new FormAttachment( middle, 0 );
+    fd.top = new FormAttachment( m_jsonEncodedBut, margin );
+    m_readInParallelBut.setLayoutData( fd );
+    m_readInParallelBut.addSelectionListener( new SelectionAdapter() {
+      @Override
+      public void widgetSelected( SelectionEvent e ) {
+        m_currentMeta.setChanged();
+      }
+    } );
+
     fd = new FormData();
     fd.left = new FormAttachment( 0, 0 );
     fd.top = new FormAttachment( 0, 0 );
@@ -824,6 +852,7 @@ public class AvroInputDialog extends BaseStepDialog implements StepDialogInterfa
     avroMeta.setFilename( m_avroFilenameText.getText() );
     avroMeta.setSchemaFilename( m_schemaFilenameText.getText() );
     avroMeta.setAvroIsJsonEncoded( m_jsonEncodedBut.getSelection() );
+    avroMeta.setReadInParallel( m_readInParallelBut.getSelection() );
     avroMeta.setAvroInField( m_sourceInFieldBut.getSelection() );
     avroMeta.setAvroFieldName( m_avroFieldNameText.getText() );
 
@@ -976,6 +1005,7 @@ public class AvroInputDialog extends BaseStepDialog implements StepDialogInterfa
     }
 
     m_jsonEncodedBut.setSelection( m_currentMeta.getAvroIsJsonEncoded() );
+    m_readInParallelBut.setSelection( m_currentMeta.getReadInParallel() );
     m_sourceInFieldBut.setSelection( m_currentMeta.getAvroInField() );
     if ( !m_currentMeta.getAvroInField() ) {
       m_sourceInFileBut.setSelection( true );
@@ -1017,6 +1047,9 @@ public class AvroInputDialog extends BaseStepDialog implements StepDialogInterfa
     m_avroFieldNameText.setEnabled( sifield );
     // }
 
+    m_readInParallelL.setEnabled( !sifield );
+    m_readInParallelBut.setEnabled( !sifield );
+
     wPreview.setEnabled( m_sourceInFileBut.getSelection() );
 
     if ( sifile ) {
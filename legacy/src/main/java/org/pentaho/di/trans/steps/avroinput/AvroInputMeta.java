@@ -23,6 +23,7 @@
 package org.pentaho.di.trans.steps.avroinput;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 import java.util.Map;
 import org.apache.avro.Schema;
@@ -50,6 +51,7 @@ import org.pentaho.di.core.injection.InjectionSupported;
 import org.pentaho.di.core.row.RowMetaInterface;
 import org.pentaho.di.core.row.ValueMeta;
 import org.pentaho.di.core.row.ValueMetaInterface;
+import org.pentaho.di.core.util.StringUtil;
 import org.pentaho.di.core.variables.VariableSpace;
 import org.pentaho.di.core.xml.XMLHandler;
 import org.pentaho.di.i18n.BaseMessages;
@@ -202,8 +204,16 @@ public class AvroInputMeta extends BaseStepMeta implements StepMetaInterface {
     protected int m_outputIndex; // the index that this field is in the output
                                  // row structure
     private ValueMeta m_tempValueMeta;
-    private List<String> m_pathParts;
-    private List<String> m_tempParts;
+
+    private static final Schema STRING_SCHEMA = Schema.create( Schema.Type.STRING );
+
+    private FieldPath m_path;
+
+    /** the compiled path */
+    private PathStep[] m_steps = FieldPath.NO_STEPS;
+
+    /** the next step to be consumed while walking the current avro object */
+    private int m_nextStep;
 
     /**
      * Initialize this field by parsing the path etc.
@@ -217,28 +227,13 @@ public class AvroInputMeta extends BaseStepMeta implements StepMetaInterface {
       if ( Const.isEmpty( m_fieldPath ) ) {
         throw new KettleException( BaseMessages.getString( PKG, "AvroInput.Error.NoPathSet" ) );
       }
-      if ( m_pathParts != null ) {
+      if ( m_path != null ) {
         return;
       }
 
-      String fieldPath = AvroInputData.cleansePath( m_fieldPath );
-
-      String[] temp = fieldPath.split( "\\." );
-      m_pathParts = new ArrayList<String>();
-      for ( String part : temp ) {
-        m_pathParts.add( part );
-      }
-
-      if ( m_pathParts.get( 0 ).equals( "$" ) ) {
-        m_pathParts.remove( 0 ); // root record indicator
-      } else if ( m_pathParts.get( 0 ).startsWith( "$[" ) ) {
-
-        // strip leading $ off of array
-        String r = m_pathParts.get( 0 ).substring( 1, m_pathParts.get( 0 ).length() );
-        m_pathParts.set( 0, r );
-      }
-
-      m_tempParts = new ArrayList<String>();
+      m_path = new FieldPath( m_fieldPath );
+      m_steps = m_path.getSteps();
+      m_nextStep = 0;
 
       m_tempValueMeta = new ValueMeta();
       m_tempValueMeta.setType( ValueMeta.getType( m_kettleType ) );
@@ -252,14 +247,18 @@ public class AvroInputMeta extends BaseStepMeta implements StepMetaInterface {
      *          environment variables (values that environment variables resolve to cannot contain "."s)
      */
     public void reset( VariableSpace space ) {
-      // first clear because there may be stuff left over from processing
-      // the previous avro object (especially if a path exited early due to
-      // non-existent map key or array index out of bounds)
-      m_tempParts.clear();
+      m_steps = m_path.resolve( space );
 
-      for ( String part : m_pathParts ) {
-        m_tempParts.add( space.environmentSubstitute( part ) );
-      }
+      // start from the beginning again - a previous avro object may have
+      // exited early due to a non-existent map key or array index out of bounds
+      m_nextStep = 0;
+    }
+
+    /**
+     * @return the text of the steps that have not been consumed yet
+     */
+    private List<String> remainingSteps() {
+      return FieldPath.text( m_steps, m_nextStep );
     }
 
     /**
@@ -357,6 +356,91 @@ public class AvroInputMeta extends BaseStepMeta implements StepMetaInterface {
       }
     }
 
+    /**
+     * Work out the concrete schema of a value whose declared schema is a union. Lookups that only depend on the union
+     * schema are remembered by the step so that they are not repeated for every row.
+     *
+     * @param step
+     *          the path step that produced the value
+     * @param union
+     *          the union schema
+     * @param value
+     *          the value
+     * @return the schema to use for the value
+     * @throws KettleException
+     *           if a problem occurs
+     */
+    private Schema resolveUnion( PathStep step, Schema union, Object value ) throws KettleException {
+      if ( value instanceof GenericContainer ) {
+        // we can ask these things for their schema (covers
+        // records, arrays, enums and fixed)
+        return ( (GenericContainer) value ).getSchema();
+      }
+
+      // either have a map or primitive here
+      if ( value instanceof Map ) {
+        if ( step.m_mapUnion != union ) {
+          // now have to look for the schema of the map
+          Schema mapSchema = null;
+          for ( Schema ts : union.getTypes() ) {
+            if ( ts.getType() == Schema.Type.MAP ) {
+              mapSchema = ts;
+              break;
+            }
+          }
+          if ( mapSchema == null ) {
+            throw new KettleException( BaseMessages.getString( AvroInputMeta.PKG,
+                "AvroInput.Error.UnableToFindSchemaForUnionMap" ) );
+          }
+          step.m_mapUnionBranch = mapSchema;
+          step.m_mapUnion = union;
+        }
+        return step.m_mapUnionBranch;
+      }
+
+      if ( m_tempValueMeta.getType() != ValueMetaInterface.TYPE_STRING ) {
+        // we have a two element union, where one element is the type
+        // "null". So in this case we actually have just one type and can
+        // output specific values of it (instead of using String as a
+        // catch all for varying primitive types in the union)
+        if ( step.m_primitiveUnion != union ) {
+          step.m_primitiveUnionBranch = AvroInputData.checkUnion( union );
+          step.m_primitiveUnion = union;
+        }
+        return step.m_primitiveUnionBranch;
+      }
+
+      // use the string representation of the value
+      return STRING_SCHEMA;
+    }
+
+    /**
+     * Continue down the path with the value reached by a step.
+     *
+     * @param value
+     *          the value
+     * @param valueType
+     *          the (union resolved) schema of the value
+     * @return the field value or null for out-of-bounds array indexes, non-existent map keys or unsupported avro types.
+     * @throws KettleException
+     *           if a problem occurs
+     */
+    @SuppressWarnings( "unchecked" )
+    private Object convertValue( Object value, Schema valueType, Schema defaultSchema, boolean ignoreMissing )
+      throws KettleException {
+      switch ( valueType.getType() ) {
+        case RECORD:
+          return convertToKettleValue( (GenericData.Record) value, valueType, defaultSchema, ignoreMissing );
+        case ARRAY:
+          return convertToKettleValue( (GenericData.Array) value, valueType, defaultSchema, ignoreMissing );
+        case MAP:
+          return convertToKettleValue( (Map<Utf8, Object>) value, valueType, defaultSchema, ignoreMissing );
+        default:
+          // assume a primitive (covers bytes encapsulated in FIXED type)
+          return getPrimitive( value, valueType );
+      }
+    }
+
     /**
      * Processes a map at this point in the path.
      *
@@ -377,77 +461,26 @@ public class AvroInputMeta extends BaseStepMeta implements StepMetaInterface {
         return null;
       }
 
-      if ( m_tempParts.size() == 0 ) {
+      if ( m_nextStep >= m_steps.length ) {
         throw new KettleException( BaseMessages.getString( PKG, "AvroInput.Error.MalformedPathMap" ) );
       }
 
-      String part = m_tempParts.remove( 0 );
-      if ( !( part.charAt( 0 ) == '[' ) ) {
-        throw new KettleException( BaseMessages.getString( PKG, "AvroInput.Error.MalformedPathMap2", part ) );
-      }
-
-      String key = part.substring( 1, part.indexOf( ']' ) );
-
-      if ( part.indexOf( ']' ) < part.length() - 1 ) {
-        // more dimensions to the array/map
-        part = part.substring( part.indexOf( ']' ) + 1, part.length() );
-        m_tempParts.add( 0, part );
+      PathStep step = m_steps[m_nextStep++];
+      if ( !step.m_bracketed || step.m_key == null ) {
+        throw new KettleException( BaseMessages.getString( PKG, "AvroInput.Error.MalformedPathMap2", step.m_text ) );
       }
 
-      Object value = map.get( new Utf8( key ) );
+      Object value = map.get( step.m_mapKey );
       if ( value == null ) {
         return null;
       }
 
       Schema valueType = s.getValueType();
-
       if ( valueType.getType() == Schema.Type.UNION ) {
-        if ( value instanceof GenericContainer ) {
-          // we can ask these things for their schema (covers
-          // records, arrays, enums and fixed)
-          valueType = ( (GenericContainer) value ).getSchema();
-        } else {
-          // either have a map or primitive here
-          if ( value instanceof Map ) {
-            // now have to look for the schema of the map
-            Schema mapSchema = null;
-            for ( Schema ts : valueType.getTypes() ) {
-              if ( ts.getType() == Schema.Type.MAP ) {
-                mapSchema = ts;
-                break;
-              }
-            }
-            if ( mapSchema == null ) {
-              throw new KettleException( BaseMessages.getString( AvroInputMeta.PKG,
-                  "AvroInput.Error.UnableToFindSchemaForUnionMap" ) );
-            }
-            valueType = mapSchema;
-          } else {
-            if ( m_tempValueMeta.getType() != ValueMetaInterface.TYPE_STRING ) {
-              // we have a two element union, where one element is the type
-              // "null". So in this case we actually have just one type and can
-              // output specific values of it (instead of using String as a
-              // catch all for varying primitive types in the union)
-              valueType = AvroInputData.checkUnion( valueType );
-            } else {
-              // use the string representation of the value
-              valueType = Schema.create( Schema.Type.STRING );
-            }
-          }
-        }
+        valueType = resolveUnion( step, valueType, value );
       }
 
-      // what have we got?
-      if ( valueType.getType() == Schema.Type.RECORD ) {
-        return convertToKettleValue( (GenericData.Record) value, valueType, defaultSchema, ignoreMissing );
-      } else if ( valueType.getType() == Schema.Type.ARRAY ) {
-        return convertToKettleValue( (GenericData.Array) value, valueType, defaultSchema, ignoreMissing );
-      } else if ( valueType.getType() == Schema.Type.MAP ) {
-        return convertToKettleValue( (Map<Utf8, Object>) value, valueType, defaultSchema, ignoreMissing );
-      } else {
-        // assume a primitive
-        return getPrimitive( value, valueType );
-      }
+      return convertValue( value, valueType, defaultSchema, ignoreMissing );
     }
 
     /**
@@ -470,87 +503,36 @@ public class AvroInputMeta extends BaseStepMeta implements StepMetaInterface {
         return null;
       }
 
-      if ( m_tempParts.size() == 0 ) {
+      if ( m_nextStep >= m_steps.length ) {
         throw new KettleException( BaseMessages.getString( PKG, "AvroInput.Error.MalformedPathArray" ) );
       }
 
-      String part = m_tempParts.remove( 0 );
-      if ( !( part.charAt( 0 ) == '[' ) ) {
-        throw new KettleException( BaseMessages.getString( PKG, "AvroInput.Error.MalformedPathArray2", part ) );
-      }
-
-      String index = part.substring( 1, part.indexOf( ']' ) );
-      int arrayI = 0;
-      try {
-        arrayI = Integer.parseInt( index.trim() );
-      } catch ( NumberFormatException e ) {
-        throw new KettleException( BaseMessages.getString( PKG, "AvroInput.Error.UnableToParseArrayIndex", index ) );
+      PathStep step = m_steps[m_nextStep++];
+      if ( !step.m_bracketed || step.m_key == null ) {
+        throw new KettleException( BaseMessages.getString( PKG, "AvroInput.Error.MalformedPathArray2", step.m_text ) );
       }
 
-      if ( part.indexOf( ']' ) < part.length() - 1 ) {
-        // more dimensions to the array
-        part = part.substring( part.indexOf( ']' ) + 1, part.length() );
-        m_tempParts.add( 0, part );
+      if ( !step.m_validIndex ) {
+        throw new KettleException( BaseMessages.getString( PKG, "AvroInput.Error.UnableToParseArrayIndex",
+            step.m_key ) );
       }
 
+      int arrayI = step.m_index;
       if ( arrayI >= array.size() || arrayI < 0 ) {
         return null;
       }
 
       Object element = array.get( arrayI );
-      Schema elementType = s.getElementType();
-
       if ( element == null ) {
         return null;
       }
 
+      Schema elementType = s.getElementType();
       if ( elementType.getType() == Schema.Type.UNION ) {
-        if ( element instanceof GenericContainer ) {
-          // we can ask these things for their schema (covers
-          // records, arrays, enums and fixed)
-          elementType = ( (GenericContainer) element ).getSchema();
-        } else {
-          // either have a map or primitive here
-          if ( element instanceof Map ) {
-            // now have to look for the schema of the map
-            Schema mapSchema = null;
-            for ( Schema ts : elementType.getTypes() ) {
-              if ( ts.getType() == Schema.Type.MAP ) {
-                mapSchema = ts;
-                break;
-              }
-            }
-            if ( mapSchema == null ) {
-              throw new KettleException( BaseMessages.getString( AvroInputMeta.PKG,
-                  "AvroInput.Error.UnableToFindSchemaForUnionMap" ) );
-            }
-            elementType = mapSchema;
-          } else {
-            if ( m_tempValueMeta.getType() != ValueMetaInterface.TYPE_STRING ) {
-              // we have a two element union, where one element is the type
-              // "null". So in this case we actually have just one type and can
-              // output specific values of it (instead of using String as a
-              // catch all for varying primitive types in the union)
-              elementType = AvroInputData.checkUnion( elementType );
-            } else {
-              // use the string representation of the value
-              elementType = Schema.create( Schema.Type.STRING );
-            }
-          }
-        }
+        elementType = resolveUnion( step, elementType, element );
       }
 
-      // what have we got?
-      if ( elementType.getType() == Schema.Type.RECORD ) {
-        return convertToKettleValue( (GenericData.Record) element, elementType, defaultSchema, ignoreMissing );
-      } else if ( elementType.getType() == Schema.Type.ARRAY ) {
-        return convertToKettleValue( (GenericData.Array) element, elementType, defaultSchema, ignoreMissing );
-      } else if ( elementType.getType() == Schema.Type.MAP ) {
-        return convertToKettleValue( (Map<Utf8, Object>) element, elementType, defaultSchema, ignoreMissing );
-      } else {
-        // assume a primitive (covers bytes encapsulated in FIXED type)
-        return getPrimitive( element, elementType );
-      }
+      return convertValue( element, elementType, defaultSchema, ignoreMissing );
     }
 
     /**
@@ -573,94 +555,264 @@ public class AvroInputMeta extends BaseStepMeta implements StepMetaInterface {
         return null;
       }
 
-      if ( m_tempParts.size() == 0 ) {
+      if ( m_nextStep >= m_steps.length ) {
         throw new KettleException( BaseMessages.getString( PKG, "AvroInput.Error.MalformedPathRecord" ) );
       }
 
-      String part = m_tempParts.remove( 0 );
-      if ( part.charAt( 0 ) == '[' ) {
-        throw new KettleException( BaseMessages.getString( PKG, "AvroInput.Error.InvalidPath" ) + m_tempParts );
+      PathStep step = m_steps[m_nextStep++];
+      if ( step.m_bracketed ) {
+        throw new KettleException( BaseMessages.getString( PKG, "AvroInput.Error.InvalidPath" ) + remainingSteps() );
       }
 
-      if ( part.indexOf( '[' ) > 0 ) {
-        String arrayPart = part.substring( part.indexOf( '[' ) );
-        part = part.substring( 0, part.indexOf( '[' ) );
-
-        // put the array section back into location zero
-        m_tempParts.add( 0, arrayPart );
-      }
-
-      // part is a named field of the record
-      Schema.Field fieldS = s.getField( part );
+      // step is a named field of the record
+      Schema.Field fieldS = step.getField( s );
       if ( fieldS == null && !ignoreMissing ) {
-        throw new KettleException( BaseMessages.getString( PKG, "AvroInput.Error.NonExistentField", part ) );
+        throw new KettleException( BaseMessages.getString( PKG, "AvroInput.Error.NonExistentField", step.m_text ) );
       }
-      Object field = record.get( part );
+
+      // positional access when the record really is of the schema we resolved the field against
+      Object field = fieldS != null && record.getSchema() == s ? record.get( fieldS.pos() ) : record.get( step.m_text );
 
       if ( field == null ) {
-        fieldS = defaultSchema.getField( part );
+        fieldS = defaultSchema.getField( step.m_text );
         if ( fieldS == null || fieldS.defaultValue() == null ) {
           return null;
         }
         field = fieldS.defaultValue();
       }
 
-      Schema.Type fieldT = fieldS.schema().getType();
       Schema fieldSchema = fieldS.schema();
+      if ( fieldSchema.getType() == Schema.Type.UNION ) {
+        fieldSchema = resolveUnion( step, fieldSchema, field );
+      }
 
-      if ( fieldT == Schema.Type.UNION ) {
-        if ( field instanceof GenericContainer ) {
-          // we can ask these things for their schema (covers
-          // records, arrays, enums and fixed)
-          fieldSchema = ( (GenericContainer) field ).getSchema();
-          fieldT = fieldSchema.getType();
-        } else {
-          // either have a map or primitive here
-          if ( field instanceof Map ) {
-            // now have to look for the schema of the map
-            Schema mapSchema = null;
-            for ( Schema ts : fieldSchema.getTypes() ) {
-              if ( ts.getType() == Schema.Type.MAP ) {
-                mapSchema = ts;
-                break;
-              }
-            }
-            if ( mapSchema == null ) {
-              throw new KettleException( BaseMessages.getString( AvroInputMeta.PKG,
-                  "AvroInput.Error.UnableToFindSchemaForUnionMap" ) );
+      return convertValue( field, fieldSchema, defaultSchema, ignoreMissing );
+    }
+  }
 
-            }
-            fieldSchema = mapSchema;
-            fieldT = Schema.Type.MAP;
+  /**
+   * A user-specified path split into its parts and compiled into a flat sequence of steps. Paths without variables are
+   * compiled once, the others whenever their variables resolve differently.
+   */
+  protected static class FieldPath {
+
+    protected static final PathStep[] NO_STEPS = new PathStep[0];
+
+    /** variable open and close markers, as substituted by environmentSubstitute() */
+    private static final String[][] VARIABLE_MARKERS = {
+      { StringUtil.UNIX_OPEN, StringUtil.UNIX_CLOSE },
+      { StringUtil.WINDOWS_OPEN, StringUtil.WINDOWS_CLOSE },
+      { StringUtil.HEX_OPEN, StringUtil.HEX_CLOSE } };
+
+    private final List<String> m_parts;
+
+    /** true if any part of the path needs variable substitution before it can be compiled */
+    private final boolean m_hasVariables;
+
+    /** the variable substituted path parts that m_steps was last compiled from */
+    private final String[] m_resolvedParts;
+
+    private PathStep[] m_steps;
+
+    /**
+     * @param path
+     *          the path as entered by the user
+     */
+    protected FieldPath( String path ) {
+      String[] temp = AvroInputData.cleansePath( path ).split( "\\." );
+      m_parts = new ArrayList<String>();
+      for ( String part : temp ) {
+        m_parts.add( part );
+      }
+
+      if ( m_parts.get( 0 ).equals( "$" ) ) {
+        m_parts.remove( 0 ); // root record indicator
+      } else if ( m_parts.get( 0 ).startsWith( "$[" ) ) {
+
+        // strip leading $ off of array
+        String r = m_parts.get( 0 ).substring( 1, m_parts.get( 0 ).length() );
+        m_parts.set( 0, r );
+      }
+
+      boolean hasVariables = false;
+      for ( String part : m_parts ) {
+        if ( containsVariable( part ) ) {
+          hasVariables = true;
+          break;
+        }
+      }
+      m_hasVariables = hasVariables;
+
+      // paths without variables are compiled once here, the others on the
+      // first resolve() (and again whenever the variables resolve differently)
+      m_resolvedParts = new String[m_parts.size()];
+      m_steps = m_hasVariables ? NO_STEPS : compilePath( m_parts );
+    }
+
+    /**
+     * @return the compiled steps, empty for paths with variables that have not been resolved yet
+     */
+    protected PathStep[] getSteps() {
+      return m_steps;
+    }
+
+    /**
+     * @param space
+     *          environment variables
+     * @return the steps compiled from the variable substituted path
+     */
+    protected PathStep[] resolve( VariableSpace space ) {
+      if ( m_hasVariables ) {
+        boolean changed = false;
+        for ( int i = 0; i < m_resolvedParts.length; i++ ) {
+          String resolved = space.environmentSubstitute( m_parts.get( i ) );
+          if ( !resolved.equals( m_resolvedParts[i] ) ) {
+            m_resolvedParts[i] = resolved;
+            changed = true;
+          }
+        }
+        if ( changed ) {
+          m_steps = compilePath( Arrays.asList( m_resolvedParts ) );
+        }
+      }
+      return m_steps;
+    }
+
+    /**
+     * @param part
+     *          a path part
+     * @return true if environmentSubstitute() could change the part, i.e. it has an open marker followed by its close
+     *         marker
+     */
+    protected static boolean containsVariable( String part ) {
+      for ( String[] markers : VARIABLE_MARKERS ) {
+        int open = part.indexOf( markers[0] );
+        if ( open >= 0 && part.indexOf( markers[1], open + markers[0].length() ) >= 0 ) {
+          return true;
+        }
+      }
+      return false;
+    }
+
+    /**
+     * Compile the supplied path parts into a flat sequence of steps. A part such as "name[2][key]" yields a field step
+     * followed by two bracketed (array index or map key) steps.
+     *
+     * @param parts
+     *          the (variable substituted) path parts
+     * @return the compiled steps
+     */
+    protected static PathStep[] compilePath( List<String> parts ) {
+      List<PathStep> steps = new ArrayList<PathStep>();
+      for ( String part : parts ) {
+        if ( part.length() == 0 ) {
+          steps.add( new PathStep( part, false ) );
+          continue;
+        }
+        int start = 0;
+        while ( start < part.length() ) {
+          int end;
+          if ( part.charAt( start ) == '[' ) {
+            end = part.indexOf( ']', start );
+            end = end < 0 ? part.length() : end + 1;
+            steps.add( new PathStep( part.substring( start, end ), true ) );
           } else {
-            if ( m_tempValueMeta.getType() != ValueMetaInterface.TYPE_STRING ) {
-              // we have a two element union, where one element is the type
-              // "null". So in this case we actually have just one type and can
-              // output specific values of it (instead of using String as a
-              // catch all for varying primitive types in the union)
-              fieldSchema = AvroInputData.checkUnion( fieldSchema );
-              fieldT = fieldSchema.getType();
-            } else {
-
-              // use the string representation of the value
-              fieldSchema = Schema.create( Schema.Type.STRING );
-              fieldT = fieldSchema.getType();
-            }
+            end = part.indexOf( '[', start );
+            end = end < 0 ? part.length() : end;
+            steps.add( new PathStep( part.substring( start, end ), false ) );
           }
+          start = end;
         }
       }
+      return steps.toArray( new PathStep[steps.size()] );
+    }
 
-      // what have we got?
-      if ( fieldT == Schema.Type.RECORD ) {
-        return convertToKettleValue( (GenericData.Record) field, fieldSchema, defaultSchema, ignoreMissing );
-      } else if ( fieldT == Schema.Type.ARRAY ) {
-        return convertToKettleValue( (GenericData.Array) field, fieldSchema, defaultSchema, ignoreMissing );
-      } else if ( fieldT == Schema.Type.MAP ) {
-        return convertToKettleValue( (Map<Utf8, Object>) field, fieldSchema, defaultSchema, ignoreMissing );
-      } else {
-        // assume primitive (covers bytes encapsulated in FIXED type)
-        return getPrimitive( field, fieldSchema );
+    /**
+     * @param steps
+     *          compiled steps
+     * @param from
+     *          the first step to include
+     * @return the text of the steps from the given one on
+     */
+    protected static List<String> text( PathStep[] steps, int from ) {
+      List<String> text = new ArrayList<String>();
+      for ( int i = from; i < steps.length; i++ ) {
+        text.add( steps[i].m_text );
       }
+      return text;
+    }
+  }
+
+  /**
+   * One step of a compiled field path: either a named record field or a bracketed array index/map key. The schema
+   * lookups done when walking a step are remembered (keyed on schema identity) so that they only happen once per
+   * schema rather than once per row.
+   */
+  protected static class PathStep {
+
+    /** the text of the step as it appears in the path (including brackets) */
+    protected final String m_text;
+
+    /** true for "[...]" steps */
+    protected final boolean m_bracketed;
+
+    /** the text between the brackets; null for field steps and unterminated brackets */
+    protected final String m_key;
+
+    /** the bracketed text as a map key */
+    protected final Utf8 m_mapKey;
+
+    /** the bracketed text as an array index */
+    protected final int m_index;
+
+    /** true if the bracketed text parses as an array index */
+    protected final boolean m_validIndex;
+
+    private Schema m_fieldSchema;
+    private Schema.Field m_field;
+
+    private Schema m_mapUnion;
+    private Schema m_mapUnionBranch;
+
+    private Schema m_primitiveUnion;
+    private Schema m_primitiveUnionBranch;
+
+    protected PathStep( String text, boolean bracketed ) {
+      m_text = text;
+      m_bracketed = bracketed;
+
+      String key = null;
+      if ( bracketed && text.endsWith( "]" ) ) {
+        key = text.substring( 1, text.length() - 1 );
+      }
+      m_key = key;
+      m_mapKey = key != null ? new Utf8( key ) : null;
+
+      int index = 0;
+      boolean validIndex = false;
+      if ( key != null ) {
+        try {
+          index = Integer.parseInt( key.trim() );
+          validIndex = true;
+        } catch ( NumberFormatException e ) {
+          // not an array index - fine for map keys
+        }
+      }
+      m_index = index;
+      m_validIndex = validIndex;
+    }
+
+    /**
+     * @param s
+     *          the record schema
+     * @return the record field named by this step, or null if the schema does not have one
+     */
+    protected Schema.Field getField( Schema s ) {
+      if ( s != m_fieldSchema ) {
+        m_field = s.getField( m_text );
+        m_fieldSchema = s;
+      }
+      return m_field;
     }
   }
 
@@ -718,6 +870,13 @@ public class AvroInputMeta extends BaseStepMeta implements StepMetaInterface {
   @Injection( name = "DONT_COMPLAIN_ABOUT_MISSING_FIELDS" )
   protected boolean m_dontComplainAboutMissingFields;
 
+  /**
+   * True if the step copies are to share the reading of a container file, each one reading a distinct range of its
+   * blocks
+   */
+  @Injection( name = "READ_IN_PARALLEL" )
+  protected boolean m_readInParallel;
+
   /** The fields to emit */
   @InjectionDeep
   protected List<AvroField> m_fields;
@@ -956,6 +1115,26 @@ public class AvroInputMeta extends BaseStepMeta implements StepMetaInterface {
     return m_dontComplainAboutMissingFields;
   }
 
+  /**
+   * Set whether the step copies are to share the reading of a container file. Each copy then reads the blocks that
+   * start in its own share of the file rather than every copy reading the whole file.
+   *
+   * @param p
+   *          true to split a container file between the step copies
+   */
+  public void setReadInParallel( boolean p ) {
+    m_readInParallel = p;
+  }
+
+  /**
+   * Get whether the step copies are to share the reading of a container file.
+   *
+   * @return true to split a container file between the step copies
+   */
+  public boolean getReadInParallel() {
+    return m_readInParallel;
+  }
+
   /*
    * (non-Javadoc)
    * 
@@ -1123,6 +1302,8 @@ public class AvroInputMeta extends BaseStepMeta implements StepMetaInterface {
     retval.append( "\n    " ).append(
         XMLHandler.addTagValue( "ignore_missing_fields", m_dontComplainAboutMissingFields ) );
 
+    retval.append( "\n    " ).append( XMLHandler.addTagValue( "read_in_parallel", m_readInParallel ) );
+
     if ( m_fields != null && m_fields.size() > 0 ) {
       retval.append( "\n    " ).append( XMLHandler.openTag( "avro_fields" ) );
 
@@ -1204,6 +1385,11 @@ public class AvroInputMeta extends BaseStepMeta implements StepMetaInterface {
       m_dontComplainAboutMissingFields = ignoreMissing.equalsIgnoreCase( "Y" );
     }
 
+    String readInParallel = XMLHandler.getTagValue( stepnode, "read_in_parallel" );
+    if ( !Const.isEmpty( readInParallel ) ) {
+      m_readInParallel = readInParallel.equalsIgnoreCase( "Y" );
+    }
+
     Node fields = XMLHandler.getSubNode( stepnode, "avro_fields" );
     if ( fields != null && XMLHandler.countNodes( fields, "avro_field" ) > 0 ) {
       int nrfields = XMLHandler.countNodes( fields, "avro_field" );
@@ -1267,6 +1453,7 @@ public class AvroInputMeta extends BaseStepMeta implements StepMetaInterface {
     m_schemaInFieldIsPath = rep.getStepAttributeBoolean( id_step, 0, "schema_in_field_is_path" );
     m_cacheSchemasInMemory = rep.getStepAttributeBoolean( id_step, 0, "cache_schemas" );
     m_dontComplainAboutMissingFields = rep.getStepAttributeBoolean( id_step, 0, "ignore_missing_fields" );
+    m_readInParallel = rep.getStepAttributeBoolean( id_step, 0, "read_in_parallel" );
 
     int nrfields = rep.countNrStepAttributes( id_step, "field_name" );
     if ( nrfields > 0 ) {
@@ -1333,6 +1520,7 @@ public class AvroInputMeta extends BaseStepMeta implements StepMetaInterface {
     rep.saveStepAttribute( id_transformation, id_step, 0, "schema_in_field_is_path", m_schemaInFieldIsPath );
     rep.saveStepAttribute( id_transformation, id_step, 0, "cache_schemas", m_cacheSchemasInMemory );
     rep.saveStepAttribute( id_transformation, id_step, 0, "ignore_missing_fields", m_dontComplainAboutMissingFields );
+    rep.saveStepAttribute( id_transformation, id_step, 0, "read_in_parallel", m_readInParallel );
 
     if ( m_fields != null && m_fields.size() > 0 ) {
       for ( int i = 0; i < m_fields.size(); i++ ) {
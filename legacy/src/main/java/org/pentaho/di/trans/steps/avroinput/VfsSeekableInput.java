@@ -0,0 +1,76 @@
+/*******************************************************************************
+ *
+ * Pentaho Big Data
+ *
+ * Copyright (C) 2002-2016 by Pentaho : http://www.pentaho.com
+ *
+ *******************************************************************************
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ ******************************************************************************/
+
+package org.pentaho.di.trans.steps.avroinput;
+
+import java.io.IOException;
+
+import org.apache.avro.file.SeekableInput;
+import org.apache.commons.vfs2.FileObject;
+import org.apache.commons.vfs2.RandomAccessContent;
+import org.apache.commons.vfs2.util.RandomAccessMode;
+
+/**
+ * Adapts the random access content of a VFS file to Avro's SeekableInput so that a container file can be positioned at
+ * an arbitrary sync marker.
+ */
+public class VfsSeekableInput implements SeekableInput {
+
+  private final RandomAccessContent m_content;
+  private final long m_length;
+
+  public VfsSeekableInput( FileObject file ) throws IOException {
+    m_content = file.getContent().getRandomAccessContent( RandomAccessMode.READ );
+    m_length = m_content.length();
+  }
+
+  @Override
+  public void seek( long p ) throws IOException {
+    m_content.seek( p );
+  }
+
+  @Override
+  public long tell() throws IOException {
+    return m_content.getFilePointer();
+  }
+
+  @Override
+  public long length() throws IOException {
+    return m_length;
+  }
+
+  @Override
+  public int read( byte[] b, int off, int len ) throws IOException {
+    long remaining = m_length - m_content.getFilePointer();
+    if ( remaining <= 0 ) {
+      return -1;
+    }
+    int toRead = (int) Math.min( len, remaining );
+    m_content.readFully( b, off, toRead );
+    return toRead;
+  }
+
+  @Override
+  public void close() throws IOException {
+    m_content.close();
+  }
+}
@@ -28,6 +28,9 @@ import org.apache.commons.httpclient.HttpMethod;
 import org.apache.commons.httpclient.UsernamePasswordCredentials;
 import org.apache.commons.httpclient.auth.AuthScope;
 import org.apache.commons.httpclient.methods.GetMethod;
+import org.codehaus.jackson.JsonFactory;
+import org.codehaus.jackson.JsonParser;
+import org.codehaus.jackson.JsonToken;
 import org.pentaho.di.cluster.SlaveConnectionManager;
 import org.pentaho.di.core.Const;
 import org.pentaho.di.core.encryption.Encr;
@@ -44,11 +47,18 @@ import org.pentaho.di.trans.step.StepInterface;
 import org.pentaho.di.trans.step.StepMeta;
 import org.pentaho.di.trans.step.StepMetaInterface;
 
-import java.io.BufferedInputStream;
+import java.io.ByteArrayOutputStream;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.UnsupportedEncodingException;
+import java.net.URLEncoder;
+import java.nio.charset.StandardCharsets;
+import java.util.Objects;
 
 public class CouchDbInput extends BaseStep implements StepInterface {
   private static Class<?> PKG = CouchDbInputMeta.class; // for i18n purposes, needed by Translator2!! $NON-NLS-1$
+  private static final JsonFactory JSON_FACTORY = new JsonFactory();
 
   private final HttpClientFactory httpClientFactory;
   private final GetMethodFactory getMethodFactory;
@@ -87,144 +97,176 @@ public class CouchDbInput extends BaseStep implements StepInterface {
 
         data.outputRowMeta = new RowMeta();
         meta.getFields( data.outputRowMeta, getStepname(), null, null, this, repository, metaStore );
-
-        // Skip over first introduction row containing the number of results...
-        //
-        // Example: {"total_rows":3,"offset":0,"rows":[
-        //
-        data.buffer = new StringBuilder( 1000 );
-        data.open = 0;
-        boolean cont = true;
-        int c = data.bufferedInputStream.read();
-        while ( c >= 0 && cont && !isStopped() ) {
-          data.buffer.append( (char) c );
-
-          switch( (char) c ) {
-            case '{':
-              data.open++;
-
-              // Second JSON nested block means: another row of data...
-              if ( data.open == 2 ) {
-                logBasic( "Read header: >>" + data.buffer.substring( 0, data.buffer.length() - 1 ) + "<<" );
-                data.buffer.delete( 0, data.buffer.length() - 1 );
-                cont = false; // Stop the while loop.
-              }
-
-              break;
-            case '}':
-              data.open--;
-              break;
-
-            case '"':
-              // skip until the next "
-              //
-              int prev = c;
-              c = data.bufferedInputStream.read();
-              while ( c != '"' && prev != '\\' && c >= 0 ) {
-                data.buffer.append( (char) c );
-                prev = c;
-                c = data.bufferedInputStream.read();
-              }
-          }
-
-          if ( cont ) {
-            c = data.bufferedInputStream.read();
-          }
-        }
-
-        if ( c < 0 ) {
-          setOutputDone();
-          return false;
-        }
       }
 
-      // read one JSON block from the data until no data is left on the input stream
+      // The response looks like {"total_rows":3,"offset":0,"rows":[{...},{...},{...}]}, one output row per view entry
       //
-      boolean cont = true;
-      int c = data.bufferedInputStream.read();
-      while ( c >= 0 && cont && !isStopped() ) {
-        data.buffer.append( (char) c );
-
-        switch( (char) c ) {
-          case '{':
-            data.open++;
-
-            // Second JSON nested block means: another row of data...
-            if ( data.open == 2 ) {
-
-              sendBufferRow( false );
-
-              cont = false; // Stop the while loop.
-            }
-
-            break;
-          case '}':
-            data.open--;
-            break;
-        }
-
-        if ( cont ) {
-          c = data.bufferedInputStream.read();
-        }
-      }
-
-      if ( c < 0 ) {
-        if ( data.buffer.length() > 0 ) {
-          sendBufferRow( true );
-        }
+      String json = isStopped() ? null : nextViewRow();
+      if ( json == null ) {
         setOutputDone();
         return false;
       }
 
+      if ( log.isDebug() ) {
+        logDebug( "Read row: " + json );
+      }
+      Object[] row = RowDataUtil.allocateRowData( data.outputRowMeta.size() );
+      int index = 0;
+      row[ index++ ] = json;
+
+      // putRow will send the row on to the default output hop.
+      //
+      putRow( data.outputRowMeta, row );
       return true;
     } catch ( IOException e ) {
       throw new KettleException( "Unable to read from the CouchDB REST web service", e );
     }
   }
 
-  private void sendBufferRow( boolean lastRow ) throws KettleStepException {
+  private String nextViewRow() throws IOException, KettleException {
+    if ( data.viewReader == null ) {
+      return null;
+    }
+    String json = data.viewReader.nextRow();
+    if ( json == null || data.pageSize <= 0 ) {
+      return json;
+    }
+    data.rowsInPage++;
+    String key = CouchDbViewReader.getMember( json, "key" );
+    String docId = CouchDbViewReader.getMember( json, "id" );
+    if ( data.rowsInPage <= data.pageSize ) {
+      countRun( key, docId );
+      return json;
+    }
 
-    int pos = data.buffer.length() - 2;
+    // Each page asks for one row more than the page size, that extra row is where the next page starts
+    //
+    if ( key == null ) {
+      throw new KettleException( "Unable to determine the key of a CouchDB view row to fetch the next page: " + json );
+    }
+    // startkey and startkey_docid point at the first row with that key and document, skip the ones already read.
+    // Without this a document emitting the same key more than a page's worth of times would be read forever
+    int skip = key.equals( data.runKey ) && Objects.equals( docId, data.runDocId ) ? data.runLength : 0;
+    closeResponse();
+    int result = executeRequest( buildPageUrl( data.url, data.pageSize, key, docId, skip ) );
+    if ( result < 200 || result >= 300 ) {
+      throw new KettleException( "Web request returned code " + result + " : " + readError() );
+    }
+    json = data.viewReader.nextRow();
+    if ( json != null ) {
+      data.rowsInPage++;
+      countRun( CouchDbViewReader.getMember( json, "key" ), CouchDbViewReader.getMember( json, "id" ) );
+    }
+    return json;
+  }
 
-    if ( lastRow ) {
-      // Get rid of any ]} at the end of the last row.
-      //
-      pos = removeTrailingSpaces( data.buffer, pos );
-      pos = removeTrailingCharacter( data.buffer, pos, '}' );
-      pos = removeTrailingSpaces( data.buffer, pos );
-      pos = removeTrailingCharacter( data.buffer, pos, ']' );
+  /**
+   * Counts the rows read in a row with the same key and document id
+   */
+  private void countRun( String key, String docId ) {
+    if ( Objects.equals( key, data.runKey ) && Objects.equals( docId, data.runDocId ) ) {
+      data.runLength++;
+    } else {
+      data.runKey = key;
+      data.runDocId = docId;
+      data.runLength = 1;
     }
+  }
 
-    pos = removeTrailingSpaces( data.buffer, pos );
-    pos = removeTrailingCharacter( data.buffer, pos, ',' );
+  public static String buildPageUrl( String url, int pageSize, String startKey, String startDocId ) throws IOException {
+    return buildPageUrl( url, pageSize, startKey, startDocId, 0 );
+  }
 
-    String json = data.buffer.substring( 0, pos + 1 );
-    data.buffer.delete( 0, data.buffer.length() - 1 );
+  /**
+   * Builds the url of a page of the view
+   *
+   * @param url        the view url
+   * @param pageSize   the number of rows per page, 0 to read the whole view
+   * @param startKey   the JSON key of the first row of the page or null to start at the beginning
+   * @param startDocId the JSON document id of the first row of the page or null
+   * @param skip       the number of rows to skip, for rows with the start key and document id that were already read
+   * @return the page url
+   * @throws IOException if the document id isn't valid JSON
+   */
+  public static String buildPageUrl( String url, int pageSize, String startKey, String startDocId, int skip )
+    throws IOException {
+    if ( pageSize <= 0 ) {
+      return url;
+    }
+    StringBuilder pageUrl = new StringBuilder( url ).append( "?limit=" ).append( pageSize + 1 );
+    try {
+      if ( startKey != null ) {
+        pageUrl.append( "&startkey=" ).append( URLEncoder.encode( startKey, "UTF-8" ) );
+      }
+      if ( startDocId != null ) {
+        // The id comes back as a JSON string but startkey_docid is passed as is
+        pageUrl.append( "&startkey_docid=" ).append( URLEncoder.encode( decodeJsonString( startDocId ), "UTF-8" ) );
+      }
+      if ( skip > 0 ) {
+        pageUrl.append( "&skip=" ).append( skip );
+      }
+    } catch ( UnsupportedEncodingException e ) {
+      // UTF-8 is always supported
+      throw new IllegalStateException( e );
+    }
+    return pageUrl.toString();
+  }
 
-    if ( log.isDebug() ) {
-      logDebug( "Read row: " + json );
+  private static String decodeJsonString( String json ) throws IOException {
+    try ( JsonParser parser = JSON_FACTORY.createJsonParser( json ) ) {
+      if ( parser.nextToken() != JsonToken.VALUE_STRING ) {
+        throw new IOException( "Expected a JSON string but got: " + json );
+      }
+      return parser.getText();
     }
-    Object[] row = RowDataUtil.allocateRowData( data.outputRowMeta.size() );
-    int index = 0;
-    row[ index++ ] = json;
+  }
+
+  private int executeRequest( String url ) throws IOException {
+    HttpMethod method = getMethodFactory.create( url );
+    data.method = method;
+    data.inputStream = null;
+    data.viewReader = null;
+    data.rowsInPage = 0;
 
-    // putRow will send the row on to the default output hop.
+    int result = data.client.executeMethod( method );
+
+    // the response
     //
-    putRow( data.outputRowMeta, row );
+    data.inputStream = method.getResponseBodyAsStream();
+    if ( data.inputStream != null ) {
+      data.viewReader = new CouchDbViewReader( new InputStreamReader( data.inputStream, StandardCharsets.UTF_8 ) );
+    }
+    return result;
   }
 
-  private int removeTrailingCharacter( StringBuilder buffer, int pos, char c ) {
-    if ( data.buffer.charAt( pos ) == c ) {
-      pos--;
+  private String readError() throws IOException {
+    if ( data.inputStream == null ) {
+      return "";
     }
-    return pos;
+    ByteArrayOutputStream err = new ByteArrayOutputStream();
+    byte[] bytes = new byte[ 1024 ];
+    int read;
+    while ( ( read = data.inputStream.read( bytes ) ) >= 0 ) {
+      err.write( bytes, 0, read );
+    }
+    return new String( err.toByteArray(), StandardCharsets.UTF_8 );
   }
 
-  private int removeTrailingSpaces( StringBuilder buffer, int pos ) {
-    while ( pos >= 0 && Const.isSpace( data.buffer.charAt( pos ) ) ) {
-      pos--;
+  private void closeResponse() {
+    InputStream inputStream = data.inputStream;
+    data.inputStream = null;
+    data.viewReader = null;
+    if ( inputStream != null ) {
+      try {
+        inputStream.close();
+      } catch ( IOException e ) {
+        logError( "Error closing data stream", e );
+      }
+    }
+    if ( data.method != null ) {
+      data.method.releaseConnection();
+      data.method = null;
     }
-    return pos;
   }
 
   public boolean init( StepMetaInterface stepMetaInterface, StepDataInterface stepDataInterface ) {
@@ -237,6 +279,7 @@ public class CouchDbInput extends BaseStep implements StepInterface {
       String db = environmentSubstitute( meta.getDbName() );
       String design = environmentSubstitute( meta.getDesignDocument() );
       String view = environmentSubstitute( meta.getViewName() );
+      int pageSize = Const.toInt( environmentSubstitute( meta.getPageSize() ), 0 );
 
       if ( Const.isEmpty( design ) ) {
         log.logError( "Please provide a design document to use" );
@@ -268,27 +311,16 @@ public class CouchDbInput extends BaseStep implements StepInterface {
           client.getParams().setAuthenticationPreemptive( true );
         }
 
-        HttpMethod method = getMethodFactory.create( url );
+        data.client = client;
+        data.url = url;
+        data.pageSize = pageSize;
 
         // Execute request
         //
-        data.inputStream = null;
-        data.bufferedInputStream = null;
-
-        int result = client.executeMethod( method );
-
-        // the response
-        //
-        data.inputStream = method.getResponseBodyAsStream();
-        data.bufferedInputStream = new BufferedInputStream( data.inputStream, 1000 );
+        int result = executeRequest( buildPageUrl( url, pageSize, null, null ) );
 
         if ( result < 200 || result >= 300 ) {
-          StringBuilder err = new StringBuilder();
-          int c;
-          while ( ( c = data.bufferedInputStream.read() ) >= 0 ) {
-            err.append( (char) c );
-          }
-          logError( "Web request returned code " + result + " : " + err.toString() );
+          logError( "Web request returned code " + result + " : " + readError() );
           return false;
         }
 
@@ -307,14 +339,17 @@ public class CouchDbInput extends BaseStep implements StepInterface {
   @Override
   public void dispose( StepMetaInterface smi, StepDataInterface sdi ) {
 
-    if ( data.bufferedInputStream != null ) {
+    if ( data.inputStream != null ) {
       try {
-        data.bufferedInputStream.close();
+        data.inputStream.close();
       } catch ( Exception e ) {
         setErrors( 1 );
         logError( "Error closing data stream", e );
       }
     }
+    if ( data.method != null ) {
+      data.method.releaseConnection();
+    }
 
     super.dispose( smi, sdi );
   }
@@ -22,9 +22,10 @@
 
 package org.pentaho.di.trans.steps.couchdbinput;
 
-import java.io.BufferedInputStream;
 import java.io.InputStream;
 
+import org.apache.commons.httpclient.HttpClient;
+import org.apache.commons.httpclient.HttpMethod;
 import org.pentaho.di.core.row.RowMetaInterface;
 import org.pentaho.di.trans.step.BaseStepData;
 import org.pentaho.di.trans.step.StepDataInterface;
@@ -38,10 +39,28 @@ public class CouchDbInputData extends BaseStepData implements StepDataInterface
 
   public int counter;
 
+  public HttpClient client;
+  public HttpMethod method;
   public InputStream inputStream;
-  public BufferedInputStream bufferedInputStream;
+  public CouchDbViewReader viewReader;
 
-  public StringBuilder buffer;
+  /**
+   * View url without any paging parameters
+   */
+  public String url;
 
-  public int open;
+  /**
+   * Number of rows to fetch per request, 0 to read the whole view in a single request
+   */
+  public int pageSize;
+
+  public int rowsInPage;
+
+  /**
+   * Key and document id of the last row read and how many rows in a row had them, used to skip over those rows when a
+   * page starts in the middle of them
+   */
+  public String runKey;
+  public String runDocId;
+  public int runLength;
 }
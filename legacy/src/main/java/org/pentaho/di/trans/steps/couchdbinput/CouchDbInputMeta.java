@@ -96,6 +96,9 @@ public class CouchDbInputMeta extends BaseStepMeta implements StepMetaInterface
   @Injection( name = "AUTHENTICATION_PASSWORD" )
   private String authenticationPassword;
 
+  @Injection( name = "PAGE_SIZE" )
+  private String pageSize;
+
   @Override
   public void loadXML( Node stepnode, List<DatabaseMeta> databases, IMetaStore metaStore )
     throws KettleXMLException {
@@ -108,6 +111,7 @@ public class CouchDbInputMeta extends BaseStepMeta implements StepMetaInterface
       authenticationUser = XMLHandler.getTagValue( stepnode, "auth_user" ); //$NON-NLS-1$
       authenticationPassword =
         Encr.decryptPasswordOptionallyEncrypted( XMLHandler.getTagValue( stepnode, "auth_password" ) ); //$NON-NLS-1$
+      pageSize = XMLHandler.getTagValue( stepnode, "page_size" ); //$NON-NLS-1$
     } catch ( Exception e ) {
       throw new KettleXMLException( BaseMessages.getString( PKG, "CouchDbInputMeta.Exception.UnableToLoadStepInfo" ),
         e ); //$NON-NLS-1$
@@ -148,6 +152,7 @@ public class CouchDbInputMeta extends BaseStepMeta implements StepMetaInterface
     retval.append( "    " ).append( XMLHandler.addTagValue( "auth_user", authenticationUser ) );
     retval.append( "    " ).append(
       XMLHandler.addTagValue( "auth_password", Encr.encryptPasswordIfNotUsingVariables( authenticationPassword ) ) );
+    retval.append( "    " ).append( XMLHandler.addTagValue( "page_size", pageSize ) ); //$NON-NLS-1$ //$NON-NLS-2$
 
     return retval.toString();
   }
@@ -164,6 +169,7 @@ public class CouchDbInputMeta extends BaseStepMeta implements StepMetaInterface
       authenticationUser = rep.getStepAttributeString( id_step, "auth_user" );
       authenticationPassword =
         Encr.decryptPasswordOptionallyEncrypted( rep.getStepAttributeString( id_step, "auth_password" ) );
+      pageSize = rep.getStepAttributeString( id_step, "page_size" ); //$NON-NLS-1$
     } catch ( Exception e ) {
       throw new KettleException( BaseMessages.getString( PKG,
         "CouchDbInputMeta.Exception.UnexpectedErrorWhileReadingStepInfo" ), e ); //$NON-NLS-1$
@@ -182,6 +188,7 @@ public class CouchDbInputMeta extends BaseStepMeta implements StepMetaInterface
       rep.saveStepAttribute( id_transformation, id_step, "auth_user", authenticationUser );
       rep.saveStepAttribute( id_transformation, id_step, "auth_password", Encr
         .encryptPasswordIfNotUsingVariables( authenticationPassword ) );
+      rep.saveStepAttribute( id_transformation, id_step, "page_size", pageSize ); //$NON-NLS-1$
     } catch ( Exception e ) {
       throw new KettleException(
         BaseMessages.getString( PKG, "CouchDbInputMeta.Exception.UnableToSaveStepInfo" ) + id_step, e ); //$NON-NLS-1$
@@ -297,4 +304,18 @@ public class CouchDbInputMeta extends BaseStepMeta implements StepMetaInterface
     this.designDocument = designDocument;
   }
 
+  /**
+   * @return the number of view rows fetched per request, empty to read the whole view in one request
+   */
+  public String getPageSize() {
+    return pageSize;
+  }
+
+  /**
+   * @param pageSize the number of view rows fetched per request
+   */
+  public void setPageSize( String pageSize ) {
+    this.pageSize = pageSize;
+  }
+
 }
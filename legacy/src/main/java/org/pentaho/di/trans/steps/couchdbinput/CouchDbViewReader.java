@@ -0,0 +1,308 @@
+/*******************************************************************************
+ *
+ * Pentaho Big Data
+ *
+ * Copyright (C) 2002-2016 by Pentaho : http://www.pentaho.com
+ *
+ *******************************************************************************
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ ******************************************************************************/
+
+package org.pentaho.di.trans.steps.couchdbinput;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.Reader;
+import java.io.StringReader;
+
+/**
+ * Streams the entries of the "rows" array out of a CouchDB view response without building the whole document.
+ * <p>
+ * The response is scanned through a large character buffer and each entry is returned as its raw JSON text.  String
+ * contents (including escaped quotes and braces) are skipped correctly.
+ */
+public class CouchDbViewReader implements Closeable {
+  public static final int DEFAULT_BUFFER_SIZE = 64 * 1024;
+  private static final String ROWS = "rows";
+
+  private final Reader reader;
+  private final char[] buffer;
+  private int position = 0;
+  private int limit = 0;
+  /**
+   * Start of the value currently being captured in the buffer, -1 when not capturing
+   */
+  private int captureStart = -1;
+  private final StringBuilder captured = new StringBuilder();
+  private boolean inRows = false;
+  private boolean done = false;
+  private boolean firstRow = true;
+
+  public CouchDbViewReader( Reader reader ) {
+    this( reader, DEFAULT_BUFFER_SIZE );
+  }
+
+  public CouchDbViewReader( Reader reader, int bufferSize ) {
+    this.reader = reader;
+    this.buffer = new char[ bufferSize ];
+  }
+
+  /**
+   * @return the JSON text of the next view entry or null when there are no more
+   * @throws IOException if the response can't be read or isn't a view response
+   */
+  public String nextRow() throws IOException {
+    if ( done ) {
+      return null;
+    }
+    if ( !inRows && !findRows() ) {
+      done = true;
+      return null;
+    }
+    int c = skipWhitespace();
+    if ( !firstRow ) {
+      if ( c == ',' ) {
+        position++;
+        c = skipWhitespace();
+      } else if ( c != ']' ) {
+        throw unexpected( c );
+      }
+    }
+    if ( c == ']' || c < 0 ) {
+      done = true;
+      return null;
+    }
+    firstRow = false;
+    return captureValue();
+  }
+
+  /**
+   * Returns the raw text of the value starting at the current position
+   */
+  private String captureValue() throws IOException {
+    captureStart = position;
+    captured.setLength( 0 );
+    skipValue();
+    captured.append( buffer, captureStart, position - captureStart );
+    captureStart = -1;
+    return captured.toString();
+  }
+
+  /**
+   * Positions the reader just inside the top level "rows" array
+   */
+  private boolean findRows() throws IOException {
+    int c = skipWhitespace();
+    if ( c < 0 ) {
+      // Empty response
+      return false;
+    }
+    if ( c != '{' ) {
+      throw unexpected( c );
+    }
+    position++;
+    while ( true ) {
+      c = skipWhitespace();
+      if ( c == '}' || c < 0 ) {
+        return false;
+      }
+      if ( c == ',' ) {
+        position++;
+        continue;
+      }
+      String name = readName();
+      c = skipWhitespace();
+      if ( c != ':' ) {
+        throw unexpected( c );
+      }
+      position++;
+      c = skipWhitespace();
+      if ( ROWS.equals( name ) && c == '[' ) {
+        position++;
+        inRows = true;
+        return true;
+      }
+      skipValue();
+    }
+  }
+
+  private String readName() throws IOException {
+    int c = peek();
+    if ( c != '"' ) {
+      throw unexpected( c );
+    }
+    String name = captureValue();
+    // Member names we care about don't contain escapes so the raw text is good enough
+    return name.substring( 1, name.length() - 1 );
+  }
+
+  /**
+   * Advances past the value starting at the current position (after any whitespace)
+   */
+  private void skipValue() throws IOException {
+    int c = peek();
+    if ( c == '"' ) {
+      position++;
+      skipStringContent();
+      return;
+    }
+    if ( c == '{' || c == '[' ) {
+      int depth = 0;
+      while ( true ) {
+        if ( position >= limit && !fill() ) {
+          throw new IOException( "Unexpected end of CouchDB view response" );
+        }
+        char ch = buffer[ position++ ];
+        switch ( ch ) {
+          case '"':
+            skipStringContent();
+            break;
+          case '{':
+          case '[':
+            depth++;
+            break;
+          case '}':
+          case ']':
+            if ( --depth == 0 ) {
+              return;
+            }
+            break;
+          default:
+            break;
+        }
+      }
+    }
+    // Number, true, false or null
+    while ( true ) {
+      if ( position >= limit && !fill() ) {
+        return;
+      }
+      char ch = buffer[ position ];
+      if ( ch == ',' || ch == '}' || ch == ']' || Character.isWhitespace( ch ) ) {
+        return;
+      }
+      position++;
+    }
+  }
+
+  /**
+   * Advances past the closing quote of a string whose opening quote has already been consumed
+   */
+  private void skipStringContent() throws IOException {
+    while ( true ) {
+      if ( position >= limit && !fill() ) {
+        throw new IOException( "Unterminated string in CouchDB view response" );
+      }
+      char ch = buffer[ position++ ];
+      if ( ch == '"' ) {
+        return;
+      }
+      if ( ch == '\\' ) {
+        if ( position >= limit && !fill() ) {
+          throw new IOException( "Unterminated string in CouchDB view response" );
+        }
+        position++;
+      }
+    }
+  }
+
+  private int skipWhitespace() throws IOException {
+    while ( true ) {
+      if ( position >= limit && !fill() ) {
+        return -1;
+      }
+      char ch = buffer[ position ];
+      if ( !Character.isWhitespace( ch ) ) {
+        return ch;
+      }
+      position++;
+    }
+  }
+
+  private int peek() throws IOException {
+    if ( position >= limit && !fill() ) {
+      return -1;
+    }
+    return buffer[ position ];
+  }
+
+  private boolean fill() throws IOException {
+    if ( captureStart >= 0 ) {
+      // Keep what has been scanned of the value being captured before the buffer is reused
+      captured.append( buffer, captureStart, limit - captureStart );
+      captureStart = 0;
+    }
+    position = 0;
+    limit = 0;
+    int read;
+    do {
+      read = reader.read( buffer, 0, buffer.length );
+    } while ( read == 0 );
+    if ( read < 0 ) {
+      return false;
+    }
+    limit = read;
+    return true;
+  }
+
+  private IOException unexpected( int c ) {
+    return new IOException( "Unexpected " + ( c < 0 ? "end of input" : "character '" + (char) c + "'" )
+      + " in CouchDB view response" );
+  }
+
+  /**
+   * Returns the raw JSON text of a top level member of an object, e.g. the "key" or "id" of a view entry
+   *
+   * @param json the JSON object text
+   * @param name the member name
+   * @return the member's value as JSON text or null if it isn't present
+   */
+  public static String getMember( String json, String name ) {
+    try ( CouchDbViewReader memberReader =
+            new CouchDbViewReader( new StringReader( json ), Math.max( json.length(), 1 ) ) ) {
+      int c = memberReader.skipWhitespace();
+      if ( c != '{' ) {
+        return null;
+      }
+      memberReader.position++;
+      while ( true ) {
+        c = memberReader.skipWhitespace();
+        if ( c == '}' || c < 0 ) {
+          return null;
+        }
+        if ( c == ',' ) {
+          memberReader.position++;
+          continue;
+        }
+        String memberName = memberReader.readName();
+        if ( memberReader.skipWhitespace() != ':' ) {
+          return null;
+        }
+        memberReader.position++;
+        memberReader.skipWhitespace();
+        String value = memberReader.captureValue();
+        if ( name.equals( memberName ) ) {
+          return value;
+        }
+      }
+    } catch ( IOException e ) {
+      return null;
+    }
+  }
+
+  @Override public void close() throws IOException {
+    reader.close();
+  }
+}
@@ -63,6 +63,7 @@ public class CouchDbInputDialog extends BaseStepDialog implements StepDialogInte
   private TextVar wDbName;
   private TextVar wDesignDocument;
   private TextVar wViewName;
+  private TextVar wPageSize;
 
   private TextVar wAuthUser;
   private TextVar wAuthPass;
@@ -219,6 +220,26 @@ public class CouchDbInputDialog extends BaseStepDialog implements StepDialogInte
     wViewName.setLayoutData( fdViewName );
     lastControl = wViewName;
 
+    // page size input ...
+    //
+    Label wlPageSize = new Label( shell, SWT.RIGHT );
+    wlPageSize.setText( BaseMessages.getString( PKG, "CouchDbInputDialog.PageSize.Label" ) ); //$NON-NLS-1$
+    props.setLook( wlPageSize );
+    FormData fdlPageSize = new FormData();
+    fdlPageSize.left = new FormAttachment( 0, 0 );
+    fdlPageSize.right = new FormAttachment( middle, -margin );
+    fdlPageSize.top = new FormAttachment( lastControl, margin );
+    wlPageSize.setLayoutData( fdlPageSize );
+    wPageSize = new TextVar( transMeta, shell, SWT.SINGLE | SWT.LEFT | SWT.BORDER );
+    props.setLook( wPageSize );
+    wPageSize.addModifyListener( lsMod );
+    FormData fdPageSize = new FormData();
+    fdPageSize.left = new FormAttachment( middle, 0 );
+    fdPageSize.top = new FormAttachment( lastControl, margin );
+    fdPageSize.right = new FormAttachment( 100, 0 );
+    wPageSize.setLayoutData( fdPageSize );
+    lastControl = wPageSize;
+
     // Authentication...
     //
     // AuthUser line
@@ -305,6 +326,7 @@ public class CouchDbInputDialog extends BaseStepDialog implements StepDialogInte
     wHostname.addSelectionListener( lsDef );
     wDbName.addSelectionListener( lsDef );
     wViewName.addSelectionListener( lsDef );
+    wPageSize.addSelectionListener( lsDef );
     wAuthUser.addSelectionListener( lsDef );
     wAuthPass.addSelectionListener( lsDef );
 
@@ -339,6 +361,7 @@ public class CouchDbInputDialog extends BaseStepDialog implements StepDialogInte
     wDbName.setText( Const.NVL( input.getDbName(), "" ) ); //$NON-NLS-1$
     wDesignDocument.setText( Const.NVL( input.getDesignDocument(), "" ) ); //$NON-NLS-1$
     wViewName.setText( Const.NVL( input.getViewName(), "" ) ); //$NON-NLS-1$
+    wPageSize.setText( Const.NVL( input.getPageSize(), "" ) ); //$NON-NLS-1$
 
     wAuthUser.setText( Const.NVL( input.getAuthenticationUser(), "" ) ); // $NON-NLS-1$
     wAuthPass.setText( Const.NVL( input.getAuthenticationPassword(), "" ) ); // $NON-NLS-1$
@@ -359,6 +382,7 @@ public class CouchDbInputDialog extends BaseStepDialog implements StepDialogInte
     meta.setDbName( wDbName.getText() );
     meta.setDesignDocument( wDesignDocument.getText() );
     meta.setViewName( wViewName.getText() );
+    meta.setPageSize( wPageSize.getText() );
 
     meta.setAuthenticationUser( wAuthUser.getText() );
     meta.setAuthenticationPassword( wAuthPass.getText() );
@@ -0,0 +1,213 @@
+/*******************************************************************************
+ *
+ * Pentaho Big Data
+ *
+ * Copyright (C) 2002-2016 by Pentaho : http://www.pentaho.com
+ *
+ *******************************************************************************
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ ******************************************************************************/
+
+package org.pentaho.amazon.s3;
+
+import com.amazonaws.AmazonClientException;
+import com.amazonaws.services.s3.AmazonS3;
+import com.amazonaws.services.s3.model.AbortMultipartUploadRequest;
+import com.amazonaws.services.s3.model.CompleteMultipartUploadRequest;
+import com.amazonaws.services.s3.model.InitiateMultipartUploadRequest;
+import com.amazonaws.services.s3.model.InitiateMultipartUploadResult;
+import com.amazonaws.services.s3.model.PartETag;
+import com.amazonaws.services.s3.model.PutObjectRequest;
+import com.amazonaws.services.s3.model.UploadPartRequest;
+import com.amazonaws.services.s3.model.UploadPartResult;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+import static org.mockito.Matchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class S3MultipartOutputStreamTest {
+  private static final int PART_SIZE = 16;
+
+  private AmazonS3 client;
+  private Map<Integer, byte[]> uploadedParts;
+  private AtomicInteger failuresToInject;
+
+  private static byte[] readFully( InputStream in ) throws IOException {
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    byte[] buf = new byte[64];
+    int n;
+    while ( ( n = in.read( buf ) ) >= 0 ) {
+      out.write( buf, 0, n );
+    }
+    return out.toByteArray();
+  }
+
+  private static byte[] data( int length ) {
+    byte[] data = new byte[length];
+    for ( int i = 0; i < length; i++ ) {
+      data[i] = (byte) i;
+    }
+    return data;
+  }
+
+  @Before
+  public void setup() {
+    // in-memory stand-in for the parts of the S3 API the stream uses
+    client = mock( AmazonS3.class );
+    uploadedParts = new ConcurrentHashMap<Integer, byte[]>();
+    failuresToInject = new AtomicInteger();
+    InitiateMultipartUploadResult initiateResult = new InitiateMultipartUploadResult();
+    initiateResult.setUploadId( "upload" );
+    when( client.initiateMultipartUpload( any( InitiateMultipartUploadRequest.class ) ) ).thenReturn( initiateResult );
+    when( client.uploadPart( any( UploadPartRequest.class ) ) ).thenAnswer( new Answer<UploadPartResult>() {
+      @Override
+      public UploadPartResult answer( InvocationOnMock invocation ) throws Throwable {
+        if ( failuresToInject.getAndDecrement() > 0 ) {
+          throw new AmazonClientException( "injected" );
+        }
+        UploadPartRequest request = (UploadPartRequest) invocation.getArguments()[0];
+        assertEquals( "upload", request.getUploadId() );
+        uploadedParts.put( request.getPartNumber(), readFully( request.getInputStream() ) );
+        UploadPartResult result = new UploadPartResult();
+        result.setPartNumber( request.getPartNumber() );
+        result.setETag( "etag" + request.getPartNumber() );
+        return result;
+      }
+    } );
+  }
+
+  private byte[] completedObject() {
+    ArgumentCaptor<CompleteMultipartUploadRequest> captor =
+      ArgumentCaptor.forClass( CompleteMultipartUploadRequest.class );
+    verify( client ).completeMultipartUpload( captor.capture() );
+    List<PartETag> etags = captor.getValue().getPartETags();
+    ByteArrayOutputStream object = new ByteArrayOutputStream();
+    for ( int i = 0; i < etags.size(); i++ ) {
+      assertEquals( i + 1, etags.get( i ).getPartNumber() );
+      assertEquals( "etag" + ( i + 1 ), etags.get( i ).getETag() );
+      byte[] part = uploadedParts.get( i + 1 );
+      object.write( part, 0, part.length );
+    }
+    return object.toByteArray();
+  }
+
+  @Test
+  public void testSmallObjectUsesSinglePut() throws Exception {
+    S3MultipartOutputStream out = new S3MultipartOutputStream( client, "bucket", "key", PART_SIZE, 2, 0 );
+    out.write( data( 10 ) );
+    out.close();
+
+    ArgumentCaptor<PutObjectRequest> captor = ArgumentCaptor.forClass( PutObjectRequest.class );
+    verify( client ).putObject( captor.capture() );
+    assertEquals( "bucket", captor.getValue().getBucketName() );
+    assertEquals( "key", captor.getValue().getKey() );
+    assertArrayEquals( data( 10 ), readFully( captor.getValue().getInputStream() ) );
+    verify( client, never() ).initiateMultipartUpload( any( InitiateMultipartUploadRequest.class ) );
+    assertNull( out.getUploadId() );
+  }
+
+  @Test
+  public void testLargeObjectUploadedInParts() throws Exception {
+    S3MultipartOutputStream out = new S3MultipartOutputStream( client, "bucket", "key", PART_SIZE, 2, 0 );
+    byte[] data = data( 5 * PART_SIZE + 3 );
+    // mix of single byte and array writes, crossing part boundaries
+    out.write( data[0] );
+    out.write( data, 1, 40 );
+    out.write( data, 41, data.length - 41 );
+    out.close();
+
+    assertEquals( 6, uploadedParts.size() );
+    assertArrayEquals( data, completedObject() );
+    verify( client, never() ).abortMultipartUpload( any( AbortMultipartUploadRequest.class ) );
+  }
+
+  @Test
+  public void testFailedPartIsRetried() throws Exception {
+    failuresToInject.set( 2 );
+    S3MultipartOutputStream out = new S3MultipartOutputStream( client, "bucket", "key", PART_SIZE, 1, 2 );
+    byte[] data = data( 2 * PART_SIZE );
+    out.write( data );
+    out.close();
+
+    assertArrayEquals( data, completedObject() );
+  }
+
+  @Test
+  public void testUploadAbortedWhenPartFails() throws Exception {
+    failuresToInject.set( Integer.MAX_VALUE );
+    S3MultipartOutputStream out = new S3MultipartOutputStream( client, "bucket", "key", PART_SIZE, 1, 1 );
+    try {
+      out.write( data( 3 * PART_SIZE ) );
+      out.close();
+      fail( "expected the upload to fail" );
+    } catch ( IOException e ) {
+      assertTrue( e.getCause() instanceof AmazonClientException );
+    }
+    out.abort();
+    verify( client ).abortMultipartUpload( any( AbortMultipartUploadRequest.class ) );
+    verify( client, never() ).completeMultipartUpload( any( CompleteMultipartUploadRequest.class ) );
+  }
+
+  @Test
+  public void testAbort() throws Exception {
+    S3MultipartOutputStream out = new S3MultipartOutputStream( client, "bucket", "key", PART_SIZE, 2, 0 );
+    out.write( data( 2 * PART_SIZE + 1 ) );
+    out.abort();
+    out.close();
+
+    ArgumentCaptor<AbortMultipartUploadRequest> captor = ArgumentCaptor.forClass( AbortMultipartUploadRequest.class );
+    verify( client ).abortMultipartUpload( captor.capture() );
+    assertEquals( "upload", captor.getValue().getUploadId() );
+    verify( client, never() ).completeMultipartUpload( any( CompleteMultipartUploadRequest.class ) );
+    verify( client, never() ).putObject( any( PutObjectRequest.class ) );
+  }
+
+  @Test( expected = IOException.class )
+  public void testWriteAfterClose() throws Exception {
+    S3MultipartOutputStream out = new S3MultipartOutputStream( client, "bucket", "key", PART_SIZE, 2, 0 );
+    out.close();
+    out.write( 1 );
+  }
+
+  @Test
+  public void testGetBucketAndKey() {
+    assertArrayEquals( new String[] { "bucket", "dir/file.txt" },
+      S3FileOutput.getBucketAndKey( "s3://s3/bucket/dir/file.txt" ) );
+    assertNull( S3FileOutput.getBucketAndKey( "s3://s3/bucket" ) );
+    assertNull( S3FileOutput.getBucketAndKey( "s3://s3/bucket/" ) );
+    assertNull( S3FileOutput.getBucketAndKey( "file:///tmp/file.txt" ) );
+    assertNull( S3FileOutput.getBucketAndKey( null ) );
+  }
+}
@@ -22,26 +22,237 @@
 
 package org.pentaho.di.trans.steps.avroinput;
 
+import org.apache.avro.Schema;
+import org.apache.avro.file.DataFileWriter;
+import org.apache.avro.generic.GenericData;
+import org.apache.avro.generic.GenericDatumReader;
+import org.apache.avro.generic.GenericDatumWriter;
+import org.apache.avro.io.BinaryEncoder;
+import org.apache.avro.io.Decoder;
+import org.apache.avro.io.DecoderFactory;
+import org.apache.avro.io.EncoderFactory;
 import org.apache.avro.util.Utf8;
+import org.junit.BeforeClass;
 import org.junit.Test;
 import org.pentaho.di.core.exception.KettleException;
+import org.pentaho.di.core.exception.KettlePluginException;
+import org.pentaho.di.core.logging.LogChannelInterface;
+import org.pentaho.di.core.plugins.PluginRegistry;
 import org.pentaho.di.core.row.RowMeta;
 import org.pentaho.di.core.row.ValueMetaInterface;
+import org.pentaho.di.core.row.value.ValueMetaBinary;
+import org.pentaho.di.core.row.value.ValueMetaInteger;
+import org.pentaho.di.core.row.value.ValueMetaPluginType;
 import org.pentaho.di.core.row.value.ValueMetaString;
 import org.pentaho.di.core.variables.Variables;
+import org.pentaho.di.core.vfs.KettleVFS;
 
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
 import java.util.Map;
+import java.util.Set;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotSame;
 import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.mock;
 
 /**
  * Created by bryan on 10/21/15.
  */
 public class AvroInputDataTest {
+  private static final String SCHEMA =
+    "{\"type\":\"record\",\"name\":\"person\",\"fields\":[{\"name\":\"age\",\"type\":\"int\"}]}";
+
+  @BeforeClass
+  public static void beforeClass() throws KettlePluginException {
+    PluginRegistry.addPluginType( ValueMetaPluginType.getInstance() );
+    PluginRegistry.init( false );
+  }
+
+  private static AvroInputData fieldDecodingData( Schema schema, ValueMetaInterface avroFieldMeta, boolean json )
+    throws KettleException {
+    RowMeta rowMeta = new RowMeta();
+    rowMeta.addValueMeta( avroFieldMeta );
+    rowMeta.addValueMeta( new ValueMetaInteger( "age" ) );
+
+    AvroInputMeta.AvroField field = new AvroInputMeta.AvroField();
+    field.m_fieldName = "age";
+    field.m_fieldPath = "$.age";
+    field.m_kettleType = "Integer";
+
+    AvroInputData data = new AvroInputData();
+    data.m_outputRowMeta = rowMeta;
+    data.m_decodingFromField = true;
+    data.m_fieldToDecodeIndex = 0;
+    data.m_newFieldOffset = 1;
+    data.m_jsonEncoded = json;
+    data.m_schemaToUse = schema;
+    data.m_defaultSchema = schema;
+    data.m_datumReader = new GenericDatumReader( schema );
+    data.m_defaultDatumReader = data.m_datumReader;
+    data.m_factory = new DecoderFactory();
+    data.m_normalFields = new ArrayList<AvroInputMeta.AvroField>( Arrays.asList( field ) );
+    data.init();
+    return data;
+  }
+
+  private static byte[] encode( Schema schema, int age ) throws IOException {
+    GenericData.Record record = new GenericData.Record( schema );
+    record.put( "age", age );
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    BinaryEncoder encoder = EncoderFactory.get().binaryEncoder( out, null );
+    new GenericDatumWriter<GenericData.Record>( schema ).write( record, encoder );
+    encoder.flush();
+    return out.toByteArray();
+  }
+
+  @Test
+  public void testBinaryDecoderReusedAcrossRows() throws Exception {
+    Schema schema = new Schema.Parser().parse( SCHEMA );
+    AvroInputData data = fieldDecodingData( schema, new ValueMetaBinary( "avro" ), false );
+
+    Object[][] rows = data.avroObjectToKettle( new Object[] { encode( schema, 20 ) }, new Variables() );
+    assertEquals( 20L, rows[0][1] );
+    Decoder decoder = data.m_decoder;
+    GenericData.Record record = data.m_topLevelRecord;
+
+    rows = data.avroObjectToKettle( new Object[] { encode( schema, 25 ) }, new Variables() );
+    assertEquals( 25L, rows[0][1] );
+    assertSame( decoder, data.m_decoder );
+    assertSame( record, data.m_topLevelRecord );
+  }
+
+  @Test
+  public void testJsonDecoderReusedForSameSchema() throws Exception {
+    Schema schema = new Schema.Parser().parse( SCHEMA );
+    AvroInputData data = fieldDecodingData( schema, new ValueMetaString( "avro" ), true );
+
+    Object[][] rows = data.avroObjectToKettle( new Object[] { "{\"age\":20}" }, new Variables() );
+    assertEquals( 20L, rows[0][1] );
+    Decoder decoder = data.m_decoder;
+
+    rows = data.avroObjectToKettle( new Object[] { "{\"age\":25}" }, new Variables() );
+    assertEquals( 25L, rows[0][1] );
+    assertSame( decoder, data.m_decoder );
+  }
+
+  @Test
+  public void testContainerFileSplitBetweenCopies() throws Exception {
+    Schema schema = new Schema.Parser().parse( SCHEMA );
+    File file = File.createTempFile( "split", ".avro" );
+    file.deleteOnExit();
+    int count = 1000;
+    DataFileWriter<GenericData.Record> writer =
+      new DataFileWriter<GenericData.Record>( new GenericDatumWriter<GenericData.Record>( schema ) );
+    writer.setSyncInterval( 64 );
+    writer.create( schema, file );
+    for ( int i = 0; i < count; i++ ) {
+      GenericData.Record record = new GenericData.Record( schema );
+      record.put( "age", i );
+      writer.append( record );
+    }
+    writer.close();
+
+    int copies = 3;
+    Set<Object> seen = new HashSet<Object>();
+    // the copies share the meta's fields, just like the step's copies do
+    AvroInputMeta.AvroField field = new AvroInputMeta.AvroField();
+    field.m_fieldName = "age";
+    field.m_fieldPath = "$.age";
+    field.m_kettleType = "Integer";
+    for ( int copy = 0; copy < copies; copy++ ) {
+      RowMeta rowMeta = new RowMeta();
+      rowMeta.addValueMeta( new ValueMetaInteger( "age" ) );
+
+      AvroInputData data = new AvroInputData();
+      data.setOutputRowMeta( rowMeta );
+      data.establishFileType( KettleVFS.getFileObject( file.getAbsolutePath() ), null,
+        new ArrayList<AvroInputMeta.AvroField>( Arrays.asList( field ) ), false, 0, false, copy, copies,
+        mock( LogChannelInterface.class ) );
+      assertNotSame( field, data.m_normalFields.get( 0 ) );
+
+      int rowsInCopy = 0;
+      Object[][] rows;
+      while ( ( rows = data.avroObjectToKettle( null, new Variables() ) ) != null ) {
+        assertTrue( seen.add( rows[0][0] ) );
+        rowsInCopy++;
+      }
+      data.close();
+      assertFalse( rowsInCopy == 0 );
+    }
+    assertEquals( count, seen.size() );
+  }
+
+  @Test
+  public void testNonContainerFileReadByFirstCopyOnly() throws Exception {
+    Schema schema = new Schema.Parser().parse( SCHEMA );
+    File schemaFile = File.createTempFile( "person", ".avsc" );
+    schemaFile.deleteOnExit();
+    Files.write( schemaFile.toPath(), SCHEMA.getBytes( "UTF-8" ) );
+    File file = File.createTempFile( "raw", ".avro" );
+    file.deleteOnExit();
+    int count = 10;
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    for ( int i = 0; i < count; i++ ) {
+      out.write( encode( schema, i ) );
+    }
+    Files.write( file.toPath(), out.toByteArray() );
+
+    int copies = 2;
+    int[] rowsInCopy = new int[copies];
+    for ( int copy = 0; copy < copies; copy++ ) {
+      RowMeta rowMeta = new RowMeta();
+      rowMeta.addValueMeta( new ValueMetaInteger( "age" ) );
+      AvroInputMeta.AvroField field = new AvroInputMeta.AvroField();
+      field.m_fieldName = "age";
+      field.m_fieldPath = "$.age";
+      field.m_kettleType = "Integer";
+
+      AvroInputData data = new AvroInputData();
+      data.setOutputRowMeta( rowMeta );
+      data.establishFileType( KettleVFS.getFileObject( file.getAbsolutePath() ), schemaFile.getAbsolutePath(),
+        new ArrayList<AvroInputMeta.AvroField>( Arrays.asList( field ) ), false, 0, false, copy, copies,
+        mock( LogChannelInterface.class ) );
+      while ( data.avroObjectToKettle( null, new Variables() ) != null ) {
+        rowsInCopy[copy]++;
+      }
+      data.close();
+    }
+    assertEquals( count, rowsInCopy[0] );
+    assertEquals( 0, rowsInCopy[1] );
+  }
+
+  @Test
+  public void testSplitStart() {
+    assertEquals( 0, AvroInputData.splitStart( 100, 0, 3 ) );
+    assertEquals( 33, AvroInputData.splitStart( 100, 1, 3 ) );
+    assertEquals( 100, AvroInputData.splitStart( 100, 3, 3 ) );
+  }
+
+  @Test
+  public void testSchemaCacheEvictsLeastRecentlyUsed() {
+    Map<String, Object[]> cache = AvroInputData.newSchemaCache( 2 );
+    cache.put( "a", new Object[2] );
+    cache.put( "b", new Object[2] );
+    cache.get( "a" );
+    cache.put( "c", new Object[2] );
+    assertEquals( 2, cache.size() );
+    assertTrue( cache.containsKey( "a" ) );
+    assertTrue( cache.containsKey( "c" ) );
+  }
+
   @Test
   public void testCleansePath() {
     assertEquals( "const.name", AvroInputData.cleansePath( "const.name" ) );
@@ -62,6 +273,42 @@ public class AvroInputDataTest {
       .convertToKettleValues( (Map<Utf8, Object>) null, null, null, null, true ) );
   }
 
+  @Test
+  public void testAvroArrayExpansionResolvesVariablesInPath() throws KettleException {
+    Schema schema = new Schema.Parser().parse( "{\"type\":\"record\",\"name\":\"top\",\"fields\":["
+      + "{\"name\":\"people\",\"type\":{\"type\":\"array\",\"items\":{\"type\":\"record\","
+      + "\"name\":\"person\",\"fields\":[{\"name\":\"name\",\"type\":\"string\"}]}}}]}" );
+    Schema peopleSchema = schema.getField( "people" ).schema();
+    GenericData.Array<GenericData.Record> people = new GenericData.Array<GenericData.Record>( 2, peopleSchema );
+    for ( String name : new String[] { "a", "b" } ) {
+      GenericData.Record person = new GenericData.Record( peopleSchema.getElementType() );
+      person.put( "name", name );
+      people.add( person );
+    }
+    GenericData.Record top = new GenericData.Record( schema );
+    top.put( "people", people );
+
+    AvroInputMeta.AvroField field = new AvroInputMeta.AvroField();
+    field.m_fieldName = "name";
+    field.m_fieldPath = "$.${list}[*].name";
+    field.m_kettleType = "String";
+    RowMeta rowMeta = new RowMeta();
+    rowMeta.addValueMeta( new ValueMetaString( "name" ) );
+    List<AvroInputMeta.AvroField> fields = new ArrayList<AvroInputMeta.AvroField>( Arrays.asList( field ) );
+    AvroInputData.AvroArrayExpansion expansion = AvroInputData.checkFieldPaths( fields, rowMeta );
+    expansion.init();
+
+    Variables variables = new Variables();
+    variables.setVariable( "list", "people" );
+    for ( int i = 0; i < 2; i++ ) {
+      expansion.reset( variables );
+      Object[][] rows = expansion.convertToKettleValues( top, schema, schema, variables, false );
+      assertEquals( 2, rows.length );
+      assertEquals( "a", rows[ 0 ][ 0 ] );
+      assertEquals( "b", rows[ 1 ][ 0 ] );
+    }
+  }
+
   @Test( expected = KettleException.class )
   public void testConvertToKettleValuesPartsMapMalformed() throws KettleException {
     AvroInputMeta.AvroField avroField = new AvroInputMeta.AvroField();
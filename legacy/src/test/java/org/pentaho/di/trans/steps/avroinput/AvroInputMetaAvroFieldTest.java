@@ -57,7 +57,9 @@ import java.util.HashMap;
 import java.util.Map;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
 import static org.mockito.Matchers.anyString;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.when;
@@ -407,4 +409,96 @@ public class AvroInputMetaAvroFieldTest {
     when( schema.getType() ).thenReturn( Schema.Type.LONG );
     assertEquals( 22L,  avroField.getPrimitive( node, schema ) );
   }
+
+  private static Schema nestedSchema() {
+    return new Schema.Parser().parse( "{\"type\":\"record\",\"name\":\"top\",\"fields\":["
+      + "{\"name\":\"id\",\"type\":\"int\"},"
+      + "{\"name\":\"scores\",\"type\":{\"type\":\"array\",\"items\":[\"null\",\"long\"]}},"
+      + "{\"name\":\"attrs\",\"type\":[\"null\",{\"type\":\"map\",\"values\":\"string\"}]}]}" );
+  }
+
+  private static GenericData.Record nestedRecord( Schema schema, int id, long score, String attr ) {
+    GenericData.Record record = new GenericData.Record( schema );
+    record.put( "id", id );
+    GenericData.Array<Object> scores = new GenericData.Array<Object>( 2, schema.getField( "scores" ).schema() );
+    scores.add( null );
+    scores.add( score );
+    record.put( "scores", scores );
+    Map<Utf8, Object> attrs = new HashMap<Utf8, Object>();
+    attrs.put( new Utf8( "color" ), attr );
+    record.put( "attrs", attrs );
+    return record;
+  }
+
+  @Test
+  public void testCompiledPathReusedAcrossRows() throws KettleException {
+    Schema schema = nestedSchema();
+    AvroInputMeta.AvroField score = new AvroInputMeta.AvroField();
+    score.m_kettleType = "Integer";
+    score.m_fieldPath = "$.scores[1]";
+    score.init( 0 );
+    AvroInputMeta.AvroField color = new AvroInputMeta.AvroField();
+    color.m_kettleType = "String";
+    color.m_fieldPath = "$.attrs[color]";
+    color.init( 1 );
+
+    for ( int i = 0; i < 3; i++ ) {
+      GenericData.Record record = nestedRecord( schema, i, 10L * i, "c" + i );
+      score.reset( variableSpace );
+      assertEquals( 10L * i, score.convertToKettleValue( record, schema, schema, false ) );
+      color.reset( variableSpace );
+      assertEquals( "c" + i, color.convertToKettleValue( record, schema, schema, false ) );
+    }
+  }
+
+  @Test
+  public void testCompiledPathNullArrayElement() throws KettleException {
+    Schema schema = nestedSchema();
+    avroField.m_kettleType = "Integer";
+    avroField.m_fieldPath = "$.scores[0]";
+    avroField.init( 0 );
+    avroField.reset( variableSpace );
+    assertNull( avroField.convertToKettleValue( nestedRecord( schema, 1, 5L, "x" ), schema, schema, false ) );
+  }
+
+  @Test
+  public void testVariablePathRecompiledWhenVariableChanges() throws KettleException {
+    Schema schema = nestedSchema();
+    GenericData.Record record = nestedRecord( schema, 7, 3L, "x" );
+    avroField.m_kettleType = "Integer";
+    avroField.m_fieldPath = "$.${field}";
+    avroField.init( 0 );
+
+    variableSpaceMap.put( "${field}", "id" );
+    avroField.reset( variableSpace );
+    assertEquals( 7L, avroField.convertToKettleValue( record, schema, schema, false ) );
+
+    variableSpaceMap.put( "${field}", "scores[1]" );
+    avroField.reset( variableSpace );
+    assertEquals( 3L, avroField.convertToKettleValue( record, schema, schema, false ) );
+  }
+
+  @Test
+  public void testCompilePath() {
+    AvroInputMeta.PathStep[] steps = AvroInputMeta.FieldPath.compilePath( Arrays.asList( "name[2][key]", "[x]" ) );
+    assertEquals( 4, steps.length );
+    assertEquals( "name", steps[0].m_text );
+    assertEquals( false, steps[0].m_bracketed );
+    assertEquals( "[2]", steps[1].m_text );
+    assertEquals( 2, steps[1].m_index );
+    assertEquals( true, steps[1].m_validIndex );
+    assertEquals( "key", steps[2].m_key );
+    assertEquals( false, steps[2].m_validIndex );
+    assertEquals( "[x]", steps[3].m_text );
+  }
+
+  @Test
+  public void testContainsVariable() {
+    assertTrue( AvroInputMeta.FieldPath.containsVariable( "${field}" ) );
+    assertTrue( AvroInputMeta.FieldPath.containsVariable( "a%%field%%" ) );
+    assertTrue( AvroInputMeta.FieldPath.containsVariable( "$[41]" ) );
+    assertFalse( AvroInputMeta.FieldPath.containsVariable( "name[0]" ) );
+    assertFalse( AvroInputMeta.FieldPath.containsVariable( "a%%b" ) );
+    assertFalse( AvroInputMeta.FieldPath.containsVariable( "${field" ) );
+  }
 }
@@ -90,6 +90,7 @@ public class AvroInputMetaTest {
     commonAttributes.add( "avroFields" );
     commonAttributes.add( "lookupFields" );
     commonAttributes.add( "dontComplainAboutMissingFields" );
+    commonAttributes.add( "readInParallel" );
 
     Map<String, FieldLoadSaveValidator<?>> fieldLoadSaveValidatorTypeMap = new HashMap<>();
 
@@ -84,6 +84,7 @@ public class CouchDbInputMetaTest {
     commonAttributes.add( "viewName" );
     commonAttributes.add( "authenticationUser" );
     commonAttributes.add( "authenticationPassword" );
+    commonAttributes.add( "pageSize" );
 
     LoadSaveTester<CouchDbInputMeta> couchDbInputLoadSaveTester =
       new LoadSaveTester<CouchDbInputMeta>( CouchDbInputMeta.class, commonAttributes );
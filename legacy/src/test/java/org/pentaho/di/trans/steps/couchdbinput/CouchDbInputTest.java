@@ -31,6 +31,8 @@ import org.apache.commons.httpclient.params.HttpClientParams;
 import org.junit.Before;
 import org.junit.Test;
 import org.mockito.ArgumentCaptor;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
 import org.pentaho.di.core.Const;
 import org.pentaho.di.core.encryption.Encr;
 import org.pentaho.di.core.encryption.TwoWayPasswordEncoderPluginType;
@@ -38,10 +40,15 @@ import org.pentaho.di.core.exception.KettleException;
 import org.pentaho.di.core.logging.LogChannelInterface;
 import org.pentaho.di.core.logging.LoggingObjectInterface;
 import org.pentaho.di.core.plugins.PluginRegistry;
+import org.pentaho.di.core.row.RowMetaInterface;
 import org.pentaho.di.trans.steps.mock.StepMockHelper;
 
 import java.io.ByteArrayInputStream;
 import java.io.IOException;
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
 
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
@@ -49,7 +56,9 @@ import static org.junit.Assert.assertTrue;
 import static org.mockito.Matchers.any;
 import static org.mockito.Matchers.anyObject;
 import static org.mockito.Matchers.eq;
+import static org.mockito.Mockito.doAnswer;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.spy;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
@@ -284,4 +293,118 @@ public class CouchDbInputTest {
 
     assertFalse( couchDbInput.init( couchDbInputMeta, couchDbInputData ) );
   }
+
+  private List<String> processRows( String pageSize, String... responses ) throws Exception {
+    String url = CouchDbInput.buildUrl( "testHostname", 9999, "testDbName", "testDoc", "testView" );
+    int size = Const.toInt( pageSize, 0 );
+    String[] pageUrls = new String[ responses.length ];
+    String startKey = null;
+    String startDocId = null;
+    for ( int i = 0; i < responses.length; i++ ) {
+      pageUrls[ i ] = CouchDbInput.buildPageUrl( url, size, startKey, startDocId );
+      String lastRow = null;
+      CouchDbViewReader viewReader = new CouchDbViewReader( new StringReader( responses[ i ] ) );
+      for ( String row = viewReader.nextRow(); row != null; row = viewReader.nextRow() ) {
+        lastRow = row;
+      }
+      if ( lastRow != null ) {
+        startKey = CouchDbViewReader.getMember( lastRow, "key" );
+        startDocId = CouchDbViewReader.getMember( lastRow, "id" );
+      }
+    }
+    return processPages( pageSize, pageUrls, responses );
+  }
+
+  private List<String> processPages( String pageSize, String[] pageUrls, String[] responses ) throws Exception {
+    CouchDbInputMeta couchDbInputMeta = (CouchDbInputMeta) stepMockHelper.initStepMetaInterface;
+    CouchDbInputData couchDbInputData = (CouchDbInputData) stepMockHelper.initStepDataInterface;
+
+    final String testHostname = "testHostname";
+    final String testPort = "9999";
+    final String testDbName = "testDbName";
+    final String testDoc = "testDoc";
+    final String testView = "testView";
+
+    when( couchDbInputMeta.getHostname() ).thenReturn( testHostname );
+    when( couchDbInputMeta.getPort() ).thenReturn( testPort );
+    when( couchDbInputMeta.getDbName() ).thenReturn( testDbName );
+    when( couchDbInputMeta.getDesignDocument() ).thenReturn( testDoc );
+    when( couchDbInputMeta.getViewName() ).thenReturn( testView );
+    when( couchDbInputMeta.getPageSize() ).thenReturn( pageSize );
+
+    HttpClient httpClient = mock( HttpClient.class );
+    when( httpClientFactory.createHttpClient() ).thenReturn( httpClient );
+    for ( int i = 0; i < responses.length; i++ ) {
+      GetMethod getMethod = mock( GetMethod.class );
+      when( getMethodFactory.create( pageUrls[ i ] ) ).thenReturn( getMethod );
+      when( httpClient.executeMethod( getMethod ) ).thenReturn( 200 );
+      when( getMethod.getResponseBodyAsStream() ).thenReturn( new ByteArrayInputStream( responses[ i ].getBytes() ) );
+    }
+
+    final List<String> rows = new ArrayList<>();
+    CouchDbInput spyInput = spy( couchDbInput );
+    doAnswer( new Answer<Void>() {
+      @Override public Void answer( InvocationOnMock invocation ) throws Throwable {
+        rows.add( (String) ( (Object[]) invocation.getArguments()[ 1 ] )[ 0 ] );
+        return null;
+      }
+    } ).when( spyInput ).putRow( any( RowMetaInterface.class ), any( Object[].class ) );
+
+    assertTrue( spyInput.init( couchDbInputMeta, couchDbInputData ) );
+    while ( spyInput.processRow( couchDbInputMeta, couchDbInputData ) ) {
+      // keep reading
+    }
+    return rows;
+  }
+
+  @Test
+  public void testProcessRows() throws Exception {
+    String row1 = "{\"id\":\"a\",\"key\":\"k1\",\"value\":\"a \\\" } quote\"}";
+    String row2 = "{\"id\":\"b\",\"key\":\"k2\",\"value\":{\"nested\":[1,2]}}";
+    assertEquals( Arrays.asList( row1, row2 ),
+      processRows( "", "{\"total_rows\":2,\"offset\":0,\"rows\":[\r\n" + row1 + ",\r\n" + row2 + "\r\n]}" ) );
+  }
+
+  @Test
+  public void testProcessRowsPaged() throws Exception {
+    String row1 = "{\"id\":\"a\",\"key\":[\"k\",1],\"value\":1}";
+    String row2 = "{\"id\":\"b\",\"key\":[\"k\",2],\"value\":2}";
+    String row3 = "{\"id\":\"c\",\"key\":[\"k\",3],\"value\":3}";
+    String row4 = "{\"id\":\"d\",\"key\":[\"k\",4],\"value\":4}";
+    String row5 = "{\"id\":\"e\",\"key\":[\"k\",5],\"value\":5}";
+    assertEquals( Arrays.asList( row1, row2, row3, row4, row5 ), processRows( "2",
+      "{\"total_rows\":5,\"offset\":0,\"rows\":[" + row1 + "," + row2 + "," + row3 + "]}",
+      "{\"total_rows\":5,\"offset\":2,\"rows\":[" + row3 + "," + row4 + "," + row5 + "]}",
+      "{\"total_rows\":5,\"offset\":4,\"rows\":[" + row5 + "]}" ) );
+  }
+
+  @Test
+  public void testProcessRowsPagedSameKeyAndDocument() throws Exception {
+    // Document a emits key k five times, more than fit in a page
+    String[] rows = new String[ 6 ];
+    for ( int i = 0; i < 5; i++ ) {
+      rows[ i ] = "{\"id\":\"a\",\"key\":\"k\",\"value\":" + i + "}";
+    }
+    rows[ 5 ] = "{\"id\":\"b\",\"key\":\"l\",\"value\":5}";
+    String url = "http://testHostname:9999/testDbName/_design/testDoc/_view/testView";
+    assertEquals( Arrays.asList( rows ), processPages( "2", new String[] {
+      url + "?limit=3",
+      url + "?limit=3&startkey=%22k%22&startkey_docid=a&skip=2",
+      url + "?limit=3&startkey=%22k%22&startkey_docid=a&skip=4"
+    }, new String[] {
+      "{\"total_rows\":6,\"offset\":0,\"rows\":[" + rows[ 0 ] + "," + rows[ 1 ] + "," + rows[ 2 ] + "]}",
+      "{\"total_rows\":6,\"offset\":2,\"rows\":[" + rows[ 2 ] + "," + rows[ 3 ] + "," + rows[ 4 ] + "]}",
+      "{\"total_rows\":6,\"offset\":4,\"rows\":[" + rows[ 4 ] + "," + rows[ 5 ] + "]}"
+    } ) );
+  }
+
+  @Test
+  public void testBuildPageUrl() throws IOException {
+    assertEquals( "http://host/db", CouchDbInput.buildPageUrl( "http://host/db", 0, "\"k\"", "\"id\"" ) );
+    assertEquals( "http://host/db?limit=11", CouchDbInput.buildPageUrl( "http://host/db", 10, null, null ) );
+    assertEquals( "http://host/db?limit=11&startkey=%5B%22k%22%2C1%5D&startkey_docid=doc+1",
+      CouchDbInput.buildPageUrl( "http://host/db", 10, "[\"k\",1]", "\"doc 1\"" ) );
+    assertEquals( "http://host/db?limit=11&startkey=%22k%22&startkey_docid=doc%22%2F%C3%A9&skip=3",
+      CouchDbInput.buildPageUrl( "http://host/db", 10, "\"k\"", "\"doc\\\"\\/\\u00e9\"", 3 ) );
+  }
 }
@@ -0,0 +1,103 @@
+/*! ******************************************************************************
+ *
+ * Pentaho Big Data
+ *
+ * Copyright (C) 2002-2016 by Pentaho : http://www.pentaho.com
+ *
+ *******************************************************************************
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ ******************************************************************************/
+
+
+package org.pentaho.di.trans.steps.couchdbinput;
+
+import org.junit.Test;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+public class CouchDbViewReaderTest {
+  private static final String ROW_1 =
+    "{\"id\":\"a\",\"key\":[\"x\",1],\"value\":{\"text\":\"braces } { and \\\"quotes\\\"\"}}";
+  private static final String ROW_2 = "{\"id\":\"b\",\"key\":\"y\",\"value\":null}";
+  private static final String ROW_3 = "{\"id\":\"c\",\"key\":\"z\",\"value\":[1, 2.5, true]}";
+
+  private List<String> readAll( String json, int bufferSize ) throws IOException {
+    List<String> rows = new ArrayList<>();
+    try ( CouchDbViewReader viewReader = new CouchDbViewReader( new StringReader( json ), bufferSize ) ) {
+      String row;
+      while ( ( row = viewReader.nextRow() ) != null ) {
+        rows.add( row );
+      }
+      assertNull( viewReader.nextRow() );
+    }
+    return rows;
+  }
+
+  @Test
+  public void testReadRows() throws IOException {
+    String json = "{\"total_rows\":3,\"offset\":0,\"rows\":[\n" + ROW_1 + ",\n" + ROW_2 + ",\n" + ROW_3 + "\n]}\n";
+    assertEquals( Arrays.asList( ROW_1, ROW_2, ROW_3 ), readAll( json, CouchDbViewReader.DEFAULT_BUFFER_SIZE ) );
+  }
+
+  @Test
+  public void testReadRowsSmallBuffer() throws IOException {
+    String json = "{\"total_rows\":3,\"offset\":0,\"rows\":[" + ROW_1 + "," + ROW_2 + "," + ROW_3 + "]}";
+    for ( int bufferSize = 1; bufferSize < 10; bufferSize++ ) {
+      assertEquals( Arrays.asList( ROW_1, ROW_2, ROW_3 ), readAll( json, bufferSize ) );
+    }
+  }
+
+  @Test
+  public void testRowsNotFirstMember() throws IOException {
+    String json = "{\"rows\":[" + ROW_2 + "],\"total_rows\":1,\"offset\":{\"rows\":[]}}";
+    assertEquals( Arrays.asList( ROW_2 ), readAll( json, 4 ) );
+    json = "{\"offset\":{\"rows\":[" + ROW_1 + "]},\"rows\":[" + ROW_2 + "]}";
+    assertEquals( Arrays.asList( ROW_2 ), readAll( json, 4 ) );
+  }
+
+  @Test
+  public void testNoRows() throws IOException {
+    assertEquals( 0, readAll( "{\"total_rows\":0,\"offset\":0,\"rows\":[]}", 16 ).size() );
+    assertEquals( 0, readAll( "{\"total_rows\":0}", 16 ).size() );
+    assertEquals( 0, readAll( "", 16 ).size() );
+  }
+
+  @Test( expected = IOException.class )
+  public void testNotAnObject() throws IOException {
+    readAll( "[" + ROW_1 + "]", 16 );
+  }
+
+  @Test( expected = IOException.class )
+  public void testTruncated() throws IOException {
+    readAll( "{\"rows\":[" + ROW_1.substring( 0, 20 ), 16 );
+  }
+
+  @Test
+  public void testGetMember() {
+    assertEquals( "\"a\"", CouchDbViewReader.getMember( ROW_1, "id" ) );
+    assertEquals( "[\"x\",1]", CouchDbViewReader.getMember( ROW_1, "key" ) );
+    assertEquals( "null", CouchDbViewReader.getMember( ROW_2, "value" ) );
+    assertNull( CouchDbViewReader.getMember( ROW_2, "text" ) );
+    assertNull( CouchDbViewReader.getMember( "", "id" ) );
+    assertNull( CouchDbViewReader.getMember( "[1]", "id" ) );
+  }
+}